@@ -3,6 +3,7 @@ package io.muserver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -23,6 +24,13 @@ public class AsyncContext implements ResponseInfo {
     public Object state;
 
     GrowableByteBufferInputStream requestBody;
+    RequestDecompressor decompressor;
+    RequestBodyAggregator aggregator;
+    RequestBodyFlowControl bodyFlowControl;
+    RequestBodySubscriptionImpl bodySubscription;
+    long queuedAtNanos;
+    Executor dispatchGate;
+    long queueDelayNanos;
     private final AtomicBoolean completed = new AtomicBoolean(false);
 
     AsyncContext(MuRequest request, MuResponse response, ResponseCompleteListener completedCallback) {
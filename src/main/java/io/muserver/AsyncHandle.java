@@ -18,6 +18,20 @@ public interface AsyncHandle {
      */
     void setReadListener(RequestBodyListener readListener);
 
+    /**
+     * <p>Subscribes to the request body, so that it is read from the client only as fast as the subscriber
+     * requests it.</p>
+     * <p>This is an alternative to {@link #setReadListener(RequestBodyListener)}, and cannot be used with it or with
+     * the blocking request reading methods.</p>
+     * <p>The default implementation throws an {@link UnsupportedOperationException}, and is overridden by the
+     * handles that the server creates.</p>
+     * @param subscriber The subscriber that will receive the request body
+     * @throws UnsupportedOperationException if this handle does not support subscriptions
+     */
+    default void subscribe(RequestBodySubscriber subscriber) {
+        throw new UnsupportedOperationException("Request body subscriptions are not supported by " + getClass().getName());
+    }
+
     /**
      * Call this to indicate that the response is complete.
      */
@@ -0,0 +1,143 @@
+package io.muserver;
+
+import javax.ws.rs.ServiceUnavailableException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>Limits how many requests can be in one part of an application at the same time, so that a slow dependency
+ * in that part cannot use up all the handler threads of the server.</p>
+ * <p>When the limit is reached, a limited number of further requests wait for a free slot, and all others are
+ * rejected with a <code>503 Service Unavailable</code>. A bulkhead is applied to a context with
+ * {@link ContextHandlerBuilder#withBulkhead(Bulkhead)} or to a single route with {@link #wrap(RouteHandler)},
+ * and the same bulkhead can be shared between several of them.</p>
+ * <p>Only the time spent in handlers is counted: a request that is handled asynchronously leaves the bulkhead
+ * when its handler returns.</p>
+ */
+public class Bulkhead {
+
+    private final String name;
+    private final int maxQueued;
+    private final long maxQueueMillis;
+    private final Semaphore permits;
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+
+    Bulkhead(String name, int maxConcurrency, int maxQueued, long maxQueueMillis) {
+        this.name = name;
+        this.maxQueued = maxQueued;
+        this.maxQueueMillis = maxQueueMillis;
+        this.permits = new Semaphore(maxConcurrency, true);
+    }
+
+    /**
+     * Creates a route handler that runs the given handler inside this bulkhead.
+     * @param handler The handler to limit
+     * @return A handler to pass to {@link MuServerBuilder#addHandler(Method, String, RouteHandler)} or similar
+     */
+    public RouteHandler wrap(RouteHandler handler) {
+        Mutils.notNull("handler", handler);
+        return (request, response, pathParams) -> {
+            enter(request);
+            try {
+                handler.handle(request, response, pathParams);
+            } finally {
+                exit();
+            }
+        };
+    }
+
+    /**
+     * Waits for a slot in this bulkhead, which must be given back with {@link #exit()}
+     * @param request The request entering the bulkhead
+     * @throws ServiceUnavailableException if no slot is free and the request cannot wait for one
+     */
+    void enter(MuRequest request) {
+        if (!permits.tryAcquire()) {
+            if (queued.incrementAndGet() > maxQueued) {
+                queued.decrementAndGet();
+                reject(request);
+            }
+            boolean acquired;
+            try {
+                acquired = permits.tryAcquire(maxQueueMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                acquired = false;
+            } finally {
+                queued.decrementAndGet();
+            }
+            if (!acquired) {
+                reject(request);
+            }
+        }
+        active.incrementAndGet();
+    }
+
+    void exit() {
+        active.decrementAndGet();
+        completed.incrementAndGet();
+        permits.release();
+    }
+
+    private void reject(MuRequest request) {
+        rejected.incrementAndGet();
+        if (request instanceof NettyRequestAdapter) {
+            ((NettyRequestAdapter) request).serverImpl().stats.onRejectedDueToOverload();
+        }
+        throw new ServiceUnavailableException("The server is too busy to handle this request. Please try again later.");
+    }
+
+    /**
+     * @return The name given to {@link BulkheadBuilder#withName(String)}
+     */
+    public String name() {
+        return name;
+    }
+
+    /**
+     * @return The number of requests currently in this bulkhead
+     */
+    public int active() {
+        return active.get();
+    }
+
+    /**
+     * @return The number of requests waiting to enter this bulkhead
+     */
+    public int queued() {
+        return queued.get();
+    }
+
+    /**
+     * @return The number of requests that have been rejected because this bulkhead was full
+     */
+    public long rejected() {
+        return rejected.get();
+    }
+
+    /**
+     * @return The number of requests that have left this bulkhead
+     */
+    public long completed() {
+        return completed.get();
+    }
+
+    /**
+     * Creates a new bulkhead builder
+     * @return a new builder
+     */
+    public static BulkheadBuilder builder() {
+        return new BulkheadBuilder();
+    }
+
+    @Override
+    public String toString() {
+        return "Bulkhead{" + name + ": active=" + active() + ", queued=" + queued() + ", rejected=" + rejected()
+            + ", completed=" + completed() + "}";
+    }
+}
@@ -0,0 +1,89 @@
+package io.muserver;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A builder to create {@link Bulkhead} objects, which can be added to contexts with
+ * {@link ContextHandlerBuilder#withBulkhead(Bulkhead)} or to routes with {@link Bulkhead#wrap(RouteHandler)}.
+ */
+public class BulkheadBuilder {
+
+    private String name = "bulkhead";
+    private int maxConcurrency = 10;
+    private int maxQueued = 0;
+    private long maxQueueMillis = 1000;
+
+    /**
+     * Sets a name for the bulkhead, which is used in its <code>toString()</code>.
+     * @param name The name
+     * @return This builder
+     * @throws IllegalArgumentException if the name is null
+     */
+    public BulkheadBuilder withName(String name) {
+        Mutils.notNull("name", name);
+        this.name = name;
+        return this;
+    }
+
+    /**
+     * Sets the number of requests that can be in the bulkhead at the same time. The default is 10.
+     * @param maxConcurrency The maximum number of concurrent requests
+     * @return This builder
+     * @throws IllegalArgumentException if the value is less than 1
+     */
+    public BulkheadBuilder withMaxConcurrency(int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("The max concurrency must be at least 1 but was " + maxConcurrency);
+        }
+        this.maxConcurrency = maxConcurrency;
+        return this;
+    }
+
+    /**
+     * Sets the number of requests that can wait for a slot when the bulkhead is full. Waiting requests hold a
+     * handler thread, so this should be small. The default is 0, meaning requests are rejected as soon as the
+     * bulkhead is full.
+     * @param maxQueued The maximum number of waiting requests
+     * @return This builder
+     * @throws IllegalArgumentException if the value is negative
+     */
+    public BulkheadBuilder withMaxQueued(int maxQueued) {
+        if (maxQueued < 0) {
+            throw new IllegalArgumentException("The max queue size cannot be negative but was " + maxQueued);
+        }
+        this.maxQueued = maxQueued;
+        return this;
+    }
+
+    /**
+     * Sets how long a request waits for a slot before being rejected. The default is 1 second.
+     * @param duration The maximum time to wait
+     * @param unit The unit of the duration
+     * @return This builder
+     * @throws IllegalArgumentException if the duration is negative or unit is null
+     */
+    public BulkheadBuilder withMaxQueueTime(long duration, TimeUnit unit) {
+        if (duration < 0) {
+            throw new IllegalArgumentException("The max queue time cannot be negative but was " + duration);
+        }
+        Mutils.notNull("unit", unit);
+        this.maxQueueMillis = unit.toMillis(duration);
+        return this;
+    }
+
+    /**
+     * Creates a new builder
+     * @return A new bulkhead builder
+     */
+    public static BulkheadBuilder bulkhead() {
+        return new BulkheadBuilder();
+    }
+
+    /**
+     * Creates the bulkhead from the builder
+     * @return a new bulkhead
+     */
+    public Bulkhead build() {
+        return new Bulkhead(name, maxConcurrency, maxQueued, maxQueueMillis);
+    }
+}
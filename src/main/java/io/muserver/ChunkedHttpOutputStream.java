@@ -1,5 +1,6 @@
 package io.muserver;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 
 import java.io.IOException;
@@ -24,7 +25,9 @@ class ChunkedHttpOutputStream extends OutputStream {
         if (isClosed) {
             throw new IOException("Cannot write to closed output stream");
         }
-        response.write(Unpooled.wrappedBuffer(b, off, len), true);
+        // with write-behind the write returns before the bytes are sent, and the caller may then reuse the array
+        ByteBuf buffer = response.writesBehind() ? Unpooled.copiedBuffer(b, off, len) : Unpooled.wrappedBuffer(b, off, len);
+        response.write(buffer, true);
     }
 
     public void close() {
@@ -0,0 +1,122 @@
+package io.muserver;
+
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.SingleThreadEventExecutor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Settings for how responses are compressed.
+ * @see CompressionConfigBuilder
+ */
+public class CompressionConfig {
+    final int level;
+    final int strategy;
+    final Map<String, int[]> mimeTypeSettings;
+    final int busyPendingTasks;
+    final int busyLevel;
+    final int overloadedPendingTasks;
+    final DeflaterPool deflaterPool;
+    final List<ContentEncoder> encoders;
+
+    CompressionConfig(int level, int strategy, Map<String, int[]> mimeTypeSettings, int deflaterPoolSize,
+                      int busyPendingTasks, int busyLevel, int overloadedPendingTasks, List<ContentEncoder> encoders) {
+        this.level = level;
+        this.strategy = strategy;
+        this.mimeTypeSettings = mimeTypeSettings;
+        this.busyPendingTasks = busyPendingTasks;
+        this.busyLevel = busyLevel;
+        this.overloadedPendingTasks = overloadedPendingTasks;
+        this.deflaterPool = new DeflaterPool(deflaterPoolSize);
+        this.encoders = encoders;
+    }
+
+    /**
+     * Chooses the content-coding with the highest q-value in the client's <code>Accept-Encoding</code> header.
+     * Codings not listed take the q-value of <code>*</code> if it is given. When q-values are equal, the registered
+     * encoders are preferred, in the order they were added, followed by gzip and then deflate.
+     * @param acceptEncoding The parsed <code>Accept-Encoding</code> header of the request
+     * @return The content-coding to use, such as <code>gzip</code>, or null if none are acceptable
+     */
+    String chooseEncoding(List<ParameterizedHeaderWithValue> acceptEncoding) {
+        if (acceptEncoding.isEmpty()) {
+            return null;
+        }
+        String best = null;
+        double bestQ = 0;
+        for (ContentEncoder encoder : encoders) {
+            double q = ParameterizedHeaderWithValue.qValue(acceptEncoding, encoder.contentCoding());
+            if (q > bestQ) {
+                best = encoder.contentCoding();
+                bestQ = q;
+            }
+        }
+        double gzipQ = ParameterizedHeaderWithValue.qValue(acceptEncoding, "gzip");
+        if (gzipQ > bestQ) {
+            best = "gzip";
+            bestQ = gzipQ;
+        }
+        if (ParameterizedHeaderWithValue.qValue(acceptEncoding, "deflate") > bestQ) {
+            best = "deflate";
+        }
+        return best;
+    }
+
+    /**
+     * @param contentCoding A content-coding returned from {@link #chooseEncoding(List)}
+     * @return The registered encoder for the coding, or null if it is gzip or deflate
+     */
+    ContentEncoder encoderFor(CharSequence contentCoding) {
+        for (ContentEncoder encoder : encoders) {
+            if (encoder.contentCoding().equalsIgnoreCase(contentCoding.toString())) {
+                return encoder;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param executor The event loop that will compress the response
+     * @return True if the event loop is so busy that the response should not be compressed at all
+     */
+    boolean skipCompression(EventExecutor executor) {
+        return overloadedPendingTasks > -1 && pendingTasks(executor) > overloadedPendingTasks;
+    }
+
+    /**
+     * @param contentType The content type of the response, which may have parameters, or null
+     * @param executor The event loop that will compress the response
+     * @return The level to compress at, which is lowered when the event loop is busy
+     */
+    int levelFor(String contentType, EventExecutor executor) {
+        int[] typeSettings = settingsFor(contentType);
+        int level = typeSettings == null ? this.level : typeSettings[0];
+        if (busyPendingTasks > -1 && level > busyLevel && pendingTasks(executor) > busyPendingTasks) {
+            level = busyLevel;
+        }
+        return level;
+    }
+
+    /**
+     * @param contentType The content type of the response, which may have parameters, or null
+     * @return One of the {@link java.util.zip.Deflater} strategy constants
+     */
+    int strategyFor(String contentType) {
+        int[] typeSettings = settingsFor(contentType);
+        return typeSettings == null ? strategy : typeSettings[1];
+    }
+
+    private int[] settingsFor(String contentType) {
+        if (contentType == null || mimeTypeSettings.isEmpty()) {
+            return null;
+        }
+        int i = contentType.indexOf(';');
+        String mimeType = (i > -1 ? contentType.substring(0, i) : contentType).trim().toLowerCase();
+        return mimeTypeSettings.get(mimeType);
+    }
+
+    private static int pendingTasks(EventExecutor executor) {
+        return executor instanceof SingleThreadEventExecutor ? ((SingleThreadEventExecutor) executor).pendingTasks() : 0;
+    }
+}
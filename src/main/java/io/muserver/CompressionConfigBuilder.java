@@ -0,0 +1,198 @@
+package io.muserver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+/**
+ * <p>A builder for the settings used to compress responses, which can be passed to
+ * {@link MuServerBuilder#withCompressionConfig(CompressionConfigBuilder)}.</p>
+ * <p>Which responses are compressed is set with {@link MuServerBuilder#withGzip(long, java.util.Set)}; this controls how
+ * they are compressed. Higher levels use more CPU to save bandwidth. When a server is at its peak, the
+ * {@link #withReducedLevelWhenBusy(int, int)} and {@link #withNoCompressionWhenBusy(int)} options trade bandwidth
+ * back for latency by compressing less when the event loop sending a response has a backlog of tasks.</p>
+ * <p>Responses are encoded with gzip or deflate, or with an encoder added with {@link #withEncoder(ContentEncoder)}.
+ * The Brotli and zstd encoders from {@link ContentEncoders} are also used when their libraries are on the
+ * classpath.</p>
+ */
+public class CompressionConfigBuilder {
+
+    private int level = 6;
+    private int strategy = Deflater.DEFAULT_STRATEGY;
+    private final Map<String, int[]> mimeTypeSettings = new HashMap<>();
+    private int deflaterPoolSize = 16;
+    private int busyPendingTasks = -1;
+    private int busyLevel = 1;
+    private int overloadedPendingTasks = -1;
+    private final List<ContentEncoder> encoders = new ArrayList<>();
+    private boolean nativeEncoders = true;
+
+    /**
+     * @return A new builder with the default settings
+     */
+    public static CompressionConfigBuilder compression() {
+        return new CompressionConfigBuilder();
+    }
+
+    /**
+     * Sets the compression level for gzip and deflate. The default is 6.
+     * @param level The level, from 1 (fastest) to 9 (smallest)
+     * @return This builder
+     * @throws IllegalArgumentException if the level is out of range
+     */
+    public CompressionConfigBuilder withLevel(int level) {
+        this.level = validLevel(level);
+        return this;
+    }
+
+    /**
+     * Sets the deflate strategy. The default is {@link Deflater#DEFAULT_STRATEGY}.
+     * @param strategy One of {@link Deflater#DEFAULT_STRATEGY}, {@link Deflater#FILTERED} or
+     *                 {@link Deflater#HUFFMAN_ONLY}
+     * @return This builder
+     * @throws IllegalArgumentException if the strategy is not valid
+     */
+    public CompressionConfigBuilder withStrategy(int strategy) {
+        this.strategy = validStrategy(strategy);
+        return this;
+    }
+
+    /**
+     * Sets the level and strategy for one mime type, overriding the values from {@link #withLevel(int)} and
+     * {@link #withStrategy(int)}. For example JSON API responses that are generated for each request could use a
+     * low level, while static CSS files use a high level.
+     * @param mimeType The mime type, such as <code>application/json</code>
+     * @param level The level, from 1 (fastest) to 9 (smallest)
+     * @param strategy One of {@link Deflater#DEFAULT_STRATEGY}, {@link Deflater#FILTERED} or
+     *                 {@link Deflater#HUFFMAN_ONLY}
+     * @return This builder
+     * @throws IllegalArgumentException if the mime type is null or the level or strategy is not valid
+     */
+    public CompressionConfigBuilder withMimeType(String mimeType, int level, int strategy) {
+        Mutils.notNull("mimeType", mimeType);
+        mimeTypeSettings.put(mimeType.trim().toLowerCase(), new int[]{validLevel(level), validStrategy(strategy)});
+        return this;
+    }
+
+    /**
+     * Sets the number of idle {@link Deflater} objects kept for reuse for each of gzip and deflate. Creating a
+     * deflater allocates a few hundred kilobytes of native memory, so reusing them saves that cost on each
+     * compressed response. The default is 16.
+     * @param size The maximum number of idle deflaters to keep, or 0 to create a new one for each response
+     * @return This builder
+     * @throws IllegalArgumentException if the size is negative
+     */
+    public CompressionConfigBuilder withDeflaterPoolSize(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("The deflater pool size cannot be negative but was " + size);
+        }
+        this.deflaterPoolSize = size;
+        return this;
+    }
+
+    /**
+     * Compresses at a lower level when the event loop that sends a response has more than the given number of
+     * pending tasks when the response starts. This is off by default.
+     * @param pendingTasks The number of pending tasks above which the event loop is considered busy
+     * @param level The level to use when busy, from 1 (fastest) to 9 (smallest)
+     * @return This builder
+     * @throws IllegalArgumentException if the number of tasks is negative or the level is out of range
+     */
+    public CompressionConfigBuilder withReducedLevelWhenBusy(int pendingTasks, int level) {
+        if (pendingTasks < 0) {
+            throw new IllegalArgumentException("The number of pending tasks cannot be negative but was " + pendingTasks);
+        }
+        this.busyPendingTasks = pendingTasks;
+        this.busyLevel = validLevel(level);
+        return this;
+    }
+
+    /**
+     * Sends responses uncompressed when the event loop that sends a response has more than the given number of
+     * pending tasks when the response starts. This is off by default.
+     * @param pendingTasks The number of pending tasks above which responses are not compressed
+     * @return This builder
+     * @throws IllegalArgumentException if the number of tasks is negative
+     */
+    public CompressionConfigBuilder withNoCompressionWhenBusy(int pendingTasks) {
+        if (pendingTasks < 0) {
+            throw new IllegalArgumentException("The number of pending tasks cannot be negative but was " + pendingTasks);
+        }
+        this.overloadedPendingTasks = pendingTasks;
+        return this;
+    }
+
+    /**
+     * Adds an encoder that responses can be compressed with, in addition to gzip and deflate. When a client
+     * accepts more than one encoding with the same q-value, encoders added here are preferred over gzip and
+     * deflate, in the order they were added.
+     * @param encoder An encoder, for example from {@link ContentEncoders#brotli(int)}
+     * @return This builder
+     * @throws IllegalArgumentException if the encoder is null or uses a content-coding already added
+     */
+    public CompressionConfigBuilder withEncoder(ContentEncoder encoder) {
+        Mutils.notNull("encoder", encoder);
+        String coding = encoder.contentCoding();
+        if (Mutils.nullOrEmpty(coding)) {
+            throw new IllegalArgumentException("The encoder " + encoder + " has no content-coding");
+        }
+        if (hasEncoder(coding)) {
+            throw new IllegalArgumentException("An encoder for " + coding + " has already been added");
+        }
+        encoders.add(encoder);
+        return this;
+    }
+
+    /**
+     * Sets whether the Brotli and zstd encoders from {@link ContentEncoders} are used when their libraries are on the
+     * classpath. This is on by default. Encoders added with {@link #withEncoder(ContentEncoder)} are used either way.
+     * @param enabled True to use the native encoders that are available; false to not use them
+     * @return This builder
+     */
+    public CompressionConfigBuilder withNativeEncoders(boolean enabled) {
+        this.nativeEncoders = enabled;
+        return this;
+    }
+
+    /**
+     * @return A new compression config
+     */
+    public CompressionConfig build() {
+        List<ContentEncoder> allEncoders = new ArrayList<>(encoders);
+        if (nativeEncoders) {
+            for (ContentEncoder available : ContentEncoders.available()) {
+                if (!hasEncoder(available.contentCoding())) {
+                    allEncoders.add(available);
+                }
+            }
+        }
+        return new CompressionConfig(level, strategy, Collections.unmodifiableMap(new HashMap<>(mimeTypeSettings)),
+            deflaterPoolSize, busyPendingTasks, busyLevel, overloadedPendingTasks, Collections.unmodifiableList(allEncoders));
+    }
+
+    private boolean hasEncoder(String contentCoding) {
+        for (ContentEncoder encoder : encoders) {
+            if (encoder.contentCoding().equalsIgnoreCase(contentCoding)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int validLevel(int level) {
+        if (level < 1 || level > 9) {
+            throw new IllegalArgumentException("The compression level must be between 1 and 9 but was " + level);
+        }
+        return level;
+    }
+
+    private static int validStrategy(int strategy) {
+        if (strategy != Deflater.DEFAULT_STRATEGY && strategy != Deflater.FILTERED && strategy != Deflater.HUFFMAN_ONLY) {
+            throw new IllegalArgumentException("The strategy must be one of the Deflater strategy constants but was " + strategy);
+        }
+        return strategy;
+    }
+}
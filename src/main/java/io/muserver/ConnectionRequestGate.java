@@ -0,0 +1,89 @@
+package io.muserver;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Limits how many requests from one multiplexed connection are passed to the handler executor at the same time,
+ * so that a single HTTP/2 client opening many streams cannot take every handler thread. Requests over the limit
+ * wait in a per-connection queue and are released one at a time as the connection's other requests finish.
+ * A released request goes to the handler executor, or to the fair scheduler if there is one, which takes waiting
+ * requests from each connection in turn.
+ * <p>All methods must be called on the connection's event loop.</p>
+ */
+class ConnectionRequestGate {
+
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final Set<AsyncContext> running = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final ArrayDeque<Waiting> waiting = new ArrayDeque<>();
+
+    ConnectionRequestGate(int maxConcurrent, int maxQueued) {
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = maxQueued;
+    }
+
+    /**
+     * @param ctx A request on this connection
+     * @return An executor to set as the request's dispatch gate
+     */
+    Executor forRequest(AsyncContext ctx) {
+        return dispatch -> admit(ctx, dispatch);
+    }
+
+    void admit(AsyncContext ctx, Runnable dispatch) {
+        if (running.size() < maxConcurrent) {
+            running.add(ctx);
+            dispatch.run();
+        } else if (waiting.size() < maxQueued) {
+            waiting.add(new Waiting(ctx, dispatch));
+        } else {
+            throw new RejectedExecutionException("The connection already has " + running.size() + " requests in progress and "
+                + waiting.size() + " queued");
+        }
+    }
+
+    /**
+     * Called when a request has completed, including requests that were cancelled while queued
+     * @param ctx The request context
+     */
+    void onFinished(AsyncContext ctx) {
+        if (running.remove(ctx)) {
+            Waiting next = waiting.poll();
+            if (next != null) {
+                running.add(next.ctx);
+                next.dispatch.run();
+            }
+        } else {
+            for (Iterator<Waiting> iterator = waiting.iterator(); iterator.hasNext(); ) {
+                if (iterator.next().ctx == ctx) {
+                    iterator.remove();
+                    break;
+                }
+            }
+        }
+    }
+
+    int running() {
+        return running.size();
+    }
+
+    int queued() {
+        return waiting.size();
+    }
+
+    private static class Waiting {
+        private final AsyncContext ctx;
+        private final Runnable dispatch;
+
+        private Waiting(AsyncContext ctx, Runnable dispatch) {
+            this.ctx = ctx;
+            this.dispatch = dispatch;
+        }
+    }
+}
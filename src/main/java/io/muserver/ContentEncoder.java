@@ -0,0 +1,33 @@
+package io.muserver;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * <p>A response compression format, such as Brotli, which can be registered with
+ * {@link CompressionConfigBuilder#withEncoder(ContentEncoder)}. The <code>gzip</code> and <code>deflate</code>
+ * encodings are built in, and {@link ContentEncoders} has encoders for Brotli and zstd.</p>
+ * <p>When a response is compressed, the encoding is chosen from the ones the client accepts, using the q-values of
+ * its <code>Accept-Encoding</code> header. If the client has no preference, registered encoders are preferred over
+ * gzip and deflate, in the order they were registered.</p>
+ */
+public interface ContentEncoder {
+
+    /**
+     * @return The content-coding name used in the <code>Accept-Encoding</code> and <code>Content-Encoding</code>
+     * headers, such as <code>br</code>
+     */
+    String contentCoding();
+
+    /**
+     * Creates a stream that compresses the bytes of one response. The returned stream will be flushed after each
+     * write from the response, at which point everything written so far must be written to <code>out</code>, so
+     * that streamed responses reach the client as they are written. Closing it must finish the encoding and
+     * close <code>out</code>.
+     * @param out The stream to write compressed bytes to
+     * @param contentType The content type of the response, or null if unknown
+     * @return A stream that the uncompressed response body will be written to
+     * @throws IOException if the stream cannot be created
+     */
+    OutputStream encode(OutputStream out, String contentType) throws IOException;
+}
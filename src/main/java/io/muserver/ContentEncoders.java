@@ -0,0 +1,180 @@
+package io.muserver;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>Content encoders for Brotli and zstd, which use native libraries that are only loaded when they are on the
+ * classpath:</p>
+ * <ul>
+ *     <li>Brotli needs <code>com.aayushatharva.brotli4j:brotli4j</code> and its native library for the platform</li>
+ *     <li>zstd needs <code>com.github.luben:zstd-jni</code></li>
+ * </ul>
+ * <p>When these are available, they are used by default with the default settings. Use
+ * {@link CompressionConfigBuilder#withEncoder(ContentEncoder)} to use other settings.</p>
+ */
+public final class ContentEncoders {
+    private static final Logger log = LoggerFactory.getLogger(ContentEncoders.class);
+
+    private static final Constructor<?> brotliStream;
+    private static final Constructor<?> brotliParameters;
+    private static final Constructor<?> zstdStream;
+
+    static {
+        brotliParameters = loadBrotliParameters();
+        brotliStream = brotliParameters == null ? null
+            : constructor("com.aayushatharva.brotli4j.encoder.BrotliOutputStream", OutputStream.class, brotliParameters.getDeclaringClass());
+        zstdStream = loadZstd();
+    }
+
+    private ContentEncoders() {
+    }
+
+    /**
+     * @return True if the Brotli library is on the classpath and its native library could be loaded
+     */
+    public static boolean brotliAvailable() {
+        return brotliStream != null;
+    }
+
+    /**
+     * @return True if the zstd library is on the classpath and its native library could be loaded
+     */
+    public static boolean zstdAvailable() {
+        return zstdStream != null;
+    }
+
+    /**
+     * Creates a Brotli encoder, which uses the <code>br</code> content-coding
+     * @param quality The quality from 0 (fastest) to 11 (smallest). A quality of 4 uses about the same CPU as gzip
+     *                at level 6 while producing smaller output.
+     * @return A new encoder
+     * @throws IllegalStateException if {@link #brotliAvailable()} is false
+     * @throws IllegalArgumentException if the quality is out of range
+     */
+    public static ContentEncoder brotli(int quality) {
+        if (!brotliAvailable()) {
+            throw new IllegalStateException("Brotli is not available. Add com.aayushatharva.brotli4j:brotli4j and its native library to the classpath.");
+        }
+        if (quality < 0 || quality > 11) {
+            throw new IllegalArgumentException("The Brotli quality must be between 0 and 11 but was " + quality);
+        }
+        return new ReflectiveEncoder("br", (out) -> {
+            Object params = brotliParameters.newInstance();
+            params.getClass().getMethod("setQuality", int.class).invoke(params, quality);
+            return (OutputStream) brotliStream.newInstance(out, params);
+        });
+    }
+
+    /**
+     * Creates a zstd encoder, which uses the <code>zstd</code> content-coding
+     * @param level The level from 1 (fastest) to 22 (smallest). The default of 3 is faster than gzip with
+     *              similar or smaller output.
+     * @return A new encoder
+     * @throws IllegalStateException if {@link #zstdAvailable()} is false
+     * @throws IllegalArgumentException if the level is out of range
+     */
+    public static ContentEncoder zstd(int level) {
+        if (!zstdAvailable()) {
+            throw new IllegalStateException("zstd is not available. Add com.github.luben:zstd-jni to the classpath.");
+        }
+        if (level < 1 || level > 22) {
+            throw new IllegalArgumentException("The zstd level must be between 1 and 22 but was " + level);
+        }
+        return new ReflectiveEncoder("zstd", (out) -> (OutputStream) zstdStream.newInstance(out, level));
+    }
+
+    /**
+     * @return The encoders whose libraries are available, with their default settings
+     */
+    static List<ContentEncoder> available() {
+        List<ContentEncoder> encoders = new ArrayList<>();
+        if (brotliAvailable()) {
+            encoders.add(brotli(4));
+        }
+        if (zstdAvailable()) {
+            encoders.add(zstd(3));
+        }
+        return encoders;
+    }
+
+    private static Constructor<?> loadBrotliParameters() {
+        try {
+            Class<?> loader = Class.forName("com.aayushatharva.brotli4j.Brotli4jLoader");
+            if (!(Boolean) loader.getMethod("isAvailable").invoke(null)) {
+                log.info("Brotli compression is not available: " + loader.getMethod("getUnavailabilityCause").invoke(null));
+                return null;
+            }
+            return Class.forName("com.aayushatharva.brotli4j.encoder.Encoder$Parameters").getConstructor();
+        } catch (ClassNotFoundException e) {
+            return null;
+        } catch (Throwable e) {
+            log.info("Brotli compression is not available: " + e);
+            return null;
+        }
+    }
+
+    private static Constructor<?> loadZstd() {
+        try {
+            Class.forName("com.github.luben.zstd.util.Native").getMethod("load").invoke(null);
+            return constructor("com.github.luben.zstd.ZstdOutputStream", OutputStream.class, int.class);
+        } catch (ClassNotFoundException e) {
+            return null;
+        } catch (Throwable e) {
+            log.info("zstd compression is not available: " + e);
+            return null;
+        }
+    }
+
+    private static Constructor<?> constructor(String className, Class<?>... parameterTypes) {
+        try {
+            return Class.forName(className).getConstructor(parameterTypes);
+        } catch (Throwable e) {
+            log.info("Could not load " + className + ": " + e);
+            return null;
+        }
+    }
+
+    private interface StreamFactory {
+        OutputStream create(OutputStream out) throws Exception;
+    }
+
+    private static class ReflectiveEncoder implements ContentEncoder {
+        private final String contentCoding;
+        private final StreamFactory factory;
+
+        private ReflectiveEncoder(String contentCoding, StreamFactory factory) {
+            this.contentCoding = contentCoding;
+            this.factory = factory;
+        }
+
+        @Override
+        public String contentCoding() {
+            return contentCoding;
+        }
+
+        @Override
+        public OutputStream encode(OutputStream out, String contentType) throws IOException {
+            try {
+                return factory.create(out);
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                throw cause instanceof IOException ? (IOException) cause : new IOException("Could not create " + contentCoding + " encoder", cause);
+            } catch (Exception e) {
+                throw new IOException("Could not create " + contentCoding + " encoder", e);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "ContentEncoder{" + contentCoding + "}";
+        }
+    }
+}
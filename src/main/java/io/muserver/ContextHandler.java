@@ -12,8 +12,14 @@ public class ContextHandler implements MuHandler {
     private final List<MuHandler> muHandlers;
     private final String slashContextSlash;
     private final String slashContext;
+    private final ControlledDelay controlledDelay;
+    private final Bulkhead bulkhead;
 
     public ContextHandler(String contextPath, List<MuHandler> muHandlers) {
+        this(contextPath, muHandlers, null, null);
+    }
+
+    ContextHandler(String contextPath, List<MuHandler> muHandlers, ControlledDelay controlledDelay, Bulkhead bulkhead) {
         String slashTrimmed = Mutils.trim(Mutils.coalesce(contextPath, "").trim(), "/");
         this.hasContext = !slashTrimmed.isEmpty();
         this.contextPath = Stream.of(slashTrimmed.split("/"))
@@ -22,6 +28,8 @@ public class ContextHandler implements MuHandler {
         this.muHandlers = muHandlers;
         this.slashContextSlash = "/" + this.contextPath + "/";
         this.slashContext = "/" + this.contextPath;
+        this.controlledDelay = controlledDelay;
+        this.bulkhead = bulkhead;
     }
 
     @Override
@@ -34,18 +42,34 @@ public class ContextHandler implements MuHandler {
             return true;
         }
         if (rp.startsWith(slashContextSlash) || !hasContext) {
-            String originalContextPath = request.contextPath();
-            String originalRelativePath = request.relativePath();
-            if (hasContext) {
-                ((NettyRequestAdapter) request).addContext(contextPath);
+            if (controlledDelay != null) {
+                controlledDelay.check(request);
+            }
+            if (bulkhead == null) {
+                return handleInContext(request, response);
             }
-            for (MuHandler muHandler : muHandlers) {
-                if (muHandler.handle(request, response)) {
-                    return true;
-                }
+            bulkhead.enter(request);
+            try {
+                return handleInContext(request, response);
+            } finally {
+                bulkhead.exit();
+            }
+        }
+        return false;
+    }
+
+    private boolean handleInContext(MuRequest request, MuResponse response) throws Exception {
+        String originalContextPath = request.contextPath();
+        String originalRelativePath = request.relativePath();
+        if (hasContext) {
+            ((NettyRequestAdapter) request).addContext(contextPath);
+        }
+        for (MuHandler muHandler : muHandlers) {
+            if (muHandler.handle(request, response)) {
+                return true;
             }
-            ((NettyRequestAdapter) request).setPaths(originalContextPath, originalRelativePath);
         }
+        ((NettyRequestAdapter) request).setPaths(originalContextPath, originalRelativePath);
         return false;
     }
 }
@@ -3,6 +3,7 @@ package io.muserver;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import static io.muserver.MuServerBuilder.getContextualHandlerForResourceHandler;
 
@@ -12,6 +13,8 @@ import static io.muserver.MuServerBuilder.getContextualHandlerForResourceHandler
 public class ContextHandlerBuilder implements MuHandlerBuilder<ContextHandler> {
     private String path;
     private List<MuHandler> handlers = new ArrayList<>();
+    private ControlledDelay controlledDelay;
+    private Bulkhead bulkhead;
 
     /**
      * Sets the path to serve from.
@@ -25,6 +28,41 @@ public class ContextHandlerBuilder implements MuHandlerBuilder<ContextHandler> {
         return this;
     }
 
+    /**
+     * <p>Rejects requests to this context with a <code>503 Service Unavailable</code> and a <code>Retry-After</code>
+     * header when requests are consistently queued for longer than the target delay before reaching a handler
+     * thread, so that a backed-up server does not spend time on requests that clients may have given up on.</p>
+     * <p>Short bursts are allowed: requests are only rejected after a whole interval in which no request waited
+     * less than the target, and then only those that waited more than twice the target. Typical values are a
+     * target of 5ms to 50ms and an interval of 100ms to 1 second.</p>
+     * <p>See {@link MuServerBuilder#withControlledDelay(long, long, TimeUnit)} to apply this to all requests.</p>
+     *
+     * @param target The acceptable time for requests to wait for a handler thread
+     * @param interval The period over which the minimum queue time is compared to the target
+     * @param unit The unit of the target and interval
+     * @return Returns the current builder.
+     * @throws IllegalArgumentException if target or interval is less than 1, or unit is null
+     */
+    public ContextHandlerBuilder withControlledDelay(long target, long interval, TimeUnit unit) {
+        this.controlledDelay = new ControlledDelay(target, interval, unit);
+        return this;
+    }
+
+    /**
+     * <p>Limits the number of requests that can be handled in this context at the same time, so that slow
+     * handlers in this context cannot use up the handler threads that the rest of the server needs.</p>
+     * <p>Requests that cannot enter the bulkhead get a <code>503 Service Unavailable</code>. Rejections are counted
+     * by the bulkhead itself as well as in {@link MuStats#rejectedDueToOverload()}.</p>
+     *
+     * @param bulkhead The bulkhead to use, which may be shared with other contexts or routes, or null for none
+     * @return Returns the current builder.
+     * @see Bulkhead#wrap(RouteHandler)
+     */
+    public ContextHandlerBuilder withBulkhead(Bulkhead bulkhead) {
+        this.bulkhead = bulkhead;
+        return this;
+    }
+
     /**
      * <p>Create a new base path. Any handlers added with {@link #addHandler(MuHandler)}, {@link #addHandler(MuHandlerBuilder)} or
      * {@link #addHandler(Method, String, RouteHandler)} will be served relative to the path given.</p>
@@ -138,6 +176,6 @@ public class ContextHandlerBuilder implements MuHandlerBuilder<ContextHandler> {
 
     @Override
     public ContextHandler build() {
-        return new ContextHandler(path, handlers);
+        return new ContextHandler(path, handlers, controlledDelay, bulkhead);
     }
 }
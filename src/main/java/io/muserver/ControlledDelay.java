@@ -0,0 +1,61 @@
+package io.muserver;
+
+import javax.ws.rs.ServiceUnavailableException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sheds load based on how long requests waited for a handler thread, in the style of the CoDel (controlled delay)
+ * queue management algorithm.
+ * <p>A burst of requests makes some of them wait, but the shortest wait in an interval stays low as the queue
+ * drains. If even the shortest wait in an interval is above the target, the queue is not draining, so until an
+ * interval passes with a wait under the target, requests that waited more than twice the target are rejected
+ * with a <code>503</code> rather than being handled after the client may have given up.</p>
+ */
+class ControlledDelay {
+
+    private final long targetNanos;
+    private final long intervalNanos;
+    private final long retryAfterSeconds;
+    private long intervalEnd;
+    private long minDelayNanos = 0;
+    private boolean overloaded = false;
+
+    ControlledDelay(long target, long interval, TimeUnit unit) {
+        if (target < 1) {
+            throw new IllegalArgumentException("The target delay must be positive but was " + target);
+        }
+        if (interval < 1) {
+            throw new IllegalArgumentException("The interval must be positive but was " + interval);
+        }
+        Mutils.notNull("unit", unit);
+        this.targetNanos = unit.toNanos(target);
+        this.intervalNanos = unit.toNanos(interval);
+        this.retryAfterSeconds = Math.max(1, (long) Math.ceil(intervalNanos / 1e9));
+        this.intervalEnd = System.nanoTime();
+    }
+
+    /**
+     * Throws an exception if the request should be rejected because of its queue delay
+     * @param request The request about to be handled
+     * @throws ServiceUnavailableException if the request should be rejected
+     */
+    void check(MuRequest request) {
+        NettyRequestAdapter nettyRequest = (NettyRequestAdapter) request;
+        AsyncContext ctx = nettyRequest.nettyAsyncContext;
+        if (ctx != null && shouldDrop(ctx.queueDelayNanos, System.nanoTime())) {
+            nettyRequest.serverImpl().stats.onRejectedDueToOverload();
+            throw new ServiceUnavailableException("The server is too busy to handle this request. Please try again later.", retryAfterSeconds);
+        }
+    }
+
+    synchronized boolean shouldDrop(long queueDelayNanos, long now) {
+        if (now - intervalEnd >= 0) {
+            overloaded = minDelayNanos > targetNanos;
+            intervalEnd = now + intervalNanos;
+            minDelayNanos = queueDelayNanos;
+        } else if (queueDelayNanos < minDelayNanos) {
+            minDelayNanos = queueDelayNanos;
+        }
+        return overloaded && queueDelayNanos > 2 * targetNanos;
+    }
+}
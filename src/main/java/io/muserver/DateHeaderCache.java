@@ -0,0 +1,40 @@
+package io.muserver;
+
+import io.netty.util.AsciiString;
+import io.netty.util.concurrent.EventExecutorGroup;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds the current value of the <code>Date</code> header, which only has a resolution of one second, so that
+ * it does not need to be formatted for every response.
+ */
+class DateHeaderCache {
+
+    private volatile AsciiString value;
+
+    DateHeaderCache() {
+        refresh();
+    }
+
+    /**
+     * Starts refreshing the value at the start of each second
+     * @param executor The executor to run the refresh on
+     */
+    void start(EventExecutorGroup executor) {
+        long untilNextSecond = 1000 - (System.currentTimeMillis() % 1000);
+        executor.scheduleAtFixedRate(this::refresh, untilNextSecond, 1000, TimeUnit.MILLISECONDS);
+    }
+
+    private void refresh() {
+        value = AsciiString.cached(Mutils.toHttpDate(new Date()));
+    }
+
+    /**
+     * @return The current date as an HTTP header value
+     */
+    AsciiString value() {
+        return value;
+    }
+}
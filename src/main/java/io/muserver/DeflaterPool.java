@@ -0,0 +1,56 @@
+package io.muserver;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+
+/**
+ * Keeps idle deflaters so that each compressed response does not need to allocate the native memory of a new one.
+ * Deflaters for gzip (which have no zlib wrapper) and for deflate are kept separately.
+ */
+class DeflaterPool {
+    private final int maxSize;
+    private final Queue<Deflater> gzipDeflaters = new ConcurrentLinkedQueue<>();
+    private final Queue<Deflater> zlibDeflaters = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger gzipCount = new AtomicInteger();
+    private final AtomicInteger zlibCount = new AtomicInteger();
+
+    DeflaterPool(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Gets a deflater that is ready for new input
+     * @param gzip True for a deflater with no zlib wrapper, as used inside gzip
+     * @param level The compression level
+     * @param strategy The deflate strategy
+     * @return A deflater, which must be given back with {@link #release(Deflater, boolean)}
+     */
+    Deflater borrow(boolean gzip, int level, int strategy) {
+        Deflater deflater = (gzip ? gzipDeflaters : zlibDeflaters).poll();
+        if (deflater == null) {
+            deflater = new Deflater(level, gzip);
+        } else {
+            (gzip ? gzipCount : zlibCount).decrementAndGet();
+            deflater.setLevel(level);
+        }
+        deflater.setStrategy(strategy);
+        return deflater;
+    }
+
+    void release(Deflater deflater, boolean gzip) {
+        AtomicInteger count = gzip ? gzipCount : zlibCount;
+        if (count.incrementAndGet() <= maxSize) {
+            deflater.reset();
+            (gzip ? gzipDeflaters : zlibDeflaters).offer(deflater);
+        } else {
+            count.decrementAndGet();
+            deflater.end();
+        }
+    }
+
+    int idle() {
+        return gzipCount.get() + zlibCount.get();
+    }
+}
@@ -0,0 +1,45 @@
+package io.muserver;
+
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Logs a warning, with the stack trace of the event loop thread, when handlers that were added as non-blocking
+ * handlers take longer than a threshold to return.
+ */
+class EventLoopStallDetector {
+    private static final Logger log = LoggerFactory.getLogger(EventLoopStallDetector.class);
+
+    private final long thresholdMillis;
+    private final HashedWheelTimer timer;
+
+    EventLoopStallDetector(long thresholdMillis) {
+        this.thresholdMillis = thresholdMillis;
+        long tickMillis = Math.max(1, Math.min(100, thresholdMillis / 4));
+        this.timer = new HashedWheelTimer(new DefaultThreadFactory("mu-stall-detector", true), tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Starts watching the current thread
+     * @param request The request being handled
+     * @return A timeout that must be cancelled when the handlers return
+     */
+    Timeout watch(MuRequest request) {
+        Thread thread = Thread.currentThread();
+        return timer.newTimeout(timeout -> {
+            Exception stack = new Exception("Stack trace of " + thread.getName());
+            stack.setStackTrace(thread.getStackTrace());
+            log.warn("A non-blocking handler has been running on an event loop for more than " + thresholdMillis
+                + "ms while handling " + request + ". Handlers that block should not be added as non-blocking handlers.", stack);
+        }, thresholdMillis, TimeUnit.MILLISECONDS);
+    }
+
+    void stop() {
+        timer.stop();
+    }
+}
@@ -0,0 +1,316 @@
+package io.muserver;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limits the number of requests running on the handler executor and, when that limit is reached, queues requests
+ * per class and dispatches them with deficit round-robin so that each class gets a share of the handler threads
+ * in proportion to its weight.
+ * <p>Each request costs one unit, so a class at the head of the round gets up to <code>weight</code> requests
+ * dispatched before the next class is served. When a handler returns, the thread that ran it takes the next
+ * queued request rather than returning to the executor.</p>
+ * <p>Within a class, the waiting requests are grouped by connection and the connections take turns, so a single
+ * HTTP/2 connection with many streams waiting cannot delay the requests of other connections.</p>
+ * <p>Names returned by the classifier that were not configured, such as tenants that are only known at runtime, get
+ * a queue of their own with the default class's weight and queue limit, so that one of them cannot fill a queue
+ * shared with the others. These queues are created when a request first needs to wait and removed when they are
+ * empty. At most <code>maxDynamicClasses</code> exist at once, and when that many have requests waiting, requests for
+ * other unconfigured names wait in the default class's queue. Their stats are added into the default class's stats,
+ * so the names a client sends cannot grow the stats without bound.</p>
+ */
+class FairScheduler {
+    private static final Logger log = LoggerFactory.getLogger(FairScheduler.class);
+
+    private final ExecutorService executor;
+    private final RequestClassifier classifier;
+    private final int maxConcurrency;
+    private final Map<String, ClassQueue> queues;
+    private final ClassQueue defaultQueue;
+    private final Map<String, RequestClassStats> stats;
+    private final int maxDynamicClasses;
+    private final Map<String, ClassQueue> dynamicQueues = new HashMap<>();
+    private final ArrayDeque<ClassQueue> round = new ArrayDeque<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private int running = 0;
+
+    FairScheduler(ExecutorService executor, RequestClassifier classifier, int maxConcurrency, ClassConfig defaultClass, Map<String, ClassConfig> classConfigs, int maxDynamicClasses) {
+        this.executor = executor;
+        this.classifier = classifier;
+        this.maxConcurrency = maxConcurrency;
+        this.maxDynamicClasses = maxDynamicClasses;
+        Map<String, ClassQueue> queues = new HashMap<>();
+        for (Map.Entry<String, ClassConfig> entry : classConfigs.entrySet()) {
+            queues.put(entry.getKey(), new ClassQueue(null, entry.getValue(), new ClassStats()));
+        }
+        this.defaultQueue = queues.computeIfAbsent(FairSchedulerBuilder.DEFAULT_CLASS, name -> new ClassQueue(null, defaultClass, new ClassStats()));
+        this.queues = queues;
+        Map<String, RequestClassStats> stats = new HashMap<>();
+        for (Map.Entry<String, ClassQueue> entry : queues.entrySet()) {
+            stats.put(entry.getKey(), entry.getValue().stats);
+        }
+        this.stats = Collections.unmodifiableMap(stats);
+    }
+
+    /**
+     * Runs the task for a request now if there is capacity, or queues it
+     * @param request The request, which is passed to the classifier
+     * @param task The task that runs the handlers for the request
+     * @throws RejectedExecutionException if the queue for the request's class is full or the executor rejected the task
+     */
+    void execute(MuRequest request, Runnable task) {
+        String name = classifier.classify(request);
+        execute(name == null ? FairSchedulerBuilder.DEFAULT_CLASS : name, request.connection(), task);
+    }
+
+    void execute(String className, Runnable task) {
+        execute(className, null, task);
+    }
+
+    void execute(String className, Object connection, Runnable task) {
+        QueuedTask queuedTask = new QueuedTask(task, connection, System.nanoTime());
+        ClassQueue queue = queues.get(className);
+        lock.lock();
+        try {
+            if (running >= maxConcurrency) {
+                if (queue == null) {
+                    queue = dynamicQueue(className);
+                }
+                if (queue.tasks.size() >= queue.config.maxQueued) {
+                    queue.stats.rejected.incrementAndGet();
+                    throw new RejectedExecutionException("The queue for " + className + " requests is full");
+                }
+                queue.tasks.add(queuedTask);
+                queue.stats.queued++;
+                if (queue.tasks.size() == 1) {
+                    round.addLast(queue);
+                }
+                return;
+            }
+            running++;
+            (queue == null ? defaultQueue : queue).stats.onDispatched(queuedTask);
+        } finally {
+            lock.unlock();
+        }
+        try {
+            executor.execute(() -> runFrom(queuedTask));
+        } catch (RejectedExecutionException e) {
+            lock.lock();
+            try {
+                running--;
+            } finally {
+                lock.unlock();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Must be called while holding the lock
+     * @param className A class name that was not configured
+     * @return The queue for the name, which is the default queue if there are already too many dynamic queues
+     */
+    private ClassQueue dynamicQueue(String className) {
+        ClassQueue queue = dynamicQueues.get(className);
+        if (queue == null) {
+            if (dynamicQueues.size() >= maxDynamicClasses) {
+                return defaultQueue;
+            }
+            queue = new ClassQueue(className, defaultQueue.config, defaultQueue.stats);
+            dynamicQueues.put(className, queue);
+        }
+        return queue;
+    }
+
+    private void runFrom(QueuedTask first) {
+        QueuedTask next = first;
+        while (next != null) {
+            try {
+                next.task.run();
+            } catch (Throwable e) {
+                log.warn("Unhandled error from request task", e);
+            }
+            next = takeNext();
+        }
+    }
+
+    /**
+     * @return The next task to run in the current round, or null if nothing is queued, in which case the calling
+     * thread no longer counts towards the concurrency limit
+     */
+    private QueuedTask takeNext() {
+        lock.lock();
+        try {
+            ClassQueue queue = round.peekFirst();
+            if (queue == null) {
+                running--;
+                return null;
+            }
+            if (queue.deficit == 0) {
+                queue.deficit = queue.config.weight;
+            }
+            QueuedTask task = queue.tasks.poll();
+            queue.stats.queued--;
+            queue.deficit--;
+            if (queue.tasks.isEmpty()) {
+                round.pollFirst();
+                queue.deficit = 0;
+                if (queue.dynamicName != null) {
+                    dynamicQueues.remove(queue.dynamicName);
+                }
+            } else if (queue.deficit == 0) {
+                round.addLast(round.pollFirst());
+            }
+            queue.stats.onDispatched(task);
+            return task;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    Map<String, RequestClassStats> stats() {
+        return stats;
+    }
+
+    int dynamicClasses() {
+        lock.lock();
+        try {
+            return dynamicQueues.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    static class ClassConfig {
+        final int weight;
+        final int maxQueued;
+
+        ClassConfig(int weight, int maxQueued) {
+            this.weight = weight;
+            this.maxQueued = maxQueued;
+        }
+    }
+
+    private static class QueuedTask {
+        private final Runnable task;
+        private final Object connection;
+        private final long queuedAt;
+
+        private QueuedTask(Runnable task, Object connection, long queuedAt) {
+            this.task = task;
+            this.connection = connection;
+            this.queuedAt = queuedAt;
+        }
+    }
+
+    /**
+     * The waiting tasks of a class, taken from each connection in turn
+     */
+    private static class ConnectionRotation {
+        private final Map<Object, ArrayDeque<QueuedTask>> byConnection = new IdentityHashMap<>();
+        private final ArrayDeque<ArrayDeque<QueuedTask>> turns = new ArrayDeque<>();
+        private int size = 0;
+
+        void add(QueuedTask task) {
+            ArrayDeque<QueuedTask> tasks = byConnection.get(task.connection);
+            if (tasks == null) {
+                tasks = new ArrayDeque<>();
+                byConnection.put(task.connection, tasks);
+                turns.addLast(tasks);
+            }
+            tasks.add(task);
+            size++;
+        }
+
+        QueuedTask poll() {
+            ArrayDeque<QueuedTask> tasks = turns.pollFirst();
+            if (tasks == null) {
+                return null;
+            }
+            QueuedTask task = tasks.poll();
+            if (tasks.isEmpty()) {
+                byConnection.remove(task.connection);
+            } else {
+                turns.addLast(tasks);
+            }
+            size--;
+            return task;
+        }
+
+        int size() {
+            return size;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+    }
+
+    private static class ClassQueue {
+        private final String dynamicName;
+        private final ClassConfig config;
+        private final ClassStats stats;
+        private final ConnectionRotation tasks = new ConnectionRotation();
+        private int deficit = 0;
+
+        /**
+         * @param dynamicName The name of the class if the queue is removed when empty, or null if it is configured
+         * @param config The weight and queue limit
+         * @param stats The stats to update, which are shared by the default class and the dynamic classes
+         */
+        private ClassQueue(String dynamicName, ClassConfig config, ClassStats stats) {
+            this.dynamicName = dynamicName;
+            this.config = config;
+            this.stats = stats;
+        }
+    }
+
+    private static class ClassStats implements RequestClassStats {
+        private volatile int queued = 0;
+        private final AtomicLong dispatched = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private final AtomicLong queueNanos = new AtomicLong();
+
+        private void onDispatched(QueuedTask task) {
+            dispatched.incrementAndGet();
+            queueNanos.addAndGet(System.nanoTime() - task.queuedAt);
+        }
+
+        @Override
+        public int queued() {
+            return queued;
+        }
+
+        @Override
+        public long dispatched() {
+            return dispatched.get();
+        }
+
+        @Override
+        public long rejected() {
+            return rejected.get();
+        }
+
+        @Override
+        public long totalQueueTimeMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(queueNanos.get());
+        }
+
+        @Override
+        public String toString() {
+            return "queued: " + queued() + "; dispatched: " + dispatched() + "; rejected: " + rejected()
+                + "; total queue time: " + totalQueueTimeMillis() + "ms";
+        }
+    }
+}
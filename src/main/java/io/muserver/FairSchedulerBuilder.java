@@ -0,0 +1,127 @@
+package io.muserver;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * A builder for the scheduler that shares handler threads fairly between classes of requests. Pass this to
+ * {@link MuServerBuilder#withFairScheduler(FairSchedulerBuilder)} to enable it.
+ */
+public class FairSchedulerBuilder {
+
+    /**
+     * The name of the class used for requests that the classifier returns <code>null</code> for.
+     */
+    public static final String DEFAULT_CLASS = "default";
+
+    private RequestClassifier classifier = request -> DEFAULT_CLASS;
+    private int maxConcurrency = 100;
+    private FairScheduler.ClassConfig defaultClass = new FairScheduler.ClassConfig(1, 1000);
+    private final Map<String, FairScheduler.ClassConfig> classes = new HashMap<>();
+    private int maxDynamicClasses = 1000;
+
+    /**
+     * Sets the function that assigns a class, such as a tenant ID or a priority, to each request. Names that have
+     * not been configured with {@link #withClass(String, int, int)} each get their own queue with the settings of
+     * {@link #DEFAULT_CLASS}, up to the limit set with {@link #withMaxDynamicClasses(int)}.
+     * @param classifier The classifier to use
+     * @return This builder
+     * @throws IllegalArgumentException if the classifier is null
+     */
+    public FairSchedulerBuilder withClassifier(RequestClassifier classifier) {
+        Mutils.notNull("classifier", classifier);
+        this.classifier = classifier;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of requests that can be run by handlers at the same time. Further requests are
+     * queued per class until a handler returns. The handler executor must be able to run at least this many tasks
+     * at once. Default is 100.
+     * @param maxConcurrency The maximum number of handler threads in use at one time
+     * @return This builder
+     * @throws IllegalArgumentException if the value is less than 1
+     */
+    public FairSchedulerBuilder withMaxConcurrency(int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("The max concurrency must be at least 1 but was " + maxConcurrency);
+        }
+        this.maxConcurrency = maxConcurrency;
+        return this;
+    }
+
+    /**
+     * Configures a class of requests.
+     * @param name The name of the class, as returned by the classifier
+     * @param weight The relative share of handler threads this class gets when requests from several classes are
+     *               queued. For example, a class with weight 3 has 3 requests dispatched for each request of a
+     *               class with weight 1.
+     * @param maxQueued The maximum number of requests of this class that can be queued. Requests beyond this are
+     *                  rejected with a <code>503 Service Unavailable</code>.
+     * @return This builder
+     * @throws IllegalArgumentException if the name is null, the weight is less than 1, or maxQueued is negative
+     */
+    public FairSchedulerBuilder withClass(String name, int weight, int maxQueued) {
+        Mutils.notNull("name", name);
+        validate(weight, maxQueued);
+        classes.put(name, new FairScheduler.ClassConfig(weight, maxQueued));
+        return this;
+    }
+
+    /**
+     * Configures {@link #DEFAULT_CLASS}, which is used for requests that the classifier returns <code>null</code>
+     * for. Its weight and queue size are also used by each class that was not set with
+     * {@link #withClass(String, int, int)}, and the stats of those classes are included in the default class's
+     * stats. The default weight is 1 and the default queue size is 1000.
+     * @param weight The relative share of handler threads for the default class
+     * @param maxQueued The maximum number of requests that can be queued in the default class, and in each
+     *                  class that was not configured
+     * @return This builder
+     * @throws IllegalArgumentException if the weight is less than 1 or maxQueued is negative
+     */
+    public FairSchedulerBuilder withDefaultClass(int weight, int maxQueued) {
+        validate(weight, maxQueued);
+        this.defaultClass = new FairScheduler.ClassConfig(weight, maxQueued);
+        return this;
+    }
+
+    /**
+     * Sets how many classes that were not configured with {@link #withClass(String, int, int)}, such as tenants
+     * that are only known at runtime, can have their own queue at the same time. A class's queue is removed when it
+     * has no waiting requests. When this many classes have waiting requests, requests for further unconfigured
+     * classes wait in the queue of {@link #DEFAULT_CLASS}. Default is 1000.
+     * @param maxDynamicClasses The maximum number of queues for unconfigured classes, or 0 to put all their requests
+     *                          in the default class's queue
+     * @return This builder
+     * @throws IllegalArgumentException if the value is negative
+     */
+    public FairSchedulerBuilder withMaxDynamicClasses(int maxDynamicClasses) {
+        if (maxDynamicClasses < 0) {
+            throw new IllegalArgumentException("The max dynamic classes cannot be negative but was " + maxDynamicClasses);
+        }
+        this.maxDynamicClasses = maxDynamicClasses;
+        return this;
+    }
+
+    private static void validate(int weight, int maxQueued) {
+        if (weight < 1) {
+            throw new IllegalArgumentException("The weight must be at least 1 but was " + weight);
+        }
+        if (maxQueued < 0) {
+            throw new IllegalArgumentException("The max queue size cannot be negative but was " + maxQueued);
+        }
+    }
+
+    /**
+     * Creates a new builder
+     * @return A new fair scheduler builder
+     */
+    public static FairSchedulerBuilder fairScheduler() {
+        return new FairSchedulerBuilder();
+    }
+
+    FairScheduler build(ExecutorService executor) {
+        return new FairScheduler(executor, classifier, maxConcurrency, defaultClass, new HashMap<>(classes), maxDynamicClasses);
+    }
+}
@@ -0,0 +1,63 @@
+package io.muserver;
+
+/**
+ * Decides when to grow the receive windows of an HTTP/2 connection. A ping is sent when data arrives, and the
+ * number of bytes received before the ping is acknowledged estimates the bandwidth-delay product of the connection.
+ * If that is more than two thirds of the current window, the client is being held back by flow control, so the
+ * window is set to twice the estimate, up to a maximum.
+ * <p>All methods must be called on the connection's event loop.</p>
+ */
+class FlowControlWindowTuner {
+
+    /**
+     * The payload of the pings sent to measure round trips, which distinguishes them from other pings
+     */
+    static final long PING_DATA = 0x6d755f6264705f31L;
+
+    private final int maxWindow;
+    private int window;
+    private boolean pingOutstanding = false;
+    private long bytesSincePing;
+
+    FlowControlWindowTuner(int initialWindow, int maxWindow) {
+        this.window = initialWindow;
+        this.maxWindow = maxWindow;
+    }
+
+    /**
+     * Records received data
+     * @param bytes The number of bytes received
+     * @return True if a ping with {@link #PING_DATA} should be sent now to start a measurement
+     */
+    boolean onDataReceived(int bytes) {
+        if (pingOutstanding) {
+            bytesSincePing += bytes;
+            return false;
+        }
+        if (window >= maxWindow) {
+            return false;
+        }
+        pingOutstanding = true;
+        bytesSincePing = bytes;
+        return true;
+    }
+
+    /**
+     * Completes a measurement
+     * @return The new window size, or 0 if the window should not change
+     */
+    int onPingAck() {
+        if (!pingOutstanding) {
+            return 0;
+        }
+        pingOutstanding = false;
+        if (bytesSincePing * 3 > (long) window * 2) {
+            int newWindow = (int) Math.min(maxWindow, bytesSincePing * 2);
+            if (newWindow > window) {
+                window = newWindow;
+                return newWindow;
+            }
+        }
+        return 0;
+    }
+}
@@ -10,7 +10,12 @@ import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * The request body input stream. Locks from java.util.concurrent are used rather than monitors so that a virtual
+ * thread blocked on a read does not pin its carrier thread.
+ */
 class GrowableByteBufferInputStream extends InputStream {
 
     private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
@@ -18,11 +23,14 @@ class GrowableByteBufferInputStream extends InputStream {
     private final BlockingQueue<ByteBuffer> queue = new LinkedBlockingQueue<>();
     private volatile ByteBuffer current = EMPTY;
     private RequestBodyListener listener;
-    private final Object listenerLock = new Object();
+    private RequestBodySubscriptionImpl subscription;
+    private final ReentrantLock readLock = new ReentrantLock();
+    private final ReentrantLock listenerLock = new ReentrantLock();
 
     private final long readTimeoutMillis;
     private final long maxSize;
     private final AtomicLong bytesRead = new AtomicLong(0);
+    private volatile byte[] fullBody;
 
     GrowableByteBufferInputStream(long readTimeoutMillis, long maxSize) {
         this.readTimeoutMillis = readTimeoutMillis;
@@ -33,7 +41,8 @@ class GrowableByteBufferInputStream extends InputStream {
         if (current == LAST) {
             return current;
         }
-        synchronized (queue) {
+        readLock.lock();
+        try {
             ByteBuffer cur = current;
             if (!cur.hasRemaining()) {
                 try {
@@ -45,6 +54,8 @@ class GrowableByteBufferInputStream extends InputStream {
                 }
             }
             return cur;
+        } finally {
+            readLock.unlock();
         }
     }
 
@@ -77,25 +88,37 @@ class GrowableByteBufferInputStream extends InputStream {
 
     public void close() throws IOException {
         // This is called from the main netty accepter thread so must be non-blocking
-        synchronized (listenerLock) {
-            if (listener == null) {
+        listenerLock.lock();
+        try {
+            if (subscription != null) {
+                subscription.onInputComplete();
+            } else if (listener == null) {
                 queue.add(LAST);
             } else {
                 sendToListener(listener, LAST, DoneCallback.NoOp);
             }
+        } finally {
+            listenerLock.unlock();
         }
     }
 
     void handOff(ByteBuf data, DoneCallback doneCallback) {
         // This is called from the main netty accepter thread so must be non-blocking
-        synchronized (listenerLock) {
+        listenerLock.lock();
+        try {
             long read = bytesRead.addAndGet(data.readableBytes());
             if (read > maxSize) {
                 throw new MuException();
             }
-            if (listener == null) {
+            if (subscription != null) {
+                subscription.onData(data);
+                try {
+                    doneCallback.onComplete(null);
+                } catch (Exception ignored) {
+                }
+            } else if (listener == null) {
                 ByteBuf copy = data.copy();
-                ByteBuffer byteBuffer = ByteBuffer.allocate(data.capacity());
+                ByteBuffer byteBuffer = ByteBuffer.allocate(data.readableBytes());
                 copy.readBytes(byteBuffer).release();
                 byteBuffer.flip();
                 queue.add(byteBuffer);
@@ -107,11 +130,53 @@ class GrowableByteBufferInputStream extends InputStream {
             } else {
                 sendToListener(listener, data.nioBuffer(), doneCallback);
             }
+        } finally {
+            listenerLock.unlock();
+        }
+    }
+
+    /**
+     * Adds a complete request body that was received before the request was passed to the handlers
+     * @param body The whole body, which is not copied
+     */
+    void handOffFullBody(byte[] body) {
+        listenerLock.lock();
+        try {
+            long read = bytesRead.addAndGet(body.length);
+            if (read > maxSize) {
+                throw new MuException();
+            }
+            fullBody = body;
+            queue.add(ByteBuffer.wrap(body));
+        } finally {
+            listenerLock.unlock();
+        }
+    }
+
+    /**
+     * Takes the complete body given to {@link #handOffFullBody(byte[])}, if none of the stream has been read yet.
+     * After this, the stream is at its end.
+     * @return The whole body, or null if the body was not received in full before dispatch or has been partially read
+     */
+    byte[] takeFullBody() {
+        readLock.lock();
+        try {
+            byte[] body = fullBody;
+            if (body == null || current != EMPTY) {
+                return null;
+            }
+            fullBody = null;
+            queue.clear();
+            current = LAST;
+            return body;
+        } finally {
+            readLock.unlock();
         }
     }
 
     void switchToListener(RequestBodyListener readListener) {
-        synchronized (listenerLock) {
+        listenerLock.lock();
+        try {
             while (!queue.isEmpty()) {
                 ArrayList<ByteBuffer> existing = new ArrayList<>(queue.size());
                 queue.drainTo(existing);
@@ -120,6 +185,35 @@ class GrowableByteBufferInputStream extends InputStream {
                 }
             }
             this.listener = readListener;
+        } finally {
+            listenerLock.unlock();
+        }
+    }
+
+    /**
+     * Passes any queued data to the subscription and sends all further data to it. This must be called on the
+     * connection's event loop.
+     */
+    void switchToSubscriber(RequestBodySubscriptionImpl subscription) {
+        listenerLock.lock();
+        try {
+            ByteBuffer cur = current;
+            if (cur != LAST && cur.hasRemaining()) {
+                subscription.onData(cur);
+            }
+            current = EMPTY;
+            ArrayList<ByteBuffer> existing = new ArrayList<>(queue.size());
+            queue.drainTo(existing);
+            for (ByteBuffer byteBuffer : existing) {
+                if (byteBuffer == LAST) {
+                    subscription.onInputComplete();
+                } else {
+                    subscription.onData(byteBuffer);
+                }
+            }
+            this.subscription = subscription;
+        } finally {
+            listenerLock.unlock();
         }
     }
 
@@ -0,0 +1,35 @@
+package io.muserver;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs the delegated tasks of TLS handshakes, such as key exchange and certificate validation, away from the event
+ * loops so that a burst of new connections does not hold up requests on connections that are already open.
+ */
+class HandshakeTaskExecutor implements Executor {
+
+    private final ExecutorService executor;
+    private final MuStatsImpl stats;
+
+    HandshakeTaskExecutor(ExecutorService executor, MuStatsImpl stats) {
+        this.executor = executor;
+        this.stats = stats;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        stats.onHandshakeTaskQueued();
+        try {
+            executor.execute(() -> {
+                stats.onHandshakeTaskStarted();
+                task.run();
+            });
+        } catch (RejectedExecutionException e) {
+            // the handshake would otherwise never complete, so run it on the event loop as if there was no executor
+            stats.onHandshakeTaskStarted();
+            task.run();
+        }
+    }
+}
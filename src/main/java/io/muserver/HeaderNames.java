@@ -209,6 +209,11 @@ public final class HeaderNames {
      * {@code "pragma"}
      */
     public static final CharSequence PRAGMA = HttpHeaderNames.PRAGMA;
+    /**
+     * {@code "priority"}
+     * @see StreamPriority
+     */
+    public static final CharSequence PRIORITY = AsciiString.cached("priority");
     /**
      * {@code "proxy-authenticate"}
      */
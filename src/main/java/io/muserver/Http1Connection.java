@@ -19,17 +19,13 @@ import org.slf4j.LoggerFactory;
 
 import javax.net.ssl.SSLSession;
 import java.net.InetSocketAddress;
-import java.net.URI;
-import java.net.URISyntaxException;
 import java.nio.ByteBuffer;
 import java.time.Instant;
 import java.util.Collections;
 import java.util.Set;
 import java.util.concurrent.TimeoutException;
 
-import static io.netty.buffer.Unpooled.copiedBuffer;
 import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
-import static java.nio.charset.StandardCharsets.UTF_8;
 
 class Http1Connection extends SimpleChannelInboundHandler<Object> implements HttpConnection, ConnectionState {
     private static final Logger log = LoggerFactory.getLogger(Http1Connection.class);
@@ -45,6 +41,8 @@ class Http1Connection extends SimpleChannelInboundHandler<Object> implements Htt
     private ChannelHandlerContext nettyCtx;
     private InetSocketAddress remoteAddress;
     private ConnectionState.Listener connectionStateListener;
+    private WriteBehindGate writeBehindGate;
+    private RequestBodyFlowControl bodyFlowControl;
 
     Http1Connection(NettyHandlerAdapter nettyHandlerAdapter, MuServerImpl server, String proto) {
         this.nettyHandlerAdapter = nettyHandlerAdapter;
@@ -66,9 +64,23 @@ class Http1Connection extends SimpleChannelInboundHandler<Object> implements Htt
     public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
         this.nettyCtx = ctx;
         remoteAddress = (InetSocketAddress) ctx.channel().remoteAddress();
+        if (server.settings().writeBehindEnabled) {
+            writeBehindGate = new WriteBehindGate(ctx.channel());
+        }
         serverStats.onConnectionOpened();
         connectionStats.onConnectionOpened();
         ctx.channel().config().setAutoRead(false);
+        bodyFlowControl = new RequestBodyFlowControl() {
+            @Override
+            public void readMore() {
+                ctx.channel().read();
+            }
+
+            @Override
+            public void consumed(int bytes) {
+                // HTTP/1 has no flow control other than reading from the socket
+            }
+        };
         ctx.read();
         super.handlerAdded(ctx);
         server.onConnectionStarted(this);
@@ -78,6 +90,9 @@ class Http1Connection extends SimpleChannelInboundHandler<Object> implements Htt
     public void channelInactive(ChannelHandlerContext ctx) throws Exception {
         serverStats.onConnectionClosed();
         server.onConnectionEnded(this);
+        if (writeBehindGate != null) {
+            writeBehindGate.onConnectionClose();
+        }
         if (connectionStateListener != null) {
             connectionStateListener.onConnectionClose();
             connectionStateListener = null;
@@ -150,7 +165,7 @@ class Http1Connection extends SimpleChannelInboundHandler<Object> implements Htt
 
                 String relativeUri;
                 try {
-                    relativeUri = getRelativeUri(request);
+                    relativeUri = PathNormaliser.normalise(request.uri());
                 } catch (Exception e) {
                     serverStats.onInvalidRequest();
                     connectionStats.onInvalidRequest();
@@ -182,11 +197,12 @@ class Http1Connection extends SimpleChannelInboundHandler<Object> implements Htt
                 serverStats.onRequestStarted(muRequest);
                 connectionStats.onRequestStarted(muRequest);
 
-                Http1Response muResponse = new Http1Response(ctx, muRequest, new Http1Headers());
+                Http1Response muResponse = new Http1Response(ctx, muRequest, new Http1Headers(), writeBehindGate);
 
                 AsyncContext asyncContext = new AsyncContext(muRequest, muResponse, (info) -> {
                     nettyHandlerAdapter.onResponseComplete(info, serverStats, connectionStats);
                 });
+                asyncContext.bodyFlowControl = bodyFlowControl;
                 setAsyncContext(ctx, asyncContext);
                 readyToRead = false;
                 DoneCallback addedToExecutorCallback = error -> {
@@ -219,6 +235,12 @@ class Http1Connection extends SimpleChannelInboundHandler<Object> implements Htt
                 NettyHandlerAdapter.passDataToHandler(byteBuf, asyncContext);
                 if (msg instanceof LastHttpContent) {
                     nettyHandlerAdapter.onRequestComplete(asyncContext);
+                } else {
+                    RequestBodySubscriptionImpl subscription = asyncContext.bodySubscription;
+                    if (subscription != null && !subscription.wantsMore()) {
+                        // reading resumes when the subscriber requests more data
+                        readyToRead = false;
+                    }
                 }
             }
         } else if (msg instanceof WebSocketFrame) {
@@ -273,6 +295,13 @@ class Http1Connection extends SimpleChannelInboundHandler<Object> implements Htt
 
     @Override
     public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        if (writeBehindGate != null) {
+            if (ctx.channel().isWritable()) {
+                writeBehindGate.onWriteable();
+            } else {
+                writeBehindGate.onUnWriteable();
+            }
+        }
         if (connectionStateListener != null) {
             if (ctx.channel().isWritable()) {
                 connectionStateListener.onWriteable();
@@ -297,19 +326,6 @@ class Http1Connection extends SimpleChannelInboundHandler<Object> implements Htt
         ctx.channel().attr(WEBSOCKET_ATTRIBUTE).set(null);
     }
 
-    private static String getRelativeUri(HttpRequest request) throws URISyntaxException {
-        URI requestUri = new URI(request.uri()).normalize();
-        String s = requestUri.getRawPath();
-        if (Mutils.nullOrEmpty(s)) {
-            s = "/";
-        }
-        String q = requestUri.getRawQuery();
-        if (q != null) {
-            s += "?" + q;
-        }
-        return s;
-    }
-
     private void handleHttpRequestDecodeFailure(ChannelHandlerContext ctx, Throwable cause) {
         String message = "Server error";
         int code = 500;
@@ -325,12 +341,8 @@ class Http1Connection extends SimpleChannelInboundHandler<Object> implements Htt
         sendSimpleResponse(ctx, message, code).addListener(ChannelFutureListener.CLOSE);
     }
 
-    private static ChannelFuture sendSimpleResponse(ChannelHandlerContext ctx, String message, int code) {
-        byte[] bytes = message.getBytes(UTF_8);
-        FullHttpResponse response = new DefaultFullHttpResponse(HTTP_1_1, HttpResponseStatus.valueOf(code), copiedBuffer(bytes));
-        response.headers().set(HeaderNames.CONTENT_TYPE, ContentTypes.TEXT_PLAIN_UTF8);
-        response.headers().set(HeaderNames.CONTENT_LENGTH, bytes.length);
-        return ctx.writeAndFlush(response);
+    private ChannelFuture sendSimpleResponse(ChannelHandlerContext ctx, String message, int code) {
+        return ctx.writeAndFlush(SimpleResponse.get(message, code).toHttp1(server.dateHeader.value()));
     }
 
     @Override
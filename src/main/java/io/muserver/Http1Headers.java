@@ -15,7 +15,7 @@ import static io.netty.util.internal.ObjectUtil.checkNotNull;
 
 class Http1Headers implements Headers {
 
-    private final HttpHeaders entries;
+    final HttpHeaders entries;
 
     Http1Headers() {
         this(new DefaultHttpHeaders());
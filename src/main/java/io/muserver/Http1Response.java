@@ -1,14 +1,13 @@
 package io.muserver;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.http.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Map;
-
 import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
 
 class Http1Response extends NettyResponseAdaptor {
@@ -16,21 +15,32 @@ class Http1Response extends NettyResponseAdaptor {
 
     private final ChannelHandlerContext ctx;
     private final Http1Headers headers;
+    private final WriteBehindGate writeBehindGate;
 
-    Http1Response(ChannelHandlerContext ctx, NettyRequestAdapter request, Http1Headers headers) {
+    Http1Response(ChannelHandlerContext ctx, NettyRequestAdapter request, Http1Headers headers, WriteBehindGate writeBehindGate) {
         super(request, headers);
         this.ctx = ctx;
         this.headers = headers;
+        this.writeBehindGate = writeBehindGate;
+    }
+
+    @Override
+    protected ChannelFuture waitForWrite(ChannelFuture writeFuture) {
+        return writeBehindGate == null || ctx.executor().inEventLoop() ? super.waitForWrite(writeFuture) : writeBehindGate.afterWrite(writeFuture);
+    }
+
+    @Override
+    boolean writesBehind() {
+        return writeBehindGate != null || super.writesBehind();
     }
 
     @Override
     protected void startStreaming() {
         super.startStreaming();
-        HttpResponse response = isHead ? new EmptyHttpResponse(httpStatus()) : new DefaultHttpResponse(HTTP_1_1, httpStatus(), false);
         if (declaredLength == -1) {
             headers.set(HeaderNames.TRANSFER_ENCODING, HeaderValues.CHUNKED);
         }
-        writeHeaders(response);
+        HttpResponse response = isHead ? new EmptyHttpResponse(httpStatus(), headersToSend()) : new DefaultHttpResponse(HTTP_1_1, httpStatus(), headersToSend());
         lastAction = ctx.write(response);
     }
 
@@ -42,13 +52,14 @@ class Http1Response extends NettyResponseAdaptor {
             bytesStreamed + " bytes being sent.");
     }
 
-    private void writeHeaders(HttpResponse response) {
-        HttpHeaders rh = response.headers();
-        for (Map.Entry<String, String> header : this.headers) {
-            rh.add(header.getKey(), header.getValue());
-        }
-    }
 
+    /**
+     * The response headers are copied because the event loop changes the headers it sends, for example when
+     * compressing, while the handler can still read and change the response's headers.
+     */
+    private HttpHeaders headersToSend() {
+        return headers.entries.copy();
+    }
 
     @Override
     ChannelFuture writeToChannel(boolean isLast, ByteBuf content) {
@@ -69,29 +80,26 @@ class Http1Response extends NettyResponseAdaptor {
     @Override
     protected void writeFullResponse(ByteBuf body) {
         FullHttpResponse resp = isHead ?
-            new EmptyHttpResponse(httpStatus())
-            : new DefaultFullHttpResponse(HTTP_1_1, httpStatus(), body, false);
-        writeHeaders(resp);
-        lastAction = ctx.writeAndFlush(resp).syncUninterruptibly();
+            new EmptyHttpResponse(httpStatus(), headersToSend())
+            : new DefaultFullHttpResponse(HTTP_1_1, httpStatus(), body, headersToSend(), EmptyHttpHeaders.INSTANCE);
+        lastAction = waitForWrite(ctx.writeAndFlush(resp));
     }
 
 
     @Override
     protected void writeRedirectResponse() {
-        HttpResponse resp = new EmptyHttpResponse(httpStatus());
-        writeHeaders(resp);
+        HttpResponse resp = new EmptyHttpResponse(httpStatus(), headersToSend());
         lastAction = ctx.writeAndFlush(resp);
     }
 
     @Override
     protected void sendEmptyResponse(boolean addContentLengthHeader) {
-        HttpResponse msg = isHead ?
-            new EmptyHttpResponse(httpStatus()) :
-            new DefaultFullHttpResponse(HTTP_1_1, httpStatus(), false);
-        writeHeaders(msg);
         if (addContentLengthHeader) {
-            msg.headers().set(HeaderNames.CONTENT_LENGTH, 0);
+            headers.set(HeaderNames.CONTENT_LENGTH, HeaderValues.ZERO);
         }
+        HttpResponse msg = isHead ?
+            new EmptyHttpResponse(httpStatus(), headersToSend()) :
+            new DefaultFullHttpResponse(HTTP_1_1, httpStatus(), Unpooled.buffer(0), headersToSend(), EmptyHttpHeaders.INSTANCE);
         lastAction = ctx.writeAndFlush(msg);
     }
 
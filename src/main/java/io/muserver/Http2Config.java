@@ -6,8 +6,26 @@ package io.muserver;
  */
 public class Http2Config {
     final boolean enabled;
+    final int maxConcurrentRequests;
+    final int maxQueuedRequests;
+    final int initialWindowSize;
+    final int connectionWindowSize;
+    final long maxConcurrentStreams;
+    final int maxFrameSize;
+    final long headerTableSize;
+    final int maxAutoTunedWindowSize;
 
-    Http2Config(boolean enabled) {
+    Http2Config(boolean enabled, int maxConcurrentRequests, int maxQueuedRequests, int initialWindowSize,
+                int connectionWindowSize, long maxConcurrentStreams, int maxFrameSize, long headerTableSize,
+                int maxAutoTunedWindowSize) {
         this.enabled = enabled;
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        this.maxQueuedRequests = maxQueuedRequests;
+        this.initialWindowSize = initialWindowSize;
+        this.connectionWindowSize = connectionWindowSize;
+        this.maxConcurrentStreams = maxConcurrentStreams;
+        this.maxFrameSize = maxFrameSize;
+        this.headerTableSize = headerTableSize;
+        this.maxAutoTunedWindowSize = maxAutoTunedWindowSize;
     }
 }
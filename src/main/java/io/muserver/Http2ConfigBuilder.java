@@ -1,11 +1,21 @@
 package io.muserver;
 
+import static io.netty.handler.codec.http2.Http2CodecUtil.*;
+
 /**
  * Configuration builder for enabling HTTP2 by passing the config to {@link MuServerBuilder#withHttp2Config(Http2ConfigBuilder)}
  */
 public class Http2ConfigBuilder {
 
     private boolean enabled = false;
+    private int maxConcurrentRequests = 0;
+    private int maxQueuedRequests = 100;
+    private int initialWindowSize = -1;
+    private int connectionWindowSize = -1;
+    private long maxConcurrentStreams = -1;
+    private int maxFrameSize = -1;
+    private long headerTableSize = -1;
+    private int maxAutoTunedWindowSize = 0;
 
     /**
      * Specifies whether to enable HTTP2 or not.
@@ -17,12 +27,151 @@ public class Http2ConfigBuilder {
         return this;
     }
 
+    /**
+     * <p>Sets the maximum number of requests from a single connection that can be passed to the handlers at the
+     * same time, so that one client multiplexing many streams cannot take all the handler threads. Further
+     * requests on that connection are queued and started as its earlier requests complete.</p>
+     * <p>Each connection releases its own queued requests in the order they arrived. When a fair scheduler is set
+     * with {@link MuServerBuilder#withFairScheduler(FairSchedulerBuilder)}, requests that then wait for a handler
+     * thread are taken from each connection in turn. Without one, released requests go straight to the handler
+     * executor, so this caps how much of the executor one connection can hold but does not order requests between
+     * connections.</p>
+     * <p>When set, the sum of this and {@link #withMaxQueuedRequests(int)} is advertised to clients as
+     * <code>SETTINGS_MAX_CONCURRENT_STREAMS</code>.</p>
+     * @param maxConcurrentRequests The maximum number of requests in progress per connection, or 0 for no limit
+     *                              (the default)
+     * @return This builder
+     * @throws IllegalArgumentException if the value is negative
+     */
+    public Http2ConfigBuilder withMaxConcurrentRequests(int maxConcurrentRequests) {
+        if (maxConcurrentRequests < 0) {
+            throw new IllegalArgumentException("The max concurrent requests cannot be negative but was " + maxConcurrentRequests);
+        }
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        return this;
+    }
+
+    /**
+     * Sets the number of requests per connection that can wait when the connection has reached
+     * {@link #withMaxConcurrentRequests(int)}. Requests beyond this get a <code>503 Service Unavailable</code>.
+     * The default is 100.
+     * @param maxQueuedRequests The maximum number of queued requests per connection
+     * @return This builder
+     * @throws IllegalArgumentException if the value is negative
+     */
+    public Http2ConfigBuilder withMaxQueuedRequests(int maxQueuedRequests) {
+        if (maxQueuedRequests < 0) {
+            throw new IllegalArgumentException("The max queued requests cannot be negative but was " + maxQueuedRequests);
+        }
+        this.maxQueuedRequests = maxQueuedRequests;
+        return this;
+    }
+
+    /**
+     * Sets the flow control window of each stream, which is the number of bytes of a request body that a client
+     * can send before the server has processed them. This is sent to clients as
+     * <code>SETTINGS_INITIAL_WINDOW_SIZE</code>. The default is 65535 bytes, which limits upload speeds over
+     * connections with high latency. Note that download speeds are limited by the windows of the client instead.
+     * @param bytes The window size, from 0 to 2147483647
+     * @return This builder
+     * @throws IllegalArgumentException if the value is out of range
+     */
+    public Http2ConfigBuilder withInitialWindowSize(int bytes) {
+        if (bytes < 0) {
+            throw new IllegalArgumentException("The initial window size cannot be negative but was " + bytes);
+        }
+        this.initialWindowSize = bytes;
+        return this;
+    }
+
+    /**
+     * Sets the flow control window of each connection, which is the total number of request body bytes across
+     * all streams of a connection that a client can send before the server has processed them. The default is
+     * 65535 bytes.
+     * @param bytes The window size, from 65535 to 2147483647
+     * @return This builder
+     * @throws IllegalArgumentException if the value is out of range
+     */
+    public Http2ConfigBuilder withConnectionWindowSize(int bytes) {
+        if (bytes < DEFAULT_WINDOW_SIZE) {
+            throw new IllegalArgumentException("The connection window size must be at least " + DEFAULT_WINDOW_SIZE + " but was " + bytes);
+        }
+        this.connectionWindowSize = bytes;
+        return this;
+    }
+
+    /**
+     * Sets the number of streams that a client can have open on one connection at a time, which is sent to clients
+     * as <code>SETTINGS_MAX_CONCURRENT_STREAMS</code>. By default there is no limit, unless
+     * {@link #withMaxConcurrentRequests(int)} is set.
+     * @param maxConcurrentStreams The maximum number of streams, from 0 to 4294967295
+     * @return This builder
+     * @throws IllegalArgumentException if the value is out of range
+     */
+    public Http2ConfigBuilder withMaxConcurrentStreams(long maxConcurrentStreams) {
+        if (maxConcurrentStreams < 0 || maxConcurrentStreams > MAX_CONCURRENT_STREAMS) {
+            throw new IllegalArgumentException("The max concurrent streams must be between 0 and " + MAX_CONCURRENT_STREAMS + " but was " + maxConcurrentStreams);
+        }
+        this.maxConcurrentStreams = maxConcurrentStreams;
+        return this;
+    }
+
+    /**
+     * Sets the largest frame payload that clients may send, which is sent to clients as
+     * <code>SETTINGS_MAX_FRAME_SIZE</code>. The default is 16384 bytes.
+     * @param bytes The maximum frame size, from 16384 to 16777215
+     * @return This builder
+     * @throws IllegalArgumentException if the value is out of range
+     */
+    public Http2ConfigBuilder withMaxFrameSize(int bytes) {
+        if (bytes < MAX_FRAME_SIZE_LOWER_BOUND || bytes > MAX_FRAME_SIZE_UPPER_BOUND) {
+            throw new IllegalArgumentException("The max frame size must be between " + MAX_FRAME_SIZE_LOWER_BOUND + " and " + MAX_FRAME_SIZE_UPPER_BOUND + " but was " + bytes);
+        }
+        this.maxFrameSize = bytes;
+        return this;
+    }
+
+    /**
+     * Sets the size of the HPACK table used to decompress request headers, which is sent to clients as
+     * <code>SETTINGS_HEADER_TABLE_SIZE</code>. The default is 4096 bytes. Larger tables use more memory per
+     * connection but let clients compress repeated headers such as cookies better.
+     * @param bytes The table size, from 0 to 4294967295
+     * @return This builder
+     * @throws IllegalArgumentException if the value is out of range
+     */
+    public Http2ConfigBuilder withHeaderTableSize(long bytes) {
+        if (bytes < MIN_HEADER_TABLE_SIZE || bytes > MAX_HEADER_TABLE_SIZE) {
+            throw new IllegalArgumentException("The header table size must be between " + MIN_HEADER_TABLE_SIZE + " and " + MAX_HEADER_TABLE_SIZE + " but was " + bytes);
+        }
+        this.headerTableSize = bytes;
+        return this;
+    }
+
+    /**
+     * <p>Grows the stream and connection flow control windows of each connection based on the throughput of
+     * request bodies, so that large uploads are not limited by the window size.</p>
+     * <p>The server measures how much data arrives during a ping round trip, which estimates the bandwidth-delay
+     * product of the connection. When that uses most of the current window, the windows are doubled, up to the
+     * given maximum. The windows are never reduced.</p>
+     * @param maxWindowSize The largest window size to grow to, or 0 to disable auto-tuning (the default)
+     * @return This builder
+     * @throws IllegalArgumentException if the value is negative
+     */
+    public Http2ConfigBuilder withWindowAutoTuning(int maxWindowSize) {
+        if (maxWindowSize < 0) {
+            throw new IllegalArgumentException("The max window size cannot be negative but was " + maxWindowSize);
+        }
+        this.maxAutoTunedWindowSize = maxWindowSize;
+        return this;
+    }
+
     /**
      * Creates the HTTP2 settings object
      * @return A new Http2Config object
      */
     public Http2Config build() {
-        return new Http2Config(enabled);
+        return new Http2Config(enabled, maxConcurrentRequests, maxQueuedRequests, initialWindowSize,
+            connectionWindowSize, maxConcurrentStreams, maxFrameSize, headerTableSize, maxAutoTunedWindowSize);
     }
 
     /**
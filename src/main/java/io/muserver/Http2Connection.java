@@ -3,23 +3,19 @@ package io.muserver;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelHandlerContext;
-import io.netty.handler.codec.http.HttpHeaderValues;
-import io.netty.handler.codec.http.HttpMethod;
-import io.netty.handler.codec.http.HttpRequest;
 import io.netty.handler.codec.http2.*;
 import io.netty.handler.timeout.IdleStateEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.InetSocketAddress;
+import java.net.URISyntaxException;
 import java.time.Instant;
 import java.util.Collections;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 import static io.netty.buffer.Unpooled.EMPTY_BUFFER;
-import static io.netty.buffer.Unpooled.copiedBuffer;
-import static java.nio.charset.StandardCharsets.UTF_8;
 
 final class Http2Connection extends Http2ConnectionHandler implements Http2FrameListener, HttpConnection {
     private static final Logger log = LoggerFactory.getLogger(Http2Connection.class);
@@ -32,12 +28,24 @@ final class Http2Connection extends Http2ConnectionHandler implements Http2Frame
     private InetSocketAddress remoteAddress;
     private final Instant startTime = Instant.now();
     private ChannelHandlerContext nettyContext;
+    private final ConnectionRequestGate requestGate;
+    private final FlowControlWindowTuner windowTuner;
+    private int connectionWindowSize = Http2CodecUtil.DEFAULT_WINDOW_SIZE;
+    private final StreamPrioritizer prioritizer;
 
     Http2Connection(Http2ConnectionDecoder decoder, Http2ConnectionEncoder encoder,
                     Http2Settings initialSettings, MuServerImpl server, NettyHandlerAdapter nettyHandlerAdapter) {
         super(decoder, encoder, initialSettings);
         this.server = server;
         this.nettyHandlerAdapter = nettyHandlerAdapter;
+        Http2Config http2Config = server.http2Config;
+        this.requestGate = http2Config.maxConcurrentRequests > 0
+            ? new ConnectionRequestGate(http2Config.maxConcurrentRequests, http2Config.maxQueuedRequests) : null;
+        Integer initialWindowSize = initialSettings.initialWindowSize();
+        this.windowTuner = http2Config.maxAutoTunedWindowSize > 0
+            ? new FlowControlWindowTuner(initialWindowSize == null ? Http2CodecUtil.DEFAULT_WINDOW_SIZE : initialWindowSize, http2Config.maxAutoTunedWindowSize)
+            : null;
+        this.prioritizer = new StreamPrioritizer(connection(), encoder.flowController());
     }
 
 
@@ -50,6 +58,17 @@ final class Http2Connection extends Http2ConnectionHandler implements Http2Frame
         server.onConnectionStarted(this);
     }
 
+    /**
+     * Sends a window update for the connection if the given size is larger than the current connection window.
+     * There is no setting for the connection window, so window updates are the only way to change it.
+     */
+    private void growConnectionWindow(int newSize) throws Http2Exception {
+        if (newSize > connectionWindowSize) {
+            decoder().flowController().incrementWindowSize(connection().connectionStream(), newSize - connectionWindowSize);
+            connectionWindowSize = newSize;
+        }
+    }
+
     @Override
     public void channelInactive(ChannelHandlerContext ctx) throws Exception {
         server.stats.onConnectionClosed();
@@ -73,29 +92,33 @@ final class Http2Connection extends Http2ConnectionHandler implements Http2Frame
     }
 
     private ChannelFuture sendSimpleResponse(ChannelHandlerContext ctx, int streamId, String message, int code) {
-        byte[] bytes = message.getBytes(UTF_8);
-        ByteBuf content = copiedBuffer(bytes);
-
-        io.netty.handler.codec.http2.Http2Headers headers = new DefaultHttp2Headers();
-        headers.status(String.valueOf(code));
-        headers.set(HeaderNames.CONTENT_TYPE, ContentTypes.TEXT_PLAIN_UTF8);
-        headers.set(HeaderNames.CONTENT_LENGTH, String.valueOf(bytes.length));
-        encoder().writeHeaders(ctx, streamId, headers, 0, false, ctx.newPromise());
-        return Http2Response.writeToChannel(ctx, encoder(), streamId, content, true);
+        SimpleResponse response = SimpleResponse.get(message, code);
+        encoder().writeHeaders(ctx, streamId, response.toHttp2Headers(server.dateHeader.value()), 0, false, ctx.newPromise());
+        return Http2Response.writeToChannel(ctx, encoder(), streamId, response.body(), true);
     }
 
     @Override
     public int onDataRead(ChannelHandlerContext ctx, int streamId, ByteBuf data, int padding, boolean endOfStream) {
         int processed = data.readableBytes() + padding;
+        if (windowTuner != null && windowTuner.onDataReceived(processed)) {
+            encoder().writePing(ctx, false, FlowControlWindowTuner.PING_DATA, ctx.newPromise());
+        }
 
         AsyncContext asyncContext = contexts.get(streamId);
         if (asyncContext == null) {
             log.debug("Got a chunk of message for an unknown request. This can happen when a request is rejected based on headers, and then the rejected body arrives.");
         } else {
+            int length = data.readableBytes();
             NettyHandlerAdapter.passDataToHandler(data, asyncContext);
             if (endOfStream) {
                 nettyHandlerAdapter.onRequestComplete(asyncContext);
                 contexts.remove(streamId);
+            } else {
+                RequestBodySubscriptionImpl subscription = asyncContext.bodySubscription;
+                if (subscription != null && subscription.deferConsumption(length)) {
+                    // the window update is sent when the subscriber has been given the data
+                    processed = padding;
+                }
             }
         }
         return processed;
@@ -106,10 +129,9 @@ final class Http2Connection extends Http2ConnectionHandler implements Http2Frame
                               io.netty.handler.codec.http2.Http2Headers headers, int padding, boolean endOfStream) {
         lastStreamId = streamId;
 
-        HttpMethod nettyMeth = HttpMethod.valueOf(headers.method().toString().toUpperCase());
         Method muMethod;
         try {
-            muMethod = Method.fromNetty(nettyMeth);
+            muMethod = Method.fromHttp2(headers.method());
         } catch (IllegalArgumentException e) {
             server.stats.onInvalidRequest();
             connectionStats.onInvalidRequest();
@@ -126,7 +148,16 @@ final class Http2Connection extends Http2ConnectionHandler implements Http2Frame
             return;
         }
 
-        HttpRequest nettyReq = new Http2To1RequestAdapter(streamId, nettyMeth, uri, headers);
+        String relativeUri;
+        try {
+            relativeUri = PathNormaliser.normalise(uri);
+        } catch (URISyntaxException e) {
+            server.stats.onInvalidRequest();
+            connectionStats.onInvalidRequest();
+            sendSimpleResponse(ctx, streamId, "400 Bad Request", 400);
+            return;
+        }
+
         boolean hasRequestBody = !endOfStream;
         if (hasRequestBody) {
             long bodyLen = headers.getLong(HeaderNames.CONTENT_LENGTH, -1L);
@@ -142,7 +173,7 @@ final class Http2Connection extends Http2ConnectionHandler implements Http2Frame
         Http2Headers muHeaders = new Http2Headers(headers, hasRequestBody);
         String host = headers.authority().toString();
         muHeaders.set(HeaderNames.HOST, host);
-        NettyRequestAdapter muReq = new NettyRequestAdapter(ctx, ctx.channel(), nettyReq, muHeaders, server, muMethod, "https", uri, true, host, "HTTP/2", this);
+        NettyRequestAdapter muReq = new NettyRequestAdapter(ctx, ctx.channel(), null, muHeaders, server, muMethod, "https", relativeUri, true, host, "HTTP/2", this);
 
         if (settings.block(muReq)) {
             server.stats.onRejectedDueToOverload();
@@ -153,13 +184,22 @@ final class Http2Connection extends Http2ConnectionHandler implements Http2Frame
 
         server.stats.onRequestStarted(muReq);
         connectionStats.onRequestStarted(muReq);
-        Http2Response resp = new Http2Response(ctx, muReq, new Http2Headers(), encoder(), streamId, settings);
+        CharSequence priority = headers.get(HeaderNames.PRIORITY);
+        if (priority != null) {
+            prioritizer.prioritize(streamId, StreamPriority.parse(priority.toString()));
+        }
+        Http2Response resp = new Http2Response(ctx, muReq, new Http2Headers(), encoder(), streamId, settings, prioritizer);
 
         AsyncContext asyncContext = new AsyncContext(muReq, resp, (info) -> {
             nettyHandlerAdapter.onResponseComplete(info, server.stats, connectionStats);
             contexts.remove(streamId);
+            onRequestFinished(ctx, (AsyncContext) info);
         });
+        if (requestGate != null) {
+            asyncContext.dispatchGate = requestGate.forRequest(asyncContext);
+        }
 
+        asyncContext.bodyFlowControl = new StreamFlowControl(ctx, streamId);
         contexts.put(streamId, asyncContext);
         DoneCallback addedToExecutorCallback = error -> {
             ctx.channel().read();
@@ -173,23 +213,57 @@ final class Http2Connection extends Http2ConnectionHandler implements Http2Frame
                 } finally {
                     server.stats.onRequestEnded(muReq);
                     connectionStats.onRequestEnded(muReq);
+                    onRequestFinished(ctx, asyncContext);
                 }
             }
         };
         nettyHandlerAdapter.onHeaders(addedToExecutorCallback, asyncContext, muHeaders);
     }
 
-    static CharSequence compressionToUse(Headers requestHeaders) {
-        for (ParameterizedHeaderWithValue encVal : requestHeaders.acceptEncoding()) {
-            String enc = encVal.value();
-            if (HttpHeaderValues.GZIP.contentEqualsIgnoreCase(enc)) {
-                return HeaderValues.GZIP;
+    private void onRequestFinished(ChannelHandlerContext ctx, AsyncContext asyncContext) {
+        if (requestGate != null) {
+            if (ctx.executor().inEventLoop()) {
+                requestGate.onFinished(asyncContext);
+            } else {
+                ctx.executor().execute(() -> requestGate.onFinished(asyncContext));
             }
-            if (HttpHeaderValues.DEFLATE.contentEqualsIgnoreCase(enc)) {
-                return HeaderValues.DEFLATE;
+        }
+    }
+
+    /**
+     * Sends window updates for a stream's request body once a subscriber has been given the data
+     */
+    private class StreamFlowControl implements RequestBodyFlowControl {
+        private final ChannelHandlerContext ctx;
+        private final int streamId;
+
+        private StreamFlowControl(ChannelHandlerContext ctx, int streamId) {
+            this.ctx = ctx;
+            this.streamId = streamId;
+        }
+
+        @Override
+        public void readMore() {
+            // HTTP/2 clients send more data when the flow control window allows it
+        }
+
+        @Override
+        public void consumed(int bytes) {
+            Http2Stream stream = connection().stream(streamId);
+            if (stream != null) {
+                try {
+                    if (decoder().flowController().consumeBytes(stream, bytes)) {
+                        ctx.flush();
+                    }
+                } catch (Http2Exception e) {
+                    log.debug("Could not return flow control bytes for stream " + streamId, e);
+                }
             }
         }
-        return null;
+    }
+
+    static CharSequence compressionToUse(CompressionConfig compression, Headers requestHeaders) {
+        return compression.chooseEncoding(requestHeaders.acceptEncoding());
     }
 
     @Override
@@ -216,7 +290,9 @@ final class Http2Connection extends Http2ConnectionHandler implements Http2Frame
     }
 
     @Override
-    public void onSettingsRead(ChannelHandlerContext ctx, Http2Settings settings) {
+    public void onSettingsRead(ChannelHandlerContext ctx, Http2Settings settings) throws Http2Exception {
+        // the client's settings are the first frame it sends, and by then the server preface has been written
+        growConnectionWindow(server.http2Config.connectionWindowSize);
     }
 
     @Override
@@ -224,7 +300,16 @@ final class Http2Connection extends Http2ConnectionHandler implements Http2Frame
     }
 
     @Override
-    public void onPingAckRead(ChannelHandlerContext ctx, long data) {
+    public void onPingAckRead(ChannelHandlerContext ctx, long data) throws Http2Exception {
+        if (windowTuner != null && data == FlowControlWindowTuner.PING_DATA) {
+            int newWindow = windowTuner.onPingAck();
+            if (newWindow > 0) {
+                log.debug("Growing flow control windows of " + remoteAddress + " to " + newWindow + " bytes");
+                // the stream windows change when the client acknowledges the new settings
+                encoder().writeSettings(ctx, new Http2Settings().initialWindowSize(newWindow), ctx.newPromise());
+                growConnectionWindow(newWindow);
+            }
+        }
     }
 
     @Override
@@ -15,7 +15,27 @@ class Http2ConnectionBuilder
 
     @Override
     public Http2Connection build() {
-        initialSettings().maxHeaderListSize(server.settings().maxHeadersSize);
+        Http2Settings settings = initialSettings();
+        settings.maxHeaderListSize(server.settings().maxHeadersSize);
+        Http2Config http2Config = server.http2Config;
+        if (http2Config.maxConcurrentStreams > -1) {
+            settings.maxConcurrentStreams(http2Config.maxConcurrentStreams);
+        } else if (http2Config.maxConcurrentRequests > 0) {
+            settings.maxConcurrentStreams((long) http2Config.maxConcurrentRequests + http2Config.maxQueuedRequests);
+        }
+        if (http2Config.initialWindowSize > -1) {
+            settings.initialWindowSize(http2Config.initialWindowSize);
+        }
+        if (http2Config.maxFrameSize > -1) {
+            settings.maxFrameSize(http2Config.maxFrameSize);
+        }
+        if (http2Config.headerTableSize > -1) {
+            settings.headerTableSize(http2Config.headerTableSize);
+        }
+        // the weighted fair queue distributor shares the connection between streams according to their priorities
+        DefaultHttp2Connection connection = new DefaultHttp2Connection(true);
+        connection.remote().flowController(new DefaultHttp2RemoteFlowController(connection, new WeightedFairQueueByteDistributor(connection)));
+        connection(connection);
         return super.build();
     }
 
@@ -25,7 +45,7 @@ class Http2ConnectionBuilder
         if (server.settings().gzipEnabled) {
             // using the delegate lets us intercept the writeHeaders, which is needed for a hack
             MuGzipHttp2ConnectionEncoder delegate = new MuGzipHttp2ConnectionEncoder(encoder);
-            encoder = new MuCompressorHttp2ConnectionEncoder(delegate, CompressorHttp2ConnectionEncoder.DEFAULT_COMPRESSION_LEVEL, CompressorHttp2ConnectionEncoder.DEFAULT_WINDOW_BITS, CompressorHttp2ConnectionEncoder.DEFAULT_MEM_LEVEL);
+            encoder = new MuCompressorHttp2ConnectionEncoder(delegate, server.settings().compression);
         }
         Http2Connection handler = new Http2Connection(decoder, encoder, initialSettings, server, nettyHandlerAdapter);
         frameListener(handler);
@@ -17,14 +17,16 @@ class Http2Response extends NettyResponseAdaptor {
     private final Http2ConnectionEncoder encoder;
     private final int streamId;
     private final ServerSettings settings;
+    private final StreamPrioritizer prioritizer;
 
-    Http2Response(ChannelHandlerContext ctx, NettyRequestAdapter request, Http2Headers headers, Http2ConnectionEncoder encoder, int streamId, ServerSettings settings) {
+    Http2Response(ChannelHandlerContext ctx, NettyRequestAdapter request, Http2Headers headers, Http2ConnectionEncoder encoder, int streamId, ServerSettings settings, StreamPrioritizer prioritizer) {
         super(request, headers);
         this.ctx = ctx;
         this.headers = headers;
         this.encoder = encoder;
         this.streamId = streamId;
         this.settings = settings;
+        this.prioritizer = prioritizer;
     }
 
     @Override
@@ -69,8 +71,8 @@ class Http2Response extends NettyResponseAdaptor {
 
         if (settings.shouldCompress(headers.get(HeaderNames.CONTENT_LENGTH), headers.get(HeaderNames.CONTENT_TYPE))) {
             headers.set(HeaderNames.VARY, getVaryWithAE(headers.get(HeaderNames.VARY)));
-            CharSequence toUse = Http2Connection.compressionToUse(request.headers());
-            if (toUse != null && !headers.entries.contains(HeaderNames.CONTENT_ENCODING)) {
+            CharSequence toUse = Http2Connection.compressionToUse(settings.compression, request.headers());
+            if (toUse != null && !headers.entries.contains(HeaderNames.CONTENT_ENCODING) && !settings.compression.skipCompression(ctx.executor())) {
                 // By setting the header value, the CompressorHttp2ConnectionEncoder added by the Http2ConnectionBuilder will encode the bytes.
                 // The mu- prefix is what indicates to the compressor that we want to compress it, and MuGzipHttp2ConnectionEncoder removes the mu- prefix.
                 headers.set(HeaderNames.CONTENT_ENCODING, "mu-" + toUse);
@@ -85,6 +87,10 @@ class Http2Response extends NettyResponseAdaptor {
     }
 
     private void writeHeadersForReal(boolean isEnd) {
+        String priority = headers.get(HeaderNames.PRIORITY);
+        if (priority != null) {
+            prioritizer.prioritize(streamId, StreamPriority.parse(priority));
+        }
         encoder.writeHeaders(ctx, streamId, headers.entries, 0, isEnd, ctx.newPromise());
         if (isEnd) {
             ctx.channel().flush();
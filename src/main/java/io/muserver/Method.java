@@ -1,5 +1,7 @@
 package io.muserver;
 
+import io.netty.util.AsciiString;
+
 /**
  * An HTTP Method
  */
@@ -7,8 +9,36 @@ public enum Method {
 
 	GET, POST, HEAD, OPTIONS, PUT, DELETE, TRACE, CONNECT, PATCH;
 
+	private static final Method[] VALUES = values();
+	private static final AsciiString[] NAMES = new AsciiString[VALUES.length];
+	static {
+		for (int i = 0; i < VALUES.length; i++) {
+			NAMES[i] = AsciiString.cached(VALUES[i].name());
+		}
+	}
+
 	static Method fromNetty(io.netty.handler.codec.http.HttpMethod method) {
 		return Method.valueOf(method.name());
 	}
 
+	/**
+	 * Finds a method from the value of an HTTP/2 <code>:method</code> pseudo-header without creating any strings.
+	 * @param name The method name, which is matched case-insensitively
+	 * @return The method
+	 * @throws IllegalArgumentException if the method is not supported
+	 */
+	static Method fromHttp2(CharSequence name) {
+		for (int i = 0; i < NAMES.length; i++) {
+			if (AsciiString.contentEquals(NAMES[i], name)) {
+				return VALUES[i];
+			}
+		}
+		for (int i = 0; i < NAMES.length; i++) {
+			if (AsciiString.contentEqualsIgnoreCase(NAMES[i], name)) {
+				return VALUES[i];
+			}
+		}
+		throw new IllegalArgumentException("Unsupported method " + name);
+	}
+
 }
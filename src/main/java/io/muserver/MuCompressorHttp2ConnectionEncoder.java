@@ -1,24 +1,66 @@
 package io.muserver;
 
+import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
 import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.HttpHeaderValues;
 import io.netty.handler.codec.http2.CompressorHttp2ConnectionEncoder;
 import io.netty.handler.codec.http2.Http2ConnectionEncoder;
-import io.netty.handler.codec.http2.Http2Exception;
+import io.netty.handler.codec.http2.Http2Headers;
 
 class MuCompressorHttp2ConnectionEncoder extends CompressorHttp2ConnectionEncoder {
 
-    MuCompressorHttp2ConnectionEncoder(Http2ConnectionEncoder delegate, int compressionLevel, int windowBits, int memLevel) {
-        super(delegate, compressionLevel, windowBits, memLevel);
+    private final CompressionConfig compression;
+    // the compressor is created while the headers are written, but is not given the content type, so it is kept here
+    private CharSequence contentType;
+
+    MuCompressorHttp2ConnectionEncoder(Http2ConnectionEncoder delegate, CompressionConfig compression) {
+        super(delegate);
+        this.compression = compression;
+    }
+
+    @Override
+    public ChannelFuture writeHeaders(ChannelHandlerContext ctx, int streamId, Http2Headers headers, int padding, boolean endStream, ChannelPromise promise) {
+        contentType = headers.get(HeaderNames.CONTENT_TYPE);
+        try {
+            return super.writeHeaders(ctx, streamId, headers, padding, endStream, promise);
+        } finally {
+            contentType = null;
+        }
+    }
+
+    @Override
+    public ChannelFuture writeHeaders(ChannelHandlerContext ctx, int streamId, Http2Headers headers, int streamDependency, short weight, boolean exclusive, int padding, boolean endOfStream, ChannelPromise promise) {
+        contentType = headers.get(HeaderNames.CONTENT_TYPE);
+        try {
+            return super.writeHeaders(ctx, streamId, headers, streamDependency, weight, exclusive, padding, endOfStream, promise);
+        } finally {
+            contentType = null;
+        }
     }
 
     @Override
-    protected EmbeddedChannel newContentCompressor(ChannelHandlerContext ctx, CharSequence contentEncoding) throws Http2Exception {
+    protected EmbeddedChannel newContentCompressor(ChannelHandlerContext ctx, CharSequence contentEncoding) {
         CharSequence actual = MuGzipHttp2ConnectionEncoder.actualEncodingIfHasMuPrefix(contentEncoding);
         if (actual == null) {
             return null;
         }
-        return super.newContentCompressor(ctx, actual);
+        String type = contentType == null ? null : contentType.toString();
+        ContentEncoder encoder = compression.encoderFor(actual);
+        if (encoder != null) {
+            return StreamingContentEncoder.newCompressor(ctx, encoder, type);
+        }
+        boolean gzip;
+        if (HttpHeaderValues.GZIP.contentEqualsIgnoreCase(actual) || HttpHeaderValues.X_GZIP.contentEqualsIgnoreCase(actual)) {
+            gzip = true;
+        } else if (HttpHeaderValues.DEFLATE.contentEqualsIgnoreCase(actual) || HttpHeaderValues.X_DEFLATE.contentEqualsIgnoreCase(actual)) {
+            gzip = false;
+        } else {
+            return null;
+        }
+        return PooledDeflaterEncoder.newCompressor(ctx, gzip, compression.levelFor(type, ctx.executor()),
+            compression.strategyFor(type), compression.deflaterPool);
     }
 
 }
@@ -85,6 +85,23 @@ public interface MuRequest {
      */
     String readBodyAsString() throws IOException;
 
+    /**
+     * Returns the request body as a byte array.
+     * <p>This is a blocking call which waits until the whole request is available. If the body was received before
+     * the handlers were called (see {@link MuServerBuilder#withRequestBodyAggregationThreshold(int)}) then the
+     * received bytes are returned directly without waiting or copying.</p>
+     * <p>Note: this can only be read once and cannot be used with {@link #inputStream()}, {@link #readBodyAsString()}
+     * or {@link #form()}.</p>
+     * <p>The default implementation reads the whole of {@link #inputStream()}.</p>
+     *
+     * @return The content of the request body, or an empty array if there is no request body
+     * @throws IOException if there is an exception during reading the request, e.g. if the HTTP connection is stopped during a request
+     */
+    default byte[] readBodyAsBytes() throws IOException {
+        Optional<InputStream> body = inputStream();
+        return body.isPresent() ? Mutils.toByteArray(body.get(), 8192) : new byte[0];
+    }
+
     /**
      * Gets all the uploaded files with the given name, or an empty list if none are found.
      *
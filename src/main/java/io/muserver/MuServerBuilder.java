@@ -55,12 +55,26 @@ public class MuServerBuilder {
     private String host;
     private SSLContextBuilder sslContextBuilder;
     private Http2Config http2Config;
+    private CompressionConfig compressionConfig;
     private long idleTimeoutMills = TimeUnit.MINUTES.toMillis(5);
     private ExecutorService executor;
     private long maxRequestSize = 24 * 1024 * 1024;
     private List<ResponseCompleteListener> responseCompleteListeners;
     private HashedWheelTimer wheelTimer;
     private List<RateLimiter> rateLimiters;
+    private boolean writeBehindEnabled = false;
+    private WriteBufferWaterMark writeBufferWaterMark;
+    private long maxPendingWriteBytes = -1;
+    private SlowClientPolicy slowClientPolicy = SlowClientPolicy.BLOCK;
+    private long slowClientGraceMillis = TimeUnit.SECONDS.toMillis(10);
+    private boolean requestDecompressionEnabled = false;
+    private int maxRequestDecompressionRatio = 100;
+    private int requestBodyAggregationThreshold = 0;
+    private long eventLoopStallWarningMillis = 0;
+    private boolean virtualThreadsEnabled = false;
+    private FairSchedulerBuilder fairScheduler;
+    private ControlledDelay controlledDelay;
+    private ExecutorService tlsHandshakeExecutor;
 
     /**
      * @param port The HTTP port to use. A value of 0 will have a random port assigned; a value of -1 will
@@ -136,6 +150,20 @@ public class MuServerBuilder {
         return this;
     }
 
+    /**
+     * Sets how responses are compressed, such as the compression level for each mime type and whether to compress
+     * less when the server is busy. Which responses are compressed is set with {@link #withGzip(long, Set)}.
+     *
+     * @param compressionConfig The compression settings
+     * @return The current Mu Server builder
+     * @see CompressionConfigBuilder
+     */
+    public MuServerBuilder withCompressionConfig(CompressionConfigBuilder compressionConfig) {
+        Mutils.notNull("compressionConfig", compressionConfig);
+        this.compressionConfig = compressionConfig.build();
+        return this;
+    }
+
     /**
      * Turns off HTTP.
      *
@@ -245,6 +273,72 @@ public class MuServerBuilder {
         return this;
     }
 
+    /**
+     * <p>Specifies whether each request should be handled on its own virtual thread rather than on a pooled
+     * platform thread. Default is <code>false</code>.</p>
+     * <p>Virtual threads are cheap to create and to block, so this allows large numbers of concurrent requests with
+     * handlers that block, for example on database calls or on reading request bodies, without a large thread pool.</p>
+     * <p>Virtual threads require Java 21 or later. On earlier JVMs a warning is logged and the default thread pool is
+     * used instead. This setting is ignored if an executor is set with {@link #withHandlerExecutor(ExecutorService)}.</p>
+     *
+     * @param enabled <code>true</code> to run handlers on virtual threads
+     * @return The current Mu Server builder
+     */
+    public MuServerBuilder withVirtualThreads(boolean enabled) {
+        this.virtualThreadsEnabled = enabled;
+        return this;
+    }
+
+    /**
+     * <p>Shares handler threads fairly between classes of requests, such as tenants or priorities, so that a burst
+     * of requests in one class cannot starve the others.</p>
+     * <p>When enabled, at most {@link FairSchedulerBuilder#withMaxConcurrency(int)} requests are passed to the
+     * handler executor at once. Further requests are queued per class and dispatched with weighted round-robin
+     * as handlers finish, taking the requests of each class from its connections in turn. Requests that arrive when
+     * their class's queue is full get a <code>503</code>.</p>
+     * <p>The following example gives interactive requests three times the share of batch requests, and allows
+     * only a small batch queue:</p>
+     * <pre>
+     *     {@code
+     *     MuServerBuilder.httpsServer()
+     *        .withFairScheduler(FairSchedulerBuilder.fairScheduler()
+     *                 .withClassifier(request -> request.uri().getPath().startsWith("/batch/") ? "batch" : "interactive")
+     *                 .withClass("interactive", 3, 1000)
+     *                 .withClass("batch", 1, 50))
+     *     }
+     * </pre>
+     * <p>Queue times and throughput of each class are available from {@link MuStats#requestClassStats()}.</p>
+     *
+     * @param fairScheduler The scheduler configuration, or null to pass requests straight to the executor (the default)
+     * @return The current Mu Server builder
+     */
+    public MuServerBuilder withFairScheduler(FairSchedulerBuilder fairScheduler) {
+        this.fairScheduler = fairScheduler;
+        return this;
+    }
+
+    /**
+     * <p>Rejects requests with a <code>503 Service Unavailable</code> and a <code>Retry-After</code> header when
+     * requests are consistently queued for longer than the target delay before reaching a handler thread, so that
+     * a backed-up server does not spend time on requests that clients may have given up on.</p>
+     * <p>This is based on the CoDel (controlled delay) algorithm. Short bursts are allowed: requests are only
+     * rejected after a whole interval in which no request waited less than the target, and then only those that
+     * waited more than twice the target. Typical values are a target of 5ms to 50ms and an interval of 100ms to
+     * 1 second.</p>
+     * <p>Requests whose clients disconnect while they are queued are always skipped. To apply different limits
+     * to different parts of an application, use {@link ContextHandlerBuilder#withControlledDelay(long, long, TimeUnit)}.</p>
+     *
+     * @param target The acceptable time for requests to wait for a handler thread
+     * @param interval The period over which the minimum queue time is compared to the target
+     * @param unit The unit of the target and interval
+     * @return The current Mu Server builder
+     * @throws IllegalArgumentException if target or interval is less than 1, or unit is null
+     */
+    public MuServerBuilder withControlledDelay(long target, long interval, TimeUnit unit) {
+        this.controlledDelay = new ControlledDelay(target, interval, unit);
+        return this;
+    }
+
     /**
      * <p>The number of nio threads to handle requests.</p>
      * <p>Generally only a small number is required as NIO threads are only used for non-blocking
@@ -317,6 +411,138 @@ public class MuServerBuilder {
         return this;
     }
 
+    /**
+     * <p>Enables write-behind for blocking writes to response output streams, writers and
+     * {@link MuResponse#sendChunk(String)}.</p>
+     * <p>By default, each blocking write waits until the data has been written to the client, meaning the handler
+     * thread is blocked for a network round trip for every buffer that is sent. With write-behind enabled, writes
+     * are queued on the connection without waiting, and the handler thread only blocks while the amount of queued
+     * data is above the high water mark (see {@link #withWriteBufferWaterMarks(int, int)}). Errors from a queued write
+     * are thrown from a later write.</p>
+     * <p>Note that this currently only applies to HTTP/1 connections.</p>
+     *
+     * @param enabled True to enable write-behind. The default is <code>false</code>.
+     * @return This builder
+     */
+    public MuServerBuilder withWriteBehindEnabled(boolean enabled) {
+        this.writeBehindEnabled = enabled;
+        return this;
+    }
+
+    /**
+     * Sets the write buffer water marks of each connection. When the amount of data queued for sending to a client
+     * goes above the high water mark, the connection is marked as unwritable until it drops below the low water mark.
+     * When unwritable, the callbacks of {@link AsyncHandle#write(java.nio.ByteBuffer, DoneCallback)} are delayed and,
+     * if {@link #withWriteBehindEnabled(boolean)} is on, blocking writes wait.
+     * <p>The default is 32KB for the low water mark and 64KB for the high water mark.</p>
+     *
+     * @param low  The low water mark in bytes
+     * @param high The high water mark in bytes, which must be greater than or equal to the low water mark
+     * @return This builder
+     */
+    public MuServerBuilder withWriteBufferWaterMarks(int low, int high) {
+        if (low < 0) {
+            throw new IllegalArgumentException("The low water mark must be 0 or greater");
+        }
+        if (high < low) {
+            throw new IllegalArgumentException("The high water mark must be greater than or equal to the low water mark");
+        }
+        this.writeBufferWaterMark = new WriteBufferWaterMark(low, high);
+        return this;
+    }
+
+    /**
+     * <p>Limits the number of bytes that can be waiting to be sent to each connection, in order to protect the server
+     * from clients that read data slowly (whether accidentally or maliciously) which would otherwise result in
+     * unbounded memory use.</p>
+     * <p>The total number of bytes waiting to be sent is available from {@link MuStats#pendingWriteBytes()}.</p>
+     * <p>Note that for HTTP/2 connections, data held back by HTTP/2 flow control is not counted.</p>
+     *
+     * @param maxBytes The maximum number of pending bytes allowed per connection, or <code>-1</code> for no limit,
+     *                 which is the default.
+     * @param policy   What happens when a connection has more pending bytes than allowed
+     * @return This builder
+     * @see #withSlowClientGracePeriod(long, TimeUnit)
+     */
+    public MuServerBuilder withMaxPendingWriteBytes(long maxBytes, SlowClientPolicy policy) {
+        if (maxBytes < -1) {
+            throw new IllegalArgumentException("The max pending write bytes must be -1 or greater");
+        }
+        Mutils.notNull("policy", policy);
+        this.maxPendingWriteBytes = maxBytes;
+        this.slowClientPolicy = policy;
+        return this;
+    }
+
+    /**
+     * When the {@link SlowClientPolicy#DISCONNECT} policy is used, this is the amount of time a connection can be
+     * over its limit before being closed. The default is 10 seconds.
+     *
+     * @param duration The grace period
+     * @param unit     The unit of the duration
+     * @return This builder
+     */
+    public MuServerBuilder withSlowClientGracePeriod(long duration, TimeUnit unit) {
+        if (duration < 0) {
+            throw new IllegalArgumentException("The duration must be 0 or greater");
+        }
+        Mutils.notNull("unit", unit);
+        this.slowClientGraceMillis = unit.toMillis(duration);
+        return this;
+    }
+
+    /**
+     * <p>Enables decompression of request bodies that have a <code>Content-Encoding</code> of <code>gzip</code> or
+     * <code>deflate</code>.</p>
+     * <p>When enabled, such bodies are decompressed as they are received, so that methods such as
+     * {@link MuRequest#readBodyAsString()} and {@link MuRequest#form()} return the original content. The
+     * <code>Content-Encoding</code> and <code>Content-Length</code> request headers are removed from decompressed
+     * requests. The limit set by {@link #withMaxRequestSize(long)} applies to the decompressed size.</p>
+     *
+     * @param enabled True to decompress request bodies. The default is <code>false</code>.
+     * @return This builder
+     */
+    public MuServerBuilder withRequestDecompressionEnabled(boolean enabled) {
+        this.requestDecompressionEnabled = enabled;
+        return this;
+    }
+
+    /**
+     * <p>The maximum number of times larger a decompressed request body can be than the compressed body. Requests
+     * that expand by more than this are rejected with a <code>413</code> to protect against decompression bombs.</p>
+     * <p>Bodies that decompress to 64KB or less are always allowed. This has no effect unless
+     * {@link #withRequestDecompressionEnabled(boolean)} is set.</p>
+     *
+     * @param ratio The maximum ratio of decompressed to compressed size. The default is 100.
+     * @return This builder
+     */
+    public MuServerBuilder withMaxRequestDecompressionRatio(int ratio) {
+        if (ratio < 1) {
+            throw new IllegalArgumentException("The ratio must be 1 or greater");
+        }
+        this.maxRequestDecompressionRatio = ratio;
+        return this;
+    }
+
+    /**
+     * <p>Request bodies with a declared <code>Content-Length</code> of this many bytes or fewer are received in
+     * full before the handlers are called, rather than being streamed to them as they arrive.</p>
+     * <p>This means reading a small body never blocks a handler thread, and {@link MuRequest#readBodyAsBytes()}
+     * returns the received bytes without copying them. Bodies without a declared length, and bodies that are
+     * decompressed by the server, are always streamed.</p>
+     *
+     * @param bytes The largest body size, in bytes, to receive before calling the handlers, or 0 to always stream
+     *              request bodies. The default is 0.
+     * @return This builder
+     */
+    public MuServerBuilder withRequestBodyAggregationThreshold(int bytes) {
+        if (bytes < 0) {
+            throw new IllegalArgumentException("The aggregation threshold cannot be negative");
+        }
+        this.requestBodyAggregationThreshold = bytes;
+        return this;
+    }
+
     /**
      * <p>Throws an exception. Do not use.</p>
      *
@@ -396,6 +622,103 @@ public class MuServerBuilder {
         return addHandler(Routes.route(method, uriTemplate, handler));
     }
 
+    /**
+     * <p>Adds a request handler that does not block, which allows it to be run on the thread that read the request
+     * rather than being passed to the handler executor.</p>
+     * <p>Handlers are still called in the order they were added. If the first handlers added to the server are
+     * non-blocking handlers then they are run directly on the connection's event loop, and the request is only passed
+     * to the executor if none of them handle it. Non-blocking handlers added after a normal handler are run on the
+     * executor like any other handler.</p>
+     * <p>Non-blocking handlers must never block: they should not read the request body with
+     * {@link MuRequest#inputStream()} or similar (unless the whole body is received before the handlers are called
+     * with {@link #withRequestBodyAggregationThreshold(int)}), or do any other blocking IO. They are best suited
+     * to handlers that return quickly, for example by responding from a cache or by calling
+     * {@link MuRequest#handleAsync()} and writing asynchronously. Blocking writes to the response, such as
+     * {@link MuResponse#write(String)}, do not wait for the data to be sent when called from an event loop.</p>
+     * <p>Use {@link #withEventLoopStallWarning(long, TimeUnit)} to find non-blocking handlers that take too long.</p>
+     *
+     * @param handler The handler to add. If null, then no handler is added.
+     * @return The current Mu Server Handler.
+     */
+    public MuServerBuilder addNonBlockingHandler(MuHandler handler) {
+        if (handler == null) {
+            return this;
+        }
+        return addHandler(new NonBlockingHandler(getContextualHandlerForResourceHandler(handler)));
+    }
+
+    /**
+     * <p>Adds a request handler that does not block. This can be used with a {@link ContextHandlerBuilder} to
+     * mark all the handlers in a context as non-blocking.</p>
+     * <p>See {@link #addNonBlockingHandler(MuHandler)} for details.</p>
+     *
+     * @param handler A handler builder. The <code>build()</code> method will be called on this
+     *                to create the handler. If null, then no handler is added.
+     * @return The current Mu Server Handler.
+     */
+    public MuServerBuilder addNonBlockingHandler(MuHandlerBuilder handler) {
+        if (handler == null) {
+            return this;
+        }
+        return addNonBlockingHandler(handler.build());
+    }
+
+    /**
+     * <p>Registers a new non-blocking handler that will only be called if it matches the given route info.</p>
+     * <p>See {@link #addNonBlockingHandler(MuHandler)} for details.</p>
+     *
+     * @param method      The method to match, or <code>null</code> to accept any method.
+     * @param uriTemplate A URL template, as described in {@link #addHandler(Method, String, RouteHandler)}
+     * @param handler     The handler to invoke if the method and URI matches. If null, then no handler is added.
+     * @return Returns the server builder
+     */
+    public MuServerBuilder addNonBlockingHandler(Method method, String uriTemplate, RouteHandler handler) {
+        if (handler == null) {
+            return this;
+        }
+        return addNonBlockingHandler(Routes.route(method, uriTemplate, handler));
+    }
+
+    /**
+     * <p>Logs a warning when handlers added with {@link #addNonBlockingHandler(MuHandler)} run on an event loop for
+     * longer than the given time. The warning includes the stack trace of the event loop thread at the time, which
+     * shows what the handler was waiting on.</p>
+     * <p>This is intended for finding handlers that block. Checks are made at intervals of up to 100ms, so short
+     * times are approximate.</p>
+     *
+     * @param duration The time a non-blocking handler can run for before a warning is logged, or 0 to disable
+     *                 the warnings, which is the default.
+     * @param unit     The unit of the duration
+     * @return This builder
+     */
+    public MuServerBuilder withEventLoopStallWarning(long duration, TimeUnit unit) {
+        if (duration < 0) {
+            throw new IllegalArgumentException("The duration must be 0 or greater");
+        }
+        Mutils.notNull("unit", unit);
+        this.eventLoopStallWarningMillis = unit.toMillis(duration);
+        return this;
+    }
+
+    /**
+     * <p>Runs the CPU intensive parts of TLS handshakes, such as key exchange and certificate checks, on the given
+     * executor rather than on the event loop of the connection.</p>
+     * <p>By default handshakes run on the event loops, which is the fastest option when new connections are spread
+     * out over time. When many clients connect at once, such as when they all reconnect after a restart, the
+     * handshakes can hold up the requests of every connection that shares an event loop. With an executor, those
+     * requests keep being served while the handshakes wait their turn. The {@link MuStats#queuedTlsHandshakeTasks()}
+     * statistic shows how many are waiting, and {@link MuStats#tlsHandshakeNanos()} how long handshakes take.</p>
+     * <p>A fixed size pool, for example from {@link Executors#newFixedThreadPool(int)}, limits how much CPU is spent
+     * on handshakes. The executor is shut down when the server is stopped.</p>
+     *
+     * @param executor The executor to run handshake tasks on, or null to run them on the event loops
+     * @return This builder
+     */
+    public MuServerBuilder withTlsHandshakeExecutor(ExecutorService executor) {
+        this.tlsHandshakeExecutor = executor;
+        return this;
+    }
+
     /**
      * Adds a listener that is notified when each response completes
      *
@@ -486,29 +809,46 @@ public class MuServerBuilder {
             throw new IllegalArgumentException("No ports were configured. Please call MuServerBuilder.withHttpPort(int) or MuServerBuilder.withHttpsPort(int)");
         }
 
-        ServerSettings settings = new ServerSettings(minimumGzipSize, maxHeadersSize, idleTimeoutMills, maxRequestSize, maxUrlSize, gzipEnabled, mimeTypesToGzip, rateLimiters);
+        ServerSettings settings = new ServerSettings(minimumGzipSize, maxHeadersSize, idleTimeoutMills, maxRequestSize, maxUrlSize, gzipEnabled, mimeTypesToGzip, rateLimiters, writeBehindEnabled, maxPendingWriteBytes, slowClientPolicy, slowClientGraceMillis, requestDecompressionEnabled, maxRequestDecompressionRatio, requestBodyAggregationThreshold, controlledDelay,
+            compressionConfig == null ? CompressionConfigBuilder.compression().build() : compressionConfig);
 
         ExecutorService handlerExecutor = this.executor;
+        if (handlerExecutor == null && virtualThreadsEnabled) {
+            if (VirtualThreads.isSupported()) {
+                handlerExecutor = VirtualThreads.newThreadPerTaskExecutor("muhandler-virtual-");
+            } else {
+                log.warn("Virtual threads were requested but are not supported by this JVM, so the default handler thread pool will be used");
+            }
+        }
         if (handlerExecutor == null) {
             DefaultThreadFactory threadFactory = new DefaultThreadFactory("muhandler");
             handlerExecutor = new ThreadPoolExecutor(8, 400, 60, TimeUnit.SECONDS, new SynchronousQueue<>(), threadFactory);
         }
-        NettyHandlerAdapter nettyHandlerAdapter = new NettyHandlerAdapter(handlerExecutor, handlers, settings, responseCompleteListeners);
+        EventLoopStallDetector stallDetector = eventLoopStallWarningMillis > 0 ? new EventLoopStallDetector(eventLoopStallWarningMillis) : null;
+        FairScheduler scheduler = fairScheduler == null ? null : fairScheduler.build(handlerExecutor);
+        NettyHandlerAdapter nettyHandlerAdapter = new NettyHandlerAdapter(handlerExecutor, handlers, settings, responseCompleteListeners, stallDetector, scheduler);
 
         NioEventLoopGroup bossGroup = new NioEventLoopGroup(1);
         NioEventLoopGroup workerGroup = new NioEventLoopGroup(this.nioThreads);
         List<Channel> channels = new ArrayList<>();
 
         ExecutorService finalHandlerExecutor = handlerExecutor;
+        ExecutorService handshakeExecutor = tlsHandshakeExecutor;
         Runnable shutdown = () -> {
             try {
                 if (wheelTimer != null) {
                     wheelTimer.stop();
                 }
+                if (stallDetector != null) {
+                    stallDetector.stop();
+                }
                 for (Channel channel : channels) {
                     channel.close().sync();
                 }
                 finalHandlerExecutor.shutdown();
+                if (handshakeExecutor != null) {
+                    handshakeExecutor.shutdown();
+                }
                 bossGroup.shutdownGracefully(0, 0, TimeUnit.MILLISECONDS).sync();
                 workerGroup.shutdownGracefully(0, 0, TimeUnit.MILLISECONDS).sync();
 
@@ -519,13 +859,15 @@ public class MuServerBuilder {
 
         try {
             GlobalTrafficShapingHandler trafficShapingHandler = new GlobalTrafficShapingHandler(workerGroup, 0, 0, 1000);
-            MuStatsImpl stats = new MuStatsImpl(trafficShapingHandler.trafficCounter());
+            MuStatsImpl stats = new MuStatsImpl(trafficShapingHandler.trafficCounter(), scheduler);
             SslContextProvider sslContextProvider = null;
 
-            boolean http2Enabled = http2Config != null && http2Config.enabled;
-            MuServerImpl server = new MuServerImpl(stats, http2Enabled, settings);
+            Http2Config http2Config = this.http2Config == null ? Http2ConfigBuilder.http2Config().build() : this.http2Config;
+            boolean http2Enabled = http2Config.enabled;
+            MuServerImpl server = new MuServerImpl(stats, http2Config, settings);
+            server.dateHeader.start(workerGroup);
 
-            Channel httpChannel = httpPort < 0 ? null : createChannel(bossGroup, workerGroup, nettyHandlerAdapter, host, httpPort, null, trafficShapingHandler, server, false, idleTimeoutMills);
+            Channel httpChannel = httpPort < 0 ? null : createChannel(bossGroup, workerGroup, nettyHandlerAdapter, host, httpPort, null, null, trafficShapingHandler, server, false, idleTimeoutMills, writeBufferWaterMark);
             Channel httpsChannel;
             if (httpsPort < 0) {
                 httpsChannel = null;
@@ -534,7 +876,8 @@ public class MuServerBuilder {
                 SslContext nettySslContext = toUse.toNettySslContext(http2Enabled);
                 log.debug("SSL Context is " + nettySslContext);
                 sslContextProvider = new SslContextProvider(nettySslContext);
-                httpsChannel = createChannel(bossGroup, workerGroup, nettyHandlerAdapter, host, httpsPort, sslContextProvider, trafficShapingHandler, server, http2Enabled, idleTimeoutMills);
+                Executor handshakeTaskExecutor = handshakeExecutor == null ? null : new HandshakeTaskExecutor(handshakeExecutor, stats);
+                httpsChannel = createChannel(bossGroup, workerGroup, nettyHandlerAdapter, host, httpsPort, sslContextProvider, handshakeTaskExecutor, trafficShapingHandler, server, http2Enabled, idleTimeoutMills, writeBufferWaterMark);
             }
             URI uri = null;
             if (httpChannel != null) {
@@ -568,7 +911,7 @@ public class MuServerBuilder {
         return URI.create(protocol + "://" + host.toLowerCase() + ":" + a.getPort());
     }
 
-    private static Channel createChannel(NioEventLoopGroup bossGroup, NioEventLoopGroup workerGroup, NettyHandlerAdapter nettyHandlerAdapter, String host, int port, SslContextProvider sslContextProvider, GlobalTrafficShapingHandler trafficShapingHandler, MuServerImpl server, final boolean http2, long idleTimeoutMills) throws InterruptedException {
+    private static Channel createChannel(NioEventLoopGroup bossGroup, NioEventLoopGroup workerGroup, NettyHandlerAdapter nettyHandlerAdapter, String host, int port, SslContextProvider sslContextProvider, Executor handshakeTaskExecutor, GlobalTrafficShapingHandler trafficShapingHandler, MuServerImpl server, final boolean http2, long idleTimeoutMills, WriteBufferWaterMark writeBufferWaterMark) throws InterruptedException {
         boolean usesSsl = sslContextProvider != null;
         String proto = usesSsl ? "https" : "http";
         ServerBootstrap b = new ServerBootstrap();
@@ -580,8 +923,18 @@ public class MuServerBuilder {
                     ChannelPipeline p = socketChannel.pipeline();
                     p.addLast("idle", new IdleStateHandler(0, 0, idleTimeoutMills, TimeUnit.MILLISECONDS));
                     p.addLast(trafficShapingHandler);
+                    p.addLast("pendingwrites", new PendingWriteTracker(server.settings(), server.stats));
                     if (usesSsl) {
-                        SslHandler sslHandler = sslContextProvider.get().newHandler(socketChannel.alloc());
+                        SslContext sslContext = sslContextProvider.get();
+                        SslHandler sslHandler = handshakeTaskExecutor == null
+                            ? sslContext.newHandler(socketChannel.alloc())
+                            : sslContext.newHandler(socketChannel.alloc(), handshakeTaskExecutor);
+                        long handshakeStart = System.nanoTime();
+                        sslHandler.handshakeFuture().addListener(f -> {
+                            if (f.isSuccess()) {
+                                server.stats.onHandshakeCompleted(System.nanoTime() - handshakeStart);
+                            }
+                        });
                         SSLParameters params = sslHandler.engine().getSSLParameters();
                         params.setUseCipherSuitesOrder(true);
                         sslHandler.engine().setSSLParameters(params);
@@ -604,6 +957,9 @@ public class MuServerBuilder {
 
 
             });
+        if (writeBufferWaterMark != null) {
+            b.childOption(ChannelOption.WRITE_BUFFER_WATER_MARK, writeBufferWaterMark);
+        }
         ChannelFuture bound = host == null ? b.bind(port) : b.bind(host, port);
         return bound.sync().channel();
     }
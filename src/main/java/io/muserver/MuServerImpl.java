@@ -16,8 +16,10 @@ class MuServerImpl implements MuServer {
     private InetSocketAddress address;
     private SslContextProvider sslContextProvider;
     private final boolean http2Enabled;
+    final Http2Config http2Config;
     private final ServerSettings settings;
     private final Set<HttpConnection> connections = ConcurrentHashMap.newKeySet();
+    final DateHeaderCache dateHeader = new DateHeaderCache();
 
     void onStarted(URI httpUri, URI httpsUri, Runnable shutdown, InetSocketAddress address, SslContextProvider sslContextProvider) {
         this.address = address;
@@ -30,9 +32,10 @@ class MuServerImpl implements MuServer {
         this.shutdown = shutdown;
     }
 
-    MuServerImpl(MuStatsImpl stats, boolean http2Enabled, ServerSettings settings) {
+    MuServerImpl(MuStatsImpl stats, Http2Config http2Config, ServerSettings settings) {
         this.stats = stats;
-        this.http2Enabled = http2Enabled;
+        this.http2Config = http2Config;
+        this.http2Enabled = http2Config.enabled;
         this.settings = settings;
     }
 
@@ -1,5 +1,7 @@
 package io.muserver;
 
+import java.util.Collections;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
 
@@ -49,8 +51,50 @@ public interface MuStats {
      */
     long failedToConnect();
 
+    /**
+     * @return The number of bytes that have been written to connections but not yet sent to clients, for example
+     * because a client is reading slowly.
+     * @see MuServerBuilder#withMaxPendingWriteBytes(long, SlowClientPolicy)
+     */
+    default long pendingWriteBytes() {
+        return 0;
+    }
+
+    /**
+     * @return The number of TLS handshake tasks waiting for a thread in the executor set with
+     * {@link MuServerBuilder#withTlsHandshakeExecutor(ExecutorService)}, which is always 0 when handshakes run on
+     * the event loops.
+     */
+    default long queuedTlsHandshakeTasks() {
+        return 0;
+    }
+
+    /**
+     * @return The number of TLS handshakes that have completed successfully.
+     */
+    default long completedTlsHandshakes() {
+        return 0;
+    }
+
+    /**
+     * @return The total time in nanoseconds taken by the handshakes counted in {@link #completedTlsHandshakes()},
+     * measured from when the connection was accepted. The average handshake duration over a period can be found from
+     * the changes in these two values.
+     */
+    default long tlsHandshakeNanos() {
+        return 0;
+    }
+
     /**
      * @return The requests that are currently in-flight
      */
     Set<MuRequest> activeRequests();
+
+    /**
+     * @return Statistics for each class of request, keyed by class name, when fair scheduling is enabled with
+     * {@link MuServerBuilder#withFairScheduler(FairSchedulerBuilder)}; otherwise an empty map.
+     */
+    default Map<String, RequestClassStats> requestClassStats() {
+        return Collections.emptyMap();
+    }
 }
@@ -3,6 +3,7 @@ package io.muserver;
 import io.netty.handler.traffic.TrafficCounter;
 
 import java.util.Collections;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
@@ -15,10 +16,20 @@ class MuStatsImpl implements MuStats {
     private final AtomicLong invalidHttpRequests = new AtomicLong(0);
     private final AtomicLong rejectedDueToOverload = new AtomicLong(0);
     private final AtomicLong failedToConnect = new AtomicLong(0);
+    private final AtomicLong pendingWriteBytes = new AtomicLong(0);
+    private final AtomicLong queuedHandshakeTasks = new AtomicLong(0);
+    private final AtomicLong completedHandshakes = new AtomicLong(0);
+    private final AtomicLong handshakeNanos = new AtomicLong(0);
     private final Set<MuRequest> activeRequests = ConcurrentHashMap.newKeySet();
+    private final FairScheduler scheduler;
 
     MuStatsImpl(TrafficCounter trafficCounter) {
+        this(trafficCounter, null);
+    }
+
+    MuStatsImpl(TrafficCounter trafficCounter, FairScheduler scheduler) {
         this.trafficCounter = trafficCounter;
+        this.scheduler = scheduler;
     }
 
     @Override
@@ -61,11 +72,36 @@ class MuStatsImpl implements MuStats {
         return failedToConnect.get();
     }
 
+    @Override
+    public long pendingWriteBytes() {
+        return pendingWriteBytes.get();
+    }
+
+    @Override
+    public long queuedTlsHandshakeTasks() {
+        return queuedHandshakeTasks.get();
+    }
+
+    @Override
+    public long completedTlsHandshakes() {
+        return completedHandshakes.get();
+    }
+
+    @Override
+    public long tlsHandshakeNanos() {
+        return handshakeNanos.get();
+    }
+
     @Override
     public Set<MuRequest> activeRequests() {
         return Collections.unmodifiableSet(activeRequests);
     }
 
+    @Override
+    public Map<String, RequestClassStats> requestClassStats() {
+        return scheduler == null ? Collections.emptyMap() : scheduler.stats();
+    }
+
 
     void onRequestStarted(MuRequest request) {
         activeRequests.add(request);
@@ -88,6 +124,23 @@ class MuStatsImpl implements MuStats {
         failedToConnect.incrementAndGet();
     }
 
+    void onPendingWriteBytesChanged(long delta) {
+        pendingWriteBytes.addAndGet(delta);
+    }
+
+    void onHandshakeTaskQueued() {
+        queuedHandshakeTasks.incrementAndGet();
+    }
+
+    void onHandshakeTaskStarted() {
+        queuedHandshakeTasks.decrementAndGet();
+    }
+
+    void onHandshakeCompleted(long nanos) {
+        handshakeNanos.addAndGet(nanos);
+        completedHandshakes.incrementAndGet();
+    }
+
     void onConnectionOpened() {
         activeConnections.incrementAndGet();
     }
@@ -103,6 +156,7 @@ class MuStatsImpl implements MuStats {
             "; active connections: " + activeConnections() + "; completed connections: " + completedConnections() +
             "; invalid requests: " + invalidHttpRequests() + "; bytes received: " + bytesRead() +
             "; bytes sent: " + bytesSent() + "; rejected: " + rejectedDueToOverload() +
-            "; connectionFailured: " + failedToConnect();
+            "; connectionFailured: " + failedToConnect() + "; pending write bytes: " + pendingWriteBytes() +
+            "; completed TLS handshakes: " + completedTlsHandshakes() + "; queued TLS handshake tasks: " + queuedTlsHandshakeTasks();
     }
 }
@@ -84,6 +84,16 @@ class MuWebSocketSessionImpl implements MuWebSocketSession {
             } catch (Exception ignored) {
             }
         }
+        MuException rejected = PendingWriteTracker.beforeWrite(ctx.channel());
+        if (rejected != null) {
+            msg.release();
+            try {
+                doneCallback.onComplete(rejected);
+            } catch (Exception e) {
+                log.warn("Unhandled exception from write callback", e);
+            }
+            return;
+        }
         ctx.channel()
             .writeAndFlush(msg)
             .addListener((ChannelFutureListener) future1 -> {
@@ -0,0 +1,60 @@
+package io.muserver;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <p>Callbacks for reading a <code>multipart/form-data</code> request body as it streams in, rather than waiting
+ * for the whole body as {@link MuRequest#form()} and {@link MuRequest#uploadedFiles(String)} do.</p>
+ * <p>For each part, {@link #onPartStart(MultipartPart)} is called once the part's headers are received, followed
+ * by zero or more calls to {@link #onPartData(MultipartPart, ByteBuffer, DoneCallback)} and then
+ * {@link #onPartComplete(MultipartPart)}. After the last part, either {@link #onComplete()} or
+ * {@link #onError(Throwable)} is called.</p>
+ * <p>Use {@link MultipartReaderBuilder} to start reading a request with a listener.</p>
+ */
+public interface MultipartListener {
+
+    /**
+     * <p>Called when the headers of a part have been received.</p>
+     * <p>By default the part's data is kept in memory, or in a temporary file if it is larger than the in-memory
+     * threshold. To send the data somewhere else, call {@link MultipartPart#writeTo(java.nio.channels.WritableByteChannel)}
+     * or {@link MultipartPart#streamOnly()} from this method.</p>
+     * @param part The part, which has headers but no data yet
+     * @throws Exception Any thrown exceptions will stop the parsing and cause {@link #onError(Throwable)} to be called
+     */
+    void onPartStart(MultipartPart part) throws Exception;
+
+    /**
+     * <p>Called when data for a part is received. The data has already been stored or written to the part's target
+     * by the time this is called.</p>
+     * <p>NOTE: this method should not block as it runs on a socket acceptor thread. No more data is passed to the
+     * listener until the done callback is called.</p>
+     * @param part The part the data is for
+     * @param data A read-only buffer holding some of the part's data
+     * @param doneCallback This must be called when the buffer is no longer needed
+     * @throws Exception Any thrown exceptions will stop the parsing and cause {@link #onError(Throwable)} to be called
+     */
+    void onPartData(MultipartPart part, ByteBuffer data, DoneCallback doneCallback) throws Exception;
+
+    /**
+     * Called when all the data for a part has been received. Stored data and checksums are available from this point.
+     * @param part The completed part
+     * @throws Exception Any thrown exceptions will stop the parsing and cause {@link #onError(Throwable)} to be called
+     */
+    void onPartComplete(MultipartPart part) throws Exception;
+
+    /**
+     * <p>Called when the whole multipart body has been read.</p>
+     * <p>Temporary files are deleted after this method returns, so any files that are needed after this should be
+     * moved with {@link MultipartPart#saveTo(java.io.File)} before then.</p>
+     */
+    void onComplete();
+
+    /**
+     * <p>Called if the body could not be read, for example because it was malformed, the client disconnected, or
+     * one of the callbacks of this listener threw an exception.</p>
+     * <p>Temporary files are deleted after this method returns.</p>
+     * @param t The error.
+     */
+    void onError(Throwable t);
+
+}
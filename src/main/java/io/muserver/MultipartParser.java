@@ -0,0 +1,353 @@
+package io.muserver;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>A non-blocking parser of <code>multipart/form-data</code> bodies that receives the request body as a
+ * {@link RequestBodyListener} and passes each part to a {@link MultipartListener} as the data arrives.</p>
+ * <p>Data received while the listener is still processing an earlier chunk is queued, and the request body's done
+ * callbacks are only called once the parser has finished with each buffer.</p>
+ */
+class MultipartParser implements RequestBodyListener {
+
+    private static final int MAX_HEADERS_SIZE = 16384;
+
+    private enum State {PREAMBLE, DELIMITER_SUFFIX, HEADERS, BODY, PART_END, EPILOGUE}
+
+    private final byte[] delimiter;
+    private final MultipartListener listener;
+    private final long inMemoryThreshold;
+    private final File tempDirectory;
+    private final String checksumAlgorithm;
+
+    private final Object lock = new Object();
+    private final ArrayDeque<Chunk> pending = new ArrayDeque<>();
+    private Chunk current;
+    private boolean processing;
+    private boolean inputComplete;
+    private volatile boolean finished;
+
+    private State state = State.PREAMBLE;
+    private int matched = 2; // the first delimiter does not need to be preceded by a new line
+    private int carried = 2;
+    private boolean closingDelimiter;
+    private boolean sawCR;
+    private int suffixLength;
+    private ByteArrayOutputStream headerBytes;
+    private StreamingMultipartPart part;
+    private final List<StreamingMultipartPart> parts = new ArrayList<>();
+
+    MultipartParser(String boundary, MultipartListener listener, long inMemoryThreshold, File tempDirectory, String checksumAlgorithm) {
+        if (boundary.indexOf('\r') > -1 || boundary.indexOf('\n') > -1) {
+            throw new IllegalArgumentException("Invalid multipart boundary");
+        }
+        this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+        this.listener = listener;
+        this.inMemoryThreshold = inMemoryThreshold;
+        this.tempDirectory = tempDirectory;
+        this.checksumAlgorithm = checksumAlgorithm;
+    }
+
+    @Override
+    public void onDataReceived(ByteBuffer buffer, DoneCallback doneCallback) throws Exception {
+        synchronized (lock) {
+            if (finished) {
+                doneCallback.onComplete(null);
+                return;
+            }
+            pending.add(new Chunk(buffer, doneCallback));
+            if (processing) {
+                return;
+            }
+            processing = true;
+        }
+        process();
+    }
+
+    @Override
+    public void onComplete() {
+        synchronized (lock) {
+            inputComplete = true;
+            if (processing) {
+                return;
+            }
+            processing = true;
+        }
+        process();
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        fail(t);
+    }
+
+    private void process() {
+        while (true) {
+            Chunk chunk;
+            synchronized (lock) {
+                if (current == null) {
+                    current = pending.poll();
+                }
+                chunk = current;
+                if (chunk == null) {
+                    processing = false;
+                    if (!inputComplete || finished) {
+                        return;
+                    }
+                }
+            }
+            if (chunk == null) {
+                onInputComplete();
+                return;
+            }
+            if (!parse(chunk.buffer)) {
+                // waiting for the listener, which will call this method again when it is ready
+                return;
+            }
+            synchronized (lock) {
+                current = null;
+            }
+            try {
+                chunk.doneCallback.onComplete(null);
+            } catch (Exception e) {
+                fail(e);
+            }
+        }
+    }
+
+    private void onInputComplete() {
+        if (state == State.EPILOGUE) {
+            finished = true;
+            try {
+                listener.onComplete();
+            } finally {
+                cleanup();
+            }
+        } else {
+            fail(new MuException("The multipart request body ended before the closing boundary"));
+        }
+    }
+
+    /**
+     * Parses as much of the buffer as possible
+     * @return <code>true</code> if the buffer has been fully read; <code>false</code> if the parser is waiting for
+     * the listener before it continues with this buffer
+     */
+    private boolean parse(ByteBuffer buf) {
+        while (!finished) {
+            if (state == State.PART_END) {
+                state = State.DELIMITER_SUFFIX;
+                try {
+                    part.complete();
+                    listener.onPartComplete(part);
+                } catch (Throwable e) {
+                    fail(e);
+                }
+                continue;
+            }
+            if (!buf.hasRemaining()) {
+                return true;
+            }
+            switch (state) {
+                case PREAMBLE:
+                case BODY:
+                    if (!readData(buf)) {
+                        return false;
+                    }
+                    break;
+                case DELIMITER_SUFFIX:
+                    readDelimiterSuffix(buf);
+                    break;
+                case HEADERS:
+                    readHeaders(buf);
+                    break;
+                default:
+                    buf.position(buf.limit());
+            }
+        }
+        buf.position(buf.limit());
+        return true;
+    }
+
+    /**
+     * Reads part data (or preamble, which is discarded) up to the next delimiter or the end of the buffer. As CR only
+     * appears at the start of a delimiter, a failed partial match never hides the start of another match.
+     */
+    private boolean readData(ByteBuffer buf) {
+        int dataStart = buf.position();
+        while (buf.hasRemaining()) {
+            byte b = buf.get();
+            if (b == delimiter[matched]) {
+                matched++;
+                if (matched == delimiter.length) {
+                    int dataEnd = buf.position() - (delimiter.length - carried);
+                    matched = 0;
+                    carried = 0;
+                    suffixLength = 0;
+                    sawCR = false;
+                    closingDelimiter = false;
+                    boolean inBody = state == State.BODY;
+                    state = inBody ? State.PART_END : State.DELIMITER_SUFFIX;
+                    return !inBody || emit(slice(buf, dataStart, dataEnd));
+                }
+            } else if (matched > 0) {
+                if (carried > 0) {
+                    // the bytes matched in the previous buffer turned out to be data
+                    int carriedBytes = carried;
+                    matched = 0;
+                    carried = 0;
+                    buf.position(dataStart);
+                    return state != State.BODY || emit(ByteBuffer.wrap(delimiter, 0, carriedBytes));
+                }
+                matched = b == delimiter[0] ? 1 : 0;
+            }
+        }
+        int dataEnd = buf.limit() - (matched - carried);
+        carried = matched;
+        return state != State.BODY || emit(slice(buf, dataStart, dataEnd));
+    }
+
+    private void readDelimiterSuffix(ByteBuffer buf) {
+        byte b = buf.get();
+        suffixLength++;
+        if (suffixLength == 1 && b == '-') {
+            closingDelimiter = true;
+        } else if (closingDelimiter) {
+            if (b == '-') {
+                state = State.EPILOGUE;
+            } else {
+                fail(new MuException("Invalid multipart closing delimiter"));
+            }
+        } else if (b == '\r') {
+            sawCR = true;
+        } else if (b == '\n' && sawCR) {
+            state = State.HEADERS;
+            headerBytes = new ByteArrayOutputStream();
+        } else if (sawCR || (b != ' ' && b != '\t')) {
+            fail(new MuException("Invalid multipart delimiter"));
+        }
+    }
+
+    private void readHeaders(ByteBuffer buf) {
+        while (buf.hasRemaining()) {
+            byte b = buf.get();
+            headerBytes.write(b);
+            int size = headerBytes.size();
+            if (b == '\n' && (size == 2 || endsWithBlankLine(headerBytes.toByteArray()))) {
+                startPart(new String(headerBytes.toByteArray(), 0, size, StandardCharsets.UTF_8));
+                return;
+            }
+            if (size > MAX_HEADERS_SIZE) {
+                fail(new MuException("The headers of a multipart part are larger than " + MAX_HEADERS_SIZE + " bytes"));
+                return;
+            }
+        }
+    }
+
+    private static boolean endsWithBlankLine(byte[] bytes) {
+        int len = bytes.length;
+        return len >= 4 && bytes[len - 4] == '\r' && bytes[len - 3] == '\n' && bytes[len - 2] == '\r';
+    }
+
+    private void startPart(String rawHeaders) {
+        headerBytes = null;
+        Headers headers = Headers.http1Headers();
+        String name = null;
+        String filename = null;
+        try {
+            for (String line : rawHeaders.split("\r\n")) {
+                int colon = line.indexOf(':');
+                if (colon > 0) {
+                    headers.add(line.substring(0, colon).trim(), line.substring(colon + 1).trim());
+                }
+            }
+            String disposition = headers.get(HeaderNames.CONTENT_DISPOSITION);
+            if (disposition != null) {
+                List<ParameterizedHeaderWithValue> values = ParameterizedHeaderWithValue.fromString(disposition);
+                if (!values.isEmpty()) {
+                    name = values.get(0).parameter("name");
+                    filename = values.get(0).parameter("filename");
+                }
+            }
+            MessageDigest digest = checksumAlgorithm == null ? null : MessageDigest.getInstance(checksumAlgorithm);
+            part = new StreamingMultipartPart(name, filename, headers, inMemoryThreshold, tempDirectory, digest);
+            parts.add(part);
+            state = State.BODY;
+            listener.onPartStart(part);
+        } catch (Throwable e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * Stores the data in the current part and then passes it to the listener
+     * @return <code>true</code> if the listener has already finished with the data; <code>false</code> if the parser
+     * will be resumed when it calls its done callback
+     */
+    private boolean emit(ByteBuffer data) {
+        if (!data.hasRemaining()) {
+            return true;
+        }
+        AtomicInteger arrivals = new AtomicInteger();
+        try {
+            part.write(data);
+            listener.onPartData(part, data.asReadOnlyBuffer(), error -> {
+                if (error != null) {
+                    fail(error);
+                }
+                if (arrivals.incrementAndGet() == 2) {
+                    process();
+                }
+            });
+        } catch (Throwable e) {
+            fail(e);
+            return true;
+        }
+        return arrivals.incrementAndGet() == 2;
+    }
+
+    private static ByteBuffer slice(ByteBuffer buf, int start, int end) {
+        ByteBuffer slice = buf.duplicate();
+        slice.limit(Math.max(start, end));
+        slice.position(start);
+        return slice;
+    }
+
+    private void fail(Throwable error) {
+        synchronized (lock) {
+            if (finished) {
+                return;
+            }
+            finished = true;
+        }
+        try {
+            listener.onError(error);
+        } finally {
+            cleanup();
+        }
+    }
+
+    private void cleanup() {
+        for (StreamingMultipartPart p : parts) {
+            p.cleanup();
+        }
+    }
+
+    private static class Chunk {
+        private final ByteBuffer buffer;
+        private final DoneCallback doneCallback;
+
+        private Chunk(ByteBuffer buffer, DoneCallback doneCallback) {
+            this.buffer = buffer;
+            this.doneCallback = doneCallback;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package io.muserver;
+
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * <p>A single part of a multipart request body that is being read by a {@link MultipartListener}.</p>
+ * <p>The {@link UploadedFile} methods that read data can only be used once the part is complete and only if the part's
+ * data was stored, which is the default. For parts that are form fields rather than files, {@link #filename()}
+ * returns <code>null</code> and {@link #asString()} returns the value.</p>
+ */
+public interface MultipartPart extends UploadedFile {
+
+    /**
+     * @return The <code>name</code> parameter of the part's <code>Content-Disposition</code> header, or <code>null</code> if not specified
+     */
+    String name();
+
+    /**
+     * @return The headers of this part
+     */
+    Headers headers();
+
+    /**
+     * @return The number of bytes of data received for this part so far
+     */
+    @Override
+    long size();
+
+    /**
+     * @return <code>true</code> if the part's data is stored in memory; <code>false</code> if it has been
+     * written to a temporary file, or if it is not stored
+     */
+    boolean isInMemory();
+
+    /**
+     * Gets the checksum of the part's data, calculated as the data was received.
+     * @return The digest of the data using the algorithm set with {@link MultipartReaderBuilder#withChecksumAlgorithm(String)},
+     * or <code>null</code> if no algorithm was set or the part is not complete yet.
+     */
+    byte[] checksum();
+
+    /**
+     * <p>Writes the part's data straight to the given channel as it is received, instead of storing it.</p>
+     * <p>This can only be called from {@link MultipartListener#onPartStart(MultipartPart)}. Writes happen on the
+     * thread that receives the data, so the channel should be fast, such as a local file channel. The channel is not
+     * closed by the reader.</p>
+     * @param target The channel to write to
+     * @throws IllegalStateException Thrown if the part's data has started to be received
+     */
+    void writeTo(WritableByteChannel target);
+
+    /**
+     * <p>Stops the part's data from being stored, so that it is only available as it streams into
+     * {@link MultipartListener#onPartData(MultipartPart, java.nio.ByteBuffer, DoneCallback)}.</p>
+     * <p>This can only be called from {@link MultipartListener#onPartStart(MultipartPart)}.</p>
+     * @throws IllegalStateException Thrown if the part's data has started to be received
+     */
+    void streamOnly();
+}
@@ -0,0 +1,124 @@
+package io.muserver;
+
+import javax.ws.rs.core.MediaType;
+import java.io.File;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * <p>Used to read a <code>multipart/form-data</code> request body asynchronously, passing each part to a
+ * {@link MultipartListener} as it streams in.</p>
+ * <p>Unlike {@link MuRequest#form()} and {@link MuRequest#uploadedFiles(String)}, the body is never held in full and
+ * no request handling thread is blocked while it is received. Small parts are kept in memory and larger ones are
+ * written to a temporary file as they arrive, or parts can be written directly to a file channel.</p>
+ * <p>Example usage:</p>
+ * <pre><code>
+ *  server = httpsServer()
+ *      .addHandler(Method.POST, "/upload", (request, response, pathParams) -&gt; {
+ *          AsyncHandle handle = request.handleAsync();
+ *          MultipartReaderBuilder.multipartReader()
+ *              .withChecksumAlgorithm("SHA-256")
+ *              .read(request, new MultipartListener() {
+ *                  public void onPartStart(MultipartPart part) { }
+ *                  public void onPartData(MultipartPart part, ByteBuffer data, DoneCallback done) throws Exception {
+ *                      done.onComplete(null);
+ *                  }
+ *                  public void onPartComplete(MultipartPart part) throws Exception {
+ *                      if (part.filename() != null) {
+ *                          part.saveTo(new File("uploads", part.filename()));
+ *                      }
+ *                  }
+ *                  public void onComplete() {
+ *                      handle.complete();
+ *                  }
+ *                  public void onError(Throwable t) {
+ *                      handle.complete(t);
+ *                  }
+ *              });
+ *      })
+ *      .start();
+ * </code></pre>
+ */
+public class MultipartReaderBuilder {
+
+    private long inMemoryThreshold = 16384;
+    private File tempDirectory;
+    private String checksumAlgorithm;
+
+    /**
+     * Sets the maximum size of a part that is kept in memory. Parts that are larger than this are written to a
+     * temporary file as they are received.
+     * <p>The default is 16384 bytes.</p>
+     * @param bytes The maximum number of bytes of a part to keep in memory, or 0 to write all stored parts to disk
+     * @return This builder
+     */
+    public MultipartReaderBuilder withInMemoryThreshold(long bytes) {
+        if (bytes < 0) {
+            throw new IllegalArgumentException("The in-memory threshold must be 0 or greater");
+        }
+        this.inMemoryThreshold = bytes;
+        return this;
+    }
+
+    /**
+     * Sets the directory that parts larger than the in-memory threshold are written to.
+     * <p>The default is <code>null</code> which means the default temporary-file directory is used.</p>
+     * @param tempDirectory A directory to create temporary files in, or <code>null</code> to use the system default
+     * @return This builder
+     */
+    public MultipartReaderBuilder withTempDirectory(File tempDirectory) {
+        this.tempDirectory = tempDirectory;
+        return this;
+    }
+
+    /**
+     * Sets an algorithm, such as <code>SHA-256</code> or <code>MD5</code>, that is used to calculate a checksum
+     * of each part as it is received. The checksum is available from {@link MultipartPart#checksum()} once the
+     * part is complete.
+     * <p>The default is <code>null</code> which means checksums are not calculated.</p>
+     * @param algorithm The name of a {@link MessageDigest} algorithm, or <code>null</code> to not calculate checksums
+     * @return This builder
+     * @throws IllegalArgumentException Thrown if the algorithm is not supported by this JVM
+     */
+    public MultipartReaderBuilder withChecksumAlgorithm(String algorithm) {
+        if (algorithm != null) {
+            try {
+                MessageDigest.getInstance(algorithm);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalArgumentException("The checksum algorithm " + algorithm + " is not supported", e);
+            }
+        }
+        this.checksumAlgorithm = algorithm;
+        return this;
+    }
+
+    /**
+     * <p>Starts reading the body of the request, calling the listener as each part is received.</p>
+     * <p>This puts the request into async mode (see {@link MuRequest#handleAsync()}) and so the response should be
+     * completed with {@link AsyncHandle#complete()} once the listener's {@link MultipartListener#onComplete()} or
+     * {@link MultipartListener#onError(Throwable)} method is called.</p>
+     * @param request The request to read
+     * @param listener The listener to send parts to
+     * @throws IllegalArgumentException Thrown if the request does not have a multipart content type with a boundary
+     * @throws IllegalStateException Thrown if the request body has already been read
+     */
+    public void read(MuRequest request, MultipartListener listener) {
+        Mutils.notNull("request", request);
+        Mutils.notNull("listener", listener);
+        MediaType type = request.headers().contentType();
+        String boundary = type == null || !"multipart".equalsIgnoreCase(type.getType()) ? null : type.getParameters().get("boundary");
+        if (Mutils.nullOrEmpty(boundary)) {
+            throw new IllegalArgumentException("The request content type is " + type + " however a multipart type with a boundary is required");
+        }
+        MultipartParser parser = new MultipartParser(boundary, listener, inMemoryThreshold, tempDirectory, checksumAlgorithm);
+        request.handleAsync().setReadListener(parser);
+    }
+
+    /**
+     * Creates a new builder for reading multipart request bodies
+     * @return A new builder
+     */
+    public static MultipartReaderBuilder multipartReader() {
+        return new MultipartReaderBuilder();
+    }
+}
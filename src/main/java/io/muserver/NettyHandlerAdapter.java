@@ -2,6 +2,9 @@ package io.muserver;
 
 import io.muserver.rest.MuRuntimeDelegate;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.compression.DecompressionException;
+import io.netty.util.Timeout;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -28,37 +31,90 @@ class NettyHandlerAdapter {
     private final ServerSettings settings;
     private final ExecutorService executor;
     private final List<ResponseCompleteListener> completeListeners;
+    private final int inlineHandlerCount;
+    private final EventLoopStallDetector stallDetector;
+    private final FairScheduler scheduler;
 
-    NettyHandlerAdapter(ExecutorService executor, List<MuHandler> muHandlers, ServerSettings settings, List<ResponseCompleteListener> completeListeners) {
+    NettyHandlerAdapter(ExecutorService executor, List<MuHandler> muHandlers, ServerSettings settings, List<ResponseCompleteListener> completeListeners, EventLoopStallDetector stallDetector, FairScheduler scheduler) {
         this.executor = executor;
+        this.scheduler = scheduler;
         this.muHandlers = muHandlers;
         this.settings = settings;
         this.completeListeners = completeListeners;
+        this.stallDetector = stallDetector;
+        int inline = 0;
+        while (inline < muHandlers.size() && muHandlers.get(inline) instanceof NonBlockingHandler) {
+            inline++;
+        }
+        this.inlineHandlerCount = inline;
     }
 
     static void passDataToHandler(ByteBuf data, AsyncContext asyncContext) {
         if (data.readableBytes() > 0) {
-            data.retain();
+            RequestBodyAggregator aggregator = asyncContext.aggregator;
+            if (aggregator != null) {
+                if (aggregator.add(data)) {
+                    return;
+                }
+                // more data than the declared length was sent, so stream the body to the handlers instead
+                asyncContext.aggregator = null;
+                try {
+                    handOffData(Unpooled.wrappedBuffer(aggregator.body()), asyncContext);
+                    handOffData(data, asyncContext);
+                } catch (Exception e) {
+                    onRequestDataError(e, asyncContext);
+                } finally {
+                    aggregator.dispatch();
+                }
+                return;
+            }
             try {
-                asyncContext.requestBody.handOff(data, error -> {
-                    data.release();
-                    if (error != null) {
-                        asyncContext.onCancelled(false);
-                    }
-                });
+                RequestDecompressor decompressor = asyncContext.decompressor;
+                if (decompressor == null) {
+                    handOffData(data, asyncContext);
+                } else {
+                    decompressor.decompress(data, asyncContext);
+                }
             } catch (Exception e) {
+                onRequestDataError(e, asyncContext);
+            }
+        }
+    }
+
+    static void handOffData(ByteBuf data, AsyncContext asyncContext) {
+        data.retain();
+        try {
+            asyncContext.requestBody.handOff(data, error -> {
                 data.release();
-                if (e instanceof MuException) {
-                    MuResponse resp = asyncContext.response;
-                    if (!resp.hasStartedSendingData()) {
-                        resp.status(413);
-                        resp.contentType(ContentTypes.TEXT_PLAIN_UTF8);
-                        resp.headers().set(HeaderNames.CONNECTION, HeaderValues.CLOSE);
-                        resp.write("413 Payload Too Large");
-                    } else {
-                        asyncContext.onCancelled(true);
-                    }
+                if (error != null) {
+                    asyncContext.onCancelled(false);
                 }
+            });
+        } catch (RuntimeException e) {
+            data.release();
+            throw e;
+        }
+    }
+
+    private static void onRequestDataError(Exception e, AsyncContext asyncContext) {
+        MuResponse resp = asyncContext.response;
+        if (e instanceof MuException) {
+            if (!resp.hasStartedSendingData()) {
+                resp.status(413);
+                resp.contentType(ContentTypes.TEXT_PLAIN_UTF8);
+                resp.headers().set(HeaderNames.CONNECTION, HeaderValues.CLOSE);
+                resp.write("413 Payload Too Large");
+            } else {
+                asyncContext.onCancelled(true);
+            }
+        } else if (e instanceof DecompressionException) {
+            if (!resp.hasStartedSendingData()) {
+                resp.status(400);
+                resp.contentType(ContentTypes.TEXT_PLAIN_UTF8);
+                resp.headers().set(HeaderNames.CONNECTION, HeaderValues.CLOSE);
+                resp.write("400 Bad Request");
+            } else {
+                asyncContext.onCancelled(true);
             }
         }
     }
@@ -71,45 +127,95 @@ class NettyHandlerAdapter {
             GrowableByteBufferInputStream requestBodyStream = new GrowableByteBufferInputStream(settings.requestReadTimeoutMillis, settings.maxRequestSize);
             request.inputStream(requestBodyStream);
             muCtx.requestBody = requestBodyStream;
+            muCtx.decompressor = RequestDecompressor.create(settings, headers);
         }
         request.nettyAsyncContext = muCtx;
-        try {
-            executor.execute(() -> {
-
+        long declaredLength = headers.getLong(HeaderNames.CONTENT_LENGTH.toString(), -1);
+        if (declaredLength > 0 && declaredLength <= settings.requestBodyAggregationThreshold
+            && muCtx.decompressor == null && !headers.contains(HeaderNames.TRANSFER_ENCODING)) {
+            // Read the whole body before dispatching. The callback is called now so that the body is read, and
+            // again later only if the executor rejects the request.
+            muCtx.aggregator = new RequestBodyAggregator((int) declaredLength, () -> dispatch(error -> {
+                if (error != null) {
+                    addedToExecutorCallback.onComplete(error);
+                }
+            }, muCtx));
+            try {
+                addedToExecutorCallback.onComplete(null);
+            } catch (Exception ignored) { }
+        } else {
+            dispatch(addedToExecutorCallback, muCtx);
+        }
+    }
 
-                boolean error = false;
-                MuResponse response = muCtx.response;
-                try {
-                    addedToExecutorCallback.onComplete(null);
-
-                    boolean handled = false;
-                    for (MuHandler muHandler : muHandlers) {
-                        handled = muHandler.handle(muCtx.request, response);
-                        if (handled) {
-                            break;
-                        }
-                        if (request.isAsync()) {
-                            throw new IllegalStateException(muHandler.getClass() + " returned false however this is not allowed after starting to handle a request asynchronously.");
-                        }
-                    }
-                    if (!handled) {
-                        throw new NotFoundException();
-                    }
-
-
-                } catch (Throwable ex) {
-                    error = dealWithUnhandledException(request, response, ex);
-                } finally {
-                    request.clean();
-                    if (error || !request.isAsync()) {
-                        try {
-                            muCtx.complete(error);
-                        } catch (Throwable e) {
-                            log.info("Error while completing request", e);
-                        }
-                    }
+    private void dispatch(DoneCallback addedToExecutorCallback, AsyncContext muCtx) {
+        if (inlineHandlerCount > 0) {
+            // the leading non-blocking handlers are run on the event loop, and the executor is only used if none handle it
+            try {
+                addedToExecutorCallback.onComplete(null);
+            } catch (Exception ignored) { }
+            Timeout stallWatch = stallDetector == null ? null : stallDetector.watch(muCtx.request);
+            boolean finished;
+            try {
+                finished = runHandlers(muCtx, 0, inlineHandlerCount);
+            } finally {
+                if (stallWatch != null) {
+                    stallWatch.cancel();
                 }
-            });
+            }
+            if (finished) {
+                return;
+            }
+            DoneCallback original = addedToExecutorCallback;
+            addedToExecutorCallback = error -> {
+                if (error != null) {
+                    original.onComplete(error);
+                }
+            };
+        }
+        DoneCallback callback = addedToExecutorCallback;
+        muCtx.queuedAtNanos = System.nanoTime();
+        Runnable task = () -> {
+            NettyRequestAdapter request = (NettyRequestAdapter) muCtx.request;
+            if (((NettyResponseAdaptor) muCtx.response).clientDisconnected()) {
+                // the client went away while the request was queued, and the request was completed when it did
+                request.clean();
+                return;
+            }
+            muCtx.queueDelayNanos = System.nanoTime() - muCtx.queuedAtNanos;
+            try {
+                callback.onComplete(null);
+                if (settings.controlledDelay != null) {
+                    settings.controlledDelay.check(request);
+                }
+            } catch (Throwable ex) {
+                boolean error = dealWithUnhandledException(request, muCtx.response, ex);
+                finish(muCtx, request, error);
+                return;
+            }
+            runHandlers(muCtx, inlineHandlerCount, muHandlers.size());
+        };
+        if (muCtx.dispatchGate == null) {
+            submit(muCtx, task, callback);
+        } else {
+            // the connection may hold the request back until another of its requests has finished
+            try {
+                muCtx.dispatchGate.execute(() -> submit(muCtx, task, callback));
+            } catch (Exception e) {
+                try {
+                    callback.onComplete(e);
+                } catch (Exception ignored) { }
+            }
+        }
+    }
+
+    private void submit(AsyncContext muCtx, Runnable task, DoneCallback addedToExecutorCallback) {
+        try {
+            if (scheduler == null) {
+                executor.execute(task);
+            } else {
+                scheduler.execute(muCtx.request, task);
+            }
         } catch (Exception e) {
             try {
                 addedToExecutorCallback.onComplete(e);
@@ -117,6 +223,54 @@ class NettyHandlerAdapter {
         }
     }
 
+    /**
+     * Runs some of the handlers for a request.
+     * @param muCtx The request context
+     * @param from The index of the first handler to run
+     * @param to The index after the last handler to run
+     * @return <code>true</code> if the request was handled; <code>false</code> if the remaining handlers should be run
+     */
+    private boolean runHandlers(AsyncContext muCtx, int from, int to) {
+        NettyRequestAdapter request = (NettyRequestAdapter) muCtx.request;
+        MuResponse response = muCtx.response;
+        boolean error = false;
+        boolean handled = false;
+        try {
+            for (int i = from; i < to; i++) {
+                MuHandler muHandler = muHandlers.get(i);
+                handled = muHandler.handle(request, response);
+                if (handled) {
+                    break;
+                }
+                if (request.isAsync()) {
+                    throw new IllegalStateException(muHandler.getClass() + " returned false however this is not allowed after starting to handle a request asynchronously.");
+                }
+            }
+            if (!handled && to == muHandlers.size()) {
+                throw new NotFoundException();
+            }
+        } catch (Throwable ex) {
+            handled = true;
+            error = dealWithUnhandledException(request, response, ex);
+        } finally {
+            if (handled) {
+                finish(muCtx, request, error);
+            }
+        }
+        return handled;
+    }
+
+    private static void finish(AsyncContext muCtx, NettyRequestAdapter request, boolean error) {
+        request.clean();
+        if (error || !request.isAsync()) {
+            try {
+                muCtx.complete(error);
+            } catch (Throwable e) {
+                log.info("Error while completing request", e);
+            }
+        }
+    }
+
 
     static boolean dealWithUnhandledException(MuRequest request, MuResponse response, Throwable ex) {
         boolean forceDisconnect = response instanceof Http1Response;
@@ -160,6 +314,23 @@ class NettyHandlerAdapter {
     }
 
     void onRequestComplete(AsyncContext ctx) {
+        RequestBodyAggregator aggregator = ctx.aggregator;
+        if (aggregator != null) {
+            ctx.aggregator = null;
+            try {
+                ctx.requestBody.handOffFullBody(aggregator.body());
+            } catch (Exception e) {
+                onRequestDataError(e, ctx);
+            }
+        }
+        RequestDecompressor decompressor = ctx.decompressor;
+        if (decompressor != null) {
+            try {
+                decompressor.finish(ctx);
+            } catch (Exception e) {
+                onRequestDataError(e, ctx);
+            }
+        }
         try {
             GrowableByteBufferInputStream inputBuffer = ctx.requestBody;
             if (inputBuffer != null) {
@@ -168,6 +339,9 @@ class NettyHandlerAdapter {
         } catch (Exception e) {
             log.info("Error while cleaning up request. It may mean the client did not receive the full response for " + ctx.request, e);
         }
+        if (aggregator != null) {
+            aggregator.dispatch();
+        }
     }
 
     void onResponseComplete(ResponseInfo info, MuStatsImpl serverStats, MuStatsImpl connectionStats) {
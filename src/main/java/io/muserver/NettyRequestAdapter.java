@@ -38,14 +38,17 @@ class NettyRequestAdapter implements MuRequest {
     private final ChannelHandlerContext ctx;
     private final Channel channel;
     private final HttpRequest request;
-    private final MuServer server;
-    private final URI serverUri;
-    private final URI uri;
+    private final MuServerImpl server;
+    private final String scheme;
+    private final String host;
+    private final String requestUri;
+    private volatile URI serverUri;
+    private volatile URI uri;
     private final Method method;
     private final Headers headers;
     AsyncContext nettyAsyncContext;
     private GrowableByteBufferInputStream inputStream;
-    private final RequestParameters query;
+    private volatile RequestParameters query;
     private RequestParameters form;
     private boolean bodyRead = false;
     private List<Cookie> cookies;
@@ -60,7 +63,10 @@ class NettyRequestAdapter implements MuRequest {
     private final long startTime = System.currentTimeMillis();
     private final HttpConnection connection;
 
-    NettyRequestAdapter(ChannelHandlerContext ctx, Channel channel, HttpRequest request, Headers headers, MuServer server, Method method, String proto, String uri, boolean keepalive, String host, String protocol, HttpConnection connection) {
+    /**
+     * @param request The netty request for HTTP/1 requests, or null for HTTP/2 requests
+     */
+    NettyRequestAdapter(ChannelHandlerContext ctx, Channel channel, HttpRequest request, Headers headers, MuServerImpl server, Method method, String proto, String uri, boolean keepalive, String host, String protocol, HttpConnection connection) {
         this.ctx = ctx;
         this.channel = channel;
         this.request = request;
@@ -68,11 +74,12 @@ class NettyRequestAdapter implements MuRequest {
         this.keepalive = keepalive;
         this.protocol = protocol;
         this.connection = connection;
-        this.serverUri = URI.create(proto + "://" + host + uri).normalize();
+        this.scheme = proto;
+        this.host = host;
+        this.requestUri = uri;
         this.headers = headers;
-        this.uri = getUri(headers, proto, host, uri, serverUri);
-        this.relativePath = this.uri.getRawPath();
-        this.query = new NettyRequestParameters(new QueryStringDecoder(uri, true));
+        int queryStart = uri.indexOf('?');
+        this.relativePath = queryStart == -1 ? uri : uri.substring(0, queryStart);
         this.method = method;
     }
 
@@ -90,6 +97,14 @@ class NettyRequestAdapter implements MuRequest {
         return this.connection;
     }
 
+    Channel channel() {
+        return channel;
+    }
+
+    MuServerImpl serverImpl() {
+        return server;
+    }
+
     boolean isKeepAliveRequested() {
         return keepalive;
     }
@@ -104,7 +119,7 @@ class NettyRequestAdapter implements MuRequest {
 
             String originalScheme = Mutils.coalesce(f.proto(), scheme);
             String host = Mutils.coalesce(f.host(), hostHeader);
-            return new URI(originalScheme + "://" + host + requestUri).normalize();
+            return new URI(originalScheme + "://" + host + requestUri);
         } catch (Exception e) {
             log.warn("Could not create a URI object using header values " + h
                 + " so using local server URI. URL generation (including in redirects) may be incorrect.");
@@ -133,12 +148,22 @@ class NettyRequestAdapter implements MuRequest {
 
 
     public URI uri() {
-        return uri;
+        URI u = uri;
+        if (u == null) {
+            u = getUri(headers, scheme, host, requestUri, serverURI());
+            uri = u;
+        }
+        return u;
     }
 
 
     public URI serverURI() {
-        return serverUri;
+        URI u = serverUri;
+        if (u == null) {
+            u = URI.create(scheme + "://" + host + requestUri);
+            serverUri = u;
+        }
+        return u;
     }
 
 
@@ -156,9 +181,14 @@ class NettyRequestAdapter implements MuRequest {
         }
     }
 
-    private byte[] readBodyAsBytes() throws IOException {
+    @Override
+    public byte[] readBodyAsBytes() throws IOException {
         if (inputStream != null) {
             claimingBodyRead();
+            byte[] fullBody = inputStream.takeFullBody();
+            if (fullBody != null) {
+                return fullBody;
+            }
             return Mutils.toByteArray(inputStream, 2048);
         } else {
             return new byte[0];
@@ -212,7 +242,12 @@ class NettyRequestAdapter implements MuRequest {
 
     @Override
     public RequestParameters query() {
-        return query;
+        RequestParameters q = query;
+        if (q == null) {
+            q = new NettyRequestParameters(new QueryStringDecoder(requestUri, true));
+            query = q;
+        }
+        return q;
     }
 
     @Override
@@ -222,7 +257,7 @@ class NettyRequestAdapter implements MuRequest {
     }
 
     public List<String> parameters(String name) {
-        return query.getAll(name);
+        return query().getAll(name);
     }
 
     public String formValue(String name) throws IOException {
@@ -327,10 +362,26 @@ class NettyRequestAdapter implements MuRequest {
         return server;
     }
 
+    /**
+     * HTTP/2 requests are read straight from the HTTP/2 headers and so have no netty request object. For the places
+     * that need one, a request with just the method, URI and content type is created.
+     */
+    private HttpRequest nettyRequest() {
+        if (request != null) {
+            return request;
+        }
+        DefaultHttpRequest http1Request = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.valueOf(method.name()), requestUri);
+        String contentType = headers.get(HeaderNames.CONTENT_TYPE);
+        if (contentType != null) {
+            http1Request.headers().set(HeaderNames.CONTENT_TYPE, contentType);
+        }
+        return http1Request;
+    }
+
     private void ensureFormDataLoaded() throws IOException {
         if (form == null) {
             if (contentType().startsWith("multipart/")) {
-                multipartRequestDecoder = new HttpPostMultipartRequestDecoder(request);
+                multipartRequestDecoder = new HttpPostMultipartRequestDecoder(nettyRequest());
                 if (inputStream != null) {
                     claimingBodyRead();
 
@@ -483,6 +534,22 @@ class NettyRequestAdapter implements MuRequest {
             }
         }
 
+        @Override
+        public void subscribe(RequestBodySubscriber subscriber) {
+            Mutils.notNull("subscriber", subscriber);
+            request.claimingBodyRead();
+            RequestBodySubscriptionImpl subscription = new RequestBodySubscriptionImpl(subscriber, request.channel.eventLoop(), asyncContext.bodyFlowControl);
+            request.channel.eventLoop().execute(() -> {
+                if (request.inputStream == null) {
+                    subscription.onInputComplete();
+                } else {
+                    request.inputStream.switchToSubscriber(subscription);
+                    asyncContext.bodySubscription = subscription;
+                }
+                subscription.start();
+            });
+        }
+
         private void clearDoneCallbackList() {
             if (doneCallbackList != null) {
                 DoneCallback task;
@@ -624,6 +691,10 @@ class NettyRequestAdapter implements MuRequest {
         }
 
         void onClientDisconnected() {
+            RequestBodySubscriptionImpl subscription = asyncContext.bodySubscription;
+            if (subscription != null) {
+                request.channel.eventLoop().execute(() -> subscription.onInputError(new ClientDisconnectedException()));
+            }
             ResponseCompleteListener listener = this.responseCompleteListener;
             if (listener != null) {
                 listener.onComplete(asyncContext);
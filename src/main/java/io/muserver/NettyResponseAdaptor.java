@@ -5,9 +5,12 @@ import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.EmptyHttpHeaders;
+import io.netty.handler.codec.http.HttpHeaders;
 import io.netty.handler.codec.http.HttpResponseStatus;
 import io.netty.handler.codec.http.HttpVersion;
 import io.netty.handler.codec.http.cookie.ServerCookieEncoder;
+import io.netty.util.internal.PlatformDependent;
 
 import javax.ws.rs.core.MediaType;
 import java.io.BufferedOutputStream;
@@ -18,7 +21,7 @@ import java.net.URI;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
-import java.util.Date;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Future;
 
 import static io.muserver.ContentTypes.TEXT_PLAIN_UTF8;
@@ -53,7 +56,7 @@ abstract class NettyResponseAdaptor implements MuResponse {
         this.headers = headers;
         this.request = request;
         this.isHead = request.method() == Method.HEAD;
-        this.headers.set(HeaderNames.DATE, Mutils.toHttpDate(new Date()));
+        this.headers.set(HeaderNames.DATE, request.serverImpl().dateHeader.value());
     }
 
     public int status() {
@@ -108,6 +111,14 @@ abstract class NettyResponseAdaptor implements MuResponse {
 
     protected final ChannelFuture write(ByteBuf data, boolean sync) {
         throwIfFinished();
+        MuException rejected = PendingWriteTracker.beforeWrite(request.channel());
+        if (rejected != null) {
+            data.release();
+            if (sync) {
+                throw rejected;
+            }
+            return request.channel().newFailedFuture(rejected);
+        }
         int size = data.writerIndex();
 
         bytesStreamed += size;
@@ -126,13 +137,64 @@ abstract class NettyResponseAdaptor implements MuResponse {
         ByteBuf content = Unpooled.wrappedBuffer(data);
         lastAction = writeToChannel(isLast, content);
         if (sync) {
-            // force exception if writes fail
-            lastAction = lastAction.syncUninterruptibly();
+            lastAction = waitForWrite(lastAction);
         }
         this.lastAction = lastAction;
         return lastAction;
     }
 
+    /**
+     * Called after a blocking write. By default this waits until the data is written to the client, and throws an
+     * exception if the write fails. Writes from non-blocking handlers running on the event loop are not waited for,
+     * as the event loop is what sends the data.
+     * @param writeFuture The future of the write
+     * @return The future of the write after it has been waited for
+     */
+    protected ChannelFuture waitForWrite(ChannelFuture writeFuture) {
+        if (writeFuture.channel().eventLoop().inEventLoop()) {
+            return writeFuture;
+        }
+        awaitUninterruptibly(writeFuture);
+        // force exception if writes fail
+        Throwable cause = writeFuture.cause();
+        if (cause != null) {
+            PlatformDependent.throwException(cause);
+        }
+        return writeFuture;
+    }
+
+    /**
+     * Waits for a future with a latch rather than {@link ChannelFuture#syncUninterruptibly()}, which waits on a
+     * monitor and so would pin the carrier thread of a virtual thread.
+     */
+    private static void awaitUninterruptibly(ChannelFuture future) {
+        if (future.isDone()) {
+            return;
+        }
+        CountDownLatch latch = new CountDownLatch(1);
+        future.addListener(f -> latch.countDown());
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return True if blocking writes may return before the data has been written, in which case the caller must
+     * not reuse any buffers given to {@link #write(ByteBuf, boolean)}
+     */
+    boolean writesBehind() {
+        return request.channel().eventLoop().inEventLoop();
+    }
+
     protected abstract void onContentLengthMismatch();
 
     abstract ChannelFuture writeToChannel(boolean isLast, ByteBuf content);
@@ -219,7 +281,8 @@ abstract class NettyResponseAdaptor implements MuResponse {
             if (badFixedLength) {
                 shouldDisconnect = onBadRequestSent();
             }
-            if (!forceDisconnect) {
+            // closing the stream may have flushed the final bytes of a fixed-length response, which ends it already
+            if (!forceDisconnect && outputState == OutputState.STREAMING) {
                 lastAction = writeLastContentMarker();
             }
         }
@@ -293,8 +356,8 @@ abstract class NettyResponseAdaptor implements MuResponse {
     }
 
     static class EmptyHttpResponse extends DefaultFullHttpResponse {
-        EmptyHttpResponse(HttpResponseStatus status) {
-            super(HttpVersion.HTTP_1_1, status, false);
+        EmptyHttpResponse(HttpResponseStatus status, HttpHeaders headers) {
+            super(HttpVersion.HTTP_1_1, status, Unpooled.buffer(0), headers, EmptyHttpHeaders.INSTANCE);
         }
     }
 
@@ -0,0 +1,23 @@
+package io.muserver;
+
+/**
+ * Marks a handler as one that does not block, so that it can be run on the event loop that received the request.
+ * @see MuServerBuilder#addNonBlockingHandler(MuHandler)
+ */
+class NonBlockingHandler implements MuHandler {
+    private final MuHandler handler;
+
+    NonBlockingHandler(MuHandler handler) {
+        this.handler = handler;
+    }
+
+    @Override
+    public boolean handle(MuRequest request, MuResponse response) throws Exception {
+        return handler.handle(request, response);
+    }
+
+    @Override
+    public String toString() {
+        return "NonBlockingHandler{" + handler + "}";
+    }
+}
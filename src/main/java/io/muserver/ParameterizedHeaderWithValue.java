@@ -186,6 +186,37 @@ public class ParameterizedHeaderWithValue {
         return results;
     }
 
+    /**
+     * <p>Finds the q-value that a header such as <code>Accept-Encoding</code> gives to a value.</p>
+     * <p>A value with no <code>q</code> parameter has a q-value of 1, and a value that is not listed gets the q-value
+     * of the <code>*</code> wildcard, or 0 if there is no wildcard. Invalid q-values are treated as 0.</p>
+     * @param accepted The parsed header values, for example from {@link Headers#acceptEncoding()}
+     * @param value The value to look up, such as <code>gzip</code>, which is compared case-insensitively
+     * @return The q-value of the value, where 0 means it is not acceptable
+     */
+    public static double qValue(List<ParameterizedHeaderWithValue> accepted, String value) {
+        double wildcard = 0;
+        for (ParameterizedHeaderWithValue candidate : accepted) {
+            if (candidate.value().equalsIgnoreCase(value)) {
+                return parseQ(candidate.parameter("q"));
+            } else if ("*".equals(candidate.value())) {
+                wildcard = parseQ(candidate.parameter("q"));
+            }
+        }
+        return wildcard;
+    }
+
+    private static double parseQ(String q) {
+        if (q == null) {
+            return 1;
+        }
+        try {
+            return Double.parseDouble(q.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
     /**
      * Converts the HeaderValue into a string, suitable for printing in an HTTP header.
      *
@@ -0,0 +1,113 @@
+package io.muserver;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+
+/**
+ * Converts the request target sent by a client into a normalised relative path with an optional query string.
+ * <p>Most requests have an ASCII path that is already normal, so these are validated in a single pass and returned
+ * as-is. Anything else, such as a path with dot-segments, empty segments, an absolute URL or unusual characters, is
+ * normalised with {@link URI#normalize()}.</p>
+ */
+final class PathNormaliser {
+
+    private static final boolean[] PATH_CHARS = new boolean[128];
+    private static final boolean[] QUERY_CHARS = new boolean[128];
+
+    static {
+        String allowed = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789-._~!$&'()*+,;=:@";
+        for (char c : allowed.toCharArray()) {
+            PATH_CHARS[c] = true;
+            QUERY_CHARS[c] = true;
+        }
+        QUERY_CHARS['/'] = true;
+        QUERY_CHARS['?'] = true;
+    }
+
+    private PathNormaliser() {
+    }
+
+    /**
+     * Normalises a request target
+     * @param requestUri The request target from the request line or the <code>:path</code> pseudo-header
+     * @return A path starting with <code>/</code>, followed by the raw query string if there was one
+     * @throws URISyntaxException Thrown if the request target is not a valid URI
+     */
+    static String normalise(String requestUri) throws URISyntaxException {
+        String normalised = fastNormalise(requestUri);
+        return normalised == null ? uriNormalise(requestUri) : normalised;
+    }
+
+    /**
+     * @return The given value if it is a valid origin-form path without dot-segments or empty segments, otherwise null
+     */
+    static String fastNormalise(String requestUri) {
+        int len = requestUri.length();
+        if (len == 0 || requestUri.charAt(0) != '/') {
+            return null;
+        }
+        int segmentStart = 1;
+        int i = 1;
+        for (; i < len; i++) {
+            char c = requestUri.charAt(i);
+            if (c == '/' || c == '?') {
+                if ((c == '/' && i == segmentStart) || isDotSegment(requestUri, segmentStart, i)) {
+                    return null;
+                }
+                if (c == '?') {
+                    break;
+                }
+                segmentStart = i + 1;
+            } else if (c == '%') {
+                if (!isPercentEncoded(requestUri, i)) {
+                    return null;
+                }
+                i += 2;
+            } else if (c >= 128 || !PATH_CHARS[c]) {
+                return null;
+            }
+        }
+        if (i == len) {
+            return isDotSegment(requestUri, segmentStart, len) ? null : requestUri;
+        }
+        for (i = i + 1; i < len; i++) {
+            char c = requestUri.charAt(i);
+            if (c == '%') {
+                if (!isPercentEncoded(requestUri, i)) {
+                    return null;
+                }
+                i += 2;
+            } else if (c >= 128 || !QUERY_CHARS[c]) {
+                return null;
+            }
+        }
+        return requestUri;
+    }
+
+    private static boolean isDotSegment(String s, int start, int end) {
+        int len = end - start;
+        return (len == 1 && s.charAt(start) == '.')
+            || (len == 2 && s.charAt(start) == '.' && s.charAt(start + 1) == '.');
+    }
+
+    private static boolean isPercentEncoded(String s, int index) {
+        return index + 2 < s.length() && isHex(s.charAt(index + 1)) && isHex(s.charAt(index + 2));
+    }
+
+    private static boolean isHex(char c) {
+        return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+    }
+
+    private static String uriNormalise(String requestUri) throws URISyntaxException {
+        URI uri = new URI(requestUri).normalize();
+        String s = uri.getRawPath();
+        if (Mutils.nullOrEmpty(s)) {
+            s = "/";
+        }
+        String q = uri.getRawQuery();
+        if (q != null) {
+            s += "?" + q;
+        }
+        return s;
+    }
+}
@@ -0,0 +1,146 @@
+package io.muserver;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufHolder;
+import io.netty.channel.*;
+import io.netty.util.AttributeKey;
+import io.netty.util.concurrent.ScheduledFuture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Counts the bytes that have been written to connections but not yet sent to clients for the server stats, and
+ * applies the {@link SlowClientPolicy} when a connection has more pending bytes than allowed.
+ */
+class PendingWriteTracker extends ChannelOutboundHandlerAdapter {
+    private static final Logger log = LoggerFactory.getLogger(PendingWriteTracker.class);
+    private static final AttributeKey<PendingWriteTracker> TRACKER_ATTRIBUTE = AttributeKey.newInstance("pendingWrites");
+    private static final long MAX_WAIT_MILLIS = 1000;
+
+    private final ServerSettings settings;
+    private final MuStatsImpl serverStats;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition bytesSent = lock.newCondition();
+    private ChannelHandlerContext ctx;
+    private ScheduledFuture<?> disconnectCheck;
+
+    PendingWriteTracker(ServerSettings settings, MuStatsImpl serverStats) {
+        this.settings = settings;
+        this.serverStats = serverStats;
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) {
+        this.ctx = ctx;
+        ctx.channel().attr(TRACKER_ATTRIBUTE).set(this);
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        long size = sizeOf(msg);
+        if (size > 0) {
+            promise = promise.unvoid();
+            serverStats.onPendingWriteBytesChanged(size);
+            promise.addListener(future -> onSent(size));
+            if (settings.slowClientPolicy == SlowClientPolicy.DISCONNECT && settings.maxPendingWriteBytes > -1
+                && disconnectCheck == null && pendingBytes(ctx.channel()) > settings.maxPendingWriteBytes) {
+                disconnectCheck = ctx.executor().schedule(this::disconnectIfStillOverLimit, settings.slowClientGraceMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+        ctx.write(msg, promise);
+    }
+
+    private void onSent(long size) {
+        serverStats.onPendingWriteBytesChanged(-size);
+        if (settings.slowClientPolicy == SlowClientPolicy.BLOCK && settings.maxPendingWriteBytes > -1) {
+            wakeWriters();
+        }
+    }
+
+    private void disconnectIfStillOverLimit() {
+        disconnectCheck = null;
+        long nowPending = pendingBytes(ctx.channel());
+        if (nowPending > settings.maxPendingWriteBytes) {
+            log.info("Closing connection to " + ctx.channel().remoteAddress() + " as " + nowPending + " bytes are waiting to be sent, " +
+                "which is over the limit of " + settings.maxPendingWriteBytes + " bytes");
+            ctx.close();
+        }
+    }
+
+    @Override
+    public void close(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception {
+        if (disconnectCheck != null) {
+            disconnectCheck.cancel(false);
+            disconnectCheck = null;
+        }
+        wakeWriters();
+        super.close(ctx, promise);
+    }
+
+    private void wakeWriters() {
+        lock.lock();
+        try {
+            bytesSent.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of bytes waiting to be sent on a channel. This uses the channel's own count rather than the
+     * count in this handler as it includes data written from other threads that is not yet in the pipeline.
+     */
+    private static long pendingBytes(Channel channel) {
+        ChannelOutboundBuffer buffer = channel.unsafe().outboundBuffer();
+        return buffer == null ? 0 : buffer.totalPendingWriteBytes();
+    }
+
+    /**
+     * Applies the slow client policy before data is written to the given channel.
+     * @param channel The channel that is about to be written to
+     * @return An exception if the write should fail, otherwise null
+     */
+    static MuException beforeWrite(Channel channel) {
+        PendingWriteTracker tracker = channel.attr(TRACKER_ATTRIBUTE).get();
+        if (tracker == null || tracker.settings.maxPendingWriteBytes < 0) {
+            return null;
+        }
+        long max = tracker.settings.maxPendingWriteBytes;
+        long pending = pendingBytes(channel);
+        if (pending <= max) {
+            return null;
+        }
+        SlowClientPolicy policy = tracker.settings.slowClientPolicy;
+        if (policy == SlowClientPolicy.FAIL) {
+            return new MuException("The write was rejected because " + pending + " bytes are already waiting to be " +
+                "sent to the client, which is over the limit of " + max + " bytes");
+        } else if (policy == SlowClientPolicy.BLOCK && !channel.eventLoop().inEventLoop()) {
+            tracker.lock.lock();
+            try {
+                while (pendingBytes(channel) > max && channel.isActive()) {
+                    // the timeout is just a safety net as sent bytes result in a notification
+                    tracker.bytesSent.await(MAX_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return new MuException("Interrupted while waiting for the client to read data");
+            } finally {
+                tracker.lock.unlock();
+            }
+        }
+        return null;
+    }
+
+    private static long sizeOf(Object msg) {
+        if (msg instanceof ByteBuf) {
+            return ((ByteBuf) msg).readableBytes();
+        } else if (msg instanceof ByteBufHolder) {
+            return ((ByteBufHolder) msg).content().readableBytes();
+        }
+        return 0;
+    }
+}
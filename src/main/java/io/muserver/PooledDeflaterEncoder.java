@@ -0,0 +1,146 @@
+package io.muserver;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.MessageToByteEncoder;
+
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * A gzip or deflate encoder, similar to netty's <code>JdkZlibEncoder</code>, but which takes its deflater from a
+ * {@link DeflaterPool} and supports a deflate strategy. Each write is flushed so that streamed responses are sent
+ * as they are written. The deflater is given back to the pool when the encoder is closed or removed.
+ */
+class PooledDeflaterEncoder extends MessageToByteEncoder<ByteBuf> {
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0};
+
+    private final DeflaterPool pool;
+    private final boolean gzip;
+    private final CRC32 crc;
+    private Deflater deflater;
+    private boolean headerWritten = false;
+
+    PooledDeflaterEncoder(DeflaterPool pool, boolean gzip, int level, int strategy) {
+        this.pool = pool;
+        this.gzip = gzip;
+        this.crc = gzip ? new CRC32() : null;
+        this.deflater = pool.borrow(gzip, level, strategy);
+    }
+
+    /**
+     * Creates a channel to compress with, in the same way that netty's compressors do
+     * @param ctx The context of the connection
+     * @param gzip True for gzip; false for deflate
+     * @param level The compression level
+     * @param strategy The deflate strategy
+     * @param pool The pool to get the deflater from
+     * @return A channel that compresses the buffers written to it
+     */
+    static EmbeddedChannel newCompressor(ChannelHandlerContext ctx, boolean gzip, int level, int strategy, DeflaterPool pool) {
+        return new EmbeddedChannel(ctx.channel().id(), ctx.channel().metadata().hasDisconnect(),
+            ctx.channel().config(), new PooledDeflaterEncoder(pool, gzip, level, strategy));
+    }
+
+    @Override
+    protected ByteBuf allocateBuffer(ChannelHandlerContext ctx, ByteBuf msg, boolean preferDirect) {
+        // the deflater needs an array, and compressed data is rarely much bigger than the input
+        int sizeEstimate = (int) Math.ceil(msg.readableBytes() * 1.001) + 12 + GZIP_HEADER.length;
+        return ctx.alloc().heapBuffer(sizeEstimate);
+    }
+
+    @Override
+    protected void encode(ChannelHandlerContext ctx, ByteBuf in, ByteBuf out) {
+        if (deflater == null) {
+            out.writeBytes(in);
+            return;
+        }
+        int len = in.readableBytes();
+        if (len == 0) {
+            return;
+        }
+        byte[] inAry;
+        int offset;
+        if (in.hasArray()) {
+            inAry = in.array();
+            offset = in.arrayOffset() + in.readerIndex();
+            in.skipBytes(len);
+        } else {
+            inAry = new byte[len];
+            in.readBytes(inAry);
+            offset = 0;
+        }
+        writeHeaderIfNeeded(out);
+        if (gzip) {
+            crc.update(inAry, offset, len);
+        }
+        deflater.setInput(inAry, offset, len);
+        while (true) {
+            deflate(out, Deflater.SYNC_FLUSH);
+            if (deflater.needsInput()) {
+                break;
+            }
+            if (!out.isWritable()) {
+                out.ensureWritable(out.writerIndex());
+            }
+        }
+    }
+
+    private void writeHeaderIfNeeded(ByteBuf out) {
+        if (gzip && !headerWritten) {
+            out.writeBytes(GZIP_HEADER);
+            headerWritten = true;
+        }
+    }
+
+    private void deflate(ByteBuf out, int flush) {
+        int numBytes;
+        do {
+            int writerIndex = out.writerIndex();
+            numBytes = deflater.deflate(out.array(), out.arrayOffset() + writerIndex, out.writableBytes(), flush);
+            out.writerIndex(writerIndex + numBytes);
+        } while (numBytes > 0);
+    }
+
+    @Override
+    public void close(ChannelHandlerContext ctx, ChannelPromise promise) {
+        if (deflater != null) {
+            ByteBuf footer = ctx.alloc().heapBuffer();
+            writeHeaderIfNeeded(footer);
+            deflater.finish();
+            while (!deflater.finished()) {
+                footer.ensureWritable(64);
+                deflate(footer, Deflater.NO_FLUSH);
+            }
+            if (gzip) {
+                writeIntLE(footer, (int) crc.getValue());
+                writeIntLE(footer, (int) deflater.getBytesRead());
+            }
+            releaseDeflater();
+            ctx.writeAndFlush(footer);
+        }
+        ctx.close(promise);
+    }
+
+    private static void writeIntLE(ByteBuf buf, int value) {
+        buf.writeByte(value);
+        buf.writeByte(value >>> 8);
+        buf.writeByte(value >>> 16);
+        buf.writeByte(value >>> 24);
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+        releaseDeflater();
+        super.handlerRemoved(ctx);
+    }
+
+    private void releaseDeflater() {
+        if (deflater != null) {
+            pool.release(deflater, gzip);
+            deflater = null;
+        }
+    }
+}
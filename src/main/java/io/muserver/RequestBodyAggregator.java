@@ -0,0 +1,51 @@
+package io.muserver;
+
+import io.netty.buffer.ByteBuf;
+
+import java.util.Arrays;
+
+/**
+ * Collects a small request body with a declared length on the event loop, so that the request is only passed to
+ * the handlers once the whole body is available in a single array.
+ */
+class RequestBodyAggregator {
+
+    private final byte[] body;
+    private final Runnable dispatcher;
+    private int received;
+
+    RequestBodyAggregator(int declaredLength, Runnable dispatcher) {
+        this.body = new byte[declaredLength];
+        this.dispatcher = dispatcher;
+    }
+
+    /**
+     * Copies the data into the body
+     * @param data Data received from the client, which is not released by this method
+     * @return <code>false</code> if the data would make the body larger than its declared length, in which case
+     * none of it is copied
+     */
+    boolean add(ByteBuf data) {
+        int length = data.readableBytes();
+        if (length > body.length - received) {
+            return false;
+        }
+        data.getBytes(data.readerIndex(), body, received, length);
+        received += length;
+        return true;
+    }
+
+    /**
+     * @return The body received so far
+     */
+    byte[] body() {
+        return received == body.length ? body : Arrays.copyOf(body, received);
+    }
+
+    /**
+     * Passes the request to the handlers
+     */
+    void dispatch() {
+        dispatcher.run();
+    }
+}
@@ -0,0 +1,19 @@
+package io.muserver;
+
+/**
+ * The protocol specific way of controlling how much request body data is received from a client, used by
+ * {@link RequestBodySubscriptionImpl}. The methods are called on the connection's event loop.
+ */
+interface RequestBodyFlowControl {
+
+    /**
+     * Called when the subscriber is waiting for data and there is none queued
+     */
+    void readMore();
+
+    /**
+     * Called when request body bytes whose consumption was deferred have been passed to the subscriber
+     * @param bytes The number of bytes, as received from the client
+     */
+    void consumed(int bytes);
+}
@@ -0,0 +1,77 @@
+package io.muserver;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <p>Receives the request body asynchronously, with the subscriber controlling how much data is read from the client.</p>
+ * <p>This is an alternative to {@link RequestBodyListener} where data is only read from the client when the subscriber
+ * asks for it by calling {@link RequestBodySubscription#request(long)}. While there is no outstanding demand, no more
+ * data is read from the socket for HTTP/1 requests, and no flow control window updates are sent for HTTP/2 requests,
+ * so a slow consumer slows down the client rather than causing data to be held in memory.</p>
+ * <p>Example usage:</p>
+ * <pre><code>
+ *  server = httpsServer()
+ *      .addHandler((request, response) -&gt; {
+ *          AsyncHandle handle = request.handleAsync();
+ *          handle.subscribe(new RequestBodySubscriber() {
+ *              private RequestBodySubscription subscription;
+ *
+ *              public void onSubscribe(RequestBodySubscription subscription) {
+ *                  this.subscription = subscription;
+ *                  subscription.request(1);
+ *              }
+ *
+ *              public void onNext(ByteBuffer data) {
+ *                  handle.write(data, error -&gt; {
+ *                      if (error == null) {
+ *                          subscription.request(1);
+ *                      } else {
+ *                          subscription.cancel();
+ *                          handle.complete(error);
+ *                      }
+ *                  });
+ *              }
+ *
+ *              public void onComplete() {
+ *                  handle.complete();
+ *              }
+ *
+ *              public void onError(Throwable error) {
+ *                  handle.complete(error);
+ *              }
+ *          });
+ *          return true;
+ *      })
+ *      .start();
+ * </code></pre>
+ * <p>All methods of a subscriber are called on a socket acceptor thread and so they should not block.</p>
+ * @see AsyncHandle#subscribe(RequestBodySubscriber)
+ */
+public interface RequestBodySubscriber {
+
+    /**
+     * Called once before any other method on this subscriber.
+     * @param subscription The subscription, which is used to request data
+     */
+    void onSubscribe(RequestBodySubscription subscription);
+
+    /**
+     * Called with the next piece of the request body. This is only called when there is outstanding demand.
+     * @param data Some of the request body. The buffer belongs to the subscriber and can be kept after this
+     *             method returns.
+     */
+    void onNext(ByteBuffer data);
+
+    /**
+     * Called after all the request body has been passed to {@link #onNext(ByteBuffer)}. This may be called
+     * even if there is no outstanding demand.
+     */
+    void onComplete();
+
+    /**
+     * Called if the request body cannot be fully read, for example if the client disconnects or if an exception
+     * is thrown by {@link #onNext(ByteBuffer)}. No other methods are called after this.
+     * @param error The cause of the failure
+     */
+    void onError(Throwable error);
+}
@@ -0,0 +1,22 @@
+package io.muserver;
+
+/**
+ * A subscription to a request body, given to {@link RequestBodySubscriber#onSubscribe(RequestBodySubscription)}.
+ * The methods of this interface can be called from any thread.
+ */
+public interface RequestBodySubscription {
+
+    /**
+     * Asks for more of the request body. Each call to {@link RequestBodySubscriber#onNext(java.nio.ByteBuffer)}
+     * uses up one from the demand.
+     * @param n The number of buffers to add to the demand. If this is 0 or less then the subscriber's
+     *          {@link RequestBodySubscriber#onError(Throwable)} method is called.
+     */
+    void request(long n);
+
+    /**
+     * Stops receiving data. No further methods on the subscriber are called, and any remaining request body
+     * data is discarded.
+     */
+    void cancel();
+}
@@ -0,0 +1,180 @@
+package io.muserver;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.concurrent.EventExecutor;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * <p>Passes request body data to a {@link RequestBodySubscriber} according to its demand.</p>
+ * <p>All state is confined to the connection's event loop. Data that arrives while there is no demand is queued,
+ * which is bounded by the protocol: HTTP/1 connections stop reading from the socket, and HTTP/2 streams stop
+ * sending window updates until the queued data has been passed on.</p>
+ */
+class RequestBodySubscriptionImpl implements RequestBodySubscription {
+
+    private final RequestBodySubscriber subscriber;
+    private final EventExecutor eventLoop;
+    private final RequestBodyFlowControl flowControl;
+    private final ArrayDeque<ByteBuffer> queue = new ArrayDeque<>();
+    private long demand;
+    private int unconsumedBytes;
+    private boolean inputComplete;
+    private boolean finished;
+    private boolean delivering;
+    private boolean started;
+
+    RequestBodySubscriptionImpl(RequestBodySubscriber subscriber, EventExecutor eventLoop, RequestBodyFlowControl flowControl) {
+        this.subscriber = subscriber;
+        this.eventLoop = eventLoop;
+        this.flowControl = flowControl;
+    }
+
+    @Override
+    public void request(long n) {
+        runOnEventLoop(() -> {
+            if (finished) {
+                return;
+            }
+            if (n <= 0) {
+                fail(new IllegalArgumentException("The requested amount must be greater than 0 but was " + n));
+                return;
+            }
+            demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+            drain();
+            if (wantsMore()) {
+                flowControl.readMore();
+            }
+        });
+    }
+
+    @Override
+    public void cancel() {
+        runOnEventLoop(() -> {
+            if (!finished) {
+                finished = true;
+                queue.clear();
+                releaseUnconsumed();
+                // keep reading so the rest of the body is discarded
+                flowControl.readMore();
+            }
+        });
+    }
+
+    /**
+     * Called when the subscriber is set to send its {@link RequestBodySubscriber#onSubscribe(RequestBodySubscription)}
+     * and pass on any data that was received before the subscription.
+     */
+    void start() {
+        started = true;
+        try {
+            subscriber.onSubscribe(this);
+        } catch (Throwable e) {
+            fail(e);
+        }
+        drain();
+        if (!finished && wantsMore()) {
+            flowControl.readMore();
+        }
+    }
+
+    void onData(ByteBuf data) {
+        if (!finished) {
+            ByteBuffer copy = ByteBuffer.allocate(data.readableBytes());
+            data.getBytes(data.readerIndex(), copy);
+            copy.flip();
+            queue.add(copy);
+            drain();
+        }
+    }
+
+    void onData(ByteBuffer data) {
+        if (!finished) {
+            queue.add(data);
+            drain();
+        }
+    }
+
+    void onInputComplete() {
+        inputComplete = true;
+        drain();
+    }
+
+    void onInputError(Throwable error) {
+        fail(error);
+    }
+
+    /**
+     * Defers the flow control of request body bytes until the data they contained has been passed to the subscriber
+     * @param bytes The number of bytes received from the client
+     * @return <code>true</code> if the bytes will be reported with {@link RequestBodyFlowControl#consumed(int)}
+     * later; <code>false</code> if they have already been passed on and can be consumed now
+     */
+    boolean deferConsumption(int bytes) {
+        if (finished || queue.isEmpty()) {
+            return false;
+        }
+        unconsumedBytes += bytes;
+        return true;
+    }
+
+    /**
+     * @return <code>true</code> if more data should be read from the client
+     */
+    boolean wantsMore() {
+        return finished || (queue.isEmpty() && demand > 0);
+    }
+
+    private void drain() {
+        if (!started || delivering) {
+            return;
+        }
+        delivering = true;
+        try {
+            while (!finished && demand > 0 && !queue.isEmpty()) {
+                demand--;
+                ByteBuffer next = queue.poll();
+                try {
+                    subscriber.onNext(next);
+                } catch (Throwable e) {
+                    fail(e);
+                }
+            }
+            if (!finished && queue.isEmpty()) {
+                releaseUnconsumed();
+                if (inputComplete) {
+                    finished = true;
+                    subscriber.onComplete();
+                }
+            }
+        } finally {
+            delivering = false;
+        }
+    }
+
+    private void releaseUnconsumed() {
+        if (unconsumedBytes > 0) {
+            int bytes = unconsumedBytes;
+            unconsumedBytes = 0;
+            flowControl.consumed(bytes);
+        }
+    }
+
+    private void fail(Throwable error) {
+        if (!finished) {
+            finished = true;
+            queue.clear();
+            releaseUnconsumed();
+            subscriber.onError(error);
+        }
+    }
+
+    private void runOnEventLoop(Runnable task) {
+        if (eventLoop.inEventLoop()) {
+            task.run();
+        } else {
+            eventLoop.execute(task);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package io.muserver;
+
+/**
+ * Statistics about one class of requests when fair scheduling is enabled. Accessible via {@link MuStats#requestClassStats()}.
+ * @see MuServerBuilder#withFairScheduler(FairSchedulerBuilder)
+ */
+public interface RequestClassStats {
+
+    /**
+     * @return The number of requests of this class that are waiting for a handler thread
+     */
+    int queued();
+
+    /**
+     * @return The number of requests of this class that have been passed to the handlers since the server started
+     */
+    long dispatched();
+
+    /**
+     * @return The number of requests of this class that were rejected with a <code>503</code> because the queue
+     * for the class was full
+     */
+    long rejected();
+
+    /**
+     * @return The total time, in milliseconds, that the dispatched requests of this class spent queued
+     */
+    long totalQueueTimeMillis();
+}
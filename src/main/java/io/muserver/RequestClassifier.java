@@ -0,0 +1,18 @@
+package io.muserver;
+
+/**
+ * A function that assigns each request to a class, such as a tenant or a priority, for fair scheduling. See
+ * {@link MuServerBuilder#withFairScheduler(FairSchedulerBuilder)} for usage details.
+ */
+public interface RequestClassifier {
+
+    /**
+     * Selects the class of a request. This is called on a network thread before the request is queued, so it
+     * must not block.
+     * @param request An incoming request
+     * @return The name of the class, or null to use {@link FairSchedulerBuilder#DEFAULT_CLASS}. Names that are not
+     * configured with {@link FairSchedulerBuilder#withClass(String, int, int)} get their own queue with the default
+     * class's settings, as described in {@link FairSchedulerBuilder#withMaxDynamicClasses(int)}.
+     */
+    String classify(MuRequest request);
+}
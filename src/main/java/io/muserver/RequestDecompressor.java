@@ -0,0 +1,174 @@
+package io.muserver;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.compression.DecompressionException;
+import io.netty.handler.codec.compression.JdkZlibDecoder;
+import io.netty.handler.codec.compression.ZlibWrapper;
+
+/**
+ * Decompresses gzip and deflate encoded request bodies as they are received, so that handlers read the original
+ * content. A request is rejected if its body expands by more than the allowed ratio.
+ */
+class RequestDecompressor {
+
+    /**
+     * Bodies are allowed to decompress to this many bytes regardless of the ratio, as very small bodies can
+     * legitimately have high compression ratios.
+     */
+    private static final long RATIO_CHECK_THRESHOLD = 65536;
+
+    private final LimitedDecoder limitedDecoder;
+    private final EmbeddedChannel decoder;
+    private final int maxRatio;
+    private final long maxSize;
+    private long compressedBytes;
+    private long decompressedBytes;
+    private boolean rejected = false;
+
+    RequestDecompressor(ZlibWrapper wrapper, int maxRatio, long maxSize) {
+        this.maxRatio = maxRatio;
+        this.maxSize = maxSize;
+        this.limitedDecoder = new LimitedDecoder(wrapper, (int) Math.min(Integer.MAX_VALUE, allowance()));
+        this.decoder = new EmbeddedChannel(limitedDecoder);
+    }
+
+    /**
+     * Creates a decompressor for the request if decompression is enabled and the request body is compressed with
+     * a supported encoding. When one is created, the request headers are changed to describe the decompressed body.
+     * @return A decompressor, or null if the body should be passed through unchanged
+     */
+    static RequestDecompressor create(ServerSettings settings, Headers headers) {
+        if (!settings.requestDecompressionEnabled) {
+            return null;
+        }
+        String encoding = headers.get(HeaderNames.CONTENT_ENCODING);
+        if (encoding == null) {
+            return null;
+        }
+        encoding = encoding.trim();
+        ZlibWrapper wrapper;
+        if ("gzip".equalsIgnoreCase(encoding) || "x-gzip".equalsIgnoreCase(encoding)) {
+            wrapper = ZlibWrapper.GZIP;
+        } else if ("deflate".equalsIgnoreCase(encoding) || "x-deflate".equalsIgnoreCase(encoding)) {
+            wrapper = ZlibWrapper.ZLIB_OR_NONE;
+        } else {
+            return null;
+        }
+        headers.remove(HeaderNames.CONTENT_ENCODING);
+        headers.remove(HeaderNames.CONTENT_LENGTH);
+        if (!headers.hasBody()) {
+            headers.set(HeaderNames.TRANSFER_ENCODING, HeaderValues.CHUNKED);
+        }
+        return new RequestDecompressor(wrapper, settings.maxRequestDecompressionRatio, settings.maxRequestSize);
+    }
+
+    /**
+     * Decompresses some of the body
+     * @param compressed Compressed data, which is not released by this method
+     * @param asyncContext The request to pass the decompressed data to
+     * @throws MuException Thrown if the body expands by more than the allowed ratio or the maximum request size,
+     * after which any further data is ignored
+     * @throws DecompressionException Thrown if the body is not validly compressed, after which any further data is
+     * ignored
+     */
+    void decompress(ByteBuf compressed, AsyncContext asyncContext) {
+        if (rejected) {
+            return;
+        }
+        compressedBytes += compressed.readableBytes();
+        // inflating stops as soon as the allowance is used up, rather than after the whole chunk is inflated
+        limitedDecoder.limit = (int) Math.min(Integer.MAX_VALUE, Math.max(1, allowance() - decompressedBytes));
+        try {
+            decoder.writeInbound(compressed.retain());
+        } catch (DecompressionException e) {
+            throw limitedDecoder.exhausted ? reject() : invalid(e);
+        }
+        readOutput(asyncContext);
+    }
+
+    /**
+     * Called when the whole body has been received to pass any remaining decompressed data on
+     */
+    void finish(AsyncContext asyncContext) {
+        if (rejected) {
+            return;
+        }
+        try {
+            decoder.finish();
+            readOutput(asyncContext);
+        } catch (DecompressionException e) {
+            throw limitedDecoder.exhausted ? reject() : invalid(e);
+        } finally {
+            decoder.finishAndReleaseAll();
+        }
+    }
+
+    /**
+     * @return The number of bytes inflated so far, including any that were discarded when the request was rejected
+     */
+    long decompressedBytes() {
+        return decompressedBytes;
+    }
+
+    private long allowance() {
+        return Math.min(maxSize, Math.max(RATIO_CHECK_THRESHOLD, compressedBytes * maxRatio));
+    }
+
+    private MuException reject() {
+        stop();
+        return new MuException("The request body decompressed to more than " + maxRatio
+            + " times its compressed size or more than " + maxSize + " bytes");
+    }
+
+    private DecompressionException invalid(DecompressionException e) {
+        stop();
+        return e;
+    }
+
+    private void stop() {
+        rejected = true;
+        decoder.finishAndReleaseAll();
+    }
+
+    private void readOutput(AsyncContext asyncContext) {
+        ByteBuf buf;
+        while ((buf = decoder.readInbound()) != null) {
+            try {
+                decompressedBytes += buf.readableBytes();
+                NettyHandlerAdapter.handOffData(buf, asyncContext);
+            } finally {
+                buf.release();
+            }
+        }
+    }
+
+    /**
+     * A zlib decoder whose output buffer for each chunk is capped at whatever the request has left of its allowance
+     */
+    private class LimitedDecoder extends JdkZlibDecoder {
+        private int limit;
+        private boolean exhausted = false;
+
+        private LimitedDecoder(ZlibWrapper wrapper, int maxAllocation) {
+            super(wrapper, maxAllocation);
+            this.limit = maxAllocation;
+        }
+
+        @Override
+        protected ByteBuf prepareDecompressBuffer(ChannelHandlerContext ctx, ByteBuf buffer, int preferredSize) {
+            if (buffer == null) {
+                return ctx.alloc().heapBuffer(Math.min(preferredSize, limit), limit);
+            }
+            return super.prepareDecompressBuffer(ctx, buffer, preferredSize);
+        }
+
+        @Override
+        protected void decompressionBufferExhausted(ByteBuf buffer) {
+            exhausted = true;
+            decompressedBytes += buffer.readableBytes();
+            super.decompressionBufferExhausted(buffer);
+        }
+    }
+}
@@ -1,26 +1,57 @@
 package io.muserver;
 
+import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.http.HttpContentCompressor;
 import io.netty.handler.codec.http.HttpHeaderNames;
 import io.netty.handler.codec.http.HttpResponse;
 
+import java.util.List;
+
 import static io.muserver.NettyResponseAdaptor.getVaryWithAE;
 
 class SelectiveHttpContentCompressor extends HttpContentCompressor {
 
     private final ServerSettings settings;
+    private ChannelHandlerContext ctx;
 
     SelectiveHttpContentCompressor(ServerSettings settings) {
         this.settings = settings;
     }
 
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+        this.ctx = ctx;
+        super.handlerAdded(ctx);
+    }
+
     @Override
     protected Result beginEncode(HttpResponse response, String acceptEncoding) throws Exception {
         String declaredLength = response.headers().get(HttpHeaderNames.CONTENT_LENGTH);
         String declaredType = response.headers().get(HttpHeaderNames.CONTENT_TYPE);
         if (settings.shouldCompress(declaredLength, declaredType)) {
             response.headers().set(HeaderNames.VARY, getVaryWithAE(response.headers().get(HeaderNames.VARY)));
-            return super.beginEncode(response, acceptEncoding);
+            if (response.headers().contains(HttpHeaderNames.CONTENT_ENCODING)) {
+                return null;
+            }
+            List<ParameterizedHeaderWithValue> accepted;
+            try {
+                accepted = ParameterizedHeaderWithValue.fromString(acceptEncoding);
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+            CompressionConfig compression = settings.compression;
+            String coding = compression.chooseEncoding(accepted);
+            if (coding == null || compression.skipCompression(ctx.executor())) {
+                return null;
+            }
+            ContentEncoder encoder = compression.encoderFor(coding);
+            if (encoder != null) {
+                return new Result(coding, StreamingContentEncoder.newCompressor(ctx, encoder, declaredType));
+            }
+            boolean gzip = coding.equals("gzip");
+            int level = compression.levelFor(declaredType, ctx.executor());
+            return new Result(coding,
+                PooledDeflaterEncoder.newCompressor(ctx, gzip, level, compression.strategyFor(declaredType), compression.deflaterPool));
         } else {
             return null;
         }
@@ -12,8 +12,17 @@ class ServerSettings {
     final boolean gzipEnabled;
     final Set<String> mimeTypesToGzip;
     final List<RateLimiter> rateLimiters;
+    final boolean writeBehindEnabled;
+    final long maxPendingWriteBytes;
+    final SlowClientPolicy slowClientPolicy;
+    final long slowClientGraceMillis;
+    final boolean requestDecompressionEnabled;
+    final int maxRequestDecompressionRatio;
+    final int requestBodyAggregationThreshold;
+    final ControlledDelay controlledDelay;
+    final CompressionConfig compression;
 
-    ServerSettings(long minimumGzipSize, int maxHeadersSize, long requestReadTimeoutMillis, long maxRequestSize, int maxUrlSize, boolean gzipEnabled, Set<String> mimeTypesToGzip, List<RateLimiter> rateLimiters) {
+    ServerSettings(long minimumGzipSize, int maxHeadersSize, long requestReadTimeoutMillis, long maxRequestSize, int maxUrlSize, boolean gzipEnabled, Set<String> mimeTypesToGzip, List<RateLimiter> rateLimiters, boolean writeBehindEnabled, long maxPendingWriteBytes, SlowClientPolicy slowClientPolicy, long slowClientGraceMillis, boolean requestDecompressionEnabled, int maxRequestDecompressionRatio, int requestBodyAggregationThreshold, ControlledDelay controlledDelay, CompressionConfig compression) {
         this.minimumGzipSize = minimumGzipSize;
         this.maxHeadersSize = maxHeadersSize;
         this.requestReadTimeoutMillis = requestReadTimeoutMillis;
@@ -22,6 +31,15 @@ class ServerSettings {
         this.gzipEnabled = gzipEnabled;
         this.mimeTypesToGzip = mimeTypesToGzip;
         this.rateLimiters = rateLimiters;
+        this.writeBehindEnabled = writeBehindEnabled;
+        this.maxPendingWriteBytes = maxPendingWriteBytes;
+        this.slowClientPolicy = slowClientPolicy;
+        this.slowClientGraceMillis = slowClientGraceMillis;
+        this.requestDecompressionEnabled = requestDecompressionEnabled;
+        this.maxRequestDecompressionRatio = maxRequestDecompressionRatio;
+        this.requestBodyAggregationThreshold = requestBodyAggregationThreshold;
+        this.controlledDelay = controlledDelay;
+        this.compression = compression;
     }
 
     boolean shouldCompress(String declaredLength, String contentType) {
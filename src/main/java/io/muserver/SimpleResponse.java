@@ -0,0 +1,69 @@
+package io.muserver;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.*;
+import io.netty.handler.codec.http2.DefaultHttp2Headers;
+import io.netty.util.AsciiString;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A plain text response that the server sends itself, such as when a request is invalid or rejected. These are
+ * encoded once and then re-used, as they may be sent in large numbers when the server is overloaded.
+ */
+class SimpleResponse {
+    private static final ConcurrentHashMap<String, SimpleResponse> cache = new ConcurrentHashMap<>();
+
+    private final HttpResponseStatus status;
+    private final ByteBuf body;
+    private final HttpHeaders http1Headers;
+    private final AsciiString http2Status;
+    private final AsciiString contentLength;
+
+    private SimpleResponse(int code, String message) {
+        this.status = HttpResponseStatus.valueOf(code);
+        this.body = Unpooled.unreleasableBuffer(Unpooled.directBuffer().writeBytes(message.getBytes(UTF_8)).asReadOnly());
+        this.contentLength = AsciiString.of(String.valueOf(body.readableBytes()));
+        this.http1Headers = new DefaultHttpHeaders()
+            .set(HeaderNames.CONTENT_TYPE, ContentTypes.TEXT_PLAIN_UTF8)
+            .set(HeaderNames.CONTENT_LENGTH, contentLength);
+        this.http2Status = status.codeAsText();
+    }
+
+    /**
+     * Gets the response for the given message and status code
+     * @param message The plain text message to send
+     * @param code The HTTP status code
+     * @return A cached response
+     */
+    static SimpleResponse get(String message, int code) {
+        SimpleResponse response = cache.get(message);
+        if (response == null || response.status.code() != code) {
+            response = new SimpleResponse(code, message);
+            cache.putIfAbsent(message, response);
+        }
+        return response;
+    }
+
+    FullHttpResponse toHttp1(AsciiString date) {
+        // the headers are copied as handlers further along the pipeline may change them
+        HttpHeaders headers = new DefaultHttpHeaders(false).add(http1Headers).set(HeaderNames.DATE, date);
+        return new DefaultFullHttpResponse(HTTP_1_1, status, body.retainedDuplicate(), headers, EmptyHttpHeaders.INSTANCE);
+    }
+
+    io.netty.handler.codec.http2.Http2Headers toHttp2Headers(AsciiString date) {
+        return new DefaultHttp2Headers(false)
+            .status(http2Status)
+            .set(HeaderNames.CONTENT_TYPE, ContentTypes.TEXT_PLAIN_UTF8)
+            .set(HeaderNames.CONTENT_LENGTH, contentLength)
+            .set(HeaderNames.DATE, date);
+    }
+
+    ByteBuf body() {
+        return body.retainedDuplicate();
+    }
+}
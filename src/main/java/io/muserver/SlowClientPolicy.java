@@ -0,0 +1,31 @@
+package io.muserver;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Specifies what happens when a client does not read data as fast as the server is writing it, such that the number
+ * of bytes waiting to be sent to a connection goes above the limit set with
+ * {@link MuServerBuilder#withMaxPendingWriteBytes(long, SlowClientPolicy)}.
+ */
+public enum SlowClientPolicy {
+
+    /**
+     * Blocking writes wait until the number of pending bytes drops below the limit. Writes made on a Netty event loop
+     * thread (for example from a {@link DoneCallback}) can never block, so are allowed.
+     */
+    BLOCK,
+
+    /**
+     * Writes fail with a {@link MuException} while the connection is over its limit. This applies to writes to
+     * responses, including {@link AsyncHandle#write(java.nio.ByteBuffer, DoneCallback)} and server-sent events,
+     * and to web socket messages.
+     */
+    FAIL,
+
+    /**
+     * Writes are allowed, but if the connection is still over its limit after the grace period set by
+     * {@link MuServerBuilder#withSlowClientGracePeriod(long, TimeUnit)} then the connection is closed.
+     */
+    DISCONNECT
+
+}
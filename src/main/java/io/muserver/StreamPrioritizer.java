@@ -0,0 +1,62 @@
+package io.muserver;
+
+import io.netty.handler.codec.http2.Http2RemoteFlowController;
+import io.netty.handler.codec.http2.Http2Stream;
+
+/**
+ * Applies {@link StreamPriority} values to the streams of an HTTP/2 connection by changing the dependency tree
+ * used by the weighted fair queue byte distributor.
+ * <p>Urgency becomes the weight of the stream. A stream that is not incremental is made dependent on the most
+ * recent earlier stream of the same urgency that is also not incremental, which means it only gets data once that
+ * stream has nothing to send. Dependencies always point at lower stream IDs, so no cycles are created.</p>
+ * <p>All methods must be called on the connection's event loop.</p>
+ */
+class StreamPrioritizer {
+
+    private final io.netty.handler.codec.http2.Http2Connection connection;
+    private final Http2RemoteFlowController flowController;
+    private final io.netty.handler.codec.http2.Http2Connection.PropertyKey priorityKey;
+    private final int[] lastSequentialStream = new int[8];
+
+    StreamPrioritizer(io.netty.handler.codec.http2.Http2Connection connection, Http2RemoteFlowController flowController) {
+        this.connection = connection;
+        this.flowController = flowController;
+        this.priorityKey = connection.newKey();
+    }
+
+    /**
+     * Changes the priority of a stream, if it is different from the priority it already has
+     * @param streamId The stream to change
+     * @param priority The new priority
+     */
+    void prioritize(int streamId, StreamPriority priority) {
+        Http2Stream stream = connection.stream(streamId);
+        if (stream == null || priority.equals(stream.setProperty(priorityKey, priority))) {
+            return;
+        }
+        for (int i = 0; i < lastSequentialStream.length; i++) {
+            if (lastSequentialStream[i] == streamId && (i != priority.urgency() || priority.incremental())) {
+                lastSequentialStream[i] = 0;
+            }
+        }
+        int parent = 0;
+        if (!priority.incremental()) {
+            int previous = lastSequentialStream[priority.urgency()];
+            if (previous < streamId && isOpen(previous)) {
+                parent = previous;
+            }
+            if (streamId > previous) {
+                lastSequentialStream[priority.urgency()] = streamId;
+            }
+        }
+        flowController.updateDependencyTree(streamId, parent, priority.weight(), false);
+    }
+
+    private boolean isOpen(int streamId) {
+        if (streamId == 0) {
+            return false;
+        }
+        Http2Stream stream = connection.stream(streamId);
+        return stream != null && stream.state() != Http2Stream.State.CLOSED;
+    }
+}
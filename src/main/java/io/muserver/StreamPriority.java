@@ -0,0 +1,114 @@
+package io.muserver;
+
+/**
+ * <p>The priority of a response, as described by the <code>priority</code> header of
+ * <a href="https://www.rfc-editor.org/rfc/rfc9218">RFC 9218</a>.</p>
+ * <p>Clients may send this header with requests. Handlers can override it by setting the header on the response
+ * before the response starts, for example so that critical CSS is sent before images that were requested at the
+ * same time:</p>
+ * <pre><code>response.headers().set(HeaderNames.PRIORITY, StreamPriority.priority(0, false));</code></pre>
+ * <p>For HTTP/2 requests, more urgent responses get a larger share of the connection, and responses that are not
+ * incremental are sent one after the other rather than interleaved with responses of the same urgency. The header
+ * has no effect on HTTP/1 connections, which can only send one response at a time.</p>
+ */
+public final class StreamPriority {
+
+    /**
+     * The priority of responses that do not specify one: urgency 3 and not incremental
+     */
+    public static final StreamPriority DEFAULT = new StreamPriority(3, false);
+
+    private final int urgency;
+    private final boolean incremental;
+
+    private StreamPriority(int urgency, boolean incremental) {
+        this.urgency = urgency;
+        this.incremental = incremental;
+    }
+
+    /**
+     * Creates a priority
+     * @param urgency The urgency, from 0 (the most urgent) to 7 (the least urgent)
+     * @param incremental True if the client can make use of partial responses, such as a progressive image, in
+     *                    which case the response may be interleaved with others of the same urgency
+     * @return A new priority
+     * @throws IllegalArgumentException if the urgency is out of range
+     */
+    public static StreamPriority priority(int urgency, boolean incremental) {
+        if (urgency < 0 || urgency > 7) {
+            throw new IllegalArgumentException("The urgency must be between 0 and 7 but was " + urgency);
+        }
+        return new StreamPriority(urgency, incremental);
+    }
+
+    /**
+     * Parses the value of a <code>priority</code> header. Invalid and unknown parameters are ignored, as required
+     * by the specification.
+     * @param value The value of the header, such as <code>u=1, i</code>
+     * @return The priority, with the defaults used for any missing values
+     */
+    public static StreamPriority parse(String value) {
+        int urgency = DEFAULT.urgency;
+        boolean incremental = DEFAULT.incremental;
+        if (value != null) {
+            for (String member : value.split(",")) {
+                String[] bits = member.split(";", 2)[0].split("=", 2);
+                String key = bits[0].trim();
+                String val = bits.length == 2 ? bits[1].trim() : null;
+                if (key.equals("u") && val != null && val.length() == 1 && val.charAt(0) >= '0' && val.charAt(0) <= '7') {
+                    urgency = val.charAt(0) - '0';
+                } else if (key.equals("i")) {
+                    if (val == null || val.equals("?1")) {
+                        incremental = true;
+                    } else if (val.equals("?0")) {
+                        incremental = false;
+                    }
+                }
+            }
+        }
+        return new StreamPriority(urgency, incremental);
+    }
+
+    /**
+     * @return The urgency, from 0 (the most urgent) to 7 (the least urgent)
+     */
+    public int urgency() {
+        return urgency;
+    }
+
+    /**
+     * @return True if the response may be interleaved with other responses of the same urgency
+     */
+    public boolean incremental() {
+        return incremental;
+    }
+
+    /**
+     * @return The HTTP/2 stream weight used for this urgency. The default urgency has the default HTTP/2 weight
+     * of 16, and each level more urgent doubles it.
+     */
+    short weight() {
+        return (short) (urgency <= 3 ? 16 << (3 - urgency) : Math.max(1, 16 >> (urgency - 3)));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        StreamPriority that = (StreamPriority) o;
+        return urgency == that.urgency && incremental == that.incremental;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * urgency + (incremental ? 1 : 0);
+    }
+
+    /**
+     * @return The priority in the format of a <code>priority</code> header value, for example <code>u=1, i</code>
+     */
+    @Override
+    public String toString() {
+        return incremental ? "u=" + urgency + ", i" : "u=" + urgency;
+    }
+}
@@ -0,0 +1,101 @@
+package io.muserver;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.MessageToByteEncoder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Runs a {@link ContentEncoder} inside netty's compressors. The stream from the encoder writes into whichever
+ * buffer is currently being produced, and is flushed after each message so that streamed responses are not held
+ * back.
+ */
+class StreamingContentEncoder extends MessageToByteEncoder<ByteBuf> {
+
+    private final ContentEncoder encoder;
+    private final String contentType;
+    private final BufferSink sink = new BufferSink();
+    private OutputStream encodingStream;
+    private boolean closed = false;
+
+    StreamingContentEncoder(ContentEncoder encoder, String contentType) {
+        this.encoder = encoder;
+        this.contentType = contentType;
+    }
+
+    static EmbeddedChannel newCompressor(ChannelHandlerContext ctx, ContentEncoder encoder, String contentType) {
+        return new EmbeddedChannel(ctx.channel().id(), ctx.channel().metadata().hasDisconnect(),
+            ctx.channel().config(), new StreamingContentEncoder(encoder, contentType));
+    }
+
+    private OutputStream stream() throws IOException {
+        if (encodingStream == null) {
+            encodingStream = encoder.encode(sink, contentType);
+        }
+        return encodingStream;
+    }
+
+    @Override
+    protected void encode(ChannelHandlerContext ctx, ByteBuf in, ByteBuf out) throws Exception {
+        if (closed) {
+            out.writeBytes(in);
+            return;
+        }
+        sink.target = out;
+        try {
+            OutputStream stream = stream();
+            in.readBytes(stream, in.readableBytes());
+            stream.flush();
+        } finally {
+            sink.target = null;
+        }
+    }
+
+    @Override
+    public void close(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception {
+        if (!closed) {
+            ByteBuf footer = ctx.alloc().buffer();
+            sink.target = footer;
+            try {
+                closed = true;
+                stream().close();
+            } finally {
+                sink.target = null;
+            }
+            ctx.writeAndFlush(footer);
+        }
+        ctx.close(promise);
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+        if (!closed && encodingStream != null) {
+            // release any native resources of an encoding that did not complete
+            closed = true;
+            Mutils.closeSilently(encodingStream);
+        }
+        super.handlerRemoved(ctx);
+    }
+
+    private static class BufferSink extends OutputStream {
+        private ByteBuf target;
+
+        @Override
+        public void write(int b) {
+            if (target != null) {
+                target.writeByte(b);
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            if (target != null) {
+                target.writeBytes(b, off, len);
+            }
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package io.muserver;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+
+import static io.muserver.Mutils.notNull;
+
+/**
+ * A part created by {@link MultipartParser} which stores its data in memory until it grows past a threshold,
+ * after which it is written to a temporary file.
+ */
+class StreamingMultipartPart implements MultipartPart {
+
+    private final String name;
+    private final String filename;
+    private final Headers headers;
+    private final long inMemoryThreshold;
+    private final File tempDirectory;
+    private final MessageDigest digest;
+
+    private long size;
+    private boolean started;
+    private boolean complete;
+    private boolean stored = true;
+    private WritableByteChannel target;
+    private ByteArrayOutputStream memory = new ByteArrayOutputStream();
+    private Path tempFile;
+    private FileChannel tempChannel;
+    private File file;
+    private byte[] checksum;
+
+    StreamingMultipartPart(String name, String filename, Headers headers, long inMemoryThreshold, File tempDirectory, MessageDigest digest) {
+        this.name = name;
+        this.filename = filename;
+        this.headers = headers;
+        this.inMemoryThreshold = inMemoryThreshold;
+        this.tempDirectory = tempDirectory;
+        this.digest = digest;
+    }
+
+    void write(ByteBuffer data) throws IOException {
+        started = true;
+        size += data.remaining();
+        if (digest != null) {
+            digest.update(data.duplicate());
+        }
+        if (target != null) {
+            writeFully(target, data.duplicate());
+        } else if (stored) {
+            if (tempChannel == null && memory.size() + data.remaining() > inMemoryThreshold) {
+                tempFile = createTempFile();
+                tempChannel = FileChannel.open(tempFile, StandardOpenOption.WRITE);
+                writeFully(tempChannel, ByteBuffer.wrap(memory.toByteArray()));
+                memory = null;
+            }
+            if (tempChannel != null) {
+                writeFully(tempChannel, data.duplicate());
+            } else {
+                byte[] bytes = new byte[data.remaining()];
+                data.duplicate().get(bytes);
+                memory.write(bytes, 0, bytes.length);
+            }
+        }
+    }
+
+    void complete() throws IOException {
+        started = true;
+        complete = true;
+        if (digest != null) {
+            checksum = digest.digest();
+        }
+        if (tempChannel != null) {
+            tempChannel.close();
+            tempChannel = null;
+            file = tempFile.toFile();
+        }
+    }
+
+    /**
+     * Deletes the temporary file of this part, unless it has been moved with {@link #saveTo(File)}
+     */
+    void cleanup() {
+        try {
+            if (tempChannel != null) {
+                tempChannel.close();
+            }
+            if (tempFile != null) {
+                Files.deleteIfExists(tempFile);
+            }
+        } catch (IOException ignored) {
+        }
+    }
+
+    private Path createTempFile() throws IOException {
+        return tempDirectory == null
+            ? Files.createTempFile("mupart", ".tmp")
+            : Files.createTempFile(tempDirectory.toPath(), "mupart", ".tmp");
+    }
+
+    private static void writeFully(WritableByteChannel channel, ByteBuffer data) throws IOException {
+        while (data.hasRemaining()) {
+            channel.write(data);
+        }
+    }
+
+    private void checkReadable() {
+        if (!complete) {
+            throw new IllegalStateException("The data of a part can only be read after the part is complete");
+        }
+        if (!stored) {
+            throw new IllegalStateException("The data of this part was not stored");
+        }
+    }
+
+    private void checkNotStarted() {
+        if (started) {
+            throw new IllegalStateException("The target of a part can only be changed before its data is received");
+        }
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public Headers headers() {
+        return headers;
+    }
+
+    @Override
+    public boolean isInMemory() {
+        return stored && target == null && memory != null;
+    }
+
+    @Override
+    public byte[] checksum() {
+        return checksum == null ? null : checksum.clone();
+    }
+
+    @Override
+    public void writeTo(WritableByteChannel target) {
+        notNull("target", target);
+        checkNotStarted();
+        this.target = target;
+        this.stored = false;
+    }
+
+    @Override
+    public void streamOnly() {
+        checkNotStarted();
+        this.target = null;
+        this.stored = false;
+    }
+
+    @Override
+    public File asFile() throws IOException {
+        checkReadable();
+        if (file == null) {
+            tempFile = createTempFile();
+            Files.write(tempFile, memory.toByteArray());
+            file = tempFile.toFile();
+        }
+        return file;
+    }
+
+    @Override
+    public String asString() throws IOException {
+        return new String(asBytes(), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public byte[] asBytes() throws IOException {
+        checkReadable();
+        return memory != null ? memory.toByteArray() : Files.readAllBytes(file.toPath());
+    }
+
+    @Override
+    public String contentType() {
+        return headers.get(HeaderNames.CONTENT_TYPE);
+    }
+
+    @Override
+    public String filename() {
+        String n = filename;
+        if (n == null) {
+            return null;
+        }
+        int i = n.lastIndexOf('/');
+        if (i > -1) {
+            n = n.substring(i + 1);
+        }
+        i = n.lastIndexOf('\\');
+        if (i > -1) {
+            n = n.substring(i + 1);
+        }
+        return n;
+    }
+
+    @Override
+    public String extension() {
+        String n = filename();
+        int i = n == null ? -1 : n.lastIndexOf('.');
+        return i > -1 ? n.substring(i + 1) : "";
+    }
+
+    @Override
+    public void saveTo(File dest) throws IOException {
+        notNull("dest", dest);
+        checkReadable();
+        File parent = dest.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        if (memory != null) {
+            Files.write(dest.toPath(), memory.toByteArray());
+        } else {
+            Files.move(file.toPath(), dest.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            tempFile = null;
+        }
+        file = dest;
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public InputStream asStream() throws IOException {
+        checkReadable();
+        return memory != null ? new ByteArrayInputStream(memory.toByteArray()) : new FileInputStream(file);
+    }
+
+    @Override
+    public String toString() {
+        return "MultipartPart{" +
+            "name='" + name + '\'' +
+            ", filename='" + filename + '\'' +
+            ", size=" + size +
+            '}';
+    }
+}
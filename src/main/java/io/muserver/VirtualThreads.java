@@ -0,0 +1,28 @@
+package io.muserver;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Creates handler executors that use virtual threads. This version is used on JVMs before Java 21, where virtual
+ * threads are not available. The jar is a multi-release jar and contains a Java 21 version of this class in
+ * <code>META-INF/versions/21</code> which is used instead on newer JVMs.
+ */
+class VirtualThreads {
+
+    /**
+     * @return True if this JVM supports virtual threads
+     */
+    static boolean isSupported() {
+        return false;
+    }
+
+    /**
+     * Creates an executor that starts a new virtual thread for each task
+     * @param namePrefix The prefix of the thread names
+     * @return A new executor
+     * @throws UnsupportedOperationException if the JVM does not support virtual threads
+     */
+    static ExecutorService newThreadPerTaskExecutor(String namePrefix) {
+        throw new UnsupportedOperationException("Virtual threads require Java 21 or later");
+    }
+}
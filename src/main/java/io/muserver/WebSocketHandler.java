@@ -57,8 +57,13 @@ public class WebSocketHandler implements MuHandler {
         return upgraded;
     }
 
+    /**
+     * HTTP/2 forbids the Upgrade mechanism, so an upgrade header on an HTTP/2 request is ignored and the request is
+     * handled like any other.
+     */
     static boolean isWebSocketUpgrade(MuRequest request) {
-        return request.headers().contains(HeaderNames.UPGRADE, HeaderValues.WEBSOCKET, true);
+        return !"HTTP/2".equals(request.protocol())
+            && request.headers().contains(HeaderNames.UPGRADE, HeaderValues.WEBSOCKET, true);
     }
 
 }
@@ -0,0 +1,96 @@
+package io.muserver;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.util.internal.PlatformDependent;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Used when write-behind is enabled to block a writing thread only while the channel's outbound buffer is above
+ * its high water mark, rather than waiting for every write to be flushed to the client.
+ */
+class WriteBehindGate implements ConnectionState.Listener {
+    private static final long MAX_WAIT_MILLIS = 1000;
+
+    private final Channel channel;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private Throwable failure;
+
+    WriteBehindGate(Channel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Records the result of a write without waiting for it and then blocks until the channel is writable
+     * @param writeFuture The future of a write that has just been made
+     * @return The write future
+     */
+    ChannelFuture afterWrite(ChannelFuture writeFuture) {
+        if (!writeFuture.isDone() || !writeFuture.isSuccess()) {
+            writeFuture.addListener(future -> {
+                if (!future.isSuccess()) {
+                    lock.lock();
+                    try {
+                        if (failure == null) {
+                            failure = future.cause();
+                        }
+                        changed.signalAll();
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+            });
+        }
+        awaitWritable();
+        return writeFuture;
+    }
+
+    private void awaitWritable() {
+        lock.lock();
+        try {
+            while (failure == null && channel.isActive() && !channel.isWritable()) {
+                // the timeout is just a safety net as writability changes result in a notification
+                changed.await(MAX_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MuException("Interrupted while waiting to write to the client", e);
+        } finally {
+            lock.unlock();
+        }
+        if (failure != null) {
+            PlatformDependent.throwException(failure);
+        }
+        if (!channel.isActive()) {
+            throw new ClientDisconnectedException();
+        }
+    }
+
+    private void signal() {
+        lock.lock();
+        try {
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void onWriteable() {
+        signal();
+    }
+
+    @Override
+    public void onUnWriteable() {
+        signal();
+    }
+
+    @Override
+    public void onConnectionClose() {
+        signal();
+    }
+}
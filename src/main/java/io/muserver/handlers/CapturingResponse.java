@@ -0,0 +1,200 @@
+package io.muserver.handlers;
+
+import io.muserver.Cookie;
+import io.muserver.Headers;
+import io.muserver.MuResponse;
+import io.muserver.Mutils;
+
+import javax.ws.rs.core.MediaType;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A response that passes everything through to the real response, while keeping a copy of the status, headers
+ * and body bytes (up to a limit) so that they can be replayed to other clients.
+ */
+class CapturingResponse implements MuResponse {
+
+    private final MuResponse response;
+    private final int maxBodySize;
+    private ByteArrayOutputStream body = new ByteArrayOutputStream();
+    private List<Map.Entry<String, String>> headersAtStart;
+    private OutputStream outputStream;
+    private PrintWriter writer;
+
+    CapturingResponse(MuResponse response, int maxBodySize) {
+        this.response = response;
+        this.maxBodySize = maxBodySize;
+    }
+
+    @Override
+    public int status() {
+        return response.status();
+    }
+
+    @Override
+    public void status(int value) {
+        response.status(value);
+    }
+
+    @Override
+    public Future<Void> writeAsync(String text) {
+        onStarting();
+        capture(textToBytes(text));
+        return response.writeAsync(text);
+    }
+
+    @Override
+    public void write(String text) {
+        onStarting();
+        capture(textToBytes(text));
+        response.write(text);
+    }
+
+    @Override
+    public void sendChunk(String text) {
+        onStarting();
+        capture(textToBytes(text));
+        response.sendChunk(text);
+    }
+
+    @Override
+    public void redirect(String url) {
+        response.redirect(url);
+    }
+
+    @Override
+    public void redirect(URI uri) {
+        response.redirect(uri);
+    }
+
+    @Override
+    public Headers headers() {
+        return response.headers();
+    }
+
+    @Override
+    public void contentType(CharSequence contentType) {
+        response.contentType(contentType);
+    }
+
+    @Override
+    public void addCookie(Cookie cookie) {
+        response.addCookie(cookie);
+    }
+
+    @Override
+    public OutputStream outputStream() {
+        if (outputStream == null) {
+            onStarting();
+            OutputStream target = response.outputStream();
+            outputStream = new OutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    target.write(b);
+                    capture(new byte[]{(byte) b}, 0, 1);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    target.write(b, off, len);
+                    capture(b, off, len);
+                }
+
+                @Override
+                public void flush() throws IOException {
+                    target.flush();
+                }
+
+                @Override
+                public void close() throws IOException {
+                    target.close();
+                }
+            };
+        }
+        return outputStream;
+    }
+
+    @Override
+    public PrintWriter writer() {
+        if (writer == null) {
+            writer = new PrintWriter(new OutputStreamWriter(outputStream(), UTF_8));
+        }
+        return writer;
+    }
+
+    @Override
+    public boolean hasStartedSendingData() {
+        return response.hasStartedSendingData();
+    }
+
+    /**
+     * Flushes any text held by the writer so that the captured body is complete.
+     */
+    void flushWriter() {
+        if (writer != null) {
+            writer.flush();
+        }
+    }
+
+    /**
+     * @return The captured body, or null if it was larger than the maximum allowed body size
+     */
+    byte[] body() {
+        return body == null ? null : body.toByteArray();
+    }
+
+    /**
+     * @return The headers as they were just before the first byte of the body was written, or the current
+     * response headers if no body was written.
+     */
+    List<Map.Entry<String, String>> headers(Headers current) {
+        return headersAtStart == null ? current.entries() : headersAtStart;
+    }
+
+    private void onStarting() {
+        // Headers are captured before the first write because the server may change them while sending (e.g. to
+        // describe the compression applied to this particular client's response)
+        if (headersAtStart == null) {
+            headersAtStart = new ArrayList<>(response.headers().entries());
+        }
+    }
+
+    private void capture(byte[] bytes) {
+        capture(bytes, 0, bytes.length);
+    }
+
+    private void capture(byte[] b, int off, int len) {
+        if (body != null) {
+            if (body.size() + len > maxBodySize) {
+                body = null;
+            } else {
+                body.write(b, off, len);
+            }
+        }
+    }
+
+    private byte[] textToBytes(String text) {
+        if (text == null) text = "";
+        Charset charset = UTF_8;
+        MediaType type = response.headers().contentType();
+        if (type != null) {
+            String encoding = type.getParameters().get("charset");
+            if (!Mutils.nullOrEmpty(encoding)) {
+                charset = Charset.forName(encoding);
+            }
+        }
+        return text.getBytes(charset);
+    }
+}
@@ -0,0 +1,210 @@
+package io.muserver.handlers;
+
+import io.muserver.*;
+import io.muserver.rest.PathMatch;
+import io.muserver.rest.UriPattern;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.ws.rs.ServiceUnavailableException;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>A handler that lets only one of a group of identical concurrent <code>GET</code> requests run the wrapped handler,
+ * with the response of that request being sent to all the other requests.</p>
+ * <p>Requests that do not match the route are not handled, so they go to the next handler.</p>
+ * <p>Create this with {@link CoalescingHandlerBuilder#coalescingHandler()}</p>
+ */
+public class CoalescingHandler implements MuHandler {
+    private static final Logger log = LoggerFactory.getLogger(CoalescingHandler.class);
+    private static final Set<String> headersNotCopied = new HashSet<>(Arrays.asList(
+        HeaderNames.DATE.toString(), HeaderNames.CONTENT_LENGTH.toString(), HeaderNames.TRANSFER_ENCODING.toString(),
+        HeaderNames.CONNECTION.toString()
+    ));
+
+    private final Method method;
+    private final UriPattern uriPattern;
+    private final RouteHandler handler;
+    private final CoalescingKeySelector keySelector;
+    private final long maxWaitMillis;
+    private final int maxBodySize;
+    private final ExecutorService fallbackExecutor;
+    private final Timer timer;
+    private final ConcurrentHashMap<String, Flight> flights = new ConcurrentHashMap<>();
+
+    CoalescingHandler(Method method, UriPattern uriPattern, RouteHandler handler, CoalescingKeySelector keySelector, long maxWaitMillis, int maxBodySize, ExecutorService fallbackExecutor, Timer timer) {
+        this.method = method;
+        this.uriPattern = uriPattern;
+        this.handler = handler;
+        this.keySelector = keySelector;
+        this.maxWaitMillis = maxWaitMillis;
+        this.maxBodySize = maxBodySize;
+        this.fallbackExecutor = fallbackExecutor;
+        this.timer = timer;
+    }
+
+    @Override
+    public boolean handle(MuRequest request, MuResponse response) throws Exception {
+        if (method != null && method != request.method()) {
+            return false;
+        }
+        PathMatch match = uriPattern.matcher(request.relativePath());
+        if (!match.fullyMatches()) {
+            return false;
+        }
+        Map<String, String> pathParams = match.params();
+        String key = request.method() == Method.GET ? keySelector.select(request) : null;
+        if (key == null) {
+            handler.handle(request, response, pathParams);
+            return true;
+        }
+        Flight flight = new Flight();
+        Flight existing = flights.putIfAbsent(key, flight);
+        if (existing != null) {
+            if (existing.join(request, response, pathParams)) {
+                return true;
+            }
+            // the other request finished between looking it up and joining it, so just handle this one directly
+            handler.handle(request, response, pathParams);
+            return true;
+        }
+
+        CapturingResponse capture = new CapturingResponse(response, maxBodySize);
+        try {
+            handler.handle(request, capture, pathParams);
+            capture.flushWriter();
+        } catch (Throwable e) {
+            flights.remove(key, flight);
+            for (Waiter waiter : flight.finish()) {
+                waiter.timeout.cancel();
+                waiter.asyncHandle.complete(e);
+            }
+            throw e;
+        }
+        flights.remove(key, flight);
+        List<Waiter> waiters = flight.finish();
+        if (!waiters.isEmpty()) {
+            byte[] body = capture.body();
+            List<Map.Entry<String, String>> headers = capture.headers(response.headers());
+            boolean shareable = body != null && !request.isAsync() && !response.headers().contains(HeaderNames.SET_COOKIE);
+            for (Waiter waiter : waiters) {
+                waiter.timeout.cancel();
+                if (shareable) {
+                    waiter.send(response.status(), headers, body);
+                } else {
+                    runFallback(waiter);
+                }
+            }
+        }
+        return true;
+    }
+
+    private void runFallback(Waiter waiter) {
+        try {
+            fallbackExecutor.execute(() -> {
+                try {
+                    handler.handle(waiter.request, waiter.response, waiter.pathParams);
+                    waiter.asyncHandle.complete();
+                } catch (Throwable e) {
+                    waiter.asyncHandle.complete(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            waiter.asyncHandle.complete(new ServiceUnavailableException());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CoalescingHandler{" +
+            "method=" + method +
+            ", uriPattern=" + uriPattern +
+            ", handler=" + handler +
+            ", maxWaitMillis=" + maxWaitMillis +
+            ", maxBodySize=" + maxBodySize +
+            '}';
+    }
+
+    private class Flight {
+        private final List<Waiter> waiters = new ArrayList<>();
+        private boolean finished = false;
+
+        synchronized boolean join(MuRequest request, MuResponse response, Map<String, String> pathParams) {
+            if (finished) {
+                return false;
+            }
+            Waiter waiter = new Waiter(request, response, pathParams, request.handleAsync());
+            waiter.timeout = timer.newTimeout(t -> {
+                if (leave(waiter)) {
+                    log.debug("Timed out waiting for coalesced response for " + request + " so will handle it separately");
+                    runFallback(waiter);
+                }
+            }, maxWaitMillis, TimeUnit.MILLISECONDS);
+            waiters.add(waiter);
+            return true;
+        }
+
+        private synchronized boolean leave(Waiter waiter) {
+            return !finished && waiters.remove(waiter);
+        }
+
+        synchronized List<Waiter> finish() {
+            finished = true;
+            return waiters;
+        }
+    }
+
+    private static class Waiter {
+        private final MuRequest request;
+        private final MuResponse response;
+        private final Map<String, String> pathParams;
+        private final AsyncHandle asyncHandle;
+        private Timeout timeout;
+
+        private Waiter(MuRequest request, MuResponse response, Map<String, String> pathParams, AsyncHandle asyncHandle) {
+            this.request = request;
+            this.response = response;
+            this.pathParams = pathParams;
+            this.asyncHandle = asyncHandle;
+        }
+
+        void send(int status, List<Map.Entry<String, String>> headers, byte[] body) {
+            try {
+                response.status(status);
+                Headers target = response.headers();
+                // headers already set were added by handlers before this one for this specific request, so keep them
+                Set<String> alreadySet = new HashSet<>();
+                for (String name : target.names()) {
+                    alreadySet.add(name.toLowerCase());
+                }
+                for (Map.Entry<String, String> header : headers) {
+                    String name = header.getKey().toLowerCase();
+                    if (!headersNotCopied.contains(name) && !alreadySet.contains(name)) {
+                        target.add(name, header.getValue());
+                    }
+                }
+                if (body.length == 0) {
+                    asyncHandle.complete();
+                } else {
+                    target.set(HeaderNames.CONTENT_LENGTH, body.length);
+                    asyncHandle.write(ByteBuffer.wrap(body), error -> {
+                        if (error == null) {
+                            asyncHandle.complete();
+                        } else {
+                            asyncHandle.complete(error);
+                        }
+                    });
+                }
+            } catch (Throwable e) {
+                asyncHandle.complete(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package io.muserver.handlers;
+
+import io.muserver.*;
+import io.muserver.rest.UriPattern;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * <p>A builder for a handler that coalesces identical concurrent <code>GET</code> requests so that only one of them
+ * runs the wrapped handler. This is useful to protect a backend from a burst of identical requests, for example when
+ * a popular cached value expires.</p>
+ * <p>While the first request for a key is being handled, any other requests with the same key are parked (without
+ * using a thread) and when the first one completes, its status, headers and body are sent to each of them.</p>
+ * <p>A parked request is instead handled by the wrapped handler itself if the first request takes longer than
+ * {@link #withMaxWait(long, TimeUnit)}, or if its response cannot be shared because the body is larger than
+ * {@link #withMaxBodySize(int)}, it set a cookie, or it was handled asynchronously. This runs on the
+ * {@link #withFallbackExecutor(ExecutorService) fallback executor}, and a <code>503</code> is sent if that executor
+ * rejects the task.</p>
+ * <p>The wrapped handler is a route, so that requests that do not match it are passed to the next handler before any
+ * request is parked.</p>
+ * <p>Sample usage:</p>
+ * <pre>
+ *     server = MuServerBuilder.httpsServer()
+ *                 .addHandler(CoalescingHandlerBuilder.coalescingHandler()
+ *                     .withHandler(Method.GET, "/prices/{id}", (request, response, pathParams) -&gt; { ... })
+ *                 )
+ *                 .start();
+ * </pre>
+ * <p>Note that the wrapped handler should write its response synchronously, as asynchronously handled responses
+ * cannot be shared.</p>
+ */
+public class CoalescingHandlerBuilder implements MuHandlerBuilder<CoalescingHandler> {
+
+    private Method method;
+    private String uriTemplate;
+    private RouteHandler handler;
+    private List<String> keyHeaders = new ArrayList<>(Arrays.asList(
+        HeaderNames.ACCEPT.toString(), HeaderNames.ACCEPT_LANGUAGE.toString(),
+        HeaderNames.AUTHORIZATION.toString(), HeaderNames.COOKIE.toString()));
+    private CoalescingKeySelector keySelector;
+    private long maxWaitMillis = TimeUnit.SECONDS.toMillis(10);
+    private int maxBodySize = 1024 * 1024;
+    private ExecutorService fallbackExecutor;
+
+    /**
+     * Sets the route handler whose responses will be shared between identical requests.
+     * <p>Only <code>GET</code> requests are coalesced, so other matching requests are handled by the route handler
+     * directly.</p>
+     * @param method      The method to match, or <code>null</code> to accept any method.
+     * @param uriTemplate A URL template, as per {@link Routes#route(Method, String, RouteHandler)}
+     * @param handler     The handler to invoke if the method and URI matches.
+     * @return This builder
+     */
+    public CoalescingHandlerBuilder withHandler(Method method, String uriTemplate, RouteHandler handler) {
+        this.method = method;
+        this.uriTemplate = uriTemplate;
+        this.handler = handler;
+        return this;
+    }
+
+    /**
+     * <p>Specifies the request headers that, along with the method and URI, make up the key when the default
+     * key selector is used.</p>
+     * <p>The default is <code>accept</code>, <code>accept-language</code>, <code>authorization</code> and
+     * <code>cookie</code> so that responses are never shared between different users. Requests with an
+     * <code>upgrade</code> header are never coalesced.</p>
+     * @param headerNames The names of the headers to include in the key
+     * @return This builder
+     */
+    public CoalescingHandlerBuilder withKeyHeaders(String... headerNames) {
+        Mutils.notNull("headerNames", headerNames);
+        this.keyHeaders = new ArrayList<>(Arrays.asList(headerNames));
+        return this;
+    }
+
+    /**
+     * Specifies a custom function that decides which requests are identical. If set, then the
+     * {@link #withKeyHeaders(String...)} setting is not used.
+     * @param keySelector A function that returns a key, or null to not coalesce a request
+     * @return This builder
+     */
+    public CoalescingHandlerBuilder withKeySelector(CoalescingKeySelector keySelector) {
+        this.keySelector = keySelector;
+        return this;
+    }
+
+    /**
+     * The maximum time a request waits for an identical in-flight request to complete before being handled by the
+     * wrapped handler itself. The default is 10 seconds.
+     * @param duration The maximum time to wait
+     * @param unit The unit of the duration
+     * @return This builder
+     */
+    public CoalescingHandlerBuilder withMaxWait(long duration, TimeUnit unit) {
+        if (duration < 1) {
+            throw new IllegalArgumentException("The max wait must be greater than 0");
+        }
+        Mutils.notNull("unit", unit);
+        this.maxWaitMillis = unit.toMillis(duration);
+        return this;
+    }
+
+    /**
+     * The maximum size of a response body that will be held in memory so it can be shared with waiting requests.
+     * If a response is larger than this then the waiting requests are each handled by the wrapped handler.
+     * The default is 1MB.
+     * @param maxBodySize The maximum body size in bytes
+     * @return This builder
+     */
+    public CoalescingHandlerBuilder withMaxBodySize(int maxBodySize) {
+        if (maxBodySize < 0) {
+            throw new IllegalArgumentException("The max body size cannot be negative");
+        }
+        this.maxBodySize = maxBodySize;
+        return this;
+    }
+
+    /**
+     * <p>The executor used to run the wrapped handler for waiting requests that could not be given a shared response.
+     * If the executor rejects a request then it gets a <code>503 Service Unavailable</code> response.</p>
+     * <p>By default a pool that is shared by all coalescing handlers is used, with two threads per processor and
+     * a queue of up to 1000 requests.</p>
+     * @param fallbackExecutor The executor to use
+     * @return This builder
+     */
+    public CoalescingHandlerBuilder withFallbackExecutor(ExecutorService fallbackExecutor) {
+        this.fallbackExecutor = fallbackExecutor;
+        return this;
+    }
+
+    /**
+     * Creates a new builder
+     * @return A new builder
+     */
+    public static CoalescingHandlerBuilder coalescingHandler() {
+        return new CoalescingHandlerBuilder();
+    }
+
+    @Override
+    public CoalescingHandler build() {
+        if (handler == null) {
+            throw new IllegalStateException("You must specify the handler to wrap");
+        }
+        Mutils.notNull("uriTemplate", uriTemplate);
+        UriPattern uriPattern = UriPattern.uriTemplateToRegex(uriTemplate);
+        CoalescingKeySelector selector = this.keySelector;
+        if (selector == null) {
+            List<String> headerNames = new ArrayList<>(this.keyHeaders);
+            selector = request -> {
+                if (request.headers().contains(HeaderNames.UPGRADE)) {
+                    return null;
+                }
+                StringBuilder key = new StringBuilder(request.method().name()).append(' ').append(request.uri());
+                for (String headerName : headerNames) {
+                    key.append('\n').append(headerName).append(':').append(request.headers().getAll(headerName));
+                }
+                return key.toString();
+            };
+        }
+        ExecutorService executor = this.fallbackExecutor == null ? Shared.FALLBACK_EXECUTOR : this.fallbackExecutor;
+        return new CoalescingHandler(method, uriPattern, handler, selector, maxWaitMillis, maxBodySize, executor, Shared.TIMER);
+    }
+
+    /**
+     * The timer and default executor are shared by every handler, as handlers are never told when their server
+     * stops. Both use daemon threads, which are only started when first needed, and idle pool threads exit. The pool
+     * is bounded, as waiting requests fall back to it when the server is already busy.
+     */
+    private static class Shared {
+        private static final HashedWheelTimer TIMER = new HashedWheelTimer(new DefaultThreadFactory("mu-coalesce-timer", true));
+        private static final ExecutorService FALLBACK_EXECUTOR = fallbackExecutor();
+
+        private static ExecutorService fallbackExecutor() {
+            int threads = Runtime.getRuntime().availableProcessors() * 2;
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(1000), new DefaultThreadFactory("mu-coalesce", true));
+            executor.allowCoreThreadTimeOut(true);
+            return executor;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package io.muserver.handlers;
+
+import io.muserver.MuRequest;
+
+/**
+ * A function that decides which requests are identical for the purposes of request coalescing.
+ * See {@link CoalescingHandlerBuilder#withKeySelector(CoalescingKeySelector)} for usage details.
+ */
+public interface CoalescingKeySelector {
+
+    /**
+     * Selects a coalescing key for the given request. Concurrent requests that return equal keys will share the
+     * response generated for the first of them.
+     * @param request An incoming request
+     * @return A key for the request, or null if this request should never be coalesced with any other request.
+     */
+    String select(MuRequest request);
+}
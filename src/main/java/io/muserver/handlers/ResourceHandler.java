@@ -15,6 +15,8 @@ import java.nio.file.Paths;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
@@ -37,8 +39,15 @@ public class ResourceHandler implements MuHandler {
     private final String directoryListingCss;
     private final DateTimeFormatter dateFormatter;
     private final ResourceCustomizer resourceCustomizer;
+    private final boolean precompressedFiles;
 
-    ResourceHandler(ResourceProviderFactory resourceProviderFactory, String pathToServeFrom, String defaultFile, Map<String, ResourceType> extensionToResourceType, boolean directoryListingEnabled, String directoryListingCss, DateTimeFormatter dateFormatter, ResourceCustomizer resourceCustomizer) {
+    /**
+     * The content-codings of precompressed files and their file extensions, in order of preference when the client
+     * accepts more than one equally.
+     */
+    private static final String[][] PRECOMPRESSED_VARIANTS = {{"br", ".br"}, {"zstd", ".zst"}, {"gzip", ".gz"}};
+
+    ResourceHandler(ResourceProviderFactory resourceProviderFactory, String pathToServeFrom, String defaultFile, Map<String, ResourceType> extensionToResourceType, boolean directoryListingEnabled, String directoryListingCss, DateTimeFormatter dateFormatter, ResourceCustomizer resourceCustomizer, boolean precompressedFiles) {
         this.resourceProviderFactory = resourceProviderFactory;
         this.pathToServeFrom = pathToServeFrom;
         this.extensionToResourceType = extensionToResourceType;
@@ -47,6 +56,7 @@ public class ResourceHandler implements MuHandler {
         this.directoryListingCss = directoryListingCss;
         this.dateFormatter = dateFormatter;
         this.resourceCustomizer = resourceCustomizer;
+        this.precompressedFiles = precompressedFiles;
     }
 
     @Override
@@ -81,9 +91,26 @@ public class ResourceHandler implements MuHandler {
             }
         } else {
             String filename = requestPath.substring(requestPath.lastIndexOf('/'));
+            String contentEncoding = null;
+            if (precompressedFiles) {
+                response.headers().add(HeaderNames.VARY, HeaderNames.ACCEPT_ENCODING);
+                if (!request.headers().contains(HeaderNames.RANGE)) {
+                    for (String[] variant : precompressedVariants(request)) {
+                        ResourceProvider compressed = resourceProviderFactory.get(decodedRelativePath + variant[1]);
+                        if (compressed.exists() && !compressed.isDirectory()) {
+                            provider = compressed;
+                            contentEncoding = variant[0];
+                            break;
+                        }
+                    }
+                }
+            }
             Date lastModified = provider.lastModified();
             Long totalSize = provider.fileSize();
             addHeaders(response, filename, totalSize, lastModified, request);
+            if (contentEncoding != null) {
+                response.headers().set(HeaderNames.CONTENT_ENCODING, contentEncoding);
+            }
             boolean sendBody = request.method() != Method.HEAD;
 
             String ims = request.headers().get(HeaderNames.IF_MODIFIED_SINCE);
@@ -129,6 +156,32 @@ public class ResourceHandler implements MuHandler {
         return true;
     }
 
+    /**
+     * @return The precompressed variants the client accepts, with the highest q-values first
+     */
+    private static List<String[]> precompressedVariants(MuRequest request) {
+        List<ParameterizedHeaderWithValue> accepted;
+        try {
+            accepted = request.headers().acceptEncoding();
+        } catch (IllegalArgumentException e) {
+            return Collections.emptyList();
+        }
+        List<String[]> variants = new ArrayList<>();
+        List<Double> qValues = new ArrayList<>();
+        for (String[] variant : PRECOMPRESSED_VARIANTS) {
+            double q = ParameterizedHeaderWithValue.qValue(accepted, variant[0]);
+            if (q > 0) {
+                int i = 0;
+                while (i < qValues.size() && qValues.get(i) >= q) {
+                    i++;
+                }
+                variants.add(i, variant);
+                qValues.add(i, q);
+            }
+        }
+        return variants;
+    }
+
     private void listDirectory(MuRequest request, MuResponse response, ResourceProvider provider) throws IOException {
         response.contentType(ContentTypes.TEXT_HTML_UTF8);
         response.headers().set("X-UA-Compatible", "IE=edge");
@@ -244,7 +297,7 @@ public class ResourceHandler implements MuHandler {
             }
             return new ResourceHandler(resourceProviderFactory, pathToServeFrom, defaultFile, extensionToResourceType, false, null, DateTimeFormatter.ofPattern("yyyy/MM/dd hh:mm:ss")
                 .withLocale(Locale.US)
-                .withZone(ZoneId.systemDefault()), null);
+                .withZone(ZoneId.systemDefault()), null, false);
         }
     }
 
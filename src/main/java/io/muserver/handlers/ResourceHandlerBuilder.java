@@ -31,6 +31,7 @@ public class ResourceHandlerBuilder implements MuHandlerBuilder<ResourceHandler>
     private boolean directoryListingEnabled = false;
     private String directoryListingCss = null;
     private ResourceCustomizer resourceCustomizer = null;
+    private boolean precompressedFiles = false;
 
     /**
      * Specify custom filename extension to mime-type mappings. By default {@link ResourceType#DEFAULT_EXTENSION_MAPPINGS}
@@ -113,6 +114,22 @@ public class ResourceHandlerBuilder implements MuHandlerBuilder<ResourceHandler>
         return this;
     }
 
+    /**
+     * Specifies whether to serve precompressed variants of files. When enabled, a request for <code>app.js</code>
+     * from a client that accepts Brotli is sent the contents of <code>app.js.br</code> if that file exists, with a
+     * <code>Content-Encoding</code> of <code>br</code>. The <code>.br</code>, <code>.zst</code> and <code>.gz</code>
+     * extensions are looked for, chosen by the q-values in the <code>Accept-Encoding</code> request header. This is
+     * disabled by default.
+     * <p>Files can be compressed at the highest levels ahead of time, which gives smaller responses than compressing
+     * them for each request and uses no CPU when they are served.</p>
+     * @param enabled <code>true</code> to serve precompressed variants when they exist; <code>false</code> to disable it.
+     * @return This builder
+     */
+    public ResourceHandlerBuilder withPrecompressedFiles(boolean enabled) {
+        this.precompressedFiles = enabled;
+        return this;
+    }
+
     /**
      * Creates the handler
      * @return The built handler
@@ -136,7 +153,7 @@ public class ResourceHandlerBuilder implements MuHandlerBuilder<ResourceHandler>
                 .withZone(ZoneId.systemDefault());
         }
 
-        return new ResourceHandler(resourceProviderFactory, pathToServeFrom, defaultFile, extensionToResourceType, directoryListingEnabled, css, formatterToUse, this.resourceCustomizer);
+        return new ResourceHandler(resourceProviderFactory, pathToServeFrom, defaultFile, extensionToResourceType, directoryListingEnabled, css, formatterToUse, this.resourceCustomizer, precompressedFiles);
     }
 
 
@@ -0,0 +1,22 @@
+package io.muserver.rest;
+
+import java.lang.annotation.*;
+
+/**
+ * <p>Specifies that the responses of a <code>GET</code> resource method should have a strong <code>ETag</code> header
+ * that is generated from a hash of the response body.</p>
+ * <p>When the client sends an <code>If-None-Match</code> header that matches the generated tag, a <code>304 Not Modified</code>
+ * is sent without a body. Bodies no larger than {@link RestHandlerBuilder#withAutoETagBufferSize(int)} are buffered
+ * in memory while the hash is calculated; larger bodies are written to a temporary file. Either way the body is only
+ * serialized once, and is sent as a fixed-length response.</p>
+ * <p>This can be applied to a method, or to a resource class to apply it to all the methods of the class. Alternatively,
+ * use {@link RestHandlerBuilder#withAutoETags(boolean)} to apply it to all resource methods.</p>
+ * <p>Note that tags are not generated if the method sets its own <code>ETag</code>, returns a status other than
+ * <code>200</code>, or returns an {@link java.io.InputStream} or {@link javax.ws.rs.core.StreamingOutput} as these
+ * can only be written once.</p>
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface AutoETag {
+}
@@ -39,7 +39,7 @@ class BinaryEntityProviders {
         }
 
         public byte[] readFrom(Class<byte[]> type, Type genericType, Annotation[] annotations, MediaType mediaType, MultivaluedMap<String, String> httpHeaders, InputStream entityStream) throws IOException, WebApplicationException {
-            return Mutils.toByteArray(entityStream, 2048);
+            return EntityProviders.readBytes(entityStream);
         }
 
         public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
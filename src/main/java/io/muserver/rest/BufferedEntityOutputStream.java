@@ -0,0 +1,122 @@
+package io.muserver.rest;
+
+import io.muserver.HeaderNames;
+import io.muserver.MuResponse;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * An output stream that holds an entity in a pooled buffer so that it can be sent in a single fixed-length write.
+ * If the entity turns out to be larger than the maximum buffer size, then the buffered bytes are written to the
+ * response and the rest of the entity is streamed.
+ */
+class BufferedEntityOutputStream extends OutputStream {
+    private final MuResponse muResponse;
+    private final OutputStream target;
+    private final int maxBufferSize;
+    private ByteBuf buffer;
+    private boolean spilled = false;
+
+    BufferedEntityOutputStream(MuResponse muResponse, OutputStream target, int maxBufferSize) {
+        this.muResponse = muResponse;
+        this.target = target;
+        this.maxBufferSize = maxBufferSize;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (spilled || !ensureSpace(1)) {
+            target.write(b);
+        } else {
+            buffer.writeByte(b);
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (spilled || !ensureSpace(len)) {
+            target.write(b, off, len);
+        } else {
+            buffer.writeBytes(b, off, len);
+        }
+    }
+
+    private boolean ensureSpace(int len) throws IOException {
+        if (buffer == null) {
+            if (len > maxBufferSize) {
+                spilled = true;
+                return false;
+            }
+            buffer = ByteBufAllocator.DEFAULT.heapBuffer(Math.min(Math.max(len, 256), maxBufferSize), maxBufferSize);
+        }
+        if (buffer.readableBytes() + len > maxBufferSize) {
+            spill();
+            return false;
+        }
+        return true;
+    }
+
+    private void spill() throws IOException {
+        spilled = true;
+        try {
+            buffer.readBytes(target, buffer.readableBytes());
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * Flushes are ignored while buffering, as many writers flush after serializing an entity, which would otherwise
+     * cause the response to be sent chunked.
+     */
+    @Override
+    public void flush() throws IOException {
+        if (spilled) {
+            target.flush();
+        }
+    }
+
+    /**
+     * Closing is deferred until {@link #finish()} is called so that the content length can be set.
+     */
+    @Override
+    public void close() throws IOException {
+        if (spilled) {
+            target.close();
+        }
+    }
+
+    /**
+     * Sends any buffered bytes to the client with a content-length header. This must be called after the entity
+     * has been written, even if an exception was thrown, so that the buffer is released.
+     * @param send If false, then the buffer is released without anything being sent
+     * @throws IOException Thrown if the bytes could not be sent
+     */
+    void finish(boolean send) throws IOException {
+        if (buffer == null) {
+            if (send && !spilled) {
+                muResponse.headers().set(HeaderNames.CONTENT_LENGTH, 0);
+            }
+            return;
+        }
+        try {
+            if (send) {
+                int length = buffer.readableBytes();
+                muResponse.headers().set(HeaderNames.CONTENT_LENGTH, length);
+                buffer.readBytes(target, length);
+            }
+        } finally {
+            release();
+        }
+    }
+
+    private void release() {
+        if (buffer != null) {
+            buffer.release();
+            buffer = null;
+        }
+    }
+}
@@ -1,10 +1,14 @@
 package io.muserver.rest;
 
+import io.muserver.Mutils;
+
 import javax.ws.rs.InternalServerErrorException;
 import javax.ws.rs.NotSupportedException;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.ext.MessageBodyReader;
 import javax.ws.rs.ext.MessageBodyWriter;
+import java.io.IOException;
+import java.io.InputStream;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Type;
 import java.nio.charset.Charset;
@@ -91,6 +95,17 @@ class EntityProviders {
         }
     }
 
+    /**
+     * Reads the whole entity stream. If the stream is the unread request body, the body is read from the request
+     * directly so that a body which has already been received is not copied.
+     */
+    static byte[] readBytes(InputStream entityStream) throws IOException {
+        if (entityStream instanceof LazyAccessInputStream) {
+            return ((LazyAccessInputStream) entityStream).toByteArray();
+        }
+        return Mutils.toByteArray(entityStream, 2048);
+    }
+
 
 }
 
@@ -0,0 +1,118 @@
+package io.muserver.rest;
+
+import javax.ws.rs.core.EntityTag;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * An output stream that hashes everything written to it, and which keeps a copy of the written bytes. The copy is
+ * held in memory for as long as it fits within the buffer size, after which it is moved to a temporary file.
+ */
+class HashingOutputStream extends OutputStream {
+    static {
+        MuRuntimeDelegate.ensureSet();
+    }
+
+    private final MessageDigest digest;
+    private final int bufferSize;
+    private ByteArrayOutputStream buffer;
+    private Path tempFile;
+    private OutputStream tempFileStream;
+    private long size;
+
+    HashingOutputStream(int bufferSize) {
+        try {
+            this.digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported on this JVM", e);
+        }
+        this.bufferSize = bufferSize;
+        this.buffer = new ByteArrayOutputStream(Math.min(bufferSize, 512));
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        digest.update((byte) b);
+        size++;
+        if (tempFileStream == null && buffer.size() + 1 > bufferSize) {
+            moveToTempFile();
+        }
+        if (tempFileStream != null) {
+            tempFileStream.write(b);
+        } else {
+            buffer.write(b);
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        digest.update(b, off, len);
+        size += len;
+        if (tempFileStream == null && buffer.size() + len > bufferSize) {
+            moveToTempFile();
+        }
+        if (tempFileStream != null) {
+            tempFileStream.write(b, off, len);
+        } else {
+            buffer.write(b, off, len);
+        }
+    }
+
+    private void moveToTempFile() throws IOException {
+        tempFile = Files.createTempFile("muetag", ".tmp");
+        tempFileStream = new BufferedOutputStream(Files.newOutputStream(tempFile));
+        buffer.writeTo(tempFileStream);
+        buffer = null;
+    }
+
+    /**
+     * @return The number of bytes written
+     */
+    long size() {
+        return size;
+    }
+
+    /**
+     * Completes the hash. This should only be called after all bytes are written.
+     * @return A strong entity tag based on the bytes written
+     */
+    EntityTag entityTag() {
+        return new EntityTag(Base64.getUrlEncoder().withoutPadding().encodeToString(digest.digest()));
+    }
+
+    /**
+     * Writes the copy of the written bytes to the given stream. This should only be called after all bytes are written.
+     * @param out The stream to write to
+     * @throws IOException Thrown if the temporary file cannot be read, or the stream cannot be written to
+     */
+    void writeCopyTo(OutputStream out) throws IOException {
+        if (tempFileStream == null) {
+            buffer.writeTo(out);
+        } else {
+            tempFileStream.close();
+            Files.copy(tempFile, out);
+        }
+    }
+
+    /**
+     * Deletes the temporary file, if one was needed
+     */
+    void cleanup() {
+        try {
+            if (tempFileStream != null) {
+                tempFileStream.close();
+            }
+            if (tempFile != null) {
+                Files.deleteIfExists(tempFile);
+            }
+        } catch (IOException ignored) {
+        }
+    }
+}
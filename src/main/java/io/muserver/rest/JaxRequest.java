@@ -1,5 +1,6 @@
 package io.muserver.rest;
 
+import io.muserver.HeaderNames;
 import io.muserver.Method;
 import io.muserver.MuRequest;
 import io.muserver.Mutils;
@@ -37,7 +38,68 @@ class JaxRequest implements Request {
 
     @Override
     public Response.ResponseBuilder evaluatePreconditions(EntityTag eTag) {
-        throw NotImplementedException.notYet();
+        Mutils.notNull("eTag", eTag);
+        String ifMatch = muRequest.headers().get(HeaderNames.IF_MATCH);
+        if (ifMatch != null && !matches(ifMatch, eTag, true)) {
+            return Response.status(Response.Status.PRECONDITION_FAILED).tag(eTag);
+        }
+        String ifNoneMatch = muRequest.headers().get(HeaderNames.IF_NONE_MATCH);
+        if (ifNoneMatch != null && matches(ifNoneMatch, eTag, false)) {
+            boolean isGet = httpMethod.equals("GET") || httpMethod.equals("HEAD");
+            return Response.status(isGet ? Response.Status.NOT_MODIFIED : Response.Status.PRECONDITION_FAILED).tag(eTag);
+        }
+        return null;
+    }
+
+    /**
+     * Checks if an <code>If-Match</code> or <code>If-None-Match</code> header value matches the given tag
+     * @param headerValue The header value, which is <code>*</code> or a comma-separated list of (optionally weak) quoted tags
+     * @param eTag The tag of the current representation
+     * @param strong If true, then weak tags never match, as per the strong comparison function of RFC 7232
+     * @return True if any of the tags in the header matches
+     */
+    static boolean matches(String headerValue, EntityTag eTag, boolean strong) {
+        if (headerValue.trim().equals("*")) {
+            return true;
+        }
+        if (strong && eTag.isWeak()) {
+            return false;
+        }
+        int i = 0;
+        int len = headerValue.length();
+        while (i < len) {
+            char c = headerValue.charAt(i);
+            if (c == ' ' || c == '\t' || c == ',') {
+                i++;
+                continue;
+            }
+            boolean weak = false;
+            if ((c == 'W' || c == 'w') && i + 1 < len && headerValue.charAt(i + 1) == '/') {
+                weak = true;
+                i += 2;
+            }
+            int end;
+            String value;
+            if (i < len && headerValue.charAt(i) == '"') {
+                end = headerValue.indexOf('"', i + 1);
+                if (end == -1) {
+                    end = len;
+                }
+                value = headerValue.substring(i + 1, end);
+                end++;
+            } else {
+                end = headerValue.indexOf(',', i);
+                if (end == -1) {
+                    end = len;
+                }
+                value = headerValue.substring(i, end).trim();
+            }
+            if (value.equals(eTag.getValue()) && !(strong && weak)) {
+                return true;
+            }
+            i = end;
+        }
+        return false;
     }
 
     @Override
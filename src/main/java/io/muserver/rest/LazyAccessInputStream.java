@@ -1,6 +1,7 @@
 package io.muserver.rest;
 
 import io.muserver.MuRequest;
+import io.muserver.Mutils;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -24,6 +25,24 @@ class LazyAccessInputStream extends InputStream {
         return inputStream;
     }
 
+    /**
+     * @return True if the request input stream has not been accessed through this stream
+     */
+    boolean isUnread() {
+        return inputStream == null;
+    }
+
+    /**
+     * Reads the rest of the stream, using {@link MuRequest#readBodyAsBytes()} if the stream has not been used yet
+     */
+    byte[] toByteArray() throws IOException {
+        if (inputStream == null) {
+            inputStream = EmptyInputStream.INSTANCE;
+            return request.readBodyAsBytes();
+        }
+        return Mutils.toByteArray(inputStream, 2048);
+    }
+
     @Override
     public int read() throws IOException {
         return in().read();
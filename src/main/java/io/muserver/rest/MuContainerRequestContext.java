@@ -38,6 +38,10 @@ class MuContainerRequestContext implements ContainerRequestContext {
         this.jaxHeaders = new JaxRsHttpHeadersAdapter(muRequest.headers(), muRequest.cookies());
     }
 
+    RequestMatcher.MatchedMethod matchedMethod() {
+        return matchedMethod;
+    }
+
     boolean methodHasAnnotations(List<Class<? extends Annotation>> toCheck) {
         if (matchedMethod == null) {
             return false;
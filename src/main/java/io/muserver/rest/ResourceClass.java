@@ -93,7 +93,9 @@ class ResourceClass {
             DescriptionData descriptionData = DescriptionData.fromAnnotation(restMethod, null);
             String pathTemplate = methodPath == null ? null : methodPath.value();
             boolean isDeprecated = annotationSource.isAnnotationPresent(Deprecated.class);
-            resourceMethods.add(new ResourceMethod(this, methodPattern, restMethod, params, httpMethod, pathTemplate, methodProduces, methodConsumes, schemaObjectCustomizer, descriptionData, isDeprecated, methodNameBindingAnnotations));
+            boolean autoETag = annotationSource.isAnnotationPresent(AutoETag.class) || restMethod.isAnnotationPresent(AutoETag.class)
+                || annotationSource.getDeclaringClass().isAnnotationPresent(AutoETag.class) || this.resourceClass.isAnnotationPresent(AutoETag.class);
+            resourceMethods.add(new ResourceMethod(this, methodPattern, restMethod, params, httpMethod, pathTemplate, methodProduces, methodConsumes, schemaObjectCustomizer, descriptionData, isDeprecated, methodNameBindingAnnotations, autoETag));
         }
         this.resourceMethods = Collections.unmodifiableList(resourceMethods);
     }
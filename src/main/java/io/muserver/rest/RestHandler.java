@@ -12,13 +12,15 @@ import javax.ws.rs.ext.MessageBodyWriter;
 import javax.ws.rs.ext.ParamConverterProvider;
 import javax.ws.rs.sse.Sse;
 import javax.ws.rs.sse.SseEventSink;
-import java.io.InputStream;
+import java.io.*;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Parameter;
 import java.lang.reflect.Type;
 import java.net.URI;
+import java.nio.ByteBuffer;
 import java.util.*;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
 import java.util.function.Function;
 
 import static io.muserver.rest.CORSConfig.getAllowedMethods;
@@ -42,8 +44,13 @@ public class RestHandler implements MuHandler {
     private final CORSConfig corsConfig;
     private final List<ParamConverterProvider> paramConverterProviders;
     private final SchemaObjectCustomizer schemaObjectCustomizer;
+    private final boolean autoETags;
+    private final int autoETagBufferSize;
+    private final int responseBufferSize;
+    private final Executor entityReadExecutor;
+    private final long maxAsyncEntitySize;
 
-    RestHandler(EntityProviders entityProviders, List<ResourceClass> roots, MuHandler documentor, CustomExceptionMapper customExceptionMapper, FilterManagerThing filterManagerThing, CORSConfig corsConfig, List<ParamConverterProvider> paramConverterProviders, SchemaObjectCustomizer schemaObjectCustomizer) {
+    RestHandler(EntityProviders entityProviders, List<ResourceClass> roots, MuHandler documentor, CustomExceptionMapper customExceptionMapper, FilterManagerThing filterManagerThing, CORSConfig corsConfig, List<ParamConverterProvider> paramConverterProviders, SchemaObjectCustomizer schemaObjectCustomizer, boolean autoETags, int autoETagBufferSize, int responseBufferSize, Executor entityReadExecutor, long maxAsyncEntitySize) {
         this.requestMatcher = new RequestMatcher(roots);
         this.entityProviders = entityProviders;
         this.documentor = documentor;
@@ -52,6 +59,11 @@ public class RestHandler implements MuHandler {
         this.corsConfig = corsConfig;
         this.paramConverterProviders = paramConverterProviders;
         this.schemaObjectCustomizer = schemaObjectCustomizer;
+        this.autoETags = autoETags;
+        this.autoETagBufferSize = autoETagBufferSize;
+        this.responseBufferSize = responseBufferSize;
+        this.entityReadExecutor = entityReadExecutor;
+        this.maxAsyncEntitySize = maxAsyncEntitySize;
     }
 
     @Override
@@ -111,32 +123,10 @@ public class RestHandler implements MuHandler {
             List<MediaType> produces = producesRef = mm.resourceMethod.resourceClass.produces;
             List<MediaType> directlyProduces = directlyProducesRef = mm.resourceMethod.directlyProduces;
 
-            Function<ResourceMethod, Object> suspendedParamCallback = rm -> {
-                if (muRequest.isAsync()) {
-                    throw new MuException("A REST method can only have one @Suspended attribute. Error for " + rm);
-                }
-                return new AsyncResponseAdapter(muRequest.handleAsync(),
-                    response -> sendResponse(0, requestContext, muResponse, acceptHeaders, produces, directlyProduces, response));
-            };
-
-
-            Object result = invokeResourceMethod(requestContext, muResponse, mm, suspendedParamCallback, entityProviders);
-
-            if (!muRequest.isAsync()) {
-                if (result instanceof CompletionStage) {
-                    AsyncHandle asyncHandle1 = muRequest.handleAsync();
-                    CompletionStage cs = (CompletionStage) result;
-                    cs.thenAccept(o -> {
-                        try {
-                            sendResponse(0, requestContext, muResponse, acceptHeaders, produces, directlyProduces, o);
-                            asyncHandle1.complete();
-                        } catch (Exception e) {
-                            asyncHandle1.complete(e);
-                        }
-                    });
-                } else {
-                    sendResponse(0, requestContext, muResponse, acceptHeaders, produces, directlyProduces, result);
-                }
+            if (shouldReadEntityAsync(requestContext, mm.resourceMethod)) {
+                readEntityAsync(requestContext, muResponse, mm, acceptHeaders, produces, directlyProduces);
+            } else {
+                invokeAndRespond(requestContext, muResponse, mm, acceptHeaders, produces, directlyProduces, null);
             }
         } catch (NotMatchedException e) {
             return false;
@@ -149,6 +139,136 @@ public class RestHandler implements MuHandler {
         return true;
     }
 
+    /**
+     * Invokes the resource method and sends its result
+     * @param entityHandle The async handle of the request if its entity has already been read asynchronously;
+     *                     otherwise null
+     */
+    private void invokeAndRespond(MuContainerRequestContext requestContext, MuResponse muResponse, RequestMatcher.MatchedMethod mm, List<MediaType> acceptHeaders, List<MediaType> produces, List<MediaType> directlyProduces, AsyncHandle entityHandle) throws Exception {
+        MuRequest muRequest = requestContext.muRequest;
+        boolean[] suspended = {false};
+        Function<ResourceMethod, Object> suspendedParamCallback = rm -> {
+            if (suspended[0] || (entityHandle == null && muRequest.isAsync())) {
+                throw new MuException("A REST method can only have one @Suspended attribute. Error for " + rm);
+            }
+            suspended[0] = true;
+            return new AsyncResponseAdapter(entityHandle == null ? muRequest.handleAsync() : entityHandle,
+                response -> sendResponse(0, requestContext, muResponse, acceptHeaders, produces, directlyProduces, response));
+        };
+
+        Object result = invokeResourceMethod(requestContext, muResponse, mm, suspendedParamCallback, entityProviders);
+
+        boolean responseHandedOff = entityHandle == null ? muRequest.isAsync() : suspended[0];
+        if (!responseHandedOff) {
+            if (result instanceof CompletionStage) {
+                AsyncHandle asyncHandle1 = entityHandle == null ? muRequest.handleAsync() : entityHandle;
+                CompletionStage cs = (CompletionStage) result;
+                cs.thenAccept(o -> {
+                    try {
+                        sendResponse(0, requestContext, muResponse, acceptHeaders, produces, directlyProduces, o);
+                        asyncHandle1.complete();
+                    } catch (Exception e) {
+                        asyncHandle1.complete(e);
+                    }
+                });
+            } else {
+                sendResponse(0, requestContext, muResponse, acceptHeaders, produces, directlyProduces, result);
+                if (entityHandle != null) {
+                    entityHandle.complete();
+                }
+            }
+        }
+    }
+
+    private boolean shouldReadEntityAsync(MuContainerRequestContext requestContext, ResourceMethod rm) {
+        if (entityReadExecutor == null || !requestContext.hasEntity() || requestContext.muRequest.isAsync()) {
+            return false;
+        }
+        InputStream entityStream = requestContext.getEntityStream();
+        if (!(entityStream instanceof LazyAccessInputStream) || !((LazyAccessInputStream) entityStream).isUnread()) {
+            // a filter has already read or replaced the entity stream
+            return false;
+        }
+        for (ResourceMethodParam param : rm.params) {
+            if (param.source == ResourceMethodParam.ValueSource.MESSAGE_BODY) {
+                Class<?> type = param.parameterHandle.getType();
+                return !InputStream.class.isAssignableFrom(type) && !Reader.class.isAssignableFrom(type) && !File.class.equals(type);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reads the request entity into memory as it arrives, without using a thread, and then invokes the resource
+     * method on the entity read executor.
+     */
+    private void readEntityAsync(MuContainerRequestContext requestContext, MuResponse muResponse, RequestMatcher.MatchedMethod mm, List<MediaType> acceptHeaders, List<MediaType> produces, List<MediaType> directlyProduces) {
+        AsyncHandle handle = requestContext.muRequest.handleAsync();
+        handle.setReadListener(new RequestBodyListener() {
+            private final ByteArrayOutputStream entity = new ByteArrayOutputStream();
+            private boolean failed;
+
+            @Override
+            public void onDataReceived(ByteBuffer buffer, DoneCallback doneCallback) throws Exception {
+                if (!failed) {
+                    if (entity.size() + (long) buffer.remaining() > maxAsyncEntitySize) {
+                        failed = true;
+                        run(() -> {
+                            throw new ClientErrorException("The request entity is larger than " + maxAsyncEntitySize + " bytes", 413);
+                        });
+                    } else {
+                        byte[] bytes = new byte[buffer.remaining()];
+                        buffer.get(bytes);
+                        entity.write(bytes, 0, bytes.length);
+                    }
+                }
+                doneCallback.onComplete(null);
+            }
+
+            @Override
+            public void onComplete() {
+                if (!failed) {
+                    byte[] bytes = entity.toByteArray();
+                    run(() -> {
+                        requestContext.setEntityStream(new ByteArrayInputStream(bytes));
+                        invokeAndRespond(requestContext, muResponse, mm, acceptHeaders, produces, directlyProduces, handle);
+                    });
+                }
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                if (!failed) {
+                    failed = true;
+                    handle.complete(t);
+                }
+            }
+
+            private void run(EntityTask task) {
+                try {
+                    entityReadExecutor.execute(() -> {
+                        try {
+                            task.run();
+                        } catch (Exception ex) {
+                            try {
+                                dealWithUnhandledException(0, requestContext, muResponse, ex, acceptHeaders, produces, directlyProduces);
+                                handle.complete();
+                            } catch (Exception e) {
+                                handle.complete(e);
+                            }
+                        }
+                    });
+                } catch (Exception e) {
+                    handle.complete(e);
+                }
+            }
+        });
+    }
+
+    private interface EntityTask {
+        void run() throws Exception;
+    }
+
     static Object invokeResourceMethod(MuContainerRequestContext requestContext, MuResponse muResponse, RequestMatcher.MatchedMethod mm, Function<ResourceMethod, Object> suspendedParamCallback, EntityProviders entityProviders) throws Exception {
         ResourceMethod rm = mm.resourceMethod;
         Object[] params = new Object[rm.methodHandle.getParameterCount()];
@@ -233,7 +353,36 @@ public class RestHandler implements MuHandler {
                     }
                     muResponse.headers().set(HeaderNames.CONTENT_TYPE, contentType);
 
-                    messageBodyWriter.writeTo(entity, entityType, entityGenericType, entityAnnotations, responseMediaType, muHeadersToJaxObj(muResponse.headers()), responseContext.getEntityStream());
+                    if (shouldAutoETag(requestContext, muResponse, entity)) {
+                        HashingOutputStream hashingStream = new HashingOutputStream(autoETagBufferSize);
+                        try {
+                            messageBodyWriter.writeTo(entity, entityType, entityGenericType, entityAnnotations, responseMediaType, muHeadersToJaxObj(muResponse.headers()), hashingStream);
+                            EntityTag eTag = hashingStream.entityTag();
+                            muResponse.headers().set(HeaderNames.ETAG, eTag.toString());
+                            Response.ResponseBuilder preconditionFailure = requestContext.getRequest().evaluatePreconditions(eTag);
+                            if (preconditionFailure != null) {
+                                muResponse.status(preconditionFailure.build().getStatus());
+                                muResponse.headers().remove(HeaderNames.CONTENT_TYPE);
+                                muResponse.headers().remove(HeaderNames.CONTENT_LENGTH);
+                            } else {
+                                muResponse.headers().set(HeaderNames.CONTENT_LENGTH, hashingStream.size());
+                                hashingStream.writeCopyTo(responseContext.getEntityStream());
+                            }
+                        } finally {
+                            hashingStream.cleanup();
+                        }
+                    } else if (size == -1 && responseBufferSize > 0 && requestContext.getMuMethod() != Method.HEAD && !isStreamingEntity(entity)) {
+                        BufferedEntityOutputStream bufferedStream = new BufferedEntityOutputStream(muResponse, responseContext.getEntityStream(), responseBufferSize);
+                        boolean written = false;
+                        try {
+                            messageBodyWriter.writeTo(entity, entityType, entityGenericType, entityAnnotations, responseMediaType, muHeadersToJaxObj(muResponse.headers()), bufferedStream);
+                            written = true;
+                        } finally {
+                            bufferedStream.finish(written);
+                        }
+                    } else {
+                        messageBodyWriter.writeTo(entity, entityType, entityGenericType, entityAnnotations, responseMediaType, muHeadersToJaxObj(muResponse.headers()), responseContext.getEntityStream());
+                    }
 
                 }
             }
@@ -242,6 +391,22 @@ public class RestHandler implements MuHandler {
         }
     }
 
+    private boolean shouldAutoETag(MuContainerRequestContext requestContext, MuResponse muResponse, Object entity) {
+        RequestMatcher.MatchedMethod mm = requestContext.matchedMethod();
+        if (!autoETags && (mm == null || !mm.resourceMethod.autoETag)) {
+            return false;
+        }
+        Method method = requestContext.getMuMethod();
+        return (method == Method.GET || method == Method.HEAD)
+            && muResponse.status() == 200
+            && !muResponse.headers().contains(HeaderNames.ETAG)
+            && !isStreamingEntity(entity);
+    }
+
+    private static boolean isStreamingEntity(Object entity) {
+        return entity instanceof InputStream || entity instanceof StreamingOutput;
+    }
+
     private void dealWithWebApplicationException(int nestingLevel, MuContainerRequestContext requestContext, MuResponse muResponse, WebApplicationException e, List<MediaType> acceptHeaders, List<MediaType> produces, List<MediaType> directlyProduces) throws Exception {
         if (muResponse.hasStartedSendingData()) {
             log.warn("A web application exception " + e + " was thrown for " + requestContext.muRequest + ", however the response code and message cannot be sent to the client as some data was already sent.");
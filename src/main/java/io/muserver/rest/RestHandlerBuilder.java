@@ -15,6 +15,7 @@ import java.io.InputStream;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Type;
 import java.util.*;
+import java.util.concurrent.Executor;
 
 import static io.muserver.openapi.PathsObjectBuilder.pathsObject;
 import static java.util.Arrays.asList;
@@ -41,6 +42,11 @@ public class RestHandlerBuilder implements MuHandlerBuilder<RestHandler> {
     private final List<ContainerResponseFilter> responseFilters = new ArrayList<>();
     private CORSConfig corsConfig = CORSConfigBuilder.disabled().build();
     private final List<SchemaObjectCustomizer> schemaObjectCustomizers = new ArrayList<>();
+    private boolean autoETags = false;
+    private int autoETagBufferSize = 65536;
+    private int responseBufferSize = 0;
+    private Executor entityReadExecutor = null;
+    private long maxAsyncEntitySize = 0;
 
     public RestHandlerBuilder(Object... resources) {
         addResource(resources);
@@ -231,6 +237,77 @@ public class RestHandlerBuilder implements MuHandlerBuilder<RestHandler> {
         return this;
     }
 
+    /**
+     * <p>If true, then all successful <code>GET</code> responses get a strong <code>ETag</code> header generated from a
+     * hash of the response body, and a <code>304 Not Modified</code> is returned when the client already has the
+     * current version.</p>
+     * <p>To only apply this to certain resources or methods, leave this as false and add the {@link AutoETag}
+     * annotation to those classes or methods instead.</p>
+     * @param autoETags True to generate ETags for all resource methods. Default is false.
+     * @return This builder
+     */
+    public RestHandlerBuilder withAutoETags(boolean autoETags) {
+        this.autoETags = autoETags;
+        return this;
+    }
+
+    /**
+     * The maximum size of a response body that is held in memory while its ETag is calculated. Bodies that are
+     * larger than this are written to a temporary file, which is sent to the client and then deleted.
+     * @param autoETagBufferSize The size in bytes. Default is 64KB.
+     * @return This builder
+     * @see AutoETag
+     */
+    public RestHandlerBuilder withAutoETagBufferSize(int autoETagBufferSize) {
+        if (autoETagBufferSize < 0) {
+            throw new IllegalArgumentException("The auto ETag buffer size cannot be negative");
+        }
+        this.autoETagBufferSize = autoETagBufferSize;
+        return this;
+    }
+
+    /**
+     * <p>Specifies the size of a buffer that response entities are serialized into before being sent.</p>
+     * <p>When an entity fits within this size, it is sent in a single write with a <code>Content-Length</code>
+     * header rather than being streamed to the client with chunked transfer encoding. Entities that are larger than
+     * this are streamed as normal once the buffer is full. Entities that are {@link java.io.InputStream}s or
+     * {@link javax.ws.rs.core.StreamingOutput}s are always streamed.</p>
+     * <p>Buffers are taken from a pool so the cost of this is only the memory used by in-flight responses.</p>
+     * @param responseBufferSize The maximum size in bytes to buffer, or <code>0</code> to stream all entities
+     *                           whose size is not known in advance. Default is 0.
+     * @return This builder
+     */
+    public RestHandlerBuilder withResponseBufferSize(int responseBufferSize) {
+        if (responseBufferSize < 0) {
+            throw new IllegalArgumentException("The response buffer size cannot be negative");
+        }
+        this.responseBufferSize = responseBufferSize;
+        return this;
+    }
+
+    /**
+     * <p>Reads request entities into memory as they arrive, without blocking a thread, and only invokes the resource
+     * method once the whole entity has been received. This means slow uploads do not tie up handler threads.</p>
+     * <p>The resource method is invoked on the given executor, which would typically be the same executor given to
+     * {@link io.muserver.MuServerBuilder#withHandlerExecutor(java.util.concurrent.ExecutorService)}. Entities larger
+     * than the maximum size are rejected with a <code>413</code> status.</p>
+     * <p>This does not apply to methods whose entity parameter is an {@link InputStream}, {@link java.io.Reader}
+     * or {@link java.io.File}, to methods using form parameters, or when a request filter has read or replaced the
+     * entity stream. Those are read from the request input stream as normal.</p>
+     * @param maxEntitySize The maximum size in bytes of an entity to hold in memory
+     * @param executor The executor to invoke resource methods on after their entities have been read
+     * @return This builder
+     */
+    public RestHandlerBuilder withNonBlockingEntityReading(long maxEntitySize, Executor executor) {
+        Mutils.notNull("executor", executor);
+        if (maxEntitySize < 1) {
+            throw new IllegalArgumentException("The maximum entity size must be greater than 0");
+        }
+        this.maxAsyncEntitySize = maxEntitySize;
+        this.entityReadExecutor = executor;
+        return this;
+    }
+
     /**
      * @return The current Rest Handler Builder
      * @deprecated This does nothing. To expose API endpoints, use {@link #withOpenApiJsonUrl(String)} and/or {@link #withOpenApiHtmlUrl(String)}
@@ -279,7 +356,7 @@ public class RestHandlerBuilder implements MuHandlerBuilder<RestHandler> {
 
         FilterManagerThing filterManagerThing = new FilterManagerThing(preMatchRequestFilters, requestFilters, responseFilters);
 
-        return new RestHandler(entityProviders, roots, documentor, customExceptionMapper, filterManagerThing, corsConfig, paramConverterProviders, schemaObjectCustomizer);
+        return new RestHandler(entityProviders, roots, documentor, customExceptionMapper, filterManagerThing, corsConfig, paramConverterProviders, schemaObjectCustomizer, autoETags, autoETagBufferSize, responseBufferSize, entityReadExecutor, maxAsyncEntitySize);
     }
 
     /**
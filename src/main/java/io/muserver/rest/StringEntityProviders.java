@@ -64,7 +64,7 @@ class StringEntityProviders {
         }
 
         public String readFrom(Class<String> type, Type genericType, Annotation[] annotations, MediaType mediaType, MultivaluedMap<String, String> httpHeaders, InputStream entityStream) throws IOException, WebApplicationException {
-            return new String(Mutils.toByteArray(entityStream, 2048), EntityProviders.charsetFor(mediaType));
+            return new String(EntityProviders.readBytes(entityStream), EntityProviders.charsetFor(mediaType));
         }
     }
 
@@ -126,7 +126,7 @@ class StringEntityProviders {
 
         @Override
         public Instant readFrom(Class<Instant> type, Type genericType, Annotation[] annotations, MediaType mediaType, MultivaluedMap<String, String> httpHeaders, InputStream entityStream) throws IOException, WebApplicationException {
-            String s = new String(Mutils.toByteArray(entityStream, 2048), EntityProviders.charsetFor(mediaType));
+            String s = new String(EntityProviders.readBytes(entityStream), EntityProviders.charsetFor(mediaType));
             if (Mutils.nullOrEmpty(s)) {
                 return null;
             }
@@ -180,7 +180,7 @@ class StringEntityProviders {
 
         @Override
         public MultivaluedMap<String, String> readFrom(Class<MultivaluedMap<String, String>> type, Type genericType, Annotation[] annotations, MediaType mediaType, MultivaluedMap<String, String> httpHeaders, InputStream entityStream) throws IOException, WebApplicationException {
-            String body = new String(Mutils.toByteArray(entityStream, 2048), EntityProviders.charsetFor(mediaType));
+            String body = new String(EntityProviders.readBytes(entityStream), EntityProviders.charsetFor(mediaType));
             QueryStringDecoder formDecoder = new QueryStringDecoder(body, false);
             Map<String, List<String>> parameters = formDecoder.parameters();
             MultivaluedHashMap<String, String> form = new MultivaluedHashMap<>();
@@ -0,0 +1,27 @@
+package io.muserver;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Creates handler executors that use virtual threads. This is the Java 21 version of this class, which is
+ * packaged in <code>META-INF/versions/21</code> of the multi-release jar.
+ */
+class VirtualThreads {
+
+    /**
+     * @return True if this JVM supports virtual threads
+     */
+    static boolean isSupported() {
+        return true;
+    }
+
+    /**
+     * Creates an executor that starts a new virtual thread for each task
+     * @param namePrefix The prefix of the thread names
+     * @return A new executor
+     */
+    static ExecutorService newThreadPerTaskExecutor(String namePrefix) {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(namePrefix, 0).factory());
+    }
+}
@@ -0,0 +1,69 @@
+import io.muserver.Method;
+import io.muserver.MuServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+import static io.muserver.MuServerBuilder.httpServer;
+
+/**
+ * Measures the number of bytes allocated by the server for each request when the handler only uses the relative
+ * path of the request. Allocations made by the calling thread (which is the client) are excluded.
+ */
+public class RequestAllocationBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int requests = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        MuServer server = httpServer()
+            .addHandler(Method.GET, "/things/{id}", (request, response, pathParams) -> {
+                response.contentType("text/plain");
+                response.write(request.relativePath());
+            })
+            .start();
+        try {
+            URL url = server.uri().resolve("/things/1234?include=details").toURL();
+            run(url, requests); // warm up
+
+            long before = serverThreadAllocations();
+            long start = System.nanoTime();
+            run(url, requests);
+            long durationNanos = System.nanoTime() - start;
+            long allocated = serverThreadAllocations() - before;
+
+            System.out.println(requests + " requests took " + (durationNanos / 1000000) + "ms");
+            System.out.println("Server threads allocated " + (allocated / requests) + " bytes per request");
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static void run(URL url, int requests) throws IOException {
+        byte[] buffer = new byte[8192];
+        for (int i = 0; i < requests; i++) {
+            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+            try (InputStream in = conn.getInputStream()) {
+                while (in.read(buffer) > -1) {
+                    // discard the body so the connection is reused
+                }
+            }
+        }
+    }
+
+    private static long serverThreadAllocations() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long self = Thread.currentThread().getId();
+        long total = 0;
+        for (long id : threads.getAllThreadIds()) {
+            if (id != self) {
+                long allocated = threads.getThreadAllocatedBytes(id);
+                if (allocated > 0) {
+                    total += allocated;
+                }
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,108 @@
+import io.muserver.AsyncHandle;
+import io.muserver.HeaderNames;
+import io.muserver.Method;
+import io.muserver.MuServer;
+import io.muserver.StreamPriority;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static io.muserver.Http2ConfigBuilder.http2Config;
+import static io.muserver.MuServerBuilder.httpsServer;
+import static scaffolding.ClientUtils.client;
+
+/**
+ * Measures the time to first byte and time to last byte of a 1MB response, such as a critical script, requested over
+ * an HTTP/2 connection that is busy sending several large responses, such as images. This is run first with the
+ * default priority and then with the most urgent priority. The large responses are written asynchronously so that
+ * their data waits in the connection's flow controller, which is where priorities apply. Requires a JVM that supports
+ * HTTP/2 with ALPN, i.e. Java 9 or later.
+ */
+public class StreamPriorityBenchmark {
+
+    private static final int LARGE_RESPONSES = 4;
+    private static final int RUNS = 20;
+
+    public static void main(String[] args) throws Exception {
+        byte[] large = new byte[4 * 1024 * 1024];
+        Arrays.fill(large, (byte) 'a');
+        String critical = new String(new char[1024 * 1024]).replace('\0', 'b');
+        MuServer server = httpsServer()
+            .withHttp2Config(http2Config().enabled(true))
+            .addHandler(Method.GET, "/large", (request, response, pathParams) -> {
+                AsyncHandle handle = request.handleAsync();
+                handle.write(ByteBuffer.wrap(large), handle::complete);
+            })
+            .addHandler(Method.GET, "/critical", (request, response, pathParams) -> {
+                if (request.query().contains("urgent")) {
+                    response.headers().set(HeaderNames.PRIORITY, StreamPriority.priority(0, false));
+                }
+                response.write(critical);
+            })
+            .start();
+        ExecutorService downloaders = Executors.newFixedThreadPool(LARGE_RESPONSES);
+        OkHttpClient http2Client = client.newBuilder().build();
+        try {
+            // warm up
+            run(http2Client, server, downloaders, false);
+            run(http2Client, server, downloaders, true);
+            for (boolean urgent : new boolean[]{false, true}) {
+                List<Long> firstByte = new ArrayList<>();
+                List<Long> lastByte = new ArrayList<>();
+                for (int i = 0; i < RUNS; i++) {
+                    long[] times = run(http2Client, server, downloaders, urgent);
+                    firstByte.add(times[0]);
+                    lastByte.add(times[1]);
+                }
+                System.out.println((urgent ? "Urgent priority:  " : "Default priority: ")
+                    + "time to first byte " + summary(firstByte) + "; time to last byte " + summary(lastByte));
+            }
+        } finally {
+            downloaders.shutdownNow();
+            server.stop();
+        }
+    }
+
+    private static String summary(List<Long> nanos) {
+        nanos.sort(null);
+        return "median " + nanos.get(RUNS / 2) / 1000000 + "ms, 90th percentile " + nanos.get(RUNS * 9 / 10) / 1000000 + "ms";
+    }
+
+    private static long[] run(OkHttpClient client, MuServer server, ExecutorService downloaders, boolean urgent) throws Exception {
+        List<Future<?>> downloads = new ArrayList<>();
+        for (int i = 0; i < LARGE_RESPONSES; i++) {
+            downloads.add(downloaders.submit(() -> {
+                try (Response resp = client.newCall(new Request.Builder().url(server.uri().resolve("/large").toString()).build()).execute()) {
+                    resp.body().bytes();
+                }
+                return null;
+            }));
+        }
+        Thread.sleep(50);
+        Request request = new Request.Builder()
+            .url(server.uri().resolve(urgent ? "/critical?urgent" : "/critical").toString())
+            .header("priority", urgent ? "u=0" : "u=3")
+            .build();
+        long start = System.nanoTime();
+        long[] times = new long[2];
+        try (Response resp = client.newCall(request).execute()) {
+            resp.body().source().require(1);
+            times[0] = System.nanoTime() - start;
+            resp.body().bytes();
+            times[1] = System.nanoTime() - start;
+        }
+        for (Future<?> download : downloads) {
+            download.get(1, TimeUnit.MINUTES);
+        }
+        return times;
+    }
+}
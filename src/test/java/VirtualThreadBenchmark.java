@@ -0,0 +1,63 @@
+import io.muserver.Method;
+import io.muserver.MuServer;
+import org.eclipse.jetty.client.HttpClient;
+
+import java.net.URI;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.muserver.MuServerBuilder.httpServer;
+
+/**
+ * Sends 10,000 concurrent requests to a handler that blocks for one second, first with the default handler thread
+ * pool and then with virtual threads. With the pool, requests are limited by the number of threads; with virtual
+ * threads on Java 21 or later, all requests block at the same time. Each request uses its own connection, so the
+ * open file limit of the process may need to be raised (e.g. <code>ulimit -n 65536</code>).
+ */
+public class VirtualThreadBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int requests = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        HttpClient client = new HttpClient();
+        client.setMaxConnectionsPerDestination(requests);
+        client.setMaxRequestsQueuedPerDestination(requests);
+        client.start();
+        try {
+            run(client, requests, false);
+            run(client, requests, true);
+        } finally {
+            client.stop();
+        }
+    }
+
+    private static void run(HttpClient client, int requests, boolean virtualThreads) throws Exception {
+        MuServer server = httpServer()
+            .withVirtualThreads(virtualThreads)
+            .addHandler(Method.GET, "/", (request, response, pathParams) -> {
+                Thread.sleep(1000);
+                response.write("Done");
+            })
+            .start();
+        try {
+            URI uri = server.uri();
+            CountDownLatch latch = new CountDownLatch(requests);
+            AtomicInteger failures = new AtomicInteger();
+            long start = System.nanoTime();
+            for (int i = 0; i < requests; i++) {
+                client.newRequest(uri).timeout(5, TimeUnit.MINUTES).send(result -> {
+                    if (result.isFailed() || result.getResponse().getStatus() != 200) {
+                        failures.incrementAndGet();
+                    }
+                    latch.countDown();
+                });
+            }
+            latch.await(5, TimeUnit.MINUTES);
+            long durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            System.out.println((virtualThreads ? "Virtual threads: " : "Thread pool: ") + requests + " requests took "
+                + durationMillis + "ms with " + failures.get() + " failures");
+        } finally {
+            server.stop();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package io.muserver;
+
+import okhttp3.Response;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static io.muserver.BulkheadBuilder.bulkhead;
+import static io.muserver.ContextHandlerBuilder.context;
+import static io.muserver.MuServerBuilder.httpServer;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static scaffolding.ClientUtils.call;
+import static scaffolding.ClientUtils.request;
+import static scaffolding.MuAssert.assertEventually;
+import static scaffolding.MuAssert.stopAndCheck;
+
+public class BulkheadTest {
+
+    private MuServer server;
+    private final ExecutorService clientPool = Executors.newCachedThreadPool();
+
+    @Test
+    public void contextsWithFullBulkheadsRejectRequestsWithoutAffectingOtherContexts() throws Exception {
+        Bulkhead bulkhead = bulkhead().withName("slow-dependency").withMaxConcurrency(1).build();
+        CountDownLatch slowStarted = new CountDownLatch(1);
+        CountDownLatch releaseSlow = new CountDownLatch(1);
+        server = httpServer()
+            .addHandler(context("downstream")
+                .withBulkhead(bulkhead)
+                .addHandler(Method.GET, "/call", (request, response, pathParams) -> {
+                    slowStarted.countDown();
+                    releaseSlow.await(10, TimeUnit.SECONDS);
+                    response.write("downstream");
+                }))
+            .addHandler(Method.GET, "/other", (request, response, pathParams) -> response.write("other"))
+            .start();
+
+        Future<String> slow = clientPool.submit(() -> {
+            try (Response resp = call(request(server.uri().resolve("/downstream/call")))) {
+                return resp.body().string();
+            }
+        });
+        assertThat(slowStarted.await(10, TimeUnit.SECONDS), is(true));
+        assertThat(bulkhead.active(), is(1));
+
+        try (Response resp = call(request(server.uri().resolve("/downstream/call")))) {
+            assertThat(resp.code(), is(503));
+        }
+        try (Response resp = call(request(server.uri().resolve("/other")))) {
+            assertThat(resp.body().string(), equalTo("other"));
+        }
+        releaseSlow.countDown();
+        assertThat(slow.get(10, TimeUnit.SECONDS), equalTo("downstream"));
+
+        assertThat(bulkhead.rejected(), is(1L));
+        // the response can arrive before the handler has returned
+        assertEventually(bulkhead::completed, is(1L));
+        assertThat(bulkhead.active(), is(0));
+        assertThat(server.stats().rejectedDueToOverload(), is(1L));
+    }
+
+    @Test
+    public void routesCanWaitForASlotInABulkhead() throws Exception {
+        Bulkhead bulkhead = bulkhead().withMaxConcurrency(1).withMaxQueued(1).withMaxQueueTime(10, TimeUnit.SECONDS).build();
+        CountDownLatch firstStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+        server = httpServer()
+            .addHandler(Method.GET, "/first", bulkhead.wrap((request, response, pathParams) -> {
+                firstStarted.countDown();
+                releaseFirst.await(10, TimeUnit.SECONDS);
+                response.write("first");
+            }))
+            .addHandler(Method.GET, "/second", bulkhead.wrap((request, response, pathParams) -> response.write("second")))
+            .start();
+
+        Future<String> first = clientPool.submit(() -> {
+            try (Response resp = call(request(server.uri().resolve("/first")))) {
+                return resp.body().string();
+            }
+        });
+        assertThat(firstStarted.await(10, TimeUnit.SECONDS), is(true));
+        Future<String> second = clientPool.submit(() -> {
+            try (Response resp = call(request(server.uri().resolve("/second")))) {
+                return resp.body().string();
+            }
+        });
+        assertEventually(bulkhead::queued, is(1));
+        releaseFirst.countDown();
+        assertThat(first.get(10, TimeUnit.SECONDS), equalTo("first"));
+        assertThat(second.get(10, TimeUnit.SECONDS), equalTo("second"));
+        assertThat(bulkhead.rejected(), is(0L));
+        assertEventually(bulkhead::completed, is(2L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void concurrencyMustBePositive() {
+        bulkhead().withMaxConcurrency(0);
+    }
+
+    @After
+    public void stop() {
+        clientPool.shutdownNow();
+        stopAndCheck(server);
+    }
+}
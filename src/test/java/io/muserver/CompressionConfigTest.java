@@ -0,0 +1,216 @@
+package io.muserver;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.concurrent.DefaultEventExecutor;
+import org.junit.Test;
+import scaffolding.StringUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import static io.muserver.CompressionConfigBuilder.compression;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+public class CompressionConfigTest {
+
+    private static final String TEXT = StringUtils.randomAsciiStringOfLength(20000);
+
+    @Test
+    public void levelsAndStrategiesCanBeSetPerMimeType() {
+        CompressionConfig config = compression().withLevel(7)
+            .withMimeType("Application/JSON", 2, Deflater.FILTERED).build();
+        assertThat(config.levelFor("text/html", null), is(7));
+        assertThat(config.strategyFor("text/html"), is(Deflater.DEFAULT_STRATEGY));
+        assertThat(config.levelFor("application/json; charset=utf-8", null), is(2));
+        assertThat(config.strategyFor("application/json"), is(Deflater.FILTERED));
+        assertThat(config.levelFor(null, null), is(7));
+    }
+
+    @Test
+    public void levelsAreReducedAndCompressionSkippedWhenTheEventLoopIsBusy() throws Exception {
+        CompressionConfig config = compression().withLevel(9)
+            .withReducedLevelWhenBusy(2, 3)
+            .withNoCompressionWhenBusy(4).build();
+        DefaultEventExecutor executor = new DefaultEventExecutor();
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        try {
+            executor.execute(() -> {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ignored) {
+                }
+            });
+            started.await();
+            assertThat(config.levelFor("text/plain", executor), is(9));
+            for (int i = 0; i < 3; i++) {
+                executor.execute(() -> {});
+            }
+            assertThat(config.levelFor("text/plain", executor), is(3));
+            assertThat(config.skipCompression(executor), is(false));
+            for (int i = 0; i < 2; i++) {
+                executor.execute(() -> {});
+            }
+            assertThat(config.skipCompression(executor), is(true));
+        } finally {
+            release.countDown();
+            executor.shutdownGracefully();
+        }
+    }
+
+    @Test
+    public void deflatersAreReusedUpToThePoolSize() {
+        DeflaterPool pool = new DeflaterPool(1);
+        Deflater first = pool.borrow(true, 6, Deflater.DEFAULT_STRATEGY);
+        Deflater second = pool.borrow(true, 6, Deflater.DEFAULT_STRATEGY);
+        pool.release(first, true);
+        pool.release(second, true);
+        assertThat(pool.idle(), is(1));
+        assertThat(pool.borrow(true, 1, Deflater.DEFAULT_STRATEGY) == first, is(true));
+        assertThat(pool.idle(), is(0));
+    }
+
+    @Test
+    public void gzipAndDeflateOutputCanBeDecompressed() throws IOException {
+        DeflaterPool pool = new DeflaterPool(2);
+        for (int i = 0; i < 3; i++) {
+            assertThat(gunzip(compress(pool, true)), equalTo(TEXT + TEXT));
+            assertThat(inflate(compress(pool, false)), equalTo(TEXT + TEXT));
+        }
+        assertThat(pool.idle(), is(2));
+    }
+
+    @Test
+    public void emptyBodiesAreValid() throws IOException {
+        DeflaterPool pool = new DeflaterPool(2);
+        EmbeddedChannel channel = new EmbeddedChannel(new PooledDeflaterEncoder(pool, true, 6, Deflater.DEFAULT_STRATEGY));
+        channel.finish();
+        assertThat(gunzip(readAll(channel)), equalTo(""));
+    }
+
+    @Test
+    public void encodingsAreChosenByQValueThenServerPreference() {
+        CompressionConfig config = compression().withNativeEncoders(false).withEncoder(new TestGzipEncoder()).build();
+        assertThat(config.chooseEncoding(ParameterizedHeaderWithValue.fromString("gzip, deflate")), equalTo("gzip"));
+        assertThat(config.chooseEncoding(ParameterizedHeaderWithValue.fromString("gzip, deflate, x-test")), equalTo("x-test"));
+        assertThat(config.chooseEncoding(ParameterizedHeaderWithValue.fromString("gzip;q=0.5, deflate;q=0.8, x-test;q=0.1")), equalTo("deflate"));
+        assertThat(config.chooseEncoding(ParameterizedHeaderWithValue.fromString("*;q=0.3, gzip;q=0.2")), equalTo("x-test"));
+        assertThat(config.chooseEncoding(ParameterizedHeaderWithValue.fromString("*, x-test;q=0")), equalTo("gzip"));
+        assertThat(config.chooseEncoding(ParameterizedHeaderWithValue.fromString("br, identity")), is(nullValue()));
+        assertThat(config.chooseEncoding(ParameterizedHeaderWithValue.fromString("")), is(nullValue()));
+        assertThat(config.encoderFor("X-TEST"), is(notNullValue()));
+        assertThat(config.encoderFor("gzip"), is(nullValue()));
+    }
+
+    @Test
+    public void customEncodersCanBeStreamed() throws IOException {
+        EmbeddedChannel channel = new EmbeddedChannel(new StreamingContentEncoder(new TestGzipEncoder(), "text/plain"));
+        channel.writeOutbound(Unpooled.copiedBuffer(TEXT, UTF_8));
+        ByteBuf first = channel.readOutbound();
+        assertThat(first.readableBytes() > 0, is(true));
+        channel.writeOutbound(Unpooled.copiedBuffer(TEXT, UTF_8));
+        channel.finish();
+        byte[] rest = readAll(channel);
+        byte[] all = new byte[first.readableBytes() + rest.length];
+        first.readBytes(all, 0, first.readableBytes());
+        first.release();
+        System.arraycopy(rest, 0, all, all.length - rest.length, rest.length);
+        assertThat(gunzip(all), equalTo(TEXT + TEXT));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void encodersCanOnlyBeAddedOncePerCoding() {
+        compression().withEncoder(new TestGzipEncoder()).withEncoder(new TestGzipEncoder());
+    }
+
+    @Test
+    public void nativeEncodersAreAvailableWhenTheirLibrariesAreOnTheClasspath() {
+        assertThat(ContentEncoders.brotliAvailable(), is(true));
+        assertThat(ContentEncoders.brotli(4).contentCoding(), equalTo("br"));
+        assertThat(ContentEncoders.zstdAvailable(), is(true));
+        assertThat(ContentEncoders.zstd(3).contentCoding(), equalTo("zstd"));
+        assertThat(compression().build().encoderFor("br"), is(notNullValue()));
+        assertThat(compression().withNativeEncoders(false).build().encoderFor("br"), is(nullValue()));
+    }
+
+    /**
+     * A gzip encoder under another name, so that it is not confused with the built-in one
+     */
+    static class TestGzipEncoder implements ContentEncoder {
+        @Override
+        public String contentCoding() {
+            return "x-test";
+        }
+
+        @Override
+        public OutputStream encode(OutputStream out, String contentType) throws IOException {
+            return new GZIPOutputStream(out, true);
+        }
+    }
+
+    private static byte[] compress(DeflaterPool pool, boolean gzip) {
+        EmbeddedChannel channel = new EmbeddedChannel(new PooledDeflaterEncoder(pool, gzip, 6, Deflater.FILTERED));
+        channel.writeOutbound(Unpooled.copiedBuffer(TEXT, UTF_8));
+        channel.writeOutbound(Unpooled.directBuffer().writeBytes(TEXT.getBytes(UTF_8)));
+        channel.finish();
+        return readAll(channel);
+    }
+
+    private static byte[] readAll(EmbeddedChannel channel) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteBuf buf;
+        while ((buf = channel.readOutbound()) != null) {
+            byte[] bytes = new byte[buf.readableBytes()];
+            buf.readBytes(bytes);
+            out.write(bytes, 0, bytes.length);
+            buf.release();
+        }
+        return out.toByteArray();
+    }
+
+    private static String gunzip(byte[] bytes) throws IOException {
+        return read(new GZIPInputStream(new ByteArrayInputStream(bytes)));
+    }
+
+    private static String inflate(byte[] bytes) throws IOException {
+        return read(new InflaterInputStream(new ByteArrayInputStream(bytes)));
+    }
+
+    private static String read(InputStream in) throws IOException {
+        try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            Mutils.copy(in, out, 8192);
+            return new String(out.toByteArray(), UTF_8);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void levelMustBeValid() {
+        compression().withLevel(10);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void strategyMustBeValid() {
+        compression().withStrategy(5);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void poolSizeCannotBeNegative() {
+        compression().withDeflaterPoolSize(-1);
+    }
+}
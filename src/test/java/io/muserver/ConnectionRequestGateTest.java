@@ -0,0 +1,67 @@
+package io.muserver;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+public class ConnectionRequestGateTest {
+
+    private final List<String> started = new ArrayList<>();
+    private final ConnectionRequestGate gate = new ConnectionRequestGate(2, 2);
+
+    private AsyncContext submit(String name) {
+        AsyncContext ctx = new AsyncContext(null, null, null);
+        gate.forRequest(ctx).execute(() -> started.add(name));
+        return ctx;
+    }
+
+    @Test
+    public void requestsOverTheLimitWaitForEarlierOnesToFinish() {
+        AsyncContext first = submit("first");
+        AsyncContext second = submit("second");
+        submit("third");
+        submit("fourth");
+        assertThat(started, contains("first", "second"));
+        assertThat(gate.running(), is(2));
+        assertThat(gate.queued(), is(2));
+
+        gate.onFinished(second);
+        assertThat(started, contains("first", "second", "third"));
+        gate.onFinished(first);
+        assertThat(started, contains("first", "second", "third", "fourth"));
+        assertThat(gate.running(), is(2));
+        assertThat(gate.queued(), is(0));
+    }
+
+    @Test
+    public void requestsAreRejectedWhenTheQueueIsFull() {
+        for (String name : asList("1", "2", "3", "4")) {
+            submit(name);
+        }
+        try {
+            submit("5");
+            throw new AssertionError("Should have been rejected");
+        } catch (RejectedExecutionException e) {
+            assertThat(gate.queued(), is(2));
+        }
+    }
+
+    @Test
+    public void queuedRequestsThatAreCancelledAreNeverStarted() {
+        AsyncContext first = submit("first");
+        submit("second");
+        AsyncContext cancelled = submit("cancelled");
+        submit("last");
+        gate.onFinished(cancelled);
+        assertThat(gate.queued(), is(1));
+        gate.onFinished(first);
+        assertThat(started, contains("first", "second", "last"));
+    }
+}
@@ -0,0 +1,131 @@
+package io.muserver;
+
+import okhttp3.Response;
+import org.junit.After;
+import org.junit.Test;
+import scaffolding.RawClient;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.muserver.ContextHandlerBuilder.context;
+import static io.muserver.MuServerBuilder.httpServer;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static scaffolding.ClientUtils.call;
+import static scaffolding.ClientUtils.request;
+import static scaffolding.MuAssert.assertEventually;
+import static scaffolding.MuAssert.stopAndCheck;
+
+public class ControlledDelayTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+    private MuServer server;
+    private final ExecutorService clientPool = Executors.newFixedThreadPool(20);
+
+    @Test
+    public void requestsAreOnlyDroppedAfterAWholeIntervalAboveTheTarget() {
+        ControlledDelay codel = new ControlledDelay(10, 100, TimeUnit.MILLISECONDS);
+        long start = System.nanoTime();
+        // a burst with one short wait is not a standing queue
+        assertThat(codel.shouldDrop(50 * MS, start), is(false));
+        assertThat(codel.shouldDrop(5 * MS, start + 10 * MS), is(false));
+        assertThat(codel.shouldDrop(80 * MS, start + 50 * MS), is(false));
+        assertThat(codel.shouldDrop(50 * MS, start + 100 * MS), is(false));
+
+        // a whole interval above the target starts shedding requests that waited more than twice the target
+        assertThat(codel.shouldDrop(60 * MS, start + 150 * MS), is(false));
+        assertThat(codel.shouldDrop(21 * MS, start + 200 * MS), is(true));
+        assertThat(codel.shouldDrop(15 * MS, start + 210 * MS), is(false));
+        assertThat(codel.shouldDrop(30 * MS, start + 250 * MS), is(true));
+
+        // and it stops once an interval has a delay under the target
+        assertThat(codel.shouldDrop(2 * MS, start + 260 * MS), is(false));
+        assertThat(codel.shouldDrop(30 * MS, start + 300 * MS), is(false));
+    }
+
+    @Test
+    public void contextsCanShedRequestsThatHaveBeenQueuedTooLong() throws Exception {
+        server = httpServer()
+            .withHandlerExecutor(Executors.newSingleThreadExecutor())
+            .addHandler(context("api")
+                .withControlledDelay(1, 20, TimeUnit.MILLISECONDS)
+                .addHandler(Method.GET, "/slow", (request, response, pathParams) -> {
+                    Thread.sleep(30);
+                    response.write("done");
+                }))
+            .start();
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            results.add(clientPool.submit(() -> {
+                try (Response resp = call(request(server.uri().resolve("/api/slow")))) {
+                    return resp.code() + " " + resp.header("Retry-After");
+                }
+            }));
+        }
+        List<String> responses = new ArrayList<>();
+        for (Future<String> result : results) {
+            responses.add(result.get(30, TimeUnit.SECONDS));
+        }
+        assertThat(responses, hasItem("200 null"));
+        assertThat(responses, hasItem("503 1"));
+        assertThat(server.stats().rejectedDueToOverload(), greaterThan(0L));
+    }
+
+    @Test
+    public void requestsWhoseClientsDisconnectWhileQueuedAreNotHandled() throws Exception {
+        CountDownLatch blockerStarted = new CountDownLatch(1);
+        CountDownLatch releaseBlocker = new CountDownLatch(1);
+        AtomicInteger abandonedHandled = new AtomicInteger();
+        server = httpServer()
+            .withHandlerExecutor(Executors.newSingleThreadExecutor())
+            .addHandler(Method.GET, "/blocker", (request, response, pathParams) -> {
+                blockerStarted.countDown();
+                releaseBlocker.await(10, TimeUnit.SECONDS);
+                response.write("blocker");
+            })
+            .addHandler(Method.GET, "/abandoned", (request, response, pathParams) -> {
+                abandonedHandled.incrementAndGet();
+                response.write("abandoned");
+            })
+            .start();
+        Future<String> blocker = clientPool.submit(() -> {
+            try (Response resp = call(request(server.uri().resolve("/blocker")))) {
+                return resp.body().string();
+            }
+        });
+        assertThat(blockerStarted.await(10, TimeUnit.SECONDS), is(true));
+
+        try (RawClient client = RawClient.create(server.uri())) {
+            client.sendStartLine("GET", "/abandoned")
+                .sendHeader("Host", server.uri().getAuthority())
+                .endHeaders()
+                .flushRequest();
+            assertEventually(() -> server.stats().activeRequests().size(), is(2));
+        }
+        assertEventually(() -> server.stats().activeRequests().size(), is(1));
+        releaseBlocker.countDown();
+        assertThat(blocker.get(10, TimeUnit.SECONDS), equalTo("blocker"));
+        try (Response resp = call(request(server.uri().resolve("/abandoned")))) {
+            assertThat(resp.body().string(), equalTo("abandoned"));
+        }
+        assertThat(abandonedHandled.get(), is(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void targetMustBePositive() {
+        context("api").withControlledDelay(0, 100, TimeUnit.MILLISECONDS);
+    }
+
+    @After
+    public void stop() {
+        clientPool.shutdownNow();
+        stopAndCheck(server);
+    }
+}
@@ -0,0 +1,211 @@
+package io.muserver;
+
+import okhttp3.Response;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static io.muserver.FairSchedulerBuilder.fairScheduler;
+import static io.muserver.MuServerBuilder.httpServer;
+import static java.util.Arrays.asList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static scaffolding.ClientUtils.call;
+import static scaffolding.ClientUtils.request;
+import static scaffolding.MuAssert.stopAndCheck;
+
+public class FairSchedulerTest {
+
+    private MuServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @Test
+    public void queuedRequestsAreDispatchedInProportionToTheirWeights() throws InterruptedException {
+        FairScheduler scheduler = fairScheduler()
+            .withMaxConcurrency(1)
+            .withClass("a", 1, 10)
+            .withClass("b", 3, 10)
+            .build(executor);
+        CountDownLatch blocker = new CountDownLatch(1);
+        scheduler.execute("blocker", () -> {
+            try {
+                blocker.await();
+            } catch (InterruptedException ignored) {
+            }
+        });
+        List<String> order = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(8);
+        for (int i = 1; i <= 4; i++) {
+            for (String className : asList("a", "b")) {
+                String name = className + i;
+                scheduler.execute(className, () -> {
+                    order.add(name);
+                    done.countDown();
+                });
+            }
+        }
+        assertThat(scheduler.stats().get("a").queued(), is(4));
+        blocker.countDown();
+        assertThat(done.await(10, TimeUnit.SECONDS), is(true));
+        assertThat(order, contains("a1", "b1", "b2", "b3", "a2", "b4", "a3", "a4"));
+        assertThat(scheduler.stats().get("b").dispatched(), is(4L));
+        assertThat(scheduler.stats().get("b").queued(), is(0));
+    }
+
+    @Test
+    public void requestsAreRejectedWhenTheQueueForTheirClassIsFull() {
+        FairScheduler scheduler = fairScheduler()
+            .withMaxConcurrency(1)
+            .withDefaultClass(1, 1)
+            .build(executor);
+        CountDownLatch blocker = new CountDownLatch(1);
+        scheduler.execute("x", () -> {
+            try {
+                blocker.await();
+            } catch (InterruptedException ignored) {
+            }
+        });
+        scheduler.execute("x", () -> {});
+        try {
+            scheduler.execute("x", () -> {});
+            throw new AssertionError("Should have been rejected");
+        } catch (RejectedExecutionException e) {
+            assertThat(scheduler.stats().get(FairSchedulerBuilder.DEFAULT_CLASS).rejected(), is(1L));
+        } finally {
+            blocker.countDown();
+        }
+    }
+
+    @Test
+    public void classesCanBeSelectedPerRequestAndAreReportedInTheServerStats() throws Exception {
+        CountDownLatch slowStarted = new CountDownLatch(1);
+        CountDownLatch releaseSlow = new CountDownLatch(1);
+        server = httpServer()
+            .withFairScheduler(fairScheduler()
+                .withMaxConcurrency(1)
+                .withClassifier(request -> request.headers().get("X-Tenant"))
+                .withClass("batch", 1, 0))
+            .addHandler(Method.GET, "/slow", (request, response, pathParams) -> {
+                slowStarted.countDown();
+                releaseSlow.await(10, TimeUnit.SECONDS);
+                response.write("slow");
+            })
+            .addHandler(Method.GET, "/fast", (request, response, pathParams) -> response.write("fast"))
+            .start();
+
+        Thread slowClient = new Thread(() -> {
+            try (Response ignored = call(request(server.uri().resolve("/slow")))) {
+            }
+        });
+        slowClient.start();
+        assertThat(slowStarted.await(10, TimeUnit.SECONDS), is(true));
+
+        try (Response resp = call(request(server.uri().resolve("/fast")).header("X-Tenant", "batch"))) {
+            assertThat(resp.code(), is(503));
+        }
+        releaseSlow.countDown();
+        slowClient.join(10000);
+        // requests without a tenant use the default class, which can queue while the slow handler finishes
+        try (Response resp = call(request(server.uri().resolve("/fast")))) {
+            assertThat(resp.body().string(), equalTo("fast"));
+        }
+
+        RequestClassStats batch = server.stats().requestClassStats().get("batch");
+        assertThat(batch.rejected(), is(1L));
+        assertThat(batch.dispatched(), is(0L));
+        assertThat(server.stats().requestClassStats().get(FairSchedulerBuilder.DEFAULT_CLASS).dispatched(), is(2L));
+        assertThat(server.stats().rejectedDueToOverload(), is(1L));
+    }
+
+    @Test
+    public void unconfiguredClassesGetTheirOwnQueuesUpToTheLimit() throws InterruptedException {
+        FairScheduler scheduler = fairScheduler()
+            .withMaxConcurrency(1)
+            .withDefaultClass(1, 3)
+            .withMaxDynamicClasses(2)
+            .build(executor);
+        CountDownLatch blocker = new CountDownLatch(1);
+        scheduler.execute("blocker", () -> {
+            try {
+                blocker.await();
+            } catch (InterruptedException ignored) {
+            }
+        });
+        List<String> order = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(7);
+        for (String name : asList("noisy1", "noisy2", "noisy3", "quiet1", "other1", "other2", "extra1")) {
+            String className = name.substring(0, name.length() - 1);
+            scheduler.execute(className, () -> {
+                order.add(name);
+                done.countDown();
+            });
+        }
+        try {
+            scheduler.execute("noisy", () -> {});
+            throw new AssertionError("Should have been rejected");
+        } catch (RejectedExecutionException e) {
+            // the noisy tenant's own queue is full, but other tenants can still queue
+        }
+        assertThat(scheduler.dynamicClasses(), is(2));
+        assertThat(scheduler.stats().keySet(), contains(FairSchedulerBuilder.DEFAULT_CLASS));
+        RequestClassStats stats = scheduler.stats().get(FairSchedulerBuilder.DEFAULT_CLASS);
+        assertThat(stats.queued(), is(7));
+        assertThat(stats.rejected(), is(1L));
+
+        blocker.countDown();
+        assertThat(done.await(10, TimeUnit.SECONDS), is(true));
+        // "other" and "extra" are over the dynamic class limit so share the default queue
+        assertThat(order, contains("noisy1", "quiet1", "other1", "noisy2", "other2", "noisy3", "extra1"));
+        assertThat(stats.queued(), is(0));
+        assertThat(stats.dispatched(), is(8L));
+        assertThat(scheduler.dynamicClasses(), is(0));
+    }
+
+    @Test
+    public void connectionsTakeTurnsWithinAClass() throws InterruptedException {
+        FairScheduler scheduler = fairScheduler()
+            .withMaxConcurrency(1)
+            .build(executor);
+        CountDownLatch blocker = new CountDownLatch(1);
+        scheduler.execute("blocker", () -> {
+            try {
+                blocker.await();
+            } catch (InterruptedException ignored) {
+            }
+        });
+        Object busyConnection = new Object();
+        Object otherConnection = new Object();
+        List<String> order = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(6);
+        for (String name : asList("busy1", "busy2", "busy3", "busy4", "other1", "other2")) {
+            Object connection = name.startsWith("busy") ? busyConnection : otherConnection;
+            scheduler.execute(FairSchedulerBuilder.DEFAULT_CLASS, connection, () -> {
+                order.add(name);
+                done.countDown();
+            });
+        }
+        blocker.countDown();
+        assertThat(done.await(10, TimeUnit.SECONDS), is(true));
+        assertThat(order, contains("busy1", "other1", "busy2", "other2", "busy3", "busy4"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void weightsMustBePositive() {
+        fairScheduler().withClass("a", 0, 10);
+    }
+
+    @After
+    public void stop() throws IOException {
+        executor.shutdownNow();
+        stopAndCheck(server);
+    }
+}
@@ -1,16 +1,23 @@
 package io.muserver;
 
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.http.LastHttpContent;
 import okhttp3.Response;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Test;
 import scaffolding.MuAssert;
 import scaffolding.ServerUtils;
+import scaffolding.StringUtils;
 
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.net.ProtocolException;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -94,6 +101,43 @@ public class FixedLengthTest {
         }
     }
 
+    @Test
+    public void closingTheStreamOfAFixedLengthResponseEndsItOnlyOnce() throws IOException {
+        // a second end marker could end the next response on the connection, so count the markers written
+        AtomicInteger lastContentsWritten = new AtomicInteger();
+        String body = StringUtils.randomAsciiStringOfLength(2000);
+        server = MuServerBuilder.httpServer()
+            .addHandler((req, resp) -> {
+                ChannelPipeline pipeline = ((NettyRequestAdapter) req).channel().pipeline();
+                if (pipeline.get("lastContentCounter") == null) {
+                    pipeline.addBefore("muhandler", "lastContentCounter", new ChannelOutboundHandlerAdapter() {
+                        @Override
+                        public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+                            if (msg instanceof LastHttpContent) {
+                                lastContentsWritten.incrementAndGet();
+                            }
+                            super.write(ctx, msg, promise);
+                        }
+                    });
+                }
+                resp.contentType("text/plain");
+                resp.headers().set(HeaderNames.CONTENT_LENGTH, body.length());
+                // smaller than the stream's buffer, so the bytes are only sent when the server closes the writer
+                resp.writer().print(body);
+                return true;
+            }).start();
+
+        for (int i = 0; i < 5; i++) {
+            try (Response resp = call(request(server.uri().resolve("/blah" + i)))) {
+                assertThat(resp.code(), is(200));
+                assertThat(resp.body().string(), equalTo(body));
+            }
+        }
+        assertThat(server.stats().completedConnections() + server.stats().activeConnections(), is(1L));
+        server.stop();
+        assertThat(lastContentsWritten.get(), is(5));
+    }
+
     @After
     public void destroy() {
         scaffolding.MuAssert.stopAndCheck(server);
@@ -0,0 +1,71 @@
+package io.muserver;
+
+import org.junit.Test;
+
+import static io.muserver.Http2ConfigBuilder.http2Config;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class FlowControlWindowTunerTest {
+
+    private final FlowControlWindowTuner tuner = new FlowControlWindowTuner(65535, 1000000);
+
+    @Test
+    public void onlyOnePingIsOutstandingAtATime() {
+        assertThat(tuner.onDataReceived(1000), is(true));
+        assertThat(tuner.onDataReceived(1000), is(false));
+        assertThat(tuner.onPingAck(), is(0));
+        assertThat(tuner.onDataReceived(1000), is(true));
+    }
+
+    @Test
+    public void theWindowIsDoubledWhenMostOfItIsUsedInOneRoundTrip() {
+        tuner.onDataReceived(16384);
+        tuner.onDataReceived(16384);
+        tuner.onDataReceived(16384);
+        assertThat(tuner.onPingAck(), is(3 * 16384 * 2));
+    }
+
+    @Test
+    public void theWindowDoesNotGrowBeyondTheMaximum() {
+        tuner.onDataReceived(65535);
+        assertThat(tuner.onPingAck(), is(131070));
+        tuner.onDataReceived(131070);
+        assertThat(tuner.onPingAck(), is(262140));
+        tuner.onDataReceived(262140);
+        assertThat(tuner.onPingAck(), is(524280));
+        tuner.onDataReceived(524280);
+        assertThat(tuner.onPingAck(), is(1000000));
+        assertThat(tuner.onDataReceived(1000000), is(false));
+    }
+
+    @Test
+    public void unexpectedAcksAreIgnored() {
+        assertThat(tuner.onPingAck(), is(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void initialWindowSizeCannotBeNegative() {
+        http2Config().withInitialWindowSize(-1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void connectionWindowCannotBeSmallerThanTheDefault() {
+        http2Config().withConnectionWindowSize(65534);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void maxFrameSizeMustBeValid() {
+        http2Config().withMaxFrameSize(16383);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void headerTableSizeMustBeValid() {
+        http2Config().withHeaderTableSize(-1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void maxConcurrentStreamsMustBeValid() {
+        http2Config().withMaxConcurrentStreams(0x100000000L);
+    }
+}
@@ -1,5 +1,8 @@
 package io.muserver;
 
+import com.aayushatharva.brotli4j.Brotli4jLoader;
+import com.aayushatharva.brotli4j.decoder.BrotliInputStream;
+import com.github.luben.zstd.ZstdInputStream;
 import io.muserver.rest.RestHandlerBuilder;
 import okhttp3.Response;
 import org.junit.After;
@@ -14,8 +17,13 @@ import javax.ws.rs.core.StreamingOutput;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
 import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
 
 import static io.muserver.handlers.ResourceHandlerBuilder.classpathHandler;
 import static java.nio.charset.StandardCharsets.UTF_8;
@@ -48,6 +56,25 @@ public class GzipTest {
         compareZippedVsNotZipped("/");
     }
 
+    @Test
+    public void compressionDoesNotChangeTheHeadersOfHttp1Responses() throws Exception {
+        CompletableFuture<ResponseInfo> completed = new CompletableFuture<>();
+        server = MuServerBuilder.httpServer()
+            .addResponseCompleteListener(completed::complete)
+            .addHandler(Method.GET, "/", (request, response, pathParams) -> {
+                response.contentType(ContentTypes.TEXT_PLAIN_UTF8);
+                response.headers().set(HeaderNames.CONTENT_LENGTH, LOTS_OF_TEXT.length());
+                response.write(LOTS_OF_TEXT);
+            })
+            .start();
+        try (Response resp = call(request(server.uri()).header("Accept-Encoding", "gzip"))) {
+            assertThat(resp.header("Content-Encoding"), equalTo("gzip"));
+        }
+        Headers headers = completed.get(10, TimeUnit.SECONDS).response().headers();
+        assertThat(headers.get(HeaderNames.CONTENT_ENCODING), is(nullValue()));
+        assertThat(headers.get(HeaderNames.CONTENT_LENGTH), equalTo(String.valueOf(LOTS_OF_TEXT.length())));
+    }
+
     @Test
     public void ifMimeTypesDoNotHaveResponseThenThereIsNoGzipping() throws IOException {
         server = httpsServerForTest()
@@ -181,6 +208,97 @@ public class GzipTest {
         }
     }
 
+    @Test
+    public void deflateCanBeUsedWithConfiguredLevels() throws IOException {
+        server = httpsServerForTest()
+            .withCompressionConfig(CompressionConfigBuilder.compression()
+                .withLevel(9)
+                .withMimeType("text/plain", 1, Deflater.HUFFMAN_ONLY)
+                .withDeflaterPoolSize(0))
+            .addHandler(Method.GET, "/", (request, response, pathParams) -> {
+                response.contentType(ContentTypes.TEXT_PLAIN_UTF8);
+                response.sendChunk(LOTS_OF_TEXT);
+                response.sendChunk(LOTS_OF_TEXT);
+            })
+            .start();
+        for (int i = 0; i < 2; i++) {
+            try (Response resp = call(request(server.uri()).header("Accept-Encoding", "deflate"))) {
+                assertThat(resp.code(), is(200));
+                assertThat(resp.headers("content-encoding"), contains("deflate"));
+                try (ByteArrayOutputStream boas = new ByteArrayOutputStream();
+                     InputStream is = new InflaterInputStream(resp.body().byteStream())) {
+                    Mutils.copy(is, boas, 8192);
+                    assertThat(boas.toString("UTF-8"), equalTo(LOTS_OF_TEXT + LOTS_OF_TEXT));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void customEncodersAreUsedWhenAccepted() throws IOException {
+        server = httpsServerForTest()
+            .withCompressionConfig(CompressionConfigBuilder.compression()
+                .withEncoder(new CompressionConfigTest.TestGzipEncoder()))
+            .addHandler(Method.GET, "/", (request, response, pathParams) -> {
+                response.contentType(ContentTypes.TEXT_PLAIN_UTF8);
+                response.sendChunk(LOTS_OF_TEXT);
+                response.sendChunk(LOTS_OF_TEXT);
+            })
+            .start();
+        try (Response resp = call(request(server.uri()).header("Accept-Encoding", "gzip;q=0.9, x-test"))) {
+            assertThat(resp.code(), is(200));
+            assertThat(resp.headers("content-encoding"), contains("x-test"));
+            try (ByteArrayOutputStream boas = new ByteArrayOutputStream();
+                 InputStream is = new GZIPInputStream(resp.body().byteStream())) {
+                Mutils.copy(is, boas, 8192);
+                assertThat(boas.toString("UTF-8"), equalTo(LOTS_OF_TEXT + LOTS_OF_TEXT));
+            }
+        }
+        try (Response resp = call(request(server.uri()).header("Accept-Encoding", "gzip, x-test;q=0.5"))) {
+            assertThat(resp.headers("content-encoding"), contains("gzip"));
+        }
+    }
+
+    @Test
+    public void brotliAndZstdResponsesCanBeDecoded() throws IOException {
+        Brotli4jLoader.ensureAvailability();
+        for (MuServerBuilder builder : Arrays.asList(MuServerBuilder.httpServer(), httpsServerForTest())) {
+            server = builder
+                .addHandler(Method.GET, "/full", (request, response, pathParams) -> {
+                    response.contentType(ContentTypes.TEXT_PLAIN_UTF8);
+                    response.write(LOTS_OF_TEXT);
+                })
+                .addHandler(Method.GET, "/chunked", (request, response, pathParams) -> {
+                    response.contentType(ContentTypes.TEXT_PLAIN_UTF8);
+                    response.sendChunk(LOTS_OF_TEXT);
+                    response.sendChunk(LOTS_OF_TEXT);
+                })
+                .start();
+            for (String encoding : Arrays.asList("br", "zstd")) {
+                try (Response resp = call(request(server.uri().resolve("/full")).header("Accept-Encoding", encoding))) {
+                    assertThat(resp.code(), is(200));
+                    assertThat(resp.headers("content-encoding"), contains(encoding));
+                    assertThat(decode(encoding, resp.body().byteStream()), equalTo(LOTS_OF_TEXT));
+                }
+                try (Response resp = call(request(server.uri().resolve("/chunked")).header("Accept-Encoding", encoding))) {
+                    assertThat(resp.code(), is(200));
+                    assertThat(resp.headers("content-encoding"), contains(encoding));
+                    assertThat(resp.header("content-length"), is(nullValue()));
+                    assertThat(decode(encoding, resp.body().byteStream()), equalTo(LOTS_OF_TEXT + LOTS_OF_TEXT));
+                }
+            }
+            server.stop();
+        }
+    }
+
+    private static String decode(String encoding, InputStream body) throws IOException {
+        try (ByteArrayOutputStream boas = new ByteArrayOutputStream();
+             InputStream is = "br".equals(encoding) ? new BrotliInputStream(body) : new ZstdInputStream(body)) {
+            Mutils.copy(is, boas, 8192);
+            return boas.toString("UTF-8");
+        }
+    }
+
     @After
     public void stopIt() {
         MuAssert.stopAndCheck(server);
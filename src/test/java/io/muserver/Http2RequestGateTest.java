@@ -0,0 +1,190 @@
+package io.muserver;
+
+import okhttp3.Call;
+import okhttp3.Response;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Test;
+import scaffolding.ClientUtils;
+import scaffolding.MuAssert;
+
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSocket;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.muserver.Http2ConfigBuilder.http2EnabledIfAvailable;
+import static io.muserver.MuServerBuilder.httpsServer;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static scaffolding.ClientUtils.call;
+import static scaffolding.ClientUtils.request;
+
+public class Http2RequestGateTest {
+
+    private MuServer server;
+    private final ExecutorService clientExecutor = Executors.newCachedThreadPool();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final AtomicInteger slowHandlersStarted = new AtomicInteger();
+
+    private void startServer(Http2ConfigBuilder http2Config) {
+        server = httpsServer()
+            .withHttp2Config(http2Config)
+            .addHandler(Method.GET, "/fast", (request, response, pathParams) -> response.write("fast"))
+            .addHandler(Method.GET, "/slow", (request, response, pathParams) -> {
+                slowHandlersStarted.incrementAndGet();
+                MuAssert.assertNotTimedOut("release", release);
+                response.write("slow");
+            })
+            .start();
+        try (Response resp = call(request(server.uri().resolve("/fast")))) {
+            Assume.assumeTrue("HTTP/2 is not available", ClientUtils.isHttp2(resp));
+        }
+    }
+
+    @Test
+    public void aLimitOfOneRunsTheRequestsOfAConnectionOneAtATime() throws Exception {
+        AtomicInteger inProgress = new AtomicInteger();
+        AtomicInteger maxInProgress = new AtomicInteger();
+        server = httpsServer()
+            .withHttp2Config(http2EnabledIfAvailable().withMaxConcurrentRequests(1))
+            .addHandler(Method.GET, "/", (request, response, pathParams) -> {
+                maxInProgress.accumulateAndGet(inProgress.incrementAndGet(), Math::max);
+                Thread.sleep(10);
+                inProgress.decrementAndGet();
+                response.write("Hello " + request.query().get("i"));
+            })
+            .start();
+        try (Response resp = call(request(server.uri()))) {
+            Assume.assumeTrue("HTTP/2 is not available", ClientUtils.isHttp2(resp));
+        }
+
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            results.add(send("/?i=" + i));
+        }
+        for (int i = 0; i < 30; i++) {
+            assertThat(results.get(i).get(30, TimeUnit.SECONDS), equalTo("200 Hello " + i));
+        }
+        assertThat(maxInProgress.get(), is(1));
+        assertThat(server.stats().completedConnections() + server.stats().activeConnections(), is(1L));
+    }
+
+    @Test
+    public void requestsOverTheQueueLimitGet503sThatCountInTheConnectionStats() throws Exception {
+        startServer(http2EnabledIfAvailable().withMaxConcurrentRequests(1).withMaxQueuedRequests(2).withMaxConcurrentStreams(100));
+
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            results.add(send("/slow"));
+        }
+        MuAssert.assertEventually(() -> server.stats().rejectedDueToOverload(), is(7L));
+        release.countDown();
+        int ok = 0;
+        int unavailable = 0;
+        for (Future<String> result : results) {
+            String resp = result.get(30, TimeUnit.SECONDS);
+            if (resp.equals("200 slow")) {
+                ok++;
+            } else if (resp.startsWith("503 ")) {
+                unavailable++;
+            }
+        }
+        assertThat(ok, is(3));
+        assertThat(unavailable, is(7));
+        assertThat(slowHandlersStarted.get(), is(3));
+        assertThat(server.activeConnections(), hasSize(1));
+        HttpConnection connection = server.activeConnections().iterator().next();
+        assertThat(connection.rejectedDueToOverload(), is(7L));
+    }
+
+    @Test
+    public void streamsResetWhileQueuedAreNeverHandledAndFreeTheirPlaceInTheQueue() throws Exception {
+        startServer(http2EnabledIfAvailable().withMaxConcurrentRequests(1).withMaxQueuedRequests(1).withMaxConcurrentStreams(100));
+
+        Future<String> running = send("/slow");
+        MuAssert.assertEventually(slowHandlersStarted::get, is(1));
+        Call queued = ClientUtils.client.newCall(request(server.uri().resolve("/slow")).build());
+        Future<String> queuedResult = clientExecutor.submit(() -> {
+            try (Response resp = queued.execute()) {
+                return resp.code() + " " + resp.body().string();
+            }
+        });
+        MuAssert.assertEventually(() -> server.stats().activeRequests(), hasSize(2));
+        queued.cancel();
+        try {
+            queuedResult.get(30, TimeUnit.SECONDS);
+            throw new AssertionError("The cancelled call should have failed");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), instanceOf(IOException.class));
+        }
+        MuAssert.assertEventually(() -> server.stats().activeRequests(), hasSize(1));
+
+        // the reset stream's place in the queue is free again
+        Future<String> next = send("/slow");
+        MuAssert.assertEventually(() -> server.stats().activeRequests(), hasSize(2));
+        release.countDown();
+        assertThat(running.get(30, TimeUnit.SECONDS), equalTo("200 slow"));
+        assertThat(next.get(30, TimeUnit.SECONDS), equalTo("200 slow"));
+        assertThat(slowHandlersStarted.get(), is(2));
+        assertThat(server.stats().rejectedDueToOverload(), is(0L));
+    }
+
+    @Test
+    public void theLimitPlusTheQueueSizeIsAdvertisedAsTheMaxConcurrentStreams() throws Exception {
+        startServer(http2EnabledIfAvailable().withMaxConcurrentRequests(2).withMaxQueuedRequests(5));
+        SSLSocket socket = (SSLSocket) ClientUtils.sslContextForTesting(ClientUtils.veryTrustingTrustManager())
+            .getSocketFactory().createSocket(server.uri().getHost(), server.uri().getPort());
+        try {
+            SSLParameters parameters = socket.getSSLParameters();
+            parameters.setApplicationProtocols(new String[]{"h2"});
+            socket.setSSLParameters(parameters);
+            socket.startHandshake();
+            assertThat(socket.getApplicationProtocol(), equalTo("h2"));
+
+            OutputStream out = socket.getOutputStream();
+            out.write("PRI * HTTP/2.0\r\n\r\nSM\r\n\r\n".getBytes(US_ASCII));
+            out.write(new byte[]{0, 0, 0, 4, 0, 0, 0, 0, 0}); // an empty SETTINGS frame
+            out.flush();
+
+            // the server's preface is a SETTINGS frame, which is a list of 16 bit IDs and 32 bit values
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            int length = (in.readUnsignedShort() << 8) | in.readUnsignedByte();
+            assertThat("frame type", in.readUnsignedByte(), is(4));
+            assertThat("flags", in.readUnsignedByte(), is(0));
+            assertThat("stream ID", in.readInt(), is(0));
+            Long maxConcurrentStreams = null;
+            for (int read = 0; read < length; read += 6) {
+                int id = in.readUnsignedShort();
+                long value = in.readInt() & 0xFFFFFFFFL;
+                if (id == 3) {
+                    maxConcurrentStreams = value;
+                }
+            }
+            assertThat(maxConcurrentStreams, is(7L));
+        } finally {
+            socket.close();
+        }
+    }
+
+    private Future<String> send(String path) {
+        return clientExecutor.submit(() -> {
+            try (Response resp = call(request(server.uri().resolve(path)))) {
+                return resp.code() + " " + resp.body().string();
+            }
+        });
+    }
+
+    @After
+    public void stop() {
+        release.countDown();
+        clientExecutor.shutdownNow();
+        MuAssert.stopAndCheck(server);
+    }
+}
@@ -14,6 +14,9 @@ import java.security.cert.Certificate;
 import java.security.cert.X509Certificate;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static io.muserver.MuServerBuilder.httpServer;
@@ -51,6 +54,29 @@ public class HttpsTest {
         assertThat(certificates, equalTo(sslInfo.certificates())); // check that cached calls work
     }
 
+    @Test
+    public void handshakeTasksCanBeRunOnADedicatedExecutor() throws Exception {
+        AtomicInteger tasksRun = new AtomicInteger();
+        ExecutorService handshakeExecutor = Executors.newFixedThreadPool(2, r -> new Thread(() -> {
+            tasksRun.incrementAndGet();
+            r.run();
+        }, "handshake-test"));
+        server = ServerUtils.httpsServerForTest()
+            .withTlsHandshakeExecutor(handshakeExecutor)
+            .addHandler(Method.GET, "/", (request, response, pathParams) -> response.write("Hello"))
+            .start();
+        try (Response resp = call(request(server.uri()))) {
+            assertThat(resp.body().string(), equalTo("Hello"));
+        }
+        assertThat(tasksRun.get(), greaterThan(0));
+        MuStats stats = server.stats();
+        assertThat(stats.completedTlsHandshakes(), is(1L));
+        assertThat(stats.tlsHandshakeNanos(), greaterThan(0L));
+        assertThat(stats.queuedTlsHandshakeTasks(), is(0L));
+        server.stop();
+        assertThat(handshakeExecutor.isShutdown(), is(true));
+    }
+
     @Test
     public void httpIsNotAvailableUnlessRequested() {
         server = ServerUtils.httpsServerForTest().start();
@@ -0,0 +1,23 @@
+package io.muserver;
+
+import io.netty.util.AsciiString;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class MethodTest {
+
+    @Test
+    public void http2MethodNamesCanBeResolved() {
+        for (Method method : Method.values()) {
+            assertThat(Method.fromHttp2(new AsciiString(method.name())), is(method));
+            assertThat(Method.fromHttp2(method.name().toLowerCase()), is(method));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownMethodsAreRejected() {
+        Method.fromHttp2("BREW");
+    }
+}
@@ -196,6 +196,32 @@ public class MuServerTest {
         assertThat(server.stats().invalidHttpRequests(), is(1L));
     }
 
+    @Test
+    public void simpleErrorResponsesCanBeSentRepeatedly() throws IOException {
+        for (MuServerBuilder builder : asList(httpServer(), ServerUtils.httpsServerForTest())) {
+            server = builder.start();
+            for (int i = 0; i < 3; i++) {
+                try (Response resp = call(request(server.uri()).method("COFFEE", null))) {
+                    assertThat(resp.code(), is(405));
+                    assertThat(resp.header("Content-Length"), is("22"));
+                    assertThat(resp.header("Date"), notNullValue());
+                    assertThat(resp.body().string(), equalTo("405 Method Not Allowed"));
+                }
+            }
+            server.stop();
+        }
+    }
+
+    @Test
+    public void theDateHeaderIsTheCurrentTime() {
+        server = ServerUtils.httpsServerForTest().start();
+        try (Response resp = call(request(server.uri()))) {
+            Date date = resp.headers().getDate("Date");
+            assertThat(date, notNullValue());
+            assertThat(Math.abs(date.getTime() - System.currentTimeMillis()), lessThan(3000L));
+        }
+    }
+
     @Test
     public void absoluteURIsInTheRequestLineAreFine() throws Exception {
         server = httpServer()
@@ -0,0 +1,246 @@
+package io.muserver;
+
+import okhttp3.Headers;
+import okhttp3.MediaType;
+import okhttp3.MultipartBody;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import org.junit.After;
+import org.junit.Test;
+import scaffolding.ServerUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static io.muserver.MultipartReaderBuilder.multipartReader;
+import static io.muserver.UploadTest.guangzhou;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static scaffolding.ClientUtils.call;
+import static scaffolding.ClientUtils.request;
+import static scaffolding.MuAssert.stopAndCheck;
+
+public class MultipartReaderTest {
+
+    private MuServer server;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    @Test
+    public void partsAreStreamedAndStoredInMemoryOrOnDisk() throws Exception {
+        server = ServerUtils.httpsServerForTest()
+            .addHandler(Method.POST, "/upload", (request, response, pathParams) -> {
+                AsyncHandle handle = request.handleAsync();
+                StringBuilder result = new StringBuilder();
+                multipartReader()
+                    .withInMemoryThreshold(1000)
+                    .withChecksumAlgorithm("SHA-256")
+                    .read(request, new MultipartListener() {
+                        private long streamed;
+
+                        public void onPartStart(MultipartPart part) {
+                            streamed = 0;
+                        }
+
+                        public void onPartData(MultipartPart part, ByteBuffer data, DoneCallback doneCallback) {
+                            streamed += data.remaining();
+                            executor.submit(() -> {
+                                doneCallback.onComplete(null);
+                                return null;
+                            });
+                        }
+
+                        public void onPartComplete(MultipartPart part) throws Exception {
+                            result.append(part.name()).append(" ").append(part.filename()).append(" ")
+                                .append(part.size()).append(" ").append(streamed).append(" ").append(part.isInMemory())
+                                .append(" ").append(part.filename() == null ? part.asString() : hex(part.checksum()))
+                                .append("\n");
+                        }
+
+                        public void onComplete() {
+                            handle.write(Mutils.toByteBuffer(result.toString()), error -> handle.complete(error));
+                        }
+
+                        public void onError(Throwable t) {
+                            handle.complete(t);
+                        }
+                    });
+            }).start();
+
+        try (Response resp = call(request(server.uri().resolve("/upload"))
+            .post(new MultipartBody.Builder()
+                .setType(MultipartBody.FORM)
+                .addFormDataPart("Hello", "World")
+                .addPart(Headers.of("Content-Disposition", "form-data; name=\"image\"; filename=\"guangzhou.jpeg\""),
+                    RequestBody.create(MediaType.parse("image/jpeg"), guangzhou))
+                .build())
+        )) {
+            assertThat(resp.code(), is(200));
+            assertThat(resp.body().string(), equalTo("Hello null 5 5 true World\n" +
+                "image guangzhou.jpeg 372987 372987 false " + hex(sha256(Files.readAllBytes(guangzhou.toPath()))) + "\n"));
+        }
+    }
+
+    @Test
+    public void partsCanBeWrittenStraightToFileChannels() throws Exception {
+        File target = File.createTempFile("multipartreadertest", ".jpeg");
+        target.deleteOnExit();
+        server = ServerUtils.httpsServerForTest()
+            .addHandler(Method.POST, "/upload", (request, response, pathParams) -> {
+                AsyncHandle handle = request.handleAsync();
+                multipartReader().read(request, new MultipartListener() {
+                    private FileChannel channel;
+
+                    public void onPartStart(MultipartPart part) throws Exception {
+                        channel = FileChannel.open(target.toPath(), StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                        part.writeTo(channel);
+                    }
+
+                    public void onPartData(MultipartPart part, ByteBuffer data, DoneCallback doneCallback) throws Exception {
+                        doneCallback.onComplete(null);
+                    }
+
+                    public void onPartComplete(MultipartPart part) throws Exception {
+                        channel.close();
+                    }
+
+                    public void onComplete() {
+                        handle.write(Mutils.toByteBuffer("saved"), error -> handle.complete(error));
+                    }
+
+                    public void onError(Throwable t) {
+                        handle.complete(t);
+                    }
+                });
+            }).start();
+
+        try (Response resp = call(request(server.uri().resolve("/upload"))
+            .post(new MultipartBody.Builder()
+                .setType(MultipartBody.FORM)
+                .addPart(Headers.of("Content-Disposition", "form-data; name=\"image\"; filename=\"guangzhou.jpeg\""),
+                    RequestBody.create(MediaType.parse("image/jpeg"), guangzhou))
+                .build())
+        )) {
+            assertThat(resp.body().string(), equalTo("saved"));
+        }
+        assertThat(Files.readAllBytes(target.toPath()), equalTo(Files.readAllBytes(guangzhou.toPath())));
+    }
+
+    @Test
+    public void delimitersSplitAcrossBuffersAreFound() throws Exception {
+        String body = "preamble\r\n--XyZ\r\n" +
+            "Content-Disposition: form-data; name=\"first\"\r\n\r\n" +
+            "one\r\n--Xy\r\n-\r--XyZa\r\n" +
+            "--XyZ  \r\n" +
+            "Content-Disposition: form-data; name=\"second\"; filename=\"files/second.txt\"\r\n" +
+            "Content-Type: text/plain\r\n\r\n" +
+            "x\r\n\r\n" +
+            "--XyZ--\r\nepilogue";
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        for (int chunkSize = 1; chunkSize <= bytes.length; chunkSize++) {
+            RecordingListener listener = new RecordingListener();
+            MultipartParser parser = new MultipartParser("XyZ", listener, 4, null, null);
+            for (int i = 0; i < bytes.length; i += chunkSize) {
+                parser.onDataReceived(ByteBuffer.wrap(bytes, i, Math.min(chunkSize, bytes.length - i)), DoneCallback.NoOp);
+            }
+            parser.onComplete();
+            assertThat("Chunk size " + chunkSize, listener.events, contains(
+                "start first null",
+                "complete first: one\r\n--Xy\r\n-\r--XyZa",
+                "start second second.txt",
+                "complete second: x\r\n",
+                "done"));
+        }
+    }
+
+    @Test
+    public void bodiesWithoutTheClosingDelimiterResultInErrors() throws Exception {
+        RecordingListener listener = new RecordingListener();
+        MultipartParser parser = new MultipartParser("XyZ", listener, 16384, null, null);
+        parser.onDataReceived(Mutils.toByteBuffer("--XyZ\r\nContent-Disposition: form-data; name=\"first\"\r\n\r\nValue"), DoneCallback.NoOp);
+        parser.onComplete();
+        assertThat(listener.events, contains("start first null", "error"));
+    }
+
+    @Test
+    public void nonMultipartRequestsCannotBeRead() throws IOException {
+        server = ServerUtils.httpsServerForTest()
+            .addHandler(Method.POST, "/upload", (request, response, pathParams) -> {
+                try {
+                    multipartReader().read(request, new RecordingListener());
+                } catch (IllegalArgumentException e) {
+                    response.status(400);
+                    response.write(e.getMessage());
+                }
+            }).start();
+        try (Response resp = call(request(server.uri().resolve("/upload"))
+            .post(RequestBody.create(MediaType.parse("text/plain"), "Hello")))) {
+            assertThat(resp.code(), is(400));
+            assertThat(resp.body().string(), containsString("multipart"));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownChecksumAlgorithmsAreRejected() {
+        multipartReader().withChecksumAlgorithm("not-a-real-algorithm");
+    }
+
+    private static class RecordingListener implements MultipartListener {
+        private final List<String> events = new ArrayList<>();
+        private final ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+
+        public void onPartStart(MultipartPart part) {
+            streamed.reset();
+            events.add("start " + part.name() + " " + part.filename());
+        }
+
+        public void onPartData(MultipartPart part, ByteBuffer data, DoneCallback doneCallback) throws Exception {
+            byte[] bytes = new byte[data.remaining()];
+            data.get(bytes);
+            streamed.write(bytes);
+            doneCallback.onComplete(null);
+        }
+
+        public void onPartComplete(MultipartPart part) throws Exception {
+            String stored = part.asString();
+            assertThat(stored, equalTo(new String(streamed.toByteArray(), StandardCharsets.UTF_8)));
+            events.add("complete " + part.name() + ": " + stored);
+        }
+
+        public void onComplete() {
+            events.add("done");
+        }
+
+        public void onError(Throwable t) {
+            events.add("error");
+        }
+    }
+
+    private static byte[] sha256(byte[] bytes) throws Exception {
+        return MessageDigest.getInstance("SHA-256").digest(bytes);
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder();
+        for (byte b : bytes) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+
+    @After
+    public void stop() {
+        executor.shutdown();
+        stopAndCheck(server);
+    }
+}
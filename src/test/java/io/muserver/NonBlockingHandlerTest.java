@@ -0,0 +1,144 @@
+package io.muserver;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import org.junit.After;
+import org.junit.Test;
+import scaffolding.ServerUtils;
+import scaffolding.StringUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import static io.muserver.ContextHandlerBuilder.context;
+import static io.muserver.MuServerBuilder.httpServer;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static scaffolding.ClientUtils.call;
+import static scaffolding.ClientUtils.request;
+import static scaffolding.MuAssert.stopAndCheck;
+
+public class NonBlockingHandlerTest {
+
+    private MuServer server;
+
+    @Test
+    public void nonBlockingHandlersRunOnTheEventLoopAndOthersOnTheExecutor() throws IOException {
+        server = ServerUtils.httpsServerForTest()
+            .addNonBlockingHandler(Method.GET, "/inline", (request, response, pathParams) -> response.write(Thread.currentThread().getName()))
+            .addHandler(Method.GET, "/blocking", (request, response, pathParams) -> response.write(Thread.currentThread().getName()))
+            .start();
+        try (Response resp = call(request(server.uri().resolve("/inline")))) {
+            assertThat(resp.code(), is(200));
+            assertThat(resp.body().string(), not(startsWith("muhandler")));
+        }
+        try (Response resp = call(request(server.uri().resolve("/blocking")))) {
+            assertThat(resp.code(), is(200));
+            assertThat(resp.body().string(), startsWith("muhandler"));
+        }
+        try (Response resp = call(request(server.uri().resolve("/not-found")))) {
+            assertThat(resp.code(), is(404));
+        }
+    }
+
+    @Test
+    public void nonBlockingHandlersAddedAfterBlockingHandlersRunOnTheExecutor() throws IOException {
+        server = httpServer()
+            .addHandler((request, response) -> false)
+            .addNonBlockingHandler(Method.GET, "/", (request, response, pathParams) -> response.write(Thread.currentThread().getName()))
+            .start();
+        try (Response resp = call(request(server.uri()))) {
+            assertThat(resp.body().string(), startsWith("muhandler"));
+        }
+    }
+
+    @Test
+    public void contextsCanBeMarkedAsNonBlocking() throws IOException {
+        server = httpServer()
+            .addNonBlockingHandler(context("api")
+                .addHandler(Method.GET, "/thread", (request, response, pathParams) -> response.write(Thread.currentThread().getName())))
+            .addHandler(Method.GET, "/api/other", (request, response, pathParams) -> response.write("Other on " + Thread.currentThread().getName()))
+            .start();
+        try (Response resp = call(request(server.uri().resolve("/api/thread")))) {
+            assertThat(resp.body().string(), not(startsWith("muhandler")));
+        }
+        try (Response resp = call(request(server.uri().resolve("/api/other")))) {
+            assertThat(resp.body().string(), startsWith("Other on muhandler"));
+        }
+    }
+
+    @Test
+    public void blockingStyleWritesCanBeUsedFromTheEventLoop() throws IOException {
+        String chunk = StringUtils.randomAsciiStringOfLength(10000);
+        for (MuServerBuilder builder : new MuServerBuilder[]{httpServer(), ServerUtils.httpsServerForTest()}) {
+            server = builder
+                .addNonBlockingHandler(Method.GET, "/", (request, response, pathParams) -> {
+                    response.contentType(ContentTypes.TEXT_PLAIN_UTF8);
+                    for (int i = 0; i < 100; i++) {
+                        response.sendChunk(chunk);
+                    }
+                })
+                .start();
+            try (Response resp = call(request(server.uri()))) {
+                String body = resp.body().string();
+                assertThat(body.length(), is(100 * chunk.length()));
+                assertThat(body, startsWith(chunk));
+            }
+            server.stop();
+        }
+    }
+
+    @Test
+    public void asyncHandlersCanBeRunInline() throws IOException {
+        server = ServerUtils.httpsServerForTest()
+            .addNonBlockingHandler(Method.POST, "/", (request, response, pathParams) -> {
+                AsyncHandle handle = request.handleAsync();
+                StringBuilder received = new StringBuilder();
+                handle.setReadListener(new RequestBodyListener() {
+                    public void onDataReceived(ByteBuffer buffer, DoneCallback doneCallback) throws Exception {
+                        received.append(UTF_8.decode(buffer));
+                        doneCallback.onComplete(null);
+                    }
+
+                    public void onComplete() {
+                        handle.write(Mutils.toByteBuffer("Got " + received), handle::complete);
+                    }
+
+                    public void onError(Throwable t) {
+                        handle.complete(t);
+                    }
+                });
+            })
+            .start();
+        try (Response resp = call(request(server.uri()).post(RequestBody.create(MediaType.parse("text/plain"), "Hello")))) {
+            assertThat(resp.body().string(), equalTo("Got Hello"));
+        }
+    }
+
+    @Test
+    public void handlersThatStallTheEventLoopStillComplete() throws IOException {
+        server = httpServer()
+            .withEventLoopStallWarning(20, TimeUnit.MILLISECONDS)
+            .addNonBlockingHandler(Method.GET, "/", (request, response, pathParams) -> {
+                Thread.sleep(200);
+                response.write("Slow");
+            })
+            .start();
+        try (Response resp = call(request(server.uri()))) {
+            assertThat(resp.body().string(), equalTo("Slow"));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void stallWarningDurationCannotBeNegative() {
+        httpServer().withEventLoopStallWarning(-1, TimeUnit.MILLISECONDS);
+    }
+
+    @After
+    public void stop() {
+        stopAndCheck(server);
+    }
+}
@@ -59,4 +59,14 @@ public class ParameterizedHeaderWithValueTest {
         }
     }
 
+    @Test
+    public void qValuesDefaultToOneAndFallBackToTheWildcard() {
+        List<ParameterizedHeaderWithValue> accepted = fromString("gzip;q=0.5, BR, deflate;q=invalid, *;q=0.1");
+        assertThat(ParameterizedHeaderWithValue.qValue(accepted, "gzip"), equalTo(0.5));
+        assertThat(ParameterizedHeaderWithValue.qValue(accepted, "br"), equalTo(1.0));
+        assertThat(ParameterizedHeaderWithValue.qValue(accepted, "deflate"), equalTo(0.0));
+        assertThat(ParameterizedHeaderWithValue.qValue(accepted, "identity"), equalTo(0.1));
+        assertThat(ParameterizedHeaderWithValue.qValue(fromString("gzip"), "identity"), equalTo(0.0));
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,46 @@
+package io.muserver;
+
+import org.junit.Test;
+
+import java.net.URISyntaxException;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+public class PathNormaliserTest {
+
+    @Test
+    public void normalPathsAreReturnedWithoutChange() {
+        String[] paths = {"/", "/blah", "/blah/", "/a/b/c.txt", "/a..b/.c/d.", "/a%20b/%2e%2E", "/a;b=c/d:e@f",
+            "/?", "/a?b=c&d=e", "/a?b=/c?d", "/a/?q=..", "/~user/-_.!$&'()*+,="};
+        for (String path : paths) {
+            assertThat(path, PathNormaliser.fastNormalise(path), equalTo(path));
+        }
+    }
+
+    @Test
+    public void pathsThatNeedNormalisingAreNotHandledByTheFastPath() {
+        String[] paths = {"", "*", "http://localhost/blah", "/a/../b", "/a/./b", "/a/..", "/a/.", "/.", "/..",
+            "/a//b", "//a", "/a/..?b", "/a b", "/a%2", "/a%zz", "/a?b%2", "/a#b", "/a?b c", "/caf\u00e9", "/a\\b"};
+        for (String path : paths) {
+            assertThat(path, PathNormaliser.fastNormalise(path), nullValue());
+        }
+    }
+
+    @Test
+    public void otherPathsAreNormalisedWithTheURIClass() throws URISyntaxException {
+        assertThat(PathNormaliser.normalise("/a/b/../c"), equalTo("/a/c"));
+        assertThat(PathNormaliser.normalise("/a/./b/.?q=1"), equalTo("/a/b/?q=1"));
+        assertThat(PathNormaliser.normalise("/a//b"), equalTo("/a/b"));
+        assertThat(PathNormaliser.normalise("http://localhost:1234/a/b?c=d"), equalTo("/a/b?c=d"));
+        assertThat(PathNormaliser.normalise("http://localhost:1234"), equalTo("/"));
+        assertThat(PathNormaliser.normalise("/a/b#frag"), equalTo("/a/b"));
+    }
+
+    @Test(expected = URISyntaxException.class)
+    public void invalidPathsResultInExceptions() throws URISyntaxException {
+        PathNormaliser.normalise("/a b");
+    }
+
+}
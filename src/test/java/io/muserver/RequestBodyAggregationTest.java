@@ -0,0 +1,151 @@
+package io.muserver;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okio.BufferedSink;
+import org.junit.After;
+import org.junit.Test;
+import scaffolding.ServerUtils;
+import scaffolding.StringUtils;
+
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import static io.muserver.MuServerBuilder.httpServer;
+import static io.muserver.rest.RestHandlerBuilder.restHandler;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static scaffolding.ClientUtils.call;
+import static scaffolding.ClientUtils.request;
+import static scaffolding.MuAssert.stopAndCheck;
+
+public class RequestBodyAggregationTest {
+
+    private MuServer server;
+
+    @Test
+    public void smallBodiesAreFullyReceivedBeforeHandlersAreCalled() throws IOException {
+        for (MuServerBuilder builder : Arrays.asList(httpServer(), ServerUtils.httpsServerForTest())) {
+            server = builder
+                .withRequestBodyAggregationThreshold(1000)
+                .addHandler(Method.POST, "/", (request, response, pathParams) -> {
+                    InputStream body = request.inputStream().get();
+                    int available = body.available();
+                    response.write(available + " " + new String(Mutils.toByteArray(body, 8192), UTF_8));
+                })
+                .start();
+            try (Response resp = call(request(server.uri()).post(slowBody("Hello ", "world")))) {
+                assertThat(resp.code(), is(200));
+                assertThat(resp.body().string(), equalTo("11 Hello world"));
+            }
+            server.stop();
+        }
+    }
+
+    @Test
+    public void aggregatedBodiesCanBeReadAsBytesOrStrings() throws IOException {
+        server = ServerUtils.httpsServerForTest()
+            .withRequestBodyAggregationThreshold(1000)
+            .addHandler(Method.POST, "/bytes", (request, response, pathParams) -> {
+                response.write(new String(request.readBodyAsBytes(), UTF_8));
+            })
+            .addHandler(Method.POST, "/string", (request, response, pathParams) -> {
+                response.write(request.readBodyAsString());
+            })
+            .addHandler(Method.POST, "/empty", (request, response, pathParams) -> {
+                response.write(String.valueOf(request.readBodyAsBytes().length));
+            })
+            .start();
+        for (String path : Arrays.asList("/bytes", "/string")) {
+            try (Response resp = call(request(server.uri().resolve(path)).post(slowBody("Hello ", "world")))) {
+                assertThat(resp.body().string(), equalTo("Hello world"));
+            }
+        }
+        try (Response resp = call(request(server.uri().resolve("/empty")).post(RequestBody.create(null, new byte[0])))) {
+            assertThat(resp.body().string(), equalTo("0"));
+        }
+    }
+
+    @Test
+    public void bodiesLargerThanTheThresholdAreStreamed() throws IOException {
+        String message = StringUtils.randomAsciiStringOfLength(20000);
+        server = ServerUtils.httpsServerForTest()
+            .withRequestBodyAggregationThreshold(1000)
+            .addHandler(Method.POST, "/", (request, response, pathParams) -> {
+                response.write(request.readBodyAsString());
+            })
+            .start();
+        try (Response resp = call(request(server.uri()).post(RequestBody.create(MediaType.parse("text/plain"), message)))) {
+            assertThat(resp.body().string(), equalTo(message));
+        }
+    }
+
+    @Test
+    public void restResourcesReceiveAggregatedBodies() throws IOException {
+        @Path("/echo")
+        class Echo {
+            @POST
+            @Path("string")
+            public String string(String body) {
+                return body;
+            }
+
+            @POST
+            @Path("bytes")
+            public String bytes(byte[] body) {
+                return new String(body, UTF_8);
+            }
+        }
+        server = ServerUtils.httpsServerForTest()
+            .withRequestBodyAggregationThreshold(1000)
+            .addHandler(restHandler(new Echo()))
+            .start();
+        for (String path : Arrays.asList("/echo/string", "/echo/bytes")) {
+            try (Response resp = call(request(server.uri().resolve(path)).post(slowBody("Hello ", "world")))) {
+                assertThat(resp.body().string(), equalTo("Hello world"));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeThresholdsAreNotAllowed() {
+        httpServer().withRequestBodyAggregationThreshold(-1);
+    }
+
+    private static RequestBody slowBody(String first, String second) {
+        byte[] firstBytes = first.getBytes(UTF_8);
+        byte[] secondBytes = second.getBytes(UTF_8);
+        return new RequestBody() {
+            public MediaType contentType() {
+                return MediaType.parse("text/plain");
+            }
+
+            public long contentLength() {
+                return firstBytes.length + secondBytes.length;
+            }
+
+            public void writeTo(BufferedSink sink) throws IOException {
+                sink.write(firstBytes);
+                sink.flush();
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                sink.write(secondBytes);
+                sink.flush();
+            }
+        };
+    }
+
+    @After
+    public void stop() {
+        stopAndCheck(server);
+    }
+}
@@ -0,0 +1,244 @@
+package io.muserver;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okio.BufferedSink;
+import org.junit.After;
+import org.junit.Test;
+import scaffolding.ServerUtils;
+import scaffolding.StringUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static io.muserver.MuServerBuilder.httpServer;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static scaffolding.ClientUtils.call;
+import static scaffolding.ClientUtils.request;
+import static scaffolding.MuAssert.stopAndCheck;
+
+public class RequestBodySubscriberTest {
+
+    private MuServer server;
+
+    @Test
+    public void bodiesCanBeEchoedOneBufferAtATime() throws IOException {
+        String message = StringUtils.randomAsciiStringOfLength(300000);
+        for (MuServerBuilder builder : Arrays.asList(httpServer(), ServerUtils.httpsServerForTest())) {
+            server = builder
+                .addHandler(Method.POST, "/", (request, response, pathParams) -> {
+                    AsyncHandle handle = request.handleAsync();
+                    handle.subscribe(new RequestBodySubscriber() {
+                        private RequestBodySubscription subscription;
+
+                        public void onSubscribe(RequestBodySubscription subscription) {
+                            this.subscription = subscription;
+                            subscription.request(1);
+                        }
+
+                        public void onNext(ByteBuffer data) {
+                            handle.write(data, error -> {
+                                if (error == null) {
+                                    subscription.request(1);
+                                } else {
+                                    subscription.cancel();
+                                    handle.complete(error);
+                                }
+                            });
+                        }
+
+                        public void onComplete() {
+                            handle.complete();
+                        }
+
+                        public void onError(Throwable error) {
+                            handle.complete(error);
+                        }
+                    });
+                })
+                .start();
+            try (Response resp = call(request(server.uri()).post(RequestBody.create(MediaType.parse("text/plain"), message)))) {
+                assertThat(resp.code(), is(200));
+                assertThat(resp.body().string(), equalTo(message));
+            }
+            server.stop();
+        }
+    }
+
+    @Test
+    public void theClientIsNotReadFromWhenThereIsNoDemand() throws Exception {
+        long bodySize = 8192L * 12000;
+        AtomicReference<RequestBodySubscription> subscriptionRef = new AtomicReference<>();
+        AtomicLong received = new AtomicLong();
+        CountDownLatch firstDataReceived = new CountDownLatch(1);
+        server = httpServer()
+            .withMaxRequestSize(bodySize)
+            .addHandler(Method.POST, "/", (request, response, pathParams) -> {
+                AsyncHandle handle = request.handleAsync();
+                handle.subscribe(new RequestBodySubscriber() {
+                    public void onSubscribe(RequestBodySubscription subscription) {
+                        subscriptionRef.set(subscription);
+                        subscription.request(1);
+                    }
+
+                    public void onNext(ByteBuffer data) {
+                        received.addAndGet(data.remaining());
+                        firstDataReceived.countDown();
+                    }
+
+                    public void onComplete() {
+                        handle.write(Mutils.toByteBuffer(String.valueOf(received.get())), error -> handle.complete(error));
+                    }
+
+                    public void onError(Throwable error) {
+                        handle.complete(error);
+                    }
+                });
+            })
+            .start();
+
+        AtomicLong sent = new AtomicLong();
+        CompletableFuture<String> result = CompletableFuture.supplyAsync(() -> {
+            try (Response resp = call(request(server.uri()).post(new RequestBody() {
+                public MediaType contentType() {
+                    return MediaType.parse("application/octet-stream");
+                }
+
+                public long contentLength() {
+                    return bodySize;
+                }
+
+                public void writeTo(BufferedSink sink) throws IOException {
+                    byte[] chunk = new byte[8192];
+                    for (long i = 0; i < bodySize; i += chunk.length) {
+                        sink.write(chunk);
+                        sent.addAndGet(chunk.length);
+                    }
+                }
+            }))) {
+                return resp.body().string();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        assertThat(firstDataReceived.await(10, TimeUnit.SECONDS), is(true));
+        Thread.sleep(500);
+        long sentWhilePaused = sent.get();
+        Thread.sleep(500);
+        assertThat(sent.get(), equalTo(sentWhilePaused));
+        assertThat(sent.get(), lessThan(bodySize / 4));
+        assertThat(received.get(), lessThan(100_000L));
+
+        subscriptionRef.get().request(Long.MAX_VALUE);
+        assertThat(result.get(30, TimeUnit.SECONDS), equalTo(String.valueOf(bodySize)));
+    }
+
+    @Test
+    public void requestsWithoutBodiesCompleteStraightAway() throws IOException {
+        server = ServerUtils.httpsServerForTest()
+            .addHandler(Method.GET, "/", (request, response, pathParams) -> {
+                AsyncHandle handle = request.handleAsync();
+                StringBuilder events = new StringBuilder();
+                handle.subscribe(new RequestBodySubscriber() {
+                    public void onSubscribe(RequestBodySubscription subscription) {
+                        events.append("subscribed ");
+                    }
+
+                    public void onNext(ByteBuffer data) {
+                        events.append("data ");
+                    }
+
+                    public void onComplete() {
+                        events.append("complete");
+                        handle.write(Mutils.toByteBuffer(events.toString()), error -> handle.complete(error));
+                    }
+
+                    public void onError(Throwable error) {
+                        handle.complete(error);
+                    }
+                });
+            })
+            .start();
+        try (Response resp = call(request(server.uri()))) {
+            assertThat(resp.body().string(), equalTo("subscribed complete"));
+        }
+    }
+
+    @Test
+    public void invalidDemandResultsInAnError() throws IOException {
+        server = ServerUtils.httpsServerForTest()
+            .addHandler(Method.POST, "/", (request, response, pathParams) -> {
+                AsyncHandle handle = request.handleAsync();
+                handle.subscribe(new RequestBodySubscriber() {
+                    public void onSubscribe(RequestBodySubscription subscription) {
+                        subscription.request(0);
+                    }
+
+                    public void onNext(ByteBuffer data) {
+                    }
+
+                    public void onComplete() {
+                        handle.complete();
+                    }
+
+                    public void onError(Throwable error) {
+                        handle.write(Mutils.toByteBuffer(error.getClass().getSimpleName()), e -> handle.complete(e));
+                    }
+                });
+            })
+            .start();
+        try (Response resp = call(request(server.uri()).post(RequestBody.create(MediaType.parse("text/plain"), "Hello")))) {
+            assertThat(resp.body().string(), equalTo("IllegalArgumentException"));
+        }
+    }
+
+    @Test
+    public void cancelledSubscriptionsDiscardTheRestOfTheBody() throws IOException {
+        server = ServerUtils.httpsServerForTest()
+            .addHandler(Method.POST, "/", (request, response, pathParams) -> {
+                AsyncHandle handle = request.handleAsync();
+                handle.subscribe(new RequestBodySubscriber() {
+                    private RequestBodySubscription subscription;
+
+                    public void onSubscribe(RequestBodySubscription subscription) {
+                        this.subscription = subscription;
+                        subscription.request(1);
+                    }
+
+                    public void onNext(ByteBuffer data) {
+                        subscription.cancel();
+                        handle.write(Mutils.toByteBuffer("cancelled"), error -> handle.complete(error));
+                    }
+
+                    public void onComplete() {
+                        handle.complete(new IllegalStateException("Should not be called"));
+                    }
+
+                    public void onError(Throwable error) {
+                        handle.complete(error);
+                    }
+                });
+            })
+            .start();
+        for (int i = 0; i < 2; i++) {
+            try (Response resp = call(request(server.uri()).post(RequestBody.create(MediaType.parse("text/plain"),
+                StringUtils.randomAsciiStringOfLength(200000))))) {
+                assertThat(resp.body().string(), equalTo("cancelled"));
+            }
+        }
+    }
+
+    @After
+    public void stop() {
+        stopAndCheck(server);
+    }
+}
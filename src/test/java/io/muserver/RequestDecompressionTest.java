@@ -0,0 +1,172 @@
+package io.muserver;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.compression.DecompressionException;
+import io.netty.handler.codec.compression.ZlibWrapper;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import scaffolding.ServerUtils;
+import scaffolding.StringUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static io.muserver.MuServerBuilder.httpServer;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static scaffolding.ClientUtils.call;
+import static scaffolding.ClientUtils.request;
+import static scaffolding.MuAssert.stopAndCheck;
+
+public class RequestDecompressionTest {
+
+    private MuServer server;
+    private final String message = StringUtils.randomAsciiStringOfLength(100000);
+
+    @Test
+    public void gzipAndDeflateBodiesAreDecompressedOverHttp1AndHttp2() throws IOException {
+        for (MuServerBuilder builder : Arrays.asList(httpServer(), ServerUtils.httpsServerForTest())) {
+            server = builder
+                .withRequestDecompressionEnabled(true)
+                .addHandler(Method.POST, "/", (request, response, pathParams) -> {
+                    response.write(request.headers().get("content-encoding") + " " + request.readBodyAsString());
+                })
+                .start();
+            for (String encoding : Arrays.asList("gzip", "deflate")) {
+                try (Response resp = post(encoding, compress(encoding, message.getBytes(UTF_8)))) {
+                    assertThat(resp.code(), is(200));
+                    assertThat(resp.body().string(), equalTo("null " + message));
+                }
+            }
+            server.stop();
+        }
+    }
+
+    @Test
+    public void bodiesArePassedThroughUnchangedByDefault() throws IOException {
+        server = ServerUtils.httpsServerForTest()
+            .addHandler(Method.POST, "/", (request, response, pathParams) -> {
+                response.write(request.headers().get("content-encoding") + " " + request.inputStream().get().available());
+            })
+            .start();
+        byte[] compressed = compress("gzip", "Hello".getBytes(UTF_8));
+        try (Response resp = post("gzip", compressed)) {
+            assertThat(resp.body().string(), equalTo("gzip " + compressed.length));
+        }
+    }
+
+    @Test
+    public void bodiesThatExpandTooMuchAreRejected() throws IOException {
+        server = ServerUtils.httpsServerForTest()
+            .withRequestDecompressionEnabled(true)
+            .withMaxRequestDecompressionRatio(50)
+            .addHandler(Method.POST, "/", (request, response, pathParams) -> {
+                response.write(String.valueOf(request.readBodyAsString().length()));
+            })
+            .start();
+        try (Response resp = post("gzip", compress("gzip", new byte[1000000]))) {
+            assertThat(resp.code(), is(413));
+        }
+    }
+
+    @Test
+    public void inflatingStopsWhenAChunkExceedsTheAllowance() throws IOException {
+        byte[] compressed = compress("gzip", new byte[16 * 1024 * 1024]);
+        RequestDecompressor decompressor = new RequestDecompressor(ZlibWrapper.GZIP, 10, 24 * 1024 * 1024);
+        ByteBuf chunk = Unpooled.wrappedBuffer(compressed);
+        try {
+            decompressor.decompress(chunk, null);
+            Assert.fail("Should have been rejected");
+        } catch (MuException e) {
+            assertThat(decompressor.decompressedBytes(), lessThanOrEqualTo(Math.max(65536L, compressed.length * 10L)));
+        }
+        // anything received after the rejection is dropped
+        decompressor.decompress(chunk, null);
+        decompressor.finish(null);
+        chunk.release();
+    }
+
+    @Test
+    public void theMaxRequestSizeAppliesToTheDecompressedBody() throws IOException {
+        server = ServerUtils.httpsServerForTest()
+            .withRequestDecompressionEnabled(true)
+            .withMaxRequestSize(50000)
+            .addHandler(Method.POST, "/", (request, response, pathParams) -> {
+                response.write(String.valueOf(request.readBodyAsString().length()));
+            })
+            .start();
+        try (Response resp = post("gzip", compress("gzip", message.getBytes(UTF_8)))) {
+            assertThat(resp.code(), is(413));
+        }
+    }
+
+    @Test
+    public void invalidCompressedDataResultsInA400() throws IOException {
+        server = ServerUtils.httpsServerForTest()
+            .withRequestDecompressionEnabled(true)
+            .addHandler(Method.POST, "/", (request, response, pathParams) -> {
+                response.write(String.valueOf(request.readBodyAsString().length()));
+            })
+            .start();
+        try (Response resp = post("gzip", "This is not gzipped".getBytes(UTF_8))) {
+            assertThat(resp.code(), is(400));
+        }
+    }
+
+    @Test
+    public void dataAfterInvalidCompressedDataIsDropped() throws IOException {
+        byte[] compressed = compress("gzip", message.getBytes(UTF_8));
+        RequestDecompressor decompressor = new RequestDecompressor(ZlibWrapper.GZIP, 100, 24 * 1024 * 1024);
+        ByteBuf invalid = Unpooled.copiedBuffer("This is not gzipped", UTF_8);
+        try {
+            decompressor.decompress(invalid, null);
+            Assert.fail("Should have failed");
+        } catch (DecompressionException e) {
+            // expected
+        } finally {
+            invalid.release();
+        }
+        // a null request would cause an exception if anything was inflated and passed on
+        ByteBuf valid = Unpooled.wrappedBuffer(compressed);
+        decompressor.decompress(valid, null);
+        decompressor.finish(null);
+        valid.release();
+        assertThat(decompressor.decompressedBytes(), is(0L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void ratiosLessThanOneAreNotAllowed() {
+        httpServer().withMaxRequestDecompressionRatio(0);
+    }
+
+    private Response post(String encoding, byte[] body) {
+        return call(request(server.uri())
+            .header("Content-Encoding", encoding)
+            .post(RequestBody.create(MediaType.parse("text/plain"), body)));
+    }
+
+    private static byte[] compress(String encoding, byte[] bytes) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (OutputStream out = "gzip".equals(encoding) ? new GZIPOutputStream(baos) : new DeflaterOutputStream(baos)) {
+            out.write(bytes);
+        }
+        return baos.toByteArray();
+    }
+
+    @After
+    public void stop() {
+        stopAndCheck(server);
+    }
+}
@@ -0,0 +1,91 @@
+package io.muserver;
+
+import org.junit.After;
+import org.junit.Test;
+import scaffolding.MuAssert;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import static io.muserver.MuServerBuilder.httpServer;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class SlowClientTest {
+
+    private MuServer server;
+    private final ConcurrentLinkedQueue<Throwable> writeErrors = new ConcurrentLinkedQueue<>();
+
+    @Test
+    public void writesFailWhenTheConnectionIsOverItsLimitIfTheFailPolicyIsUsed() throws Exception {
+        server = httpServer()
+            .withMaxPendingWriteBytes(100000, SlowClientPolicy.FAIL)
+            .addHandler(Method.GET, "/", this::writeLotsWithoutWaiting)
+            .start();
+        try (Socket client = connectWithoutReading()) {
+            MuAssert.assertEventually(() -> writeErrors.stream().anyMatch(e -> e instanceof MuException), is(true));
+        }
+    }
+
+    @Test
+    public void pendingBytesAreAvailableInTheStats() throws Exception {
+        server = httpServer()
+            .addHandler(Method.GET, "/", this::writeLotsWithoutWaiting)
+            .start();
+        try (Socket client = connectWithoutReading()) {
+            MuAssert.assertEventually(() -> server.stats().pendingWriteBytes(), greaterThan(1000000L));
+        }
+        MuAssert.assertEventually(() -> server.stats().pendingWriteBytes(), is(0L));
+        assertThat(writeErrors, not(empty()));
+    }
+
+    @Test
+    public void connectionsAreClosedAfterTheGracePeriodIfTheDisconnectPolicyIsUsed() throws Exception {
+        server = httpServer()
+            .withMaxPendingWriteBytes(100000, SlowClientPolicy.DISCONNECT)
+            .withSlowClientGracePeriod(100, TimeUnit.MILLISECONDS)
+            .addHandler(Method.GET, "/", this::writeLotsWithoutWaiting)
+            .start();
+        try (Socket ignored = connectWithoutReading()) {
+            MuAssert.assertEventually(() -> server.stats().activeConnections(), is(0L));
+            MuAssert.assertEventually(() -> server.stats().pendingWriteBytes(), is(0L));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void limitsCannotBeLessThanMinusOne() {
+        httpServer().withMaxPendingWriteBytes(-2, SlowClientPolicy.BLOCK);
+    }
+
+    private void writeLotsWithoutWaiting(MuRequest request, MuResponse response, java.util.Map<String, String> pathParams) {
+        AsyncHandle handle = request.handleAsync();
+        byte[] bytes = new byte[16384];
+        for (int i = 0; i < 1000; i++) {
+            handle.write(ByteBuffer.wrap(bytes), error -> {
+                if (error != null) {
+                    writeErrors.add(error);
+                }
+            });
+        }
+    }
+
+    private Socket connectWithoutReading() throws IOException {
+        Socket socket = new Socket();
+        socket.setReceiveBufferSize(8192);
+        socket.connect(new java.net.InetSocketAddress(server.uri().getHost(), server.uri().getPort()));
+        OutputStream out = socket.getOutputStream();
+        out.write(("GET / HTTP/1.1\r\nHost: " + server.uri().getAuthority() + "\r\n\r\n").getBytes(UTF_8));
+        out.flush();
+        return socket;
+    }
+
+    @After
+    public void stop() {
+        MuAssert.stopAndCheck(server);
+    }
+}
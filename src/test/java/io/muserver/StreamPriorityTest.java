@@ -0,0 +1,110 @@
+package io.muserver;
+
+import io.netty.handler.codec.http2.DefaultHttp2Connection;
+import io.netty.handler.codec.http2.DefaultHttp2RemoteFlowController;
+import io.netty.handler.codec.http2.StreamByteDistributor;
+import okhttp3.Response;
+import org.junit.After;
+import org.junit.Test;
+import scaffolding.ServerUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.muserver.StreamPriority.priority;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static scaffolding.ClientUtils.call;
+import static scaffolding.ClientUtils.request;
+import static scaffolding.MuAssert.stopAndCheck;
+
+public class StreamPriorityTest {
+
+    private MuServer server;
+
+    @Test
+    public void headerValuesCanBeParsed() {
+        assertThat(StreamPriority.parse("u=1, i"), equalTo(priority(1, true)));
+        assertThat(StreamPriority.parse("u=5"), equalTo(priority(5, false)));
+        assertThat(StreamPriority.parse("i=?1"), equalTo(priority(3, true)));
+        assertThat(StreamPriority.parse("u=0;foo=bar, i=?0, x=1"), equalTo(priority(0, false)));
+        assertThat(StreamPriority.parse(""), equalTo(StreamPriority.DEFAULT));
+        assertThat(StreamPriority.parse(null), equalTo(StreamPriority.DEFAULT));
+    }
+
+    @Test
+    public void invalidValuesAreIgnored() {
+        assertThat(StreamPriority.parse("u=8, i=yes"), equalTo(StreamPriority.DEFAULT));
+        assertThat(StreamPriority.parse("u=-1"), equalTo(StreamPriority.DEFAULT));
+        assertThat(StreamPriority.parse("u=one"), equalTo(StreamPriority.DEFAULT));
+    }
+
+    @Test
+    public void toStringIsTheHeaderValue() {
+        assertThat(priority(1, true).toString(), equalTo("u=1, i"));
+        assertThat(priority(7, false).toString(), equalTo("u=7"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void urgencyMustBeInRange() {
+        priority(8, false);
+    }
+
+    @Test
+    public void moreUrgentStreamsHaveHigherWeights() {
+        assertThat(priority(0, false).weight(), is((short) 128));
+        assertThat(priority(3, false).weight(), is((short) 16));
+        assertThat(priority(7, false).weight(), is((short) 1));
+    }
+
+    @Test
+    public void sequentialStreamsDependOnEarlierStreamsOfTheSameUrgency() throws Exception {
+        DefaultHttp2Connection connection = new DefaultHttp2Connection(true);
+        List<String> updates = new ArrayList<>();
+        DefaultHttp2RemoteFlowController flowController = new DefaultHttp2RemoteFlowController(connection, new StreamByteDistributor() {
+            public void updateStreamableBytes(StreamState state) {
+            }
+
+            public void updateDependencyTree(int childStreamId, int parentStreamId, short weight, boolean exclusive) {
+                updates.add(childStreamId + "->" + parentStreamId + " w" + weight);
+            }
+
+            public boolean distribute(int maxBytes, Writer writer) {
+                return false;
+            }
+        });
+        for (int i = 1; i <= 9; i += 2) {
+            connection.remote().createStream(i, false);
+        }
+        StreamPrioritizer prioritizer = new StreamPrioritizer(connection, flowController);
+        prioritizer.prioritize(1, priority(3, false));
+        prioritizer.prioritize(3, priority(3, false));
+        prioritizer.prioritize(5, priority(1, true));
+        prioritizer.prioritize(7, priority(3, false));
+        prioritizer.prioritize(7, priority(3, false));
+        connection.stream(7).close();
+        prioritizer.prioritize(9, priority(3, false));
+        prioritizer.prioritize(3, priority(0, false));
+        assertThat(updates, contains("1->0 w16", "3->1 w16", "5->0 w64", "7->3 w16", "9->0 w16", "3->0 w128"));
+    }
+
+    @Test
+    public void handlersCanSetThePriorityOfResponses() throws Exception {
+        server = ServerUtils.httpsServerForTest()
+            .addHandler(Method.GET, "/", (request, response, pathParams) -> {
+                response.headers().set(HeaderNames.PRIORITY, priority(0, false));
+                response.write("Priority was " + StreamPriority.parse(request.headers().get(HeaderNames.PRIORITY)));
+            })
+            .start();
+        try (Response resp = call(request(server.uri()).header("priority", "u=5, i"))) {
+            assertThat(resp.code(), is(200));
+            assertThat(resp.header("priority"), equalTo("u=0"));
+            assertThat(resp.body().string(), equalTo("Priority was u=5, i"));
+        }
+    }
+
+    @After
+    public void stop() {
+        stopAndCheck(server);
+    }
+}
@@ -8,6 +8,7 @@ import org.junit.After;
 import org.junit.Test;
 import scaffolding.MuAssert;
 import scaffolding.ServerUtils;
+import scaffolding.StringUtils;
 
 import java.io.BufferedOutputStream;
 import java.io.InputStream;
@@ -203,6 +204,40 @@ public class StreamingTest {
         }
     }
 
+    @Test
+    public void writeBehindSendsAllDataInOrderEvenWhenBuffersAreReused() throws Exception {
+        String chunk = StringUtils.randomAsciiStringOfLength(1000);
+        server = httpsServer()
+            .withWriteBehindEnabled(true)
+            .withWriteBufferWaterMarks(1024, 4096)
+            .addHandler((request, response) -> {
+                response.contentType(ContentTypes.TEXT_PLAIN);
+                OutputStream os = response.outputStream();
+                byte[] bytes = new byte[chunk.length()];
+                for (int i = 0; i < 2000; i++) {
+                    // the same array is written each time so any unsent data overwritten would be noticed
+                    String line = (i + chunk).substring(0, chunk.length());
+                    System.arraycopy(line.getBytes(UTF_8), 0, bytes, 0, bytes.length);
+                    os.write(bytes);
+                    os.flush();
+                }
+                return true;
+            }).start();
+
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            expected.append((i + chunk), 0, chunk.length());
+        }
+        try (Response resp = call(request(server.uri()))) {
+            assertThat(resp.body().string(), equalTo(expected.toString()));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void theHighWaterMarkCannotBeLessThanTheLowWaterMark() {
+        httpsServer().withWriteBufferWaterMarks(2048, 1024);
+    }
+
 	@After public void stopIt() {
         MuAssert.stopAndCheck(server);
 	}
@@ -0,0 +1,43 @@
+package io.muserver;
+
+import okhttp3.Response;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static io.muserver.MuServerBuilder.httpServer;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static scaffolding.ClientUtils.call;
+import static scaffolding.ClientUtils.request;
+import static scaffolding.MuAssert.stopAndCheck;
+
+/**
+ * Run by the failsafe plugin in the java21 profile against the packaged multi-release jar, to check that the
+ * Java 21 version of {@link VirtualThreads} is the one loaded.
+ */
+public class VirtualThreadsIT {
+
+    private MuServer server;
+
+    @Test
+    public void handlersRunOnVirtualThreadsFromThePackagedJar() throws IOException {
+        assertThat(VirtualThreads.class.getProtectionDomain().getCodeSource().getLocation().getPath().endsWith(".jar"), is(true));
+        assertThat(VirtualThreads.isSupported(), is(true));
+        server = httpServer()
+            .withVirtualThreads(true)
+            .addHandler(Method.GET, "/", (request, response, pathParams) ->
+                response.write(String.valueOf(Thread.class.getMethod("isVirtual").invoke(Thread.currentThread()))))
+            .start();
+        try (Response resp = call(request(server.uri()))) {
+            assertThat(resp.body().string(), equalTo("true"));
+        }
+    }
+
+    @After
+    public void stop() {
+        stopAndCheck(server);
+    }
+}
@@ -0,0 +1,47 @@
+package io.muserver;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static io.muserver.MuServerBuilder.httpServer;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.startsWith;
+import static scaffolding.ClientUtils.call;
+import static scaffolding.ClientUtils.request;
+import static scaffolding.MuAssert.stopAndCheck;
+
+public class VirtualThreadsTest {
+
+    private MuServer server;
+
+    @Test
+    public void handlersRunOnVirtualThreadsIfSupportedOrTheDefaultPoolOtherwise() throws IOException {
+        server = httpServer()
+            .withVirtualThreads(true)
+            .addHandler(Method.POST, "/", (request, response, pathParams) -> {
+                String body = new String(Mutils.toByteArray(request.inputStream().get(), 8192), UTF_8);
+                response.sendChunk(Thread.currentThread().getName() + " " + body);
+            })
+            .start();
+        String expectedPrefix = VirtualThreads.isSupported() ? "muhandler-virtual-" : "muhandler-";
+        for (int i = 0; i < 3; i++) {
+            try (Response resp = call(request(server.uri()).post(RequestBody.create(MediaType.parse("text/plain"), "Hello " + i)))) {
+                String body = resp.body().string();
+                assertThat(body, startsWith(expectedPrefix));
+                assertThat(body.substring(body.indexOf(' ') + 1), equalTo("Hello " + i));
+            }
+        }
+    }
+
+    @After
+    public void stop() {
+        stopAndCheck(server);
+    }
+}
@@ -9,6 +9,7 @@ import org.junit.After;
 import org.junit.Assert;
 import org.junit.Test;
 import scaffolding.MuAssert;
+import scaffolding.NotImplementedMuRequest;
 import scaffolding.RawClient;
 import scaffolding.ServerUtils;
 import scaffolding.StringUtils;
@@ -360,6 +361,28 @@ public class WebSocketsTest {
     }
 
 
+    @Test
+    public void http2RequestsWithUpgradeHeadersAreNotTreatedAsWebSocketUpgrades() {
+        Headers headers = Headers.http2Headers();
+        headers.set(HeaderNames.UPGRADE, HeaderValues.WEBSOCKET);
+        assertThat(WebSocketHandler.isWebSocketUpgrade(requestWith("HTTP/1.1", headers)), is(true));
+        assertThat(WebSocketHandler.isWebSocketUpgrade(requestWith("HTTP/2", headers)), is(false));
+    }
+
+    private static MuRequest requestWith(String protocol, Headers headers) {
+        return new NotImplementedMuRequest() {
+            @Override
+            public String protocol() {
+                return protocol;
+            }
+
+            @Override
+            public Headers headers() {
+                return headers;
+            }
+        };
+    }
+
     @After
     public void clean() {
         MuAssert.stopAndCheck(server);
@@ -0,0 +1,223 @@
+package io.muserver.handlers;
+
+import io.muserver.Method;
+import io.muserver.MuServer;
+import okhttp3.Response;
+import org.junit.After;
+import org.junit.Test;
+import scaffolding.MuAssert;
+import scaffolding.ServerUtils;
+import scaffolding.StringUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.muserver.handlers.CoalescingHandlerBuilder.coalescingHandler;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static scaffolding.ClientUtils.call;
+import static scaffolding.ClientUtils.request;
+
+public class CoalescingHandlerTest {
+
+    private MuServer server;
+    private final ExecutorService clientExecutor = Executors.newCachedThreadPool();
+
+    @Test
+    public void identicalConcurrentRequestsOnlyCallTheHandlerOnce() throws Exception {
+        AtomicInteger invocations = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        String body = StringUtils.randomAsciiStringOfLength(20000);
+        server = ServerUtils.httpsServerForTest()
+            .addHandler(coalescingHandler()
+                .withHandler(Method.GET, "/value", (request, response, pathParams) -> {
+                    invocations.incrementAndGet();
+                    MuAssert.assertNotTimedOut("release", release);
+                    response.status(202);
+                    response.headers().set("X-Custom", "custom-value");
+                    response.contentType("text/plain;charset=utf-8");
+                    response.writer().write(body);
+                })
+            )
+            .start();
+
+        List<Future<String>> results = sendConcurrently(5, "/value");
+        MuAssert.assertEventually(() -> server.stats().activeRequests().size(), is(5));
+        release.countDown();
+        for (Future<String> result : results) {
+            assertThat(result.get(30, TimeUnit.SECONDS), equalTo("202 custom-value " + body));
+        }
+        assertThat(invocations.get(), is(1));
+    }
+
+    @Test
+    public void differentUrisAreNotCoalesced() throws Exception {
+        AtomicInteger invocations = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        server = ServerUtils.httpsServerForTest()
+            .addHandler(coalescingHandler()
+                .withHandler(Method.GET, "/value", (request, response, pathParams) -> {
+                    invocations.incrementAndGet();
+                    MuAssert.assertNotTimedOut("release", release);
+                    response.headers().set("X-Custom", request.query().get("id"));
+                    response.write("Hello " + request.query().get("id"));
+                })
+            )
+            .start();
+
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            results.addAll(sendConcurrently(1, "/value?id=" + i));
+        }
+        MuAssert.assertEventually(() -> server.stats().activeRequests().size(), is(3));
+        release.countDown();
+        for (int i = 0; i < 3; i++) {
+            assertThat(results.get(i).get(30, TimeUnit.SECONDS), equalTo("200 " + i + " Hello " + i));
+        }
+        assertThat(invocations.get(), is(3));
+    }
+
+    @Test
+    public void waitersHandleTheRequestThemselvesIfTheResponseIsTooLarge() throws Exception {
+        AtomicInteger invocations = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        server = ServerUtils.httpsServerForTest()
+            .addHandler(coalescingHandler()
+                .withMaxBodySize(10)
+                .withHandler(Method.GET, "/value", (request, response, pathParams) -> {
+                    invocations.incrementAndGet();
+                    MuAssert.assertNotTimedOut("release", release);
+                    response.headers().set("X-Custom", "big");
+                    response.write("This is more than ten bytes");
+                })
+            )
+            .start();
+
+        List<Future<String>> results = sendConcurrently(3, "/value");
+        MuAssert.assertEventually(() -> server.stats().activeRequests().size(), is(3));
+        release.countDown();
+        for (Future<String> result : results) {
+            assertThat(result.get(30, TimeUnit.SECONDS), equalTo("200 big This is more than ten bytes"));
+        }
+        assertThat(invocations.get(), is(3));
+    }
+
+    @Test
+    public void waitersHandleTheRequestThemselvesIfTheMaxWaitIsExceeded() throws Exception {
+        AtomicInteger invocations = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        server = ServerUtils.httpsServerForTest()
+            .addHandler(coalescingHandler()
+                .withMaxWait(100, TimeUnit.MILLISECONDS)
+                .withHandler(Method.GET, "/value", (request, response, pathParams) -> {
+                    if (invocations.incrementAndGet() == 1) {
+                        MuAssert.assertNotTimedOut("release", release);
+                    }
+                    response.headers().set("X-Custom", "slow");
+                    response.write("Hello");
+                })
+            )
+            .start();
+
+        Future<String> first = sendConcurrently(1, "/value").get(0);
+        MuAssert.assertEventually(invocations::get, is(1));
+        Future<String> second = sendConcurrently(1, "/value").get(0);
+        assertThat(second.get(30, TimeUnit.SECONDS), equalTo("200 slow Hello"));
+        release.countDown();
+        assertThat(first.get(30, TimeUnit.SECONDS), equalTo("200 slow Hello"));
+        assertThat(invocations.get(), is(2));
+    }
+
+    @Test
+    public void waitersGet503sIfTheFallbackExecutorRejectsThem() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService fallbackExecutor = Executors.newSingleThreadExecutor();
+        fallbackExecutor.shutdown();
+        server = ServerUtils.httpsServerForTest()
+            .addHandler(coalescingHandler()
+                .withMaxWait(100, TimeUnit.MILLISECONDS)
+                .withFallbackExecutor(fallbackExecutor)
+                .withHandler(Method.GET, "/value", (request, response, pathParams) -> {
+                    MuAssert.assertNotTimedOut("release", release);
+                    response.headers().set("X-Custom", "slow");
+                    response.write("Hello");
+                })
+            )
+            .start();
+
+        Future<String> first = sendConcurrently(1, "/value").get(0);
+        MuAssert.assertEventually(() -> server.stats().activeRequests().size(), is(1));
+        Future<String> second = sendConcurrently(1, "/value").get(0);
+        assertThat(second.get(30, TimeUnit.SECONDS), startsWith("503 null "));
+        release.countDown();
+        assertThat(first.get(30, TimeUnit.SECONDS), equalTo("200 slow Hello"));
+    }
+
+    @Test
+    public void requestsThatDoNotMatchTheRouteGoToTheNextHandler() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        server = ServerUtils.httpsServerForTest()
+            .addHandler(coalescingHandler()
+                .withHandler(Method.GET, "/values/{id}", (request, response, pathParams) -> {
+                    MuAssert.assertNotTimedOut("release", release);
+                    response.headers().set("X-Custom", "value");
+                    response.write("Value " + pathParams.get("id"));
+                })
+            )
+            .addHandler(null, "/values/{id}", (request, response, pathParams) -> {
+                response.headers().set("X-Custom", "next");
+                response.write(request.method() + " " + pathParams.get("id"));
+            })
+            .addHandler(Method.GET, "/other", (request, response, pathParams) -> {
+                response.headers().set("X-Custom", "next");
+                response.write("Other");
+            })
+            .start();
+
+        List<Future<String>> coalesced = sendConcurrently(3, "/values/1");
+        MuAssert.assertEventually(() -> server.stats().activeRequests().size(), is(3));
+        for (Future<String> other : sendConcurrently(3, "/other")) {
+            assertThat(other.get(30, TimeUnit.SECONDS), equalTo("200 next Other"));
+        }
+        try (Response resp = call(request(server.uri().resolve("/values/2")).delete())) {
+            assertThat(resp.code(), is(200));
+            assertThat(resp.body().string(), equalTo("DELETE 2"));
+        }
+        release.countDown();
+        for (Future<String> result : coalesced) {
+            assertThat(result.get(30, TimeUnit.SECONDS), equalTo("200 value Value 1"));
+        }
+    }
+
+    @Test
+    public void handlersShareOneTimerThread() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            waitersHandleTheRequestThemselvesIfTheMaxWaitIsExceeded();
+            server.stop();
+        }
+        long timerThreads = Thread.getAllStackTraces().keySet().stream()
+            .filter(thread -> thread.getName().startsWith("mu-coalesce-timer"))
+            .count();
+        assertThat(timerThreads, is(1L));
+    }
+
+    private List<Future<String>> sendConcurrently(int count, String path) {
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            results.add(clientExecutor.submit(() -> {
+                try (Response resp = call(request(server.uri().resolve(path)))) {
+                    return resp.code() + " " + resp.header("X-Custom") + " " + resp.body().string();
+                }
+            }));
+        }
+        return results;
+    }
+
+    @After
+    public void stop() {
+        clientExecutor.shutdownNow();
+        MuAssert.stopAndCheck(server);
+    }
+}
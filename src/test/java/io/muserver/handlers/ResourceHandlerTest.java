@@ -15,6 +15,8 @@ import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -25,6 +27,7 @@ import static io.muserver.Mutils.urlEncode;
 import static io.muserver.handlers.ResourceHandlerBuilder.*;
 import static io.muserver.handlers.ResourceType.getResourceTypes;
 import static io.muserver.handlers.ResourceType.gzippableMimeTypes;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
@@ -412,6 +415,35 @@ public class ResourceHandlerTest {
         }
     }
 
+    @Test
+    public void precompressedVariantsAreServedWhenAccepted() throws IOException {
+        Path dir = Files.createTempDirectory("precompressed");
+        Files.write(dir.resolve("app.js"), "var plain = true;".getBytes(UTF_8));
+        Files.write(dir.resolve("app.js.br"), "pretend brotli".getBytes(UTF_8));
+        Files.write(dir.resolve("app.js.gz"), "pretend gzip".getBytes(UTF_8));
+        server = ServerUtils.httpsServerForTest()
+            .withGzipEnabled(false)
+            .addHandler(fileHandler(dir).withPrecompressedFiles(true))
+            .start();
+
+        try (Response resp = call(request(server.uri().resolve("/app.js")).header("Accept-Encoding", "gzip, deflate, br"))) {
+            assertThat(resp.code(), is(200));
+            assertThat(resp.header("Content-Encoding"), equalTo("br"));
+            assertThat(resp.header("Content-Type"), equalTo("application/javascript"));
+            assertThat(resp.header("Vary"), equalTo("accept-encoding"));
+            assertThat(resp.body().string(), equalTo("pretend brotli"));
+        }
+        try (Response resp = call(request(server.uri().resolve("/app.js")).header("Accept-Encoding", "gzip, br;q=0.5"))) {
+            assertThat(resp.header("Content-Encoding"), equalTo("gzip"));
+            assertThat(resp.body().string(), equalTo("pretend gzip"));
+        }
+        try (Response resp = call(request(server.uri().resolve("/app.js")).header("Accept-Encoding", "zstd, deflate"))) {
+            assertThat(resp.header("Content-Encoding"), is(nullValue()));
+            assertThat(resp.header("Vary"), equalTo("accept-encoding"));
+            assertThat(resp.body().string(), equalTo("var plain = true;"));
+        }
+    }
+
     @After
     public void stop() {
         scaffolding.MuAssert.stopAndCheck(server);
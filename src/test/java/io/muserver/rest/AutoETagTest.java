@@ -0,0 +1,180 @@
+package io.muserver.rest;
+
+import io.muserver.MuServer;
+import org.junit.After;
+import org.junit.Test;
+import scaffolding.ServerUtils;
+import scaffolding.StringUtils;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.MessageBodyWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.muserver.rest.RestHandlerBuilder.restHandler;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static scaffolding.ClientUtils.call;
+import static scaffolding.ClientUtils.request;
+import static scaffolding.MuAssert.stopAndCheck;
+
+public class AutoETagTest {
+
+    private MuServer server;
+
+    @Path("/things")
+    public static class Thing {
+        final AtomicInteger calls = new AtomicInteger();
+        String value = "Hello!";
+
+        @GET
+        @AutoETag
+        public String get() {
+            calls.incrementAndGet();
+            return value;
+        }
+
+        @GET
+        @Path("not-tagged")
+        public String notTagged() {
+            return "Hello!";
+        }
+
+        @GET
+        @AutoETag
+        @Path("own-tag")
+        public Response ownTag() {
+            return Response.ok("Hello!").tag("custom").build();
+        }
+    }
+
+    @Path("/large-things")
+    public static class LargeThing {
+        final String value = StringUtils.randomAsciiStringOfLength(20000);
+
+        @GET
+        @AutoETag
+        @Produces("text/plain")
+        public LargeThing get() {
+            return this;
+        }
+    }
+
+    private static class LargeThingWriter implements MessageBodyWriter<LargeThing> {
+        final AtomicInteger writes = new AtomicInteger();
+
+        @Override
+        public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+            return type == LargeThing.class;
+        }
+
+        @Override
+        public void writeTo(LargeThing thing, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType, MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream) throws IOException {
+            writes.incrementAndGet();
+            entityStream.write(thing.value.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void annotatedMethodsGetStrongETagsAndFixedLengths() throws Exception {
+        server = ServerUtils.httpsServerForTest().addHandler(restHandler(new Thing())).start();
+        String eTag;
+        try (okhttp3.Response resp = call(request(server.uri().resolve("/things")))) {
+            assertThat(resp.code(), is(200));
+            eTag = resp.header("ETag");
+            assertThat(eTag, startsWith("\""));
+            assertThat(resp.header("Content-Length"), is("6"));
+            assertThat(resp.body().string(), is("Hello!"));
+        }
+        try (okhttp3.Response resp = call(request(server.uri().resolve("/things")))) {
+            assertThat(resp.header("ETag"), is(eTag));
+        }
+        try (okhttp3.Response resp = call(request(server.uri().resolve("/things/not-tagged")))) {
+            assertThat(resp.header("ETag"), is(nullValue()));
+        }
+        try (okhttp3.Response resp = call(request(server.uri().resolve("/things/own-tag")))) {
+            assertThat(resp.header("ETag"), containsString("custom"));
+        }
+    }
+
+    @Test
+    public void matchingIfNoneMatchResultsInA304() throws Exception {
+        Thing thing = new Thing();
+        server = ServerUtils.httpsServerForTest().addHandler(restHandler(thing)).start();
+        String eTag;
+        try (okhttp3.Response resp = call(request(server.uri().resolve("/things")))) {
+            eTag = resp.header("ETag");
+        }
+        try (okhttp3.Response resp = call(request(server.uri().resolve("/things")).header("If-None-Match", "\"other\", " + eTag))) {
+            assertThat(resp.code(), is(304));
+            assertThat(resp.header("ETag"), is(eTag));
+            assertThat(resp.body().string(), is(""));
+        }
+        thing.value = "Goodbye!";
+        try (okhttp3.Response resp = call(request(server.uri().resolve("/things")).header("If-None-Match", eTag))) {
+            assertThat(resp.code(), is(200));
+            assertThat(resp.header("ETag"), not(eTag));
+            assertThat(resp.body().string(), is("Goodbye!"));
+        }
+    }
+
+    @Test
+    public void largeBodiesAreSerializedOnceAndSentWithAFixedLength() throws Exception {
+        LargeThing thing = new LargeThing();
+        LargeThingWriter writer = new LargeThingWriter();
+        server = ServerUtils.httpsServerForTest()
+            .addHandler(restHandler(thing).withAutoETagBufferSize(1000).addCustomWriter(writer))
+            .start();
+        String eTag;
+        try (okhttp3.Response resp = call(request(server.uri().resolve("/large-things")).header("Accept-Encoding", "identity"))) {
+            assertThat(resp.code(), is(200));
+            eTag = resp.header("ETag");
+            assertThat(eTag, startsWith("\""));
+            assertThat(resp.header("Content-Length"), is("20000"));
+            assertThat(resp.body().string(), is(thing.value));
+        }
+        assertThat(writer.writes.get(), is(1));
+        try (okhttp3.Response resp = call(request(server.uri().resolve("/large-things")).header("If-None-Match", eTag))) {
+            assertThat(resp.code(), is(304));
+            assertThat(resp.body().string(), is(""));
+        }
+        assertThat(writer.writes.get(), is(2));
+    }
+
+    @Test
+    public void canBeEnabledForAllMethods() throws Exception {
+        server = ServerUtils.httpsServerForTest()
+            .addHandler(restHandler(new Thing()).withAutoETags(true))
+            .start();
+        try (okhttp3.Response resp = call(request(server.uri().resolve("/things/not-tagged")))) {
+            assertThat(resp.header("ETag"), startsWith("\""));
+        }
+    }
+
+    @Test
+    public void preconditionsCanBeEvaluatedAgainstIfMatchAndIfNoneMatch() {
+        MuRuntimeDelegate.ensureSet();
+        EntityTag tag = new EntityTag("abc");
+        assertThat(JaxRequest.matches("*", tag, true), is(true));
+        assertThat(JaxRequest.matches("\"abc\"", tag, true), is(true));
+        assertThat(JaxRequest.matches("\"x\", \"abc\"", tag, true), is(true));
+        assertThat(JaxRequest.matches("W/\"abc\"", tag, true), is(false));
+        assertThat(JaxRequest.matches("W/\"abc\"", tag, false), is(true));
+        assertThat(JaxRequest.matches("\"abcd\"", tag, false), is(false));
+    }
+
+    @After
+    public void stop() {
+        stopAndCheck(server);
+    }
+}
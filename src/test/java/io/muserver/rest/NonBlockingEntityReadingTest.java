@@ -0,0 +1,161 @@
+package io.muserver.rest;
+
+import io.muserver.MuServer;
+import io.muserver.Mutils;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okio.BufferedSink;
+import org.junit.After;
+import org.junit.Test;
+import scaffolding.ServerUtils;
+import scaffolding.StringUtils;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.*;
+
+import static io.muserver.rest.RestHandlerBuilder.restHandler;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static scaffolding.ClientUtils.call;
+import static scaffolding.ClientUtils.request;
+import static scaffolding.MuAssert.stopAndCheck;
+
+public class NonBlockingEntityReadingTest {
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private MuServer server;
+
+    @Path("/things")
+    public static class Things {
+        @POST
+        public String echo(String body) {
+            return "Got " + body;
+        }
+
+        @GET
+        public String get() {
+            return "Hello";
+        }
+
+        @POST
+        @Path("stage")
+        public CompletionStage<String> stage(String body) {
+            return CompletableFuture.supplyAsync(() -> "Staged " + body);
+        }
+
+        @POST
+        @Path("suspended")
+        public void suspended(String body, @Suspended AsyncResponse asyncResponse) {
+            new Thread(() -> asyncResponse.resume("Resumed " + body)).start();
+        }
+
+        @POST
+        @Path("stream")
+        public String stream(InputStream body) throws IOException {
+            return "Streamed " + new String(Mutils.toByteArray(body, 8192), "UTF-8");
+        }
+    }
+
+    @Test
+    public void slowUploadsDoNotHoldHandlerThreads() throws Exception {
+        server = ServerUtils.httpsServerForTest()
+            .withHandlerExecutor(executor)
+            .addHandler(restHandler(new Things()).withNonBlockingEntityReading(10000, executor))
+            .start();
+        CountDownLatch firstHalfSent = new CountDownLatch(1);
+        CountDownLatch sendRest = new CountDownLatch(1);
+        RequestBody slowBody = new RequestBody() {
+            public MediaType contentType() {
+                return MediaType.parse("text/plain");
+            }
+
+            public void writeTo(BufferedSink sink) throws IOException {
+                sink.writeUtf8("Hello ");
+                sink.flush();
+                firstHalfSent.countDown();
+                try {
+                    sendRest.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                sink.writeUtf8("world");
+            }
+        };
+        CompletableFuture<String> slowResult = CompletableFuture.supplyAsync(() -> {
+            try (Response resp = call(request(server.uri().resolve("/things")).post(slowBody))) {
+                return resp.body().string();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        assertThat(firstHalfSent.await(10, TimeUnit.SECONDS), is(true));
+
+        // the only handler thread is free while the first request is still uploading
+        try (Response resp = call(request(server.uri().resolve("/things")))) {
+            assertThat(resp.body().string(), equalTo("Hello"));
+        }
+        sendRest.countDown();
+        assertThat(slowResult.get(10, TimeUnit.SECONDS), equalTo("Got Hello world"));
+    }
+
+    @Test
+    public void asyncResourceMethodsCanBeUsed() throws IOException {
+        server = ServerUtils.httpsServerForTest()
+            .addHandler(restHandler(new Things()).withNonBlockingEntityReading(10000, executor))
+            .start();
+        for (String path : new String[]{"stage", "suspended"}) {
+            try (Response resp = call(request(server.uri().resolve("/things/" + path))
+                .post(RequestBody.create(MediaType.parse("text/plain"), "Hello")))) {
+                assertThat(resp.code(), is(200));
+                assertThat(resp.body().string(), equalTo((path.equals("stage") ? "Staged" : "Resumed") + " Hello"));
+            }
+        }
+    }
+
+    @Test
+    public void entitiesLargerThanTheMaxSizeAreRejected() throws IOException {
+        server = ServerUtils.httpsServerForTest()
+            .addHandler(restHandler(new Things()).withNonBlockingEntityReading(1000, executor))
+            .start();
+        try (Response resp = call(request(server.uri().resolve("/things"))
+            .post(RequestBody.create(MediaType.parse("text/plain"), StringUtils.randomAsciiStringOfLength(5000))))) {
+            assertThat(resp.code(), is(413));
+        }
+        try (Response resp = call(request(server.uri().resolve("/things"))
+            .post(RequestBody.create(MediaType.parse("text/plain"), "Small")))) {
+            assertThat(resp.body().string(), equalTo("Got Small"));
+        }
+    }
+
+    @Test
+    public void inputStreamParametersAreStillStreamed() throws IOException {
+        String message = StringUtils.randomAsciiStringOfLength(5000);
+        server = ServerUtils.httpsServerForTest()
+            .addHandler(restHandler(new Things()).withNonBlockingEntityReading(1000, executor))
+            .start();
+        try (Response resp = call(request(server.uri().resolve("/things/stream"))
+            .post(RequestBody.create(MediaType.parse("text/plain"), message)))) {
+            assertThat(resp.code(), is(200));
+            assertThat(resp.body().string(), equalTo("Streamed " + message));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void anExecutorIsRequired() {
+        restHandler(new Things()).withNonBlockingEntityReading(1000, null);
+    }
+
+    @After
+    public void stop() {
+        stopAndCheck(server);
+        executor.shutdown();
+    }
+}
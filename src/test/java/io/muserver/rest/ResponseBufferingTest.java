@@ -0,0 +1,116 @@
+package io.muserver.rest;
+
+import io.muserver.MuServer;
+import org.junit.After;
+import org.junit.Test;
+import scaffolding.MuAssert;
+import scaffolding.ServerUtils;
+import scaffolding.StringUtils;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+
+import static io.muserver.rest.RestHandlerBuilder.restHandler;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static scaffolding.ClientUtils.call;
+import static scaffolding.ClientUtils.request;
+
+public class ResponseBufferingTest {
+
+    private MuServer server;
+
+    @Test
+    public void entitiesSmallerThanTheBufferAreSentWithAContentLength() throws IOException {
+        server = ServerUtils.httpsServerForTest()
+            .addHandler(restHandler(new Messages()).addCustomWriter(new MessageWriter()).withResponseBufferSize(1000))
+            .start();
+        try (okhttp3.Response resp = call(request(server.uri().resolve("/messages/100")))) {
+            assertThat(resp.code(), is(200));
+            assertThat(resp.header("Content-Length"), is("100"));
+            assertThat(resp.header("Transfer-Encoding"), is(nullValue()));
+            assertThat(resp.body().string().length(), is(100));
+        }
+        try (okhttp3.Response resp = call(request(server.uri().resolve("/messages/0")))) {
+            assertThat(resp.code(), is(200));
+            assertThat(resp.header("Content-Length"), is("0"));
+            assertThat(resp.body().string(), is(""));
+        }
+    }
+
+    @Test
+    public void entitiesLargerThanTheBufferAreStreamed() throws IOException {
+        server = ServerUtils.httpsServerForTest()
+            .addHandler(restHandler(new Messages()).addCustomWriter(new MessageWriter()).withResponseBufferSize(1000))
+            .start();
+        try (okhttp3.Response resp = call(request(server.uri().resolve("/messages/20000")))) {
+            assertThat(resp.code(), is(200));
+            assertThat(resp.header("Content-Length"), is(nullValue()));
+            assertThat(resp.body().string().length(), is(20000));
+        }
+    }
+
+    @Test
+    public void bufferingIsOffByDefault() throws IOException {
+        server = ServerUtils.httpsServerForTest()
+            .addHandler(restHandler(new Messages()).addCustomWriter(new MessageWriter()))
+            .start();
+        try (okhttp3.Response resp = call(request(server.uri().resolve("/messages/100")))) {
+            assertThat(resp.code(), is(200));
+            assertThat(resp.header("Content-Length"), is(nullValue()));
+            assertThat(resp.body().string().length(), is(100));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeSizesAreNotAllowed() {
+        restHandler(new Messages()).withResponseBufferSize(-1);
+    }
+
+    private static class Message {
+        final String value;
+        Message(String value) {
+            this.value = value;
+        }
+    }
+
+    @Path("/messages")
+    private static class Messages {
+        @GET
+        @Path("{length}")
+        @Produces("text/plain")
+        public Message get(@PathParam("length") int length) {
+            return new Message(StringUtils.randomAsciiStringOfLength(length));
+        }
+    }
+
+    private static class MessageWriter implements MessageBodyWriter<Message> {
+        public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+            return type.equals(Message.class);
+        }
+        public void writeTo(Message message, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType, MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream) throws IOException, WebApplicationException {
+            byte[] bytes = message.value.getBytes(StandardCharsets.UTF_8);
+            for (int i = 0; i < bytes.length; i += 10) {
+                entityStream.write(bytes, i, Math.min(10, bytes.length - i));
+                entityStream.flush();
+            }
+        }
+    }
+
+    @After
+    public void stop() {
+        MuAssert.stopAndCheck(server);
+    }
+}
@@ -143,7 +143,7 @@ public class PetData {
       if(status != null && !"".equals(status)) {
         Integer count = output.get(status);
         if(count == null)
-          count = new Integer(1);
+          count = Integer.valueOf(1);
         else
           count = count.intValue() + 1;
         output.put(status, count);